@@ -0,0 +1,99 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.controller.DelegateController;
+import com.example.spring_aop_logback.controller.HelloController;
+import com.example.spring_aop_logback.dto.DelegateCreationRequest;
+import com.example.spring_aop_logback.dto.DelegateCreationResponse;
+import com.example.spring_aop_logback.dto.UceRequest;
+import com.example.spring_aop_logback.dto.UceResponse;
+import com.example.spring_aop_logback.util.web.UceServiceClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full calls through the Spring AOP proxies ({@code LoggingAspect.logAroundController}, {@code spanAroundService},
+ * {@code ExternalServiceLoggingAspect.logAroundExternalCall}) compared with the same beans wired without aspects.
+ * Downstream responses come from {@link StubExchangeFunction}, so each {@code block()} completes synchronously.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AspectProxyBenchmark {
+
+    @Param({"true", "false"})
+    public boolean aspects;
+
+    private ConfigurableApplicationContext context;
+    private HelloController helloController;
+    private DelegateController delegateController;
+    private UceServiceClient uceServiceClient;
+
+    private final DelegateCreationRequest delegateRequest = new DelegateCreationRequest("C-12345");
+    private final UceRequest uceRequest = new UceRequest("C-12345");
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkApplications.start(aspects);
+        helloController = context.getBean(HelloController.class);
+        delegateController = context.getBean(DelegateController.class);
+        uceServiceClient = context.getBean(UceServiceClient.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    /**
+     * The controller advice reads the current servlet request from {@link RequestContextHolder}; bind one per thread.
+     */
+    @State(Scope.Thread)
+    public static class ServletRequest {
+        @Setup(Level.Trial)
+        public void bind() {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+            request.addHeader("X-Correlation-ID", "a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d");
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        }
+
+        @TearDown(Level.Trial)
+        public void unbind() {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Benchmark
+    public String hello(ServletRequest request) {
+        return helloController.hello("World").block();
+    }
+
+    @Benchmark
+    public DelegateCreationResponse createDelegate(ServletRequest request) {
+        return delegateController.createDelegate(delegateRequest).block();
+    }
+
+    @Benchmark
+    public UceResponse externalCall() {
+        return uceServiceClient.checkEntitlement(uceRequest).block();
+    }
+}
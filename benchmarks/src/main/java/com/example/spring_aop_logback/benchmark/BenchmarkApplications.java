@@ -0,0 +1,111 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.SpringAopLogbackApplication;
+import com.example.spring_aop_logback.aspect.LoggingAspect;
+import com.example.spring_aop_logback.config.AspectWeavingConfig;
+import com.example.spring_aop_logback.filter.LoggingWebFilter;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Boots the real application without a web server for benchmarking.
+ * Every {@link WebClient} bean keeps its filters but has its transport swapped for {@link StubExchangeFunction},
+ * and every {@link RestClient} bean its request factory for {@link StubClientHttpRequestFactory};
+ * the "plain" variant additionally removes all {@code @Aspect} bean definitions so no proxies are created
+ * (and the {@link LoggingWebFilter} that replaces the controller advice in reactive server mode),
+ * giving an unadvised baseline wired exactly like production. Against an application built with {@code -Pctw}
+ * the advice is in the bytecode and cannot be removed, so only the advised variants can be run.
+ * <p>
+ * {@link #serve} instead starts the full application, web server included, with its own logging configuration, for the
+ * end-to-end {@link LoadHarness}.
+ */
+final class BenchmarkApplications {
+
+    private BenchmarkApplications() {
+    }
+
+    static ConfigurableApplicationContext start(boolean withAspects) {
+        return start(withAspects, Duration.ZERO);
+    }
+
+    /**
+     * @param downstreamLatency how long every stubbed external call takes to answer.
+     */
+    static ConfigurableApplicationContext start(boolean withAspects, Duration downstreamLatency) {
+        SpringApplication application = new SpringApplication(SpringAopLogbackApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setBannerMode(Banner.Mode.OFF);
+        application.setDefaultProperties(Map.of("logging.config", "classpath:logback-bench.xml"));
+        application.addInitializers(context -> context.getBeanFactory().addBeanPostProcessor(stubClients(downstreamLatency)));
+        if (!withAspects) {
+            application.addInitializers(context -> context.addBeanFactoryPostProcessor(withoutAspects()));
+        }
+        return application.run();
+    }
+
+    /**
+     * Starts the application with its web server, production logback pipeline and real HTTP clients.
+     *
+     * @param properties passed as command-line arguments, so they override application.properties.
+     */
+    static ConfigurableApplicationContext serve(boolean withAspects, Map<String, String> properties) {
+        SpringApplication application = new SpringApplication(SpringAopLogbackApplication.class);
+        application.setBannerMode(Banner.Mode.OFF);
+        if (!withAspects) {
+            application.addInitializers(context -> context.addBeanFactoryPostProcessor(withoutAspects()));
+        }
+        return application.run(properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new));
+    }
+
+    private static BeanPostProcessor stubClients(Duration downstreamLatency) {
+        StubExchangeFunction exchangeFunction = new StubExchangeFunction(downstreamLatency);
+        StubClientHttpRequestFactory requestFactory = new StubClientHttpRequestFactory(downstreamLatency);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof WebClient webClient) {
+                    return webClient.mutate().exchangeFunction(exchangeFunction).build();
+                }
+                if (bean instanceof RestClient restClient) {
+                    return restClient.mutate().requestFactory(requestFactory).build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static BeanFactoryPostProcessor withoutAspects() {
+        if (AspectWeavingConfig.isWoven(LoggingAspect.class)) {
+            throw new IllegalStateException("The application was built with -Pctw: its aspects are woven in and cannot be "
+                    + "removed; rebuild it without -Pctw for the unadvised baseline");
+        }
+        return beanFactory -> {
+            BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+            for (String name : registry.getBeanDefinitionNames()) {
+                BeanDefinition definition = registry.getBeanDefinition(name);
+                String className = definition.getBeanClassName();
+                if (className != null && ClassUtils.isPresent(className, null)
+                        && (AnnotationUtils.findAnnotation(ClassUtils.resolveClassName(className, null), Aspect.class) != null
+                        || LoggingWebFilter.class.getName().equals(className))) {
+                    registry.removeBeanDefinition(name);
+                }
+            }
+        };
+    }
+}
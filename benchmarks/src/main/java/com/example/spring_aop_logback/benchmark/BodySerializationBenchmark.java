@@ -0,0 +1,89 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.capture.BodyCapturer;
+import com.example.spring_aop_logback.capture.CapturePolicy;
+import com.example.spring_aop_logback.dto.UceRequest;
+import com.example.spring_aop_logback.dto.UceResponse;
+import com.example.spring_aop_logback.dto.WelcomeRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/response body rendering: the plain {@code ObjectMapper.writeValueAsString} the aspect used to run on the
+ * event loop, against the bounded and masked rendering of {@link BodyCapturer} with the application's default policy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BodySerializationBenchmark {
+
+    @Param({"16", "1024", "16384"})
+    public int messageLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UceRequest uceRequest = new UceRequest("C-12345");
+    private final UceResponse uceResponse = new UceResponse(true, "Card ID C-12345 is entitled.");
+    private WelcomeRequest welcomeRequest;
+    private ConfigurableApplicationContext context;
+    private BodyCapturer bodyCapturer;
+    private CapturePolicy welcomePolicy;
+    private CapturePolicy ucePolicy;
+
+    @Setup(Level.Trial)
+    public void buildPayload() {
+        welcomeRequest = new WelcomeRequest("Gemini", "x".repeat(messageLength));
+        context = BenchmarkApplications.start(false);
+        bodyCapturer = context.getBean(BodyCapturer.class);
+        welcomePolicy = bodyCapturer.policy("WELCOME");
+        ucePolicy = bodyCapturer.policy("UCE");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public String uceRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(uceRequest);
+    }
+
+    @Benchmark
+    public String uceResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(uceResponse);
+    }
+
+    @Benchmark
+    public String welcomeRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(welcomeRequest);
+    }
+
+    @Benchmark
+    public String uceRequestMasked() {
+        return bodyCapturer.capture(uceRequest, ucePolicy).toString();
+    }
+
+    @Benchmark
+    public String welcomeRequestBounded() {
+        return bodyCapturer.capture(welcomeRequest, welcomePolicy).toString();
+    }
+}
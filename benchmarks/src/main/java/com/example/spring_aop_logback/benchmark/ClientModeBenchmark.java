@@ -0,0 +1,105 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.service.HelloService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Mono path against the blocking (RestClient) path of {@code /hello}, with aspects, behind a downstream that
+ * takes {@code downstreamMillis} to answer.
+ * <p>
+ * One operation is a wave of {@code concurrency} concurrent calls, each with its own log context: throughput times
+ * {@code concurrency} is requests per second, and the sampled time of a wave is the latency of its slowest call.
+ * The blocking calls run one per thread, on virtual threads when the JVM has them (Java 21+) and on a platform
+ * thread pool of {@code concurrency} threads otherwise, like a Tomcat pool sized for the load.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientModeBenchmark {
+
+    @Param({"64", "512"})
+    public int concurrency;
+
+    @Param({"20"})
+    public int downstreamMillis;
+
+    private ConfigurableApplicationContext context;
+    private HelloService helloService;
+    private ExecutorService blockingExecutor;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkApplications.start(true, Duration.ofMillis(downstreamMillis));
+        helloService = context.getBean(HelloService.class);
+        blockingExecutor = threadPerCallExecutor(concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        blockingExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public void monoPath() {
+        Flux.range(0, concurrency)
+                .flatMap(i -> {
+                    LogContext logContext = LogContext.builder("bench-" + i).build();
+                    return helloService.getHelloMessage("World")
+                            .contextWrite(context -> LogContextHolder.write(context, logContext));
+                }, concurrency)
+                .blockLast();
+    }
+
+    @Benchmark
+    public void blockingPath() throws Exception {
+        List<Callable<String>> calls = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            LogContext logContext = LogContext.builder("bench-" + i).build();
+            calls.add(() -> {
+                try (LogContextHolder.Scope ignored = LogContextHolder.open(logContext)) {
+                    return helloService.getHelloMessageBlocking("World");
+                }
+            });
+        }
+        for (Future<String> call : blockingExecutor.invokeAll(calls)) {
+            call.get();
+        }
+    }
+
+    private static ExecutorService threadPerCallExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency);
+        }
+    }
+}
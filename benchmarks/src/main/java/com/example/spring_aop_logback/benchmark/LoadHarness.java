@@ -0,0 +1,390 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.logging.RingBufferAppender;
+import com.example.spring_aop_logback.metrics.LatencyHistogram;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of the running application: starts it with its web server, production logging pipeline and
+ * the embedded {@code MockExternalService} as downstream, drives {@code /hello}, {@code /welcome} and
+ * {@code /createDelegate} at a fixed rate over HTTP and reports throughput, latency percentiles and allocation rate.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.spring_aop_logback.benchmark.LoadHarness \
+ *     --rps=500 --duration=30s --warmup=10s --aspects=both \
+ *     --mock.external.latency=lognormal:20ms,0.8 --mock.external.error-rate=0.01
+ * </pre>
+ * Harness options:
+ * <ul>
+ *     <li>{@code --rps} (200), {@code --duration} (30s), {@code --warmup} (10s, not measured).</li>
+ *     <li>{@code --aspects}: {@code on}, {@code off} (aspect beans removed, see {@link BenchmarkApplications}) or
+ *     {@code both} (default; one run each, in separate application contexts, the difference is the cost of the
+ *     logging stack).</li>
+ *     <li>{@code --mix} (hello:1,welcome:1,createDelegate:1): weighted share of each endpoint.</li>
+ *     <li>{@code --cards} (100): distinct card IDs sent to {@code /createDelegate}, C-12345 (entitled) among them.</li>
+ * </ul>
+ * Every other {@code --key=value} becomes an application property, e.g. {@code mock.external.*},
+ * {@code uce.cache.max-size} or {@code spring.main.web-application-type=reactive}.
+ * <p>
+ * The load is open-loop: requests are sent on schedule whether or not earlier ones have answered, and latency is
+ * measured from the scheduled send time, so a stall shows up in the percentiles instead of silently lowering the
+ * rate. Allocation is the sum of the per-thread deltas of the application's threads over the measured window
+ * (threads started during the window count in full); the load generator's own threads are left out. A thread that
+ * exits during the window takes its allocation with it, so the report says how many did: with any, the figure is a
+ * lower bound.
+ */
+public final class LoadHarness {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+    /** The client executor's threads and the JDK HttpClient's selector thread. */
+    private static final List<String> LOAD_GENERATOR_THREADS = List.of("load-generator-", "HttpClient-");
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(Map.of(
+                "rps", "200", "duration", "30s", "warmup", "10s", "aspects", "both",
+                "mix", "hello:1,welcome:1,createDelegate:1", "cards", "100"));
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (options.containsKey(key)) {
+                options.put(key, value);
+            } else {
+                properties.put(key, value);
+            }
+        }
+        LoadProfile load = new LoadProfile(
+                Integer.parseInt(options.get("rps")),
+                DurationStyle.detectAndParse(options.get("warmup")),
+                DurationStyle.detectAndParse(options.get("duration")),
+                Endpoint.mix(options.get("mix")),
+                Integer.parseInt(options.get("cards")));
+
+        List<Report> reports = new ArrayList<>();
+        String aspects = options.get("aspects").toLowerCase(Locale.ROOT);
+        if (!aspects.equals("off")) {
+            reports.add(run(true, load, properties));
+        }
+        if (!aspects.equals("on")) {
+            reports.add(run(false, load, properties));
+        }
+
+        System.out.printf("%n=== Load harness: %d rps, %s warmup, %s measured, mix %s, %s ===%n",
+                load.rps(), options.get("warmup"), options.get("duration"), options.get("mix"), properties);
+        for (Report report : reports) {
+            report.print();
+        }
+    }
+
+    private static Report run(boolean withAspects, LoadProfile load, Map<String, String> overrides) throws Exception {
+        int mockPort = freePort();
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("mock.external.enabled", "true");
+        properties.put("mock.external.port", String.valueOf(mockPort));
+        properties.put("welcome.service.url", "http://localhost:" + mockPort + "/api/external");
+        properties.put("uce.service.url", "http://localhost:" + mockPort + "/api/external");
+        properties.putAll(overrides);
+
+        ConfigurableApplicationContext context = BenchmarkApplications.serve(withAspects, properties);
+        AtomicInteger clientThreads = new AtomicInteger();
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4,
+                task -> new Thread(task, LOAD_GENERATOR_THREADS.get(0) + clientThreads.incrementAndGet()));
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+            return new LoadRun(withAspects, load, client, baseUrl).execute();
+        } finally {
+            context.close();
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record LoadProfile(int rps, Duration warmup, Duration duration, Endpoint[] schedule, int cards) {
+    }
+
+    private enum Endpoint {
+        HELLO("hello"), WELCOME("welcome"), CREATE_DELEGATE("createDelegate");
+
+        private final String path;
+
+        Endpoint(String path) {
+            this.path = path;
+        }
+
+        /**
+         * One slot per unit of weight, e.g. "hello:2,welcome:1" gives [HELLO, HELLO, WELCOME]; requests cycle
+         * through it.
+         */
+        static Endpoint[] mix(String spec) {
+            List<Endpoint> schedule = new ArrayList<>();
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.trim().split(":", 2);
+                Endpoint endpoint = byPath(parts[0]);
+                int weight = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : 1;
+                for (int i = 0; i < weight; i++) {
+                    schedule.add(endpoint);
+                }
+            }
+            if (schedule.isEmpty()) {
+                throw new IllegalArgumentException("Empty endpoint mix: " + spec);
+            }
+            return schedule.toArray(new Endpoint[0]);
+        }
+
+        private static Endpoint byPath(String path) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.path.equals(path)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint in mix: " + path);
+        }
+
+        HttpRequest request(String baseUrl, int cards) {
+            return switch (this) {
+                case HELLO -> HttpRequest.newBuilder(URI.create(baseUrl + "/hello?name=load")).GET().build();
+                case WELCOME -> json(baseUrl + "/welcome", "{\"userName\":\"load\",\"message\":\"Load harness\"}");
+                case CREATE_DELEGATE -> json(baseUrl + "/createDelegate",
+                        "{\"cardId\":\"C-" + (12345 + ThreadLocalRandom.current().nextInt(cards)) + "\"}");
+            };
+        }
+
+        private static HttpRequest json(String url, String body) {
+            return HttpRequest.newBuilder(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    /**
+     * One open-loop run against a started application.
+     */
+    private static final class LoadRun {
+        private final boolean withAspects;
+        private final LoadProfile load;
+        private final HttpClient client;
+        private final String baseUrl;
+        private final Map<Endpoint, LatencyHistogram> latencies = new HashMap<>();
+        private final LatencyHistogram overall = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        LoadRun(boolean withAspects, LoadProfile load, HttpClient client, String baseUrl) {
+            this.withAspects = withAspects;
+            this.load = load;
+            this.client = client;
+            this.baseUrl = baseUrl;
+            for (Endpoint endpoint : Endpoint.values()) {
+                latencies.put(endpoint, new LatencyHistogram());
+            }
+        }
+
+        Report execute() {
+            long interval = TimeUnit.SECONDS.toNanos(1) / load.rps();
+            long start = System.nanoTime();
+            long measureFrom = start + load.warmup().toNanos();
+            long end = measureFrom + load.duration().toNanos();
+            ResourceSample before = null;
+            long sent = 0;
+
+            for (long i = 0; ; i++) {
+                long scheduled = start + i * interval;
+                if (scheduled >= end) {
+                    break;
+                }
+                boolean measured = scheduled >= measureFrom;
+                if (measured && before == null) {
+                    before = ResourceSample.take();
+                }
+                waitUntil(scheduled);
+                Endpoint endpoint = load.schedule()[(int) (i % load.schedule().length)];
+                send(endpoint, scheduled, measured);
+                if (measured) {
+                    sent++;
+                }
+            }
+            long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+            while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            ResourceSample after = ResourceSample.take();
+            if (before == null) {
+                before = after;
+            }
+            Map<Endpoint, LatencyHistogram.Snapshot> byEndpoint = new LinkedHashMap<>();
+            for (Endpoint endpoint : load.schedule()) {
+                byEndpoint.computeIfAbsent(endpoint, e -> latencies.get(e).snapshot());
+            }
+            return new Report(withAspects, sent, errors.sum(), inFlight.get(), overall.snapshot(), byEndpoint,
+                    after.minus(before));
+        }
+
+        private void send(Endpoint endpoint, long scheduled, boolean measured) {
+            inFlight.incrementAndGet();
+            client.sendAsync(endpoint.request(baseUrl, load.cards()), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - scheduled;
+                        if (measured) {
+                            overall.record(latency);
+                            latencies.get(endpoint).record(latency);
+                            if (error != null || response.statusCode() >= 400) {
+                                errors.increment();
+                            }
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+
+        private static void waitUntil(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                // parkNanos overshoots by tens of microseconds; spin for the last stretch.
+                if (remaining > TimeUnit.MICROSECONDS.toNanos(100)) {
+                    LockSupport.parkNanos(remaining - TimeUnit.MICROSECONDS.toNanos(100));
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    /**
+     * Counters read at the start and end of the measured window: the bytes allocated so far by each application
+     * thread, and JVM-wide GC and logging counters. Taken on the harness thread, which is not an application thread.
+     */
+    private record ResourceSample(long nanos, Map<Long, Long> threadAllocatedBytes, long gcCount, long gcMillis,
+                                  long droppedLogEvents) {
+
+        static ResourceSample take() {
+            Map<Long, Long> allocated = new HashMap<>();
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemoryEnabled()) {
+                long[] ids = threads.getAllThreadIds();
+                long[] bytes = threads.getThreadAllocatedBytes(ids);
+                ThreadInfo[] infos = threads.getThreadInfo(ids);
+                long harness = Thread.currentThread().getId();
+                for (int i = 0; i < ids.length; i++) {
+                    if (ids[i] != harness && bytes[i] >= 0 && infos[i] != null && !isLoadGenerator(infos[i].getThreadName())) {
+                        allocated.put(ids[i], bytes[i]);
+                    }
+                }
+            }
+            long gcCount = 0;
+            long gcMillis = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(0, collector.getCollectionCount());
+                gcMillis += Math.max(0, collector.getCollectionTime());
+            }
+            long dropped = 0;
+            for (RingBufferAppender appender : RingBufferAppender.running()) {
+                dropped += appender.getDroppedCount();
+            }
+            return new ResourceSample(System.nanoTime(), allocated, gcCount, gcMillis, dropped);
+        }
+
+        ResourceUsage minus(ResourceSample earlier) {
+            long allocated = 0;
+            for (Map.Entry<Long, Long> thread : threadAllocatedBytes.entrySet()) {
+                allocated += thread.getValue() - earlier.threadAllocatedBytes.getOrDefault(thread.getKey(), 0L);
+            }
+            int exited = 0;
+            for (Long id : earlier.threadAllocatedBytes.keySet()) {
+                if (!threadAllocatedBytes.containsKey(id)) {
+                    exited++;
+                }
+            }
+            return new ResourceUsage(nanos - earlier.nanos, allocated, exited, gcCount - earlier.gcCount,
+                    gcMillis - earlier.gcMillis, droppedLogEvents - earlier.droppedLogEvents);
+        }
+
+        private static boolean isLoadGenerator(String threadName) {
+            for (String prefix : LOAD_GENERATOR_THREADS) {
+                if (threadName.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * What the application used over the measured window.
+     *
+     * @param exitedThreads application threads that ended during the window; their allocation is not counted.
+     */
+    private record ResourceUsage(long nanos, long allocatedBytes, int exitedThreads, long gcCount, long gcMillis,
+                                 long droppedLogEvents) {
+    }
+
+    private record Report(boolean withAspects, long sent, long errors, int unanswered,
+                          LatencyHistogram.Snapshot overall, Map<Endpoint, LatencyHistogram.Snapshot> byEndpoint,
+                          ResourceUsage resources) {
+
+        void print() {
+            double seconds = Math.max(1, resources.nanos()) / 1e9;
+            long completed = overall.totalCount();
+            System.out.printf("%naspects %s: sent %d, completed %d, errors %d, unanswered %d, throughput %.1f req/s%n",
+                    withAspects ? "on" : "off", sent, completed, errors, unanswered, completed / seconds);
+            System.out.printf("  allocation %.1f MB/s (%.1f KB/request)%s, gc %d collections / %d ms, log events dropped %d%n",
+                    resources.allocatedBytes() / seconds / (1024 * 1024),
+                    completed == 0 ? 0.0 : resources.allocatedBytes() / 1024.0 / completed,
+                    resources.exitedThreads() == 0 ? "" : " at least, " + resources.exitedThreads() + " application thread(s) exited",
+                    resources.gcCount(), resources.gcMillis(), resources.droppedLogEvents());
+            System.out.printf("  %-16s %8s %8s %8s %8s %8s %8s%n", "latency (ms)", "count", "p50", "p90", "p99", "p99.9", "max");
+            line("all", overall);
+            byEndpoint.forEach((endpoint, snapshot) -> line(endpoint.path, snapshot));
+        }
+
+        private static void line(String name, LatencyHistogram.Snapshot snapshot) {
+            System.out.printf("  %-16s %8d %8.2f %8.2f %8.2f %8.2f %8.2f%n", name, snapshot.totalCount(),
+                    millis(snapshot.valueAtPercentile(50)), millis(snapshot.valueAtPercentile(90)),
+                    millis(snapshot.valueAtPercentile(99)), millis(snapshot.valueAtPercentile(99.9)),
+                    millis(snapshot.max()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.util.LogLineEncoder;
+import com.example.spring_aop_logback.util.LogValueFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Line formatting of an external-call record: the original stream/joining formatter against {@link LogLineEncoder},
+ * plus the timestamp and duration rendering used by the aspects. Run with {@code -prof gc} to see allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogLineFormatBenchmark {
+
+    private static final ExternalLoggingEnum[] KEYS = ExternalLoggingEnum.values();
+
+    private final LogLineEncoder textEncoder = new LogLineEncoder(LogLineEncoder.Layout.TEXT);
+    private final LogLineEncoder jsonEncoder = new LogLineEncoder(LogLineEncoder.Layout.JSON);
+    private final String[] values = new String[KEYS.length];
+    private long timeTaken;
+
+    @Setup(Level.Trial)
+    public void fillRecord() {
+        values[ExternalLoggingEnum.SOURCE.ordinal()] = "EXTERNAL";
+        values[ExternalLoggingEnum.SERVICE_NAME.ordinal()] = "UCE";
+        values[ExternalLoggingEnum.URL.ordinal()] = "http://localhost:8082/api/external/entitlementCheck";
+        values[ExternalLoggingEnum.HTTP_STATUS.ordinal()] = "200";
+        values[ExternalLoggingEnum.RQST_TS.ordinal()] = "2025-08-22T10:15:30.042Z";
+        values[ExternalLoggingEnum.RESP_TS.ordinal()] = "2025-08-22T10:15:30.161Z";
+        values[ExternalLoggingEnum.EXECUTION_TIME.ordinal()] = "119ms";
+        values[ExternalLoggingEnum.RQST_BODY.ordinal()] = "{\"cardId\":\"C-12345\"}";
+        values[ExternalLoggingEnum.RESP_BODY.ordinal()] = "{\"isEntitled\":true,\"message\":\"Card ID C-12345 is entitled.\"}";
+        MDC.clear();
+        for (ExternalLoggingEnum key : KEYS) {
+            if (values[key.ordinal()] != null) {
+                MDC.put(key.name(), values[key.ordinal()]);
+            }
+        }
+        timeTaken = 119;
+    }
+
+    /**
+     * The formatter LogUtil/ExternalLogUtil used before LogLineEncoder, kept verbatim as the baseline.
+     */
+    @Benchmark
+    public String streamJoiningFromMdc() {
+        return Arrays.stream(ExternalLoggingEnum.values())
+                .filter(e -> StringUtils.hasText(MDC.get(e.name())))
+                .map(e -> e.name() + "=" + MDC.get(e.name()))
+                .collect(Collectors.joining("; "));
+    }
+
+    @Benchmark
+    public String encoderTextFromMdc() {
+        String[] fromMdc = new String[KEYS.length];
+        for (ExternalLoggingEnum key : KEYS) {
+            fromMdc[key.ordinal()] = MDC.get(key.name());
+        }
+        return textEncoder.encode(KEYS, fromMdc);
+    }
+
+    @Benchmark
+    public String encoderText() {
+        return textEncoder.encode(KEYS, values);
+    }
+
+    @Benchmark
+    public String encoderJson() {
+        return jsonEncoder.encode(KEYS, values);
+    }
+
+    @Benchmark
+    public String instantToString() {
+        return Instant.now().toString();
+    }
+
+    @Benchmark
+    public String cachedIsoTimestamp() {
+        return LogValueFormatter.isoTimestamp(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String concatenatedMillis() {
+        return timeTaken + "ms";
+    }
+
+    @Benchmark
+    public String cachedMillis() {
+        return LogValueFormatter.millis(timeTaken);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the MDC copy/restore cycle the aspects used to perform on every reactive hop, against carrying an
+ * immutable {@link LogContext} in the Reactor Context. The MDC is filled the way it looks at controller exit:
+ * CR_ID plus the LoggingEnum request fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MdcPropagationBenchmark {
+
+    private Map<String, String> snapshot;
+    private LogContext logContext;
+
+    @Setup(Level.Trial)
+    public void fillMdc() {
+        MDC.clear();
+        MDC.put("CR_ID", "a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d");
+        MDC.put(LoggingEnum.RQST_RCVD_TS.name(), "2025-08-22T10:15:30.042Z");
+        MDC.put(LoggingEnum.HTTP_METHOD.name(), "POST");
+        MDC.put(LoggingEnum.METHOD.name(), "createDelegate");
+        MDC.put(LoggingEnum.URI.name(), "/createDelegate");
+        snapshot = MDC.getCopyOfContextMap();
+        logContext = LogContext.builder(snapshot.get("CR_ID"))
+                .put(LoggingEnum.RQST_RCVD_TS, snapshot.get(LoggingEnum.RQST_RCVD_TS.name()))
+                .put(LoggingEnum.HTTP_METHOD, snapshot.get(LoggingEnum.HTTP_METHOD.name()))
+                .put(LoggingEnum.METHOD, snapshot.get(LoggingEnum.METHOD.name()))
+                .put(LoggingEnum.URI, snapshot.get(LoggingEnum.URI.name()))
+                .build();
+    }
+
+    @Benchmark
+    public Map<String, String> copyContextMap() {
+        return MDC.getCopyOfContextMap();
+    }
+
+    @Benchmark
+    public Map<String, String> copyAndRestore() {
+        Map<String, String> copy = MDC.getCopyOfContextMap();
+        MDC.setContextMap(copy);
+        return copy;
+    }
+
+    /**
+     * One operator hop as the aspects used to do it: restore the captured map inside flatMap, carry it in the Context.
+     */
+    @Benchmark
+    public String monoHopWithRestore() {
+        Map<String, String> captured = MDC.getCopyOfContextMap();
+        return Mono.just("body")
+                .flatMap(body -> {
+                    MDC.setContextMap(captured);
+                    return Mono.just(body);
+                })
+                .contextWrite(Context.of("mdcContext", captured))
+                .block();
+    }
+
+    /**
+     * One operator hop with the LogContext read from the Reactor Context, as the aspects do now.
+     */
+    @Benchmark
+    public String monoHopWithLogContext() {
+        return Mono.deferContextual(contextView -> Mono.just(LogContextHolder.from(contextView).correlationId()))
+                .flatMap(Mono::just)
+                .contextWrite(context -> LogContextHolder.write(context, logContext))
+                .block();
+    }
+
+    @Benchmark
+    public String monoHopBaseline() {
+        return Mono.just("body")
+                .flatMap(Mono::just)
+                .contextWrite(Context.of("mdcContext", snapshot))
+                .block();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.spring_aop_logback.benchmark;
+
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import com.example.spring_aop_logback.util.ExternalLogUtil;
+import com.example.spring_aop_logback.util.LogUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code processLogs()} call of each utility, including the hand-off into the logback pipeline
+ * configured by logback-bench.xml.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessLogsBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private LogUtil logUtil;
+    private ExternalLogUtil externalLogUtil;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkApplications.start(false);
+        logUtil = context.getBean(LogUtil.class);
+        externalLogUtil = context.getBean(ExternalLogUtil.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Records {
+        LogContext controller;
+        String[] external;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            controller = LogContext.builder("a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d")
+                    .put(LoggingEnum.SOURCE, "CONTROLLER")
+                    .put(LoggingEnum.HTTP_METHOD, "POST")
+                    .put(LoggingEnum.METHOD, "createDelegate")
+                    .put(LoggingEnum.URI, "/createDelegate")
+                    .put(LoggingEnum.RQST_RCVD_TS, "2025-08-22T10:15:30.042Z")
+                    .put(LoggingEnum.RQST_RESP_TS, "2025-08-22T10:15:30.170Z")
+                    .put(LoggingEnum.EXECUTION_TIME, "128ms")
+                    .build();
+            external = new String[ExternalLoggingEnum.values().length];
+            external[ExternalLoggingEnum.SOURCE.ordinal()] = "EXTERNAL";
+            external[ExternalLoggingEnum.SERVICE_NAME.ordinal()] = "UCE";
+            external[ExternalLoggingEnum.URL.ordinal()] = "http://localhost:8082/api/external/entitlementCheck";
+            external[ExternalLoggingEnum.HTTP_STATUS.ordinal()] = "200";
+            external[ExternalLoggingEnum.RQST_TS.ordinal()] = "2025-08-22T10:15:30.050Z";
+            external[ExternalLoggingEnum.RESP_TS.ordinal()] = "2025-08-22T10:15:30.161Z";
+            external[ExternalLoggingEnum.EXECUTION_TIME.ordinal()] = "111ms";
+            external[ExternalLoggingEnum.RQST_BODY.ordinal()] = "{\"cardId\":\"C-12345\"}";
+            external[ExternalLoggingEnum.RESP_BODY.ordinal()] = "{\"isEntitled\":true,\"message\":\"Card ID C-12345 is entitled.\"}";
+        }
+    }
+
+    @Benchmark
+    public void controllerLine(Records records) {
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(records.controller)) {
+            logUtil.processLogs(records.controller);
+        }
+    }
+
+    @Benchmark
+    public void externalLine(Records records) {
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(records.controller)) {
+            externalLogUtil.processLogs(records.external);
+        }
+    }
+}
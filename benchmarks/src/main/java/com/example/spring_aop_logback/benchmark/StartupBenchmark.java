@@ -0,0 +1,218 @@
+package com.example.spring_aop_logback.benchmark;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cold-start cost of the application, with and without the {@code fast-startup} build profile: starts it as a
+ * separate JVM, again and again, and reports the time from process launch to the first answered {@code /hello}
+ * and the resident set size at that moment. Any status counts: without a downstream service the call to WELCOME
+ * fails and {@code /hello} answers 500, but only after going through the whole stack, client included.
+ * <pre>
+ * mvn clean package -Pfast-startup     (in the parent directory; writes target/fast-startup)
+ * java -cp benchmarks/target/benchmarks.jar com.example.spring_aop_logback.benchmark.StartupBenchmark --runs=5
+ * </pre>
+ * Modes ({@code --modes}, default all, run round-robin so that drift in the machine affects them alike):
+ * <ul>
+ *     <li>{@code jar}: {@code java -jar} on the application jar, as the application starts today.</li>
+ *     <li>{@code extracted}: the application jar extracted by the training script; the cost of nested jars alone.</li>
+ *     <li>{@code aot}: extracted, with {@code -Dspring.aot.enabled=true}.</li>
+ *     <li>{@code aot-cds}: extracted, AOT and the class-data sharing archive of the training run.</li>
+ * </ul>
+ * Other options: {@code --jar} (target/spring-aop-logback-*.jar), {@code --dir} (target/fast-startup), and
+ * {@code --timeout} (120s per start). Every other {@code --key=value} is passed on to the application.
+ * <p>
+ * RSS is read from {@code /proc/<pid>/status}, so it is only reported on Linux. It counts the mapped archive in
+ * full; those pages are shared between JVMs started from the same archive, so per pod the saving is larger than
+ * the numbers show.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+    private static final List<String> MODES = List.of("jar", "extracted", "aot", "aot-cds");
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(Map.of(
+                "runs", "5", "modes", String.join(",", MODES), "dir", "target/fast-startup", "timeout", "120s"));
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (options.containsKey(key) || key.equals("jar")) {
+                options.put(key, value);
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+        Path dir = Path.of(options.get("dir"));
+        Path execJar = options.containsKey("jar") ? Path.of(options.get("jar")) : execJar(Path.of("target"));
+        Path extractedJar = dir.resolve(execJar.getFileName());
+        Path archive = dir.resolve("application.jsa");
+        int runs = Integer.parseInt(options.get("runs"));
+        Duration timeout = DurationStyle.detectAndParse(options.get("timeout"));
+
+        Map<String, List<String>> commands = new LinkedHashMap<>();
+        for (String mode : options.get("modes").split(",")) {
+            List<String> jvm = switch (mode.trim()) {
+                case "jar" -> List.of("-jar", require(execJar).toString());
+                case "extracted" -> List.of("-jar", require(extractedJar).toString());
+                case "aot" -> List.of("-Dspring.aot.enabled=true", "-jar", require(extractedJar).toString());
+                case "aot-cds" -> List.of("-XX:SharedArchiveFile=" + require(archive), "-Xshare:on",
+                        "-Dspring.aot.enabled=true", "-jar", require(extractedJar).toString());
+                default -> throw new IllegalArgumentException("Unknown mode " + mode + ", expected one of " + MODES);
+            };
+            commands.put(mode.trim(), jvm);
+        }
+
+        Map<String, List<Sample>> samples = new LinkedHashMap<>();
+        commands.keySet().forEach(mode -> samples.put(mode, new ArrayList<>()));
+        Path logs = Files.createTempDirectory("startup-benchmark");
+        for (int run = 1; run <= runs; run++) {
+            for (Map.Entry<String, List<String>> command : commands.entrySet()) {
+                Sample sample = start(command.getValue(), applicationArgs, logs.resolve(command.getKey() + "-" + run), timeout);
+                System.out.printf("run %d %-10s first request %7.0f ms, RSS %s%n", run, command.getKey(),
+                        sample.millisToFirstRequest(), rss(sample.rssKilobytes()));
+                samples.get(command.getKey()).add(sample);
+            }
+        }
+
+        System.out.printf("%n=== Startup: %d runs per mode, application args %s, logs in %s ===%n", runs, applicationArgs, logs);
+        System.out.printf("%-10s %12s %12s %12s %12s %12s%n", "mode", "first req p50", "min", "max", "RSS p50", "vs first");
+        Double reference = null;
+        for (Map.Entry<String, List<Sample>> entry : samples.entrySet()) {
+            double[] millis = entry.getValue().stream().mapToDouble(Sample::millisToFirstRequest).sorted().toArray();
+            long[] rss = entry.getValue().stream().mapToLong(Sample::rssKilobytes).sorted().toArray();
+            double median = median(millis);
+            if (reference == null) {
+                reference = median;
+            }
+            System.out.printf("%-10s %10.0f ms %9.0f ms %9.0f ms %12s %11.2fx%n", entry.getKey(), median,
+                    millis[0], millis[millis.length - 1], rss(rss[rss.length / 2]), median / reference);
+        }
+    }
+
+    /**
+     * Starts one JVM, waits for the answer to its first {@code /hello} and stops it again.
+     */
+    private static Sample start(List<String> jvm, List<String> applicationArgs, Path logs, Duration timeout)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvm);
+        command.add("--server.port=" + port);
+        command.add("--logging.file.path=" + logs);
+        command.addAll(applicationArgs);
+        Files.createDirectories(logs);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest hello = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hello?name=startup"))
+                .timeout(timeout)
+                .build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logs.resolve("console.out").toFile())
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue()
+                            + "; see " + logs.resolve("console.out"));
+                }
+                try {
+                    client.send(hello, HttpResponse.BodyHandlers.discarding());
+                    break;
+                } catch (ConnectException e) {
+                    // Not listening yet.
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("No answer within " + timeout + "; see " + logs.resolve("console.out"));
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            long elapsed = System.nanoTime() - start;
+            return new Sample(elapsed / 1e6, rssKilobytes(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static long rssKilobytes(long pid) {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.replaceAll("\\D", ""))
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(-1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path execJar(Path target) throws IOException {
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(file -> file.getFileName().toString().matches("spring-aop-logback-.*(?<!-classes)\\.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("No application jar in " + target.toAbsolutePath()
+                            + "; build the application or pass --jar"));
+        }
+    }
+
+    private static Path require(Path file) {
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException(file.toAbsolutePath() + " does not exist; run mvn package -Pfast-startup");
+        }
+        return file;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static double median(double[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static String rss(long kilobytes) {
+        return kilobytes < 0 ? "n/a" : String.format("%.0f MB", kilobytes / 1024.0);
+    }
+
+    private record Sample(double millisToFirstRequest, long rssKilobytes) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.spring_aop_logback.benchmark;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * The {@link StubExchangeFunction} of the RestClients: answers in-process with the same canned bodies, after
+ * blocking the calling thread for the downstream latency.
+ */
+final class StubClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private final Duration latency;
+
+    StubClientHttpRequestFactory(Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new MockClientHttpRequest(httpMethod, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() throws IOException {
+                if (!latency.isZero()) {
+                    try {
+                        Thread.sleep(latency.toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+                MockClientHttpResponse response = new MockClientHttpResponse(
+                        StubExchangeFunction.body(uri.getPath(), httpMethod).getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+                response.getHeaders().set(HttpHeaders.CONTENT_TYPE, StubExchangeFunction.contentType(uri.getPath(), httpMethod).toString());
+                return response;
+            }
+        };
+    }
+}
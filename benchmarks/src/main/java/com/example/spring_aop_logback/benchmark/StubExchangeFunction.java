@@ -0,0 +1,59 @@
+package com.example.spring_aop_logback.benchmark;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Answers WebClient requests in-process with canned bodies from api-specs.txt.
+ * By default the response is an already-completed Mono, so every benchmarked call resolves synchronously on the
+ * benchmark thread and {@code block()} never parks; a downstream latency delays it on Reactor's timer instead.
+ */
+final class StubExchangeFunction implements ExchangeFunction {
+
+    private static final String ENTITLEMENT_BODY = "{\"isEntitled\":true,\"message\":\"Card ID C-12345 is entitled.\"}";
+    private static final String WELCOME_POST_BODY = "{\"confirmationId\":\"6f1c2a1e-0b9a-4c55-9a57-2f4e1c0d8b11\",\"processedMessage\":\"Welcome, Gemini!\"}";
+    private static final String WELCOME_GET_BODY = "Welcome from the external service";
+
+    private final Duration latency;
+
+    StubExchangeFunction() {
+        this(Duration.ZERO);
+    }
+
+    StubExchangeFunction(Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public Mono<ClientResponse> exchange(ClientRequest request) {
+        Mono<ClientResponse> response = Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, contentType(request.url().getPath(), request.method()).toString())
+                .body(body(request.url().getPath(), request.method()))
+                .build());
+        return latency.isZero() ? response : response.delayElement(latency);
+    }
+
+    /**
+     * The canned body for a request, shared with {@link StubClientHttpRequestFactory}.
+     */
+    static String body(String path, HttpMethod method) {
+        if (path.endsWith("/entitlementCheck")) {
+            return ENTITLEMENT_BODY;
+        }
+        return method == HttpMethod.POST ? WELCOME_POST_BODY : WELCOME_GET_BODY;
+    }
+
+    static MediaType contentType(String path, HttpMethod method) {
+        return path.endsWith("/entitlementCheck") || method == HttpMethod.POST
+                ? MediaType.APPLICATION_JSON
+                : MediaType.TEXT_PLAIN;
+    }
+}
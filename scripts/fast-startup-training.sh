@@ -0,0 +1,86 @@
+#!/usr/bin/env bash
+# Training run of the fast-startup build (mvn -Pfast-startup package runs it; it can also be run by hand).
+#
+#   scripts/fast-startup-training.sh [application-jar] [output-dir]
+#
+# 1. Extracts the AOT-processed application jar into <output-dir> (application jar + lib/), the layout class-data
+#    sharing needs: classes are only archived from plain jars on the class path, not from jars nested in a jar.
+# 2. Starts the embedded mock external service in a separate JVM as downstream.
+# 3. Starts the application with -Dspring.aot.enabled=true and -XX:ArchiveClassesAtExit, sends TRAINING_ROUNDS
+#    rounds of /hello, /welcome and /createDelegate (success and error paths), then stops it with SIGTERM; on exit
+#    the JVM writes every class it loaded (JDK, Spring, Tomcat, Netty, logback, application) to application.jsa.
+#
+# Run the result with the command printed at the end. The archive is only valid for the same JDK build and the
+# same jars at the same paths; when either changes, the JVM ignores it (and starts as slowly as without it).
+# Ports: TRAINING_PORT (18080) and TRAINING_MOCK_PORT (18082).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=${1:-$(ls target/spring-aop-logback-*.jar | grep -v -- '-classes\.jar$' | head -n 1)}
+OUT=${2:-target/fast-startup}
+PORT=${TRAINING_PORT:-18080}
+MOCK_PORT=${TRAINING_MOCK_PORT:-18082}
+ROUNDS=${TRAINING_ROUNDS:-20}
+APP_JAR="$OUT/$(basename "$JAR")"
+ARCHIVE="$OUT/application.jsa"
+LOGS="$OUT/training-logs"
+BASE_URL="http://localhost:$PORT"
+DOWNSTREAM="http://localhost:$MOCK_PORT/api/external"
+
+pids=()
+cleanup() {
+    for pid in "${pids[@]}"; do
+        kill "$pid" 2>/dev/null || true
+    done
+}
+trap cleanup EXIT
+
+# Waits until GET $1 answers at all (any status), or fails after 60 s.
+await() {
+    for _ in $(seq 1 600); do
+        if curl -s -o /dev/null "$1"; then
+            return 0
+        fi
+        sleep 0.1
+    done
+    echo "No answer from $1 after 60s; see $LOGS" >&2
+    exit 1
+}
+
+post() {
+    curl -s -o /dev/null -H 'Content-Type: application/json' -d "$2" "$BASE_URL$1"
+}
+
+rm -rf "$OUT"
+java -Djarmode=tools -jar "$JAR" extract --destination "$OUT"
+mkdir -p "$LOGS"
+
+# The downstream runs without AOT: the mock is a conditional bean, and the AOT build was processed without it.
+java -jar "$APP_JAR" --server.port=0 --mock.external.enabled=true --mock.external.port="$MOCK_PORT" \
+    --logging.file.path="$LOGS/mock" > "$LOGS/mock.out" 2>&1 &
+pids+=($!)
+
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -Dspring.aot.enabled=true -jar "$APP_JAR" \
+    --server.port="$PORT" --welcome.service.url="$DOWNSTREAM" --uce.service.url="$DOWNSTREAM" \
+    --logging.file.path="$LOGS/application" > "$LOGS/application.out" 2>&1 &
+app=$!
+pids+=($app)
+
+await "http://localhost:$MOCK_PORT/api/external/welcome"
+await "$BASE_URL/hello"
+for round in $(seq 1 "$ROUNDS"); do
+    curl -s -o /dev/null "$BASE_URL/hello?name=training"
+    curl -s -o /dev/null "$BASE_URL/hello?name=error"
+    post /welcome '{"userName":"training","message":"CDS training run"}'
+    post /createDelegate "{\"cardId\":\"C-12345\"}"
+    post /createDelegate "{\"cardId\":\"C-$((20000 + round))\"}"
+done
+
+kill -TERM "$app"
+wait "$app" || true
+if [[ ! -s "$ARCHIVE" ]]; then
+    echo "The training run did not write $ARCHIVE; see $LOGS/application.out" >&2
+    exit 1
+fi
+echo "Wrote $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1)); start the application with:"
+echo "  java -XX:SharedArchiveFile=$ARCHIVE -Dspring.aot.enabled=true -jar $APP_JAR"
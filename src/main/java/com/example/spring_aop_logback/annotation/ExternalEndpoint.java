@@ -0,0 +1,23 @@
+package com.example.spring_aop_logback.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares which downstream endpoint a method of a {@code util.web} client calls.
+ * The logged URL is the service's base URL property ({@code <service>.service.url}, where the service name is
+ * derived from the client class name) followed by {@link #path()}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExternalEndpoint {
+
+    /**
+     * Path appended to the service's base URL, e.g. {@code /entitlementCheck}.
+     */
+    String path();
+}
@@ -0,0 +1,19 @@
+package com.example.spring_aop_logback.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opts a {@code Mono}-returning method of a {@code util.web} client into hedging: when the call has not answered
+ * within the service's recent latency percentile, the same request is sent a second time and whichever answers
+ * first is used. Only for idempotent calls; the settings are read from {@code <service>.hedging.*}
+ * (see {@code HedgePolicy}).
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Hedged {
+}
@@ -0,0 +1,38 @@
+package com.example.spring_aop_logback.aspect;
+
+import com.example.spring_aop_logback.resilience.Hedger;
+
+/**
+ * Everything the logging aspects need to know about one advised method, computed once at startup by
+ * {@link AdvicePlanRegistry} so the advice itself does no reflection or string manipulation.
+ *
+ * @param serviceName  downstream service name for clients (e.g. UCE), simple class name for controllers and
+ *                     services.
+ * @param urlTemplate  full URL of the called endpoint for clients, request mapping path for controllers, null for
+ *                     services.
+ * @param returnKind   how the result has to be observed to know when the call is finished.
+ * @param bodyCapture  which argument, if any, is logged as the request body.
+ * @param policySlot   index of the plan's URI (controllers) or service (clients) in the runtime logging policy
+ *                     snapshot, or -1 when it has none; see {@code PolicySnapshot}.
+ * @param hedger       hedges the calls of a {@code @Hedged} client method; null for every other method.
+ * @param spanName     name of the method's span in the request's SPANS field, e.g. UCE.checkEntitlement or
+ *                     HelloService.getHelloMessage.
+ */
+public record AdvicePlan(String serviceName, String urlTemplate, ReturnKind returnKind, BodyCapture bodyCapture,
+                         int policySlot, Hedger hedger, String spanName) {
+
+    public enum ReturnKind {
+        MONO,
+        FLUX,
+        PLAIN;
+
+        public boolean isReactive() {
+            return this != PLAIN;
+        }
+    }
+
+    public enum BodyCapture {
+        NONE,
+        FIRST_ARGUMENT
+    }
+}
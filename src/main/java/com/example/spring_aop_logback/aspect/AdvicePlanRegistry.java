@@ -0,0 +1,252 @@
+package com.example.spring_aop_logback.aspect;
+
+import com.example.spring_aop_logback.annotation.ExternalEndpoint;
+import com.example.spring_aop_logback.annotation.Hedged;
+import com.example.spring_aop_logback.dto.HedgingStats;
+import com.example.spring_aop_logback.resilience.HedgePolicy;
+import com.example.spring_aop_logback.resilience.Hedger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Builds an immutable {@link AdvicePlan} for every public method of the beans in the 'controller', 'service' and
+ * 'util.web' packages at startup. New clients dropped into 'util.web' get a plan automatically: the service name comes from
+ * the class name and the base URL from the matching {@code <service>.service.url} property.
+ * <p>
+ * The classes are taken from the bean definitions rather than found by scanning the classpath a second time, so
+ * an AOT-processed build (see the {@code fast-startup} profile), which registers its beans without any scanning,
+ * does not pay for a scan here either.
+ * <p>
+ * The distinct controller mappings and client services are numbered as well; those numbers are the plans' slots
+ * in the runtime logging policy (see {@code LoggingPolicyRegistry}).
+ */
+@Component
+public class AdvicePlanRegistry implements InitializingBean {
+
+    static final String CONTROLLER_PACKAGE = "com.example.spring_aop_logback.controller";
+    static final String SERVICE_PACKAGE = "com.example.spring_aop_logback.service";
+    static final String CLIENT_PACKAGE = "com.example.spring_aop_logback.util.web";
+    static final String UNKNOWN_URL = "UNKNOWN_URL";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private Map<Method, AdvicePlan> plans = Map.of();
+    private List<String> uris = List.of();
+    private List<String> services = List.of();
+
+    @Override
+    public void afterPropertiesSet() {
+        List<Class<?>> controllers = beanTypes(CONTROLLER_PACKAGE);
+        List<Class<?>> serviceTypes = beanTypes(SERVICE_PACKAGE);
+        List<Class<?>> clients = beanTypes(CLIENT_PACKAGE);
+        Set<String> mappings = new TreeSet<>();
+        for (Class<?> type : controllers) {
+            for (Method method : advisableMethods(type)) {
+                String mapping = mapping(method);
+                if (mapping != null) {
+                    mappings.add(mapping);
+                }
+            }
+        }
+        Set<String> serviceNames = new TreeSet<>();
+        for (Class<?> type : clients) {
+            serviceNames.add(serviceName(type));
+        }
+        uris = List.copyOf(mappings);
+        services = List.copyOf(serviceNames);
+
+        Map<Method, AdvicePlan> compiled = new HashMap<>();
+        for (Class<?> type : controllers) {
+            for (Method method : advisableMethods(type)) {
+                compiled.put(method, controllerPlan(type, method));
+            }
+        }
+        for (Class<?> type : serviceTypes) {
+            for (Method method : advisableMethods(type)) {
+                compiled.put(method, servicePlan(type, method));
+            }
+        }
+        for (Class<?> type : clients) {
+            for (Method method : advisableMethods(type)) {
+                compiled.put(method, clientPlan(type, method));
+            }
+        }
+        plans = Map.copyOf(compiled);
+    }
+
+    /**
+     * The controller mapping paths, in policy slot order.
+     */
+    public List<String> uris() {
+        return uris;
+    }
+
+    /**
+     * The downstream service names, in policy slot order.
+     */
+    public List<String> services() {
+        return services;
+    }
+
+    /**
+     * Counters of every {@code @Hedged} client method.
+     */
+    public List<HedgingStats> hedgingStats() {
+        List<HedgingStats> stats = new ArrayList<>();
+        for (AdvicePlan plan : plans.values()) {
+            if (plan.hedger() != null) {
+                stats.add(plan.hedger().stats());
+            }
+        }
+        stats.sort(Comparator.comparing(HedgingStats::service).thenComparing(HedgingStats::method));
+        return stats;
+    }
+
+    /**
+     * The plan of an advised controller method; methods that were not scanned (which should not happen) get a
+     * plan computed on the spot.
+     */
+    public AdvicePlan controllerPlan(Method method) {
+        AdvicePlan plan = plans.get(method);
+        return plan != null ? plan : controllerPlan(method.getDeclaringClass(), method);
+    }
+
+    /**
+     * Whether {@code type} is one of the controllers the controller advice applies to.
+     */
+    public boolean isController(Class<?> type) {
+        return type.getPackageName().startsWith(CONTROLLER_PACKAGE);
+    }
+
+    /**
+     * The plan of an advised external client method.
+     */
+    public AdvicePlan clientPlan(Method method) {
+        AdvicePlan plan = plans.get(method);
+        return plan != null ? plan : clientPlan(method.getDeclaringClass(), method);
+    }
+
+    /**
+     * The plan of an advised service method.
+     */
+    public AdvicePlan servicePlan(Method method) {
+        AdvicePlan plan = plans.get(method);
+        return plan != null ? plan : servicePlan(method.getDeclaringClass(), method);
+    }
+
+    private AdvicePlan controllerPlan(Class<?> type, Method method) {
+        String path = mapping(method);
+        return new AdvicePlan(type.getSimpleName(), path, returnKind(method), bodyCapture(method), uris.indexOf(path),
+                null, type.getSimpleName() + "." + method.getName());
+    }
+
+    private static AdvicePlan servicePlan(Class<?> type, Method method) {
+        return new AdvicePlan(type.getSimpleName(), null, returnKind(method), AdvicePlan.BodyCapture.NONE, -1, null,
+                type.getSimpleName() + "." + method.getName());
+    }
+
+    private static String mapping(Method method) {
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+        return mapping != null && mapping.path().length > 0 ? mapping.path()[0] : null;
+    }
+
+    private AdvicePlan clientPlan(Class<?> type, Method method) {
+        String serviceName = serviceName(type);
+        String baseUrl = environment.getProperty(serviceName.toLowerCase(Locale.ROOT) + ".service.url");
+        ExternalEndpoint endpoint = AnnotatedElementUtils.findMergedAnnotation(method, ExternalEndpoint.class);
+        String url;
+        if (baseUrl == null) {
+            url = UNKNOWN_URL;
+        } else {
+            url = endpoint != null ? baseUrl + endpoint.path() : baseUrl;
+        }
+        AdvicePlan.ReturnKind returnKind = returnKind(method);
+        Hedger hedger = returnKind == AdvicePlan.ReturnKind.MONO && method.isAnnotationPresent(Hedged.class)
+                ? new Hedger(serviceName, method.getName(), HedgePolicy.resolve(environment, serviceName))
+                : null;
+        return new AdvicePlan(serviceName, url, returnKind, bodyCapture(method), services.indexOf(serviceName), hedger,
+                serviceName + "." + method.getName());
+    }
+
+    /**
+     * WelcomeServiceClient -> WELCOME, UceServiceClient -> UCE.
+     */
+    static String serviceName(Class<?> type) {
+        String name = type.getSimpleName();
+        for (String suffix : new String[]{"ServiceClient", "Client"}) {
+            if (name.endsWith(suffix) && name.length() > suffix.length()) {
+                name = name.substring(0, name.length() - suffix.length());
+                break;
+            }
+        }
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    private static AdvicePlan.ReturnKind returnKind(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return AdvicePlan.ReturnKind.MONO;
+        }
+        if (Flux.class.isAssignableFrom(returnType)) {
+            return AdvicePlan.ReturnKind.FLUX;
+        }
+        return AdvicePlan.ReturnKind.PLAIN;
+    }
+
+    private static AdvicePlan.BodyCapture bodyCapture(Method method) {
+        return method.getParameterCount() > 0 ? AdvicePlan.BodyCapture.FIRST_ARGUMENT : AdvicePlan.BodyCapture.NONE;
+    }
+
+    private static List<Method> advisableMethods(Class<?> type) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : type.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers()) && !method.isSynthetic() && !method.isBridge()) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private List<Class<?>> beanTypes(String basePackage) {
+        // Bean definitions name the target classes, never the proxies or the closures ajc generates (mvn -Pctw).
+        Set<String> classNames = new TreeSet<>();
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getMergedBeanDefinition(name);
+            String className = definition.getBeanClassName();
+            if (!definition.isAbstract() && className != null
+                    && className.startsWith(basePackage + ".")) {
+                classNames.add(className);
+            }
+        }
+        List<Class<?>> types = new ArrayList<>();
+        ClassLoader classLoader = getClass().getClassLoader();
+        for (String className : classNames) {
+            types.add(ClassUtils.resolveClassName(className, classLoader));
+        }
+        return types;
+    }
+}
@@ -1,51 +1,83 @@
 package com.example.spring_aop_logback.aspect;
 
+import ch.qos.logback.classic.Level;
+import com.example.spring_aop_logback.cache.CacheStatus;
+import com.example.spring_aop_logback.capture.BodyCapturer;
+import com.example.spring_aop_logback.capture.CapturePolicy;
+import com.example.spring_aop_logback.capture.CapturedBody;
+import com.example.spring_aop_logback.context.ExternalCallAttributes;
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
 import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.logging.TraceMarkers;
+import com.example.spring_aop_logback.metrics.LatencyRegistry;
+import com.example.spring_aop_logback.policy.PolicySnapshot;
 import com.example.spring_aop_logback.util.ExternalLogUtil;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.spring_aop_logback.util.LogValueFormatter;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
-import org.slf4j.MDC;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Marker;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.context.Context;
 
-import java.time.Instant;
-import java.util.Arrays;
-import java.util.Map;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Aspect for providing detailed, structured logging for all outgoing external API calls.
  * This class intercepts methods in external web clients, captures the full request/response cycle,
  * and logs it in a consistent format. It is designed to handle reactive types (Mono) and
- * correctly propagate the MDC context to ensure tracing IDs (like CR_ID) are never lost.
+ * takes the caller's {@link LogContext} from the Reactor Context to ensure tracing IDs (like CR_ID) are never lost.
+ * Blocking (RestClient) variants are logged with the same fields from the calling thread's log context.
+ * <p>
+ * Every call is bounded by the deadline of the request it is made for, and calls of {@code @Hedged} methods are
+ * hedged (see {@code Hedger}); the HEDGE field tells which attempt answered. Calls refused by the service's
+ * concurrency limiter fail at once and are logged with HTTP_STATUS 503 and the limiter's message.
+ * <p>
+ * Each call is timed as a span of the calling request as well (see {@code SpanTree}), nested under the service
+ * method that made it.
+ * <p>
+ * Bodies are handed to the log line as {@link CapturedBody} references: they are only serialized (bounded and
+ * masked, see {@link BodyCapturer}) when the line is formatted, and not at all when the call is not sampled.
  */
 @Aspect
 @Component
 public class ExternalServiceLoggingAspect {
 
+    private static final ExternalLoggingEnum[] EXTERNAL_KEYS = ExternalLoggingEnum.values();
+
     @Autowired
     private ExternalLogUtil externalLogUtil;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private BodyCapturer bodyCapturer;
 
-    @Value("${welcome.service.url}")
-    private String welcomeServiceBaseUrl;
+    @Autowired
+    private AdvicePlanRegistry advicePlanRegistry;
 
-    @Value("${uce.service.url}")
-    private String uceServiceBaseUrl;
+    @Autowired
+    private LatencyRegistry latencyRegistry;
 
     /**
-     * Defines a pointcut that targets all methods within any class in the 'util.web' package.
+     * Defines a pointcut that targets all public methods within any class in the 'util.web' package.
      * This is the central point for adding new external clients to be logged. To add a new client,
-     * simply place its class in this package, and its methods will be intercepted automatically.
+     * simply place its class in this package, and its public methods will be intercepted automatically.
+     * Private helpers are not client calls of their own, also when the aspect is compile-time woven.
      */
-    @Pointcut("execution(* com.example.spring_aop_logback.util.web.*.*(..))")
+    @Pointcut("execution(public !static * com.example.spring_aop_logback.util.web.*.*(..))")
     public void externalServiceClientPointcut() {
     }
 
@@ -60,91 +92,233 @@ public class ExternalServiceLoggingAspect {
     @Around("externalServiceClientPointcut()")
     public Object logAroundExternalCall(ProceedingJoinPoint joinPoint) throws Throwable {
         long startTime = System.currentTimeMillis();
-        String serviceName = joinPoint.getSignature().getDeclaringType().getSimpleName().replace("Client", "").toUpperCase();
-        String url = getUrlForService(serviceName, joinPoint);
-
-        // Capture the request body if the intercepted method has arguments.
-        if (joinPoint.getArgs().length > 0) {
-            Object requestBody = joinPoint.getArgs()[0];
-            try {
-                MDC.put(ExternalLoggingEnum.RQST_BODY.name(), objectMapper.writeValueAsString(requestBody));
-            } catch (Exception e) {
-                MDC.put(ExternalLoggingEnum.RQST_BODY.name(), "Error serializing request body");
-            }
-        }
+        long startNanos = System.nanoTime();
+        // Service name, URL and body strategy were resolved once at startup.
+        AdvicePlan plan = advicePlanRegistry.clientPlan(((MethodSignature) joinPoint.getSignature()).getMethod());
+        // The whole call, hedge and deadline included, is also a span of the calling request.
+        return SpanAdvice.proceed(joinPoint, plan, LogContextHolder.current(), startNanos,
+                call -> proceedLogged(call, plan, startTime, startNanos));
+    }
+
+    private Object proceedLogged(ProceedingJoinPoint joinPoint, AdvicePlan plan, long startTime, long startNanos)
+            throws Throwable {
+        Object firstArgument = plan.bodyCapture() == AdvicePlan.BodyCapture.FIRST_ARGUMENT ? joinPoint.getArgs()[0] : null;
+        PolicySnapshot policies = PolicySnapshot.current();
+        PolicySnapshot.ServicePolicy servicePolicy = policies.service(plan.policySlot());
 
-        // CRITICAL: Capture the MDC map from the current thread to pass into the reactive context.
-        Map<String, String> mdcContextMap = MDC.getCopyOfContextMap();
+        if (!plan.returnKind().isReactive()) {
+            return proceedBlocking(joinPoint, plan, startTime, startNanos, policies, servicePolicy, firstArgument);
+        }
 
         Object result = joinPoint.proceed();
 
-        if (result instanceof Mono) {
-            return ((Mono<?>) result)
-                    .flatMap(responseBody -> {
-                        // Restore the MDC to ensure the CR_ID is available on the current (potentially different) thread.
-                        if (mdcContextMap != null) {
-                            MDC.setContextMap(mdcContextMap);
-                        }
-                        try {
-                            String responseBodyString = objectMapper.writeValueAsString(responseBody);
-                            populateMdc(serviceName, url, startTime, 200, responseBodyString, null);
-                        } catch (Exception e) {
-                            populateMdc(serviceName, url, startTime, 200, "Error serializing response body", null);
-                        }
-                        externalLogUtil.processLogs();
-                        // CRITICAL: Only remove keys specific to this aspect to avoid clearing the CR_ID.
-                        Arrays.stream(ExternalLoggingEnum.values()).forEach(e -> MDC.remove(e.name()));
-                        return Mono.just(responseBody);
-                    })
-                    .onErrorResume(error -> {
-                        // Restore the MDC for error logging.
-                        if (mdcContextMap != null) {
-                            MDC.setContextMap(mdcContextMap);
-                        }
-                        populateMdc(serviceName, url, startTime, 500, null, error);
-                        externalLogUtil.processLogs();
-                        // CRITICAL: Only remove keys specific to this aspect.
-                        Arrays.stream(ExternalLoggingEnum.values()).forEach(e -> MDC.remove(e.name()));
-                        return Mono.error(error);
-                    })
-                    // Pass the captured MDC map into the reactive stream's context.
-                    .contextWrite(Context.of("mdcContext", mdcContextMap));
+        if (plan.returnKind() == AdvicePlan.ReturnKind.MONO && result instanceof Mono) {
+            Mono<?> call = plan.hedger() != null ? plan.hedger().hedge((Mono<?>) result) : (Mono<?>) result;
+            // CRITICAL: The log context is read from the subscriber's Reactor Context, so the CR_ID is correct
+            // no matter which thread subscribes or which thread delivers the response.
+            // Code behind the client (e.g. the entitlement cache) reports back through per-call attributes.
+            // The request's deadline bounds the whole call, hedge included.
+            return Mono.deferContextual(contextView -> {
+                LogContext logContext = LogContextHolder.from(contextView);
+                Capture capture = capture(plan, policies, servicePolicy, logContext, firstArgument);
+                ExternalCallAttributes attributes = new ExternalCallAttributes();
+                return withDeadline(call, plan, logContext)
+                        .doOnSuccess(responseBody -> logExternalCall(logContext, servicePolicy, startNanos,
+                                buildRecord(plan, startTime, startNanos, attributes, 200, null), capture, responseBody))
+                        .doOnError(error -> logExternalCall(logContext, servicePolicy, startNanos,
+                                buildRecord(plan, startTime, startNanos, attributes, statusOf(error), error), capture, null))
+                        .contextWrite(context -> context.put(ExternalCallAttributes.CONTEXT_KEY, attributes));
+            });
+        }
+
+        // Streaming responses are logged once, when the stream terminates; elements are not rendered.
+        if (plan.returnKind() == AdvicePlan.ReturnKind.FLUX && result instanceof Flux) {
+            Flux<?> call = (Flux<?>) result;
+            return Flux.deferContextual(contextView -> {
+                LogContext logContext = LogContextHolder.from(contextView);
+                Capture capture = capture(plan, policies, servicePolicy, logContext, firstArgument);
+                ExternalCallAttributes attributes = new ExternalCallAttributes();
+                return withDeadline(call, plan, logContext)
+                        .doOnComplete(() -> logExternalCall(logContext, servicePolicy, startNanos,
+                                buildRecord(plan, startTime, startNanos, attributes, 200, null), capture, null))
+                        .doOnError(error -> logExternalCall(logContext, servicePolicy, startNanos,
+                                buildRecord(plan, startTime, startNanos, attributes, statusOf(error), error), capture, null))
+                        .contextWrite(context -> context.put(ExternalCallAttributes.CONTEXT_KEY, attributes));
+            });
         }
 
         return result;
     }
 
     /**
-     * Helper method to populate the MDC with all necessary details for external logging.
+     * Blocking variant of the advice: the call completes on the calling thread before the line is logged.
+     */
+    private Object proceedBlocking(ProceedingJoinPoint joinPoint, AdvicePlan plan, long startTime, long startNanos,
+                                   PolicySnapshot policies, PolicySnapshot.ServicePolicy servicePolicy,
+                                   Object firstArgument) throws Throwable {
+        // CRITICAL: A blocking client runs on the caller's (virtual) thread, where the request's log context is
+        // already current; nothing has to be carried across threads.
+        LogContext logContext = LogContextHolder.current();
+        Capture capture = capture(plan, policies, servicePolicy, logContext, firstArgument);
+        ExternalCallAttributes attributes = new ExternalCallAttributes();
+        Object responseBody;
+        try (LogContextHolder.Scope ignored = ExternalCallAttributes.open(attributes)) {
+            refuseAfterDeadline(plan, logContext);
+            responseBody = joinPoint.proceed();
+        } catch (Throwable error) {
+            logExternalCall(logContext, servicePolicy, startNanos,
+                    buildRecord(plan, startTime, startNanos, attributes, statusOf(error), error), capture, null);
+            throw error;
+        }
+        logExternalCall(logContext, servicePolicy, startNanos,
+                buildRecord(plan, startTime, startNanos, attributes, 200, null), capture, responseBody);
+        return responseBody;
+    }
+
+    /**
+     * Fails the call with 504 when the request's deadline passes before it answers; a call made after the deadline
+     * is not sent at all. Calls outside a request, or of a request without deadline, are returned as they are.
+     */
+    static <T> Mono<T> withDeadline(Mono<T> call, AdvicePlan plan, LogContext logContext) {
+        if (logContext == null || !logContext.hasDeadline()) {
+            return call;
+        }
+        long remainingNanos = logContext.remainingNanos(System.nanoTime());
+        if (remainingNanos <= 0) {
+            return Mono.error(deadlineExceeded(plan));
+        }
+        return call.timeout(Duration.ofNanos(remainingNanos), Mono.error(() -> deadlineExceeded(plan)));
+    }
+
+    static <T> Flux<T> withDeadline(Flux<T> call, AdvicePlan plan, LogContext logContext) {
+        if (logContext == null || !logContext.hasDeadline()) {
+            return call;
+        }
+        long remainingNanos = logContext.remainingNanos(System.nanoTime());
+        if (remainingNanos <= 0) {
+            return Flux.error(deadlineExceeded(plan));
+        }
+        // Flux.timeout would bound the gaps between elements; the deadline bounds the whole stream.
+        return call.takeUntilOther(Mono.delay(Duration.ofNanos(remainingNanos)).then(Mono.error(() -> deadlineExceeded(plan))));
+    }
+
+    /**
+     * A blocking call cannot be cancelled midway; it is only refused, with 504, once the deadline has passed and is
+     * otherwise bounded by the client's response timeout.
+     */
+    static void refuseAfterDeadline(AdvicePlan plan, LogContext logContext) {
+        if (logContext != null && logContext.remainingNanos(System.nanoTime()) <= 0) {
+            throw deadlineExceeded(plan);
+        }
+    }
+
+    private static ResponseStatusException deadlineExceeded(AdvicePlan plan) {
+        return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded calling " + plan.serviceName());
+    }
+
+    /**
+     * The HTTP_STATUS of a failed call: the upstream's status when it answered, 504 when the call timed out (the
+     * request's deadline, a client timeout or a socket timeout, however wrapped), 500 for anything else.
+     */
+    static int statusOf(Throwable error) {
+        if (error instanceof ResponseStatusException statusException) {
+            return statusException.getStatusCode().value();
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().value();
+        }
+        if (error instanceof RestClientResponseException responseException) {
+            return responseException.getStatusCode().value();
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException
+                    || cause instanceof HttpTimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return HttpStatus.GATEWAY_TIMEOUT.value();
+            }
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    /**
+     * Decides once per call whether its bodies are captured: a body-capture override of the calling request's URI
+     * wins, then the service's runtime policy, then its configured capture policy. The request body is only
+     * referenced, not rendered. Returns null when the bodies are not captured.
      */
-    private void populateMdc(String serviceName, String url, long startTime, int statusCode, String body, Throwable error) {
-        MDC.put(ExternalLoggingEnum.SOURCE.name(), "EXTERNAL");
-        MDC.put(ExternalLoggingEnum.SERVICE_NAME.name(), serviceName);
-        MDC.put(ExternalLoggingEnum.URL.name(), url);
-        MDC.put(ExternalLoggingEnum.RQST_TS.name(), Instant.ofEpochMilli(startTime).toString());
-        MDC.put(ExternalLoggingEnum.RESP_TS.name(), Instant.now().toString());
-        MDC.put(ExternalLoggingEnum.HTTP_STATUS.name(), String.valueOf(statusCode));
-        long timeTaken = System.currentTimeMillis() - startTime;
-        MDC.put(ExternalLoggingEnum.EXECUTION_TIME.name(), timeTaken + "ms");
-
-        if (body != null && !body.isEmpty()) {
-            MDC.put(ExternalLoggingEnum.RESP_BODY.name(), body);
+    private Capture capture(AdvicePlan plan, PolicySnapshot policies, PolicySnapshot.ServicePolicy servicePolicy,
+                            LogContext logContext, Object firstArgument) {
+        CapturePolicy capturePolicy = bodyCapturer.policy(plan.serviceName());
+        Boolean forced = logContext == null ? null : policies.request(logContext.policySlot()).bodyCapture();
+        boolean sampled;
+        if (forced != null) {
+            sampled = forced;
+        } else if (!servicePolicy.bodyCapture()) {
+            sampled = false;
+        } else if (Double.isNaN(servicePolicy.captureSampleRate())) {
+            sampled = capturePolicy.sampled();
+        } else {
+            sampled = ThreadLocalRandom.current().nextDouble() < servicePolicy.captureSampleRate();
+        }
+        return sampled ? new Capture(capturePolicy, bodyCapturer.capture(firstArgument, capturePolicy)) : null;
+    }
+
+    /**
+     * Helper to build the ExternalLoggingEnum values (indexed by ordinal) for one external call.
+     * The body fields are filled in when the line is rendered. The latency is recorded per service and status.
+     */
+    private String[] buildRecord(AdvicePlan plan, long startTime, long startNanos, ExternalCallAttributes attributes,
+                                 int statusCode, Throwable error) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        CacheStatus cacheStatus = attributes.cacheStatus();
+        latencyRegistry.recordExternal(plan.serviceName(), statusCode, cacheStatus, elapsedNanos);
+
+        String[] values = new String[EXTERNAL_KEYS.length];
+        values[ExternalLoggingEnum.SOURCE.ordinal()] = "EXTERNAL";
+        values[ExternalLoggingEnum.SERVICE_NAME.ordinal()] = plan.serviceName();
+        values[ExternalLoggingEnum.URL.ordinal()] = plan.urlTemplate();
+        values[ExternalLoggingEnum.RQST_TS.ordinal()] = LogValueFormatter.isoTimestamp(startTime);
+        values[ExternalLoggingEnum.RESP_TS.ordinal()] = LogValueFormatter.isoTimestamp(System.currentTimeMillis());
+        values[ExternalLoggingEnum.HTTP_STATUS.ordinal()] = String.valueOf(statusCode);
+        values[ExternalLoggingEnum.EXECUTION_TIME.ordinal()] = LogValueFormatter.millis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        if (cacheStatus != null) {
+            values[ExternalLoggingEnum.CACHE.ordinal()] = cacheStatus.name();
+        }
+        if (attributes.batchSize() > 0) {
+            values[ExternalLoggingEnum.BATCH_SIZE.ordinal()] = String.valueOf(attributes.batchSize());
+        }
+        if (attributes.hedgeOutcome() != null) {
+            values[ExternalLoggingEnum.HEDGE.ordinal()] = attributes.hedgeOutcome().name();
         }
         if (error != null) {
-            MDC.put(ExternalLoggingEnum.ERROR_DESC.name(), error.getMessage());
+            values[ExternalLoggingEnum.ERROR_DESC.ordinal()] = error.getMessage();
         }
+        return values;
     }
 
     /**
-     * Helper to get the target URL by combining the base URL from properties with the endpoint path.
+     * Emits the external call line with the caller's log context current, so it carries the caller's CR_ID.
+     * The service's runtime policy decides whether the line is logged and whether a slow call keeps the trace;
+     * a slow call's line is logged whatever the level, since it carries the TRACE_KEEP marker.
      */
-    private String getUrlForService(String serviceName, ProceedingJoinPoint joinPoint) {
-        if ("WELCOME".equals(serviceName)) {
-            return welcomeServiceBaseUrl + "/welcome";
+    private void logExternalCall(LogContext logContext, PolicySnapshot.ServicePolicy servicePolicy, long startNanos,
+                                 String[] values, Capture capture, Object responseBody) {
+        boolean hasError = values[ExternalLoggingEnum.ERROR_DESC.ordinal()] != null;
+        boolean slow = servicePolicy.isSlow(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        if (!slow && !servicePolicy.logs(hasError ? Level.ERROR : Level.INFO)) {
+            return;
         }
-        if ("UCE".equals(serviceName)) {
-            return uceServiceBaseUrl + "/entitlementCheck";
+        Marker marker = slow ? TraceMarkers.TRACE_KEEP : null;
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(logContext)) {
+            if (capture == null) {
+                externalLogUtil.processLogs(values, null, null, marker);
+            } else {
+                externalLogUtil.processLogs(values, capture.requestBody(), bodyCapturer.capture(responseBody, capture.policy()), marker);
+            }
         }
-        return "UNKNOWN_URL";
     }
-}
\ No newline at end of file
+
+    /**
+     * The capture policy and request body of a call whose bodies are captured.
+     */
+    private record Capture(CapturePolicy policy, CapturedBody requestBody) {
+    }
+}
@@ -1,55 +1,76 @@
 package com.example.spring_aop_logback.aspect;
 
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.context.SpanTree;
 import com.example.spring_aop_logback.enums.LoggingEnum;
-import com.example.spring_aop_logback.util.LogUtil;
+import com.example.spring_aop_logback.util.LogValueFormatter;
+import com.example.spring_aop_logback.util.RequestSummaryLogger;
+import com.example.spring_aop_logback.util.RequestSummaryLogger.Completion;
 import jakarta.servlet.http.HttpServletRequest;
-import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.context.Context;
 
-import java.time.Instant;
-import java.util.Arrays;
-import java.util.Map;
+import java.time.Duration;
 import java.util.UUID;
 
 /**
  * Aspect for handling application-wide logging for the controller and service layers.
- * It ensures a Correlation ID (CR_ID) is present for all requests and logs
- * entry/exit points for controllers and service methods.
+ * It ensures a Correlation ID (CR_ID) is present for all requests and logs one summary line per controller call.
+ * Service methods are not logged on their own: they are timed as spans of the request (see {@code SpanTree}),
+ * which the summary line carries as its SPANS field.
+ * <p>
+ * The request fields are kept in an immutable {@link LogContext} that is written into the Reactor Context of
+ * the returned Mono; no MDC maps are copied between threads.
+ * <p>
+ * In the reactive server mode ({@code spring.main.web-application-type=reactive}) there is no servlet request;
+ * the controller advice then steps aside and {@code LoggingWebFilter} produces the same lines.
+ * <p>
+ * Applied through Spring AOP proxies by default, or woven into the bytecode with {@code mvn -Pctw}
+ * (see {@code AspectWeavingConfig}); the pointcuts select the same methods either way.
  */
 @Aspect
 @Component
 public class LoggingAspect {
     private static final String CORRELATION_ID_HEADER_NAME = "X-Correlation-ID";
-    private final Logger log = LoggerFactory.getLogger(this.getClass());
 
     @Autowired
-    private LogUtil logUtil;
+    private AdvicePlanRegistry advicePlanRegistry;
+
+    @Autowired
+    private RequestSummaryLogger requestSummaryLogger;
+
+    /**
+     * Time budget of a request from controller entry; external calls still running when it is spent are cancelled.
+     */
+    @Value("${request.deadline:0}")
+    private Duration requestDeadline;
 
     /**
      * Pointcut that matches all public methods in any class within the 'controller' package.
+     * Spelled out as public instance method executions so that, when the aspect is compile-time woven, it does
+     * not also match lambda bodies, private helpers and every other join point inside the controllers.
      */
-    @Pointcut("within(com.example.spring_aop_logback.controller..*)")
+    @Pointcut("execution(public !static * com.example.spring_aop_logback.controller..*.*(..))")
     public void controllerPointcut() {
     }
 
     /**
      * Pointcut that matches all public methods in any class within the 'service' package.
      */
-    @Pointcut("execution(* com.example.spring_aop_logback.service.*.*(..))")
+    @Pointcut("execution(public !static * com.example.spring_aop_logback.service.*.*(..))")
     public void servicePointcut() {
     }
 
@@ -59,74 +80,80 @@ public class LoggingAspect {
      */
     @Around("controllerPointcut()")
     public Object logAroundController(ProceedingJoinPoint joinPoint) throws Throwable {
-        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            // Reactive server mode: LoggingWebFilter has already opened the request's log context.
+            return joinPoint.proceed();
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
 
         // Establish the Correlation ID: either from the incoming request header or generate a new one.
         String correlationId = request.getHeader(CORRELATION_ID_HEADER_NAME);
         if (!StringUtils.hasText(correlationId)) {
             correlationId = UUID.randomUUID().toString();
         }
-        MDC.put("CR_ID", correlationId);
 
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        AdvicePlan plan = advicePlanRegistry.controllerPlan(((MethodSignature) joinPoint.getSignature()).getMethod());
 
-        // Populate MDC with initial request details.
-        MDC.put(LoggingEnum.RQST_RCVD_TS.name(), Instant.now().toString());
-        MDC.put(LoggingEnum.HTTP_METHOD.name(), request.getMethod());
-        MDC.put(LoggingEnum.METHOD.name(), joinPoint.getSignature().getName());
-        MDC.put(LoggingEnum.URI.name(), request.getRequestURI());
+        // Capture the initial request details once; they travel with the request from here on.
+        Completion completion = new Completion(plan, request.getMethod(), request.getRequestURI(), startNanos);
+        LogContext logContext = LogContext.builder(correlationId)
+                .policySlot(plan.policySlot())
+                .deadline(startNanos, requestDeadline.toNanos())
+                .spans(SpanTree.acquire())
+                .put(LoggingEnum.RQST_RCVD_TS, LogValueFormatter.isoTimestamp(startTime))
+                .put(LoggingEnum.HTTP_METHOD, request.getMethod())
+                .put(LoggingEnum.METHOD, joinPoint.getSignature().getName())
+                .put(LoggingEnum.URI, request.getRequestURI())
+                .build();
 
-        try {
+        Throwable failure = null;
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(logContext)) {
             Object result = joinPoint.proceed();
 
-            // CRITICAL: If the controller returns a Mono, we must bridge the MDC to the
-            // reactive context to prevent context loss across threads.
-            if (result instanceof Mono) {
-                Map<String, String> mdcContextMap = MDC.getCopyOfContextMap();
+            // CRITICAL: If the controller returns a Mono, the summary is logged when it terminates,
+            // and the log context is handed to every operator upstream through the Reactor Context.
+            if (plan.returnKind() == AdvicePlan.ReturnKind.MONO && result instanceof Mono) {
                 return ((Mono<?>) result)
-                        .doFinally(signalType -> {
-                            // This block runs when the Mono completes.
-                            // We must restore the MDC here for the final log.
-                            if (mdcContextMap != null) {
-                                MDC.setContextMap(mdcContextMap);
-                            }
-                            long timeTaken = System.currentTimeMillis() - startTime;
-                            MDC.put(LoggingEnum.RQST_RESP_TS.name(), Instant.now().toString());
-                            MDC.put(LoggingEnum.EXECUTION_TIME.name(), String.valueOf(timeTaken) + "ms");
-                            MDC.put(LoggingEnum.SOURCE.name(), "CONTROLLER");
-                            logUtil.processLogs();
-                            MDC.clear();
-                        })
-                        .contextWrite(Context.of("mdcContext", mdcContextMap));
+                        .doOnSuccess(value -> requestSummaryLogger.logCompletion(logContext, completion, null))
+                        .doOnError(error -> requestSummaryLogger.logCompletion(logContext, completion, error))
+                        .doOnCancel(() -> requestSummaryLogger.logCompletion(logContext, completion, null))
+                        .contextWrite(context -> LogContextHolder.write(context, logContext));
+            }
+            if (plan.returnKind() == AdvicePlan.ReturnKind.FLUX && result instanceof Flux) {
+                return ((Flux<?>) result)
+                        .doOnComplete(() -> requestSummaryLogger.logCompletion(logContext, completion, null))
+                        .doOnError(error -> requestSummaryLogger.logCompletion(logContext, completion, error))
+                        .doOnCancel(() -> requestSummaryLogger.logCompletion(logContext, completion, null))
+                        .contextWrite(context -> LogContextHolder.write(context, logContext));
             }
 
             // For non-reactive (synchronous) controller methods, return the result directly.
             // The 'finally' block below will handle the logging.
             return result;
 
+        } catch (Throwable error) {
+            failure = error;
+            throw error;
         } finally {
             // This 'finally' block will only handle logging for NON-REACTIVE methods.
-            // The Mono's doFinally handles the reactive case.
-            boolean isReactive = (joinPoint.getSignature().getDeclaringType().getMethod(joinPoint.getSignature().getName(), ((org.aspectj.lang.reflect.MethodSignature) joinPoint.getSignature()).getParameterTypes()).getReturnType() == Mono.class);
-            if (!isReactive) {
-                long timeTaken = System.currentTimeMillis() - startTime;
-                MDC.put(LoggingEnum.RQST_RESP_TS.name(), Instant.now().toString());
-                MDC.put(LoggingEnum.EXECUTION_TIME.name(), String.valueOf(timeTaken) + "ms");
-                MDC.put(LoggingEnum.SOURCE.name(), "CONTROLLER");
-                logUtil.processLogs();
-                MDC.clear();
+            // The Mono/Flux signal callbacks handle the reactive case; the return kind was resolved at startup.
+            if (!plan.returnKind().isReactive()) {
+                requestSummaryLogger.logCompletion(logContext, completion, failure);
             }
         }
     }
 
     /**
-     * A 'Before' advice that logs the entry into any service layer method.
-     * This provides a clear trace of the business logic being executed.
+     * An 'Around' advice that times every service layer method as a span of the calling request, up to the
+     * completion of the Mono or Flux it returns. Arguments are not rendered.
      */
-    @Before("servicePointcut()")
-    public void logBeforeService(JoinPoint joinPoint) {
-        log.info("SOURCE=SERVICE; METHOD={}; ARGS={}",
-                joinPoint.getSignature().getName(),
-                Arrays.toString(joinPoint.getArgs()));
+    @Around("servicePointcut()")
+    public Object spanAroundService(ProceedingJoinPoint joinPoint) throws Throwable {
+        long startNanos = System.nanoTime();
+        AdvicePlan plan = advicePlanRegistry.servicePlan(((MethodSignature) joinPoint.getSignature()).getMethod());
+        return SpanAdvice.proceed(joinPoint, plan, LogContextHolder.current(), startNanos, ProceedingJoinPoint::proceed);
     }
-}
\ No newline at end of file
+}
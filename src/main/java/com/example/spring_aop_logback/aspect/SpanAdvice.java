@@ -0,0 +1,63 @@
+package com.example.spring_aop_logback.aspect;
+
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.SpanTree;
+import org.aspectj.lang.ProceedingJoinPoint;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records an advised service or client method as a span of the calling request (see {@link SpanTree}): the span
+ * starts when the method is called and ends when its result completes, i.e. for a {@code Mono} or {@code Flux}
+ * on its terminal signal (or cancellation) rather than when the method returns. While the method body runs, the
+ * span is the parent of the spans begun on the same thread, which is where the services call the clients.
+ */
+final class SpanAdvice {
+
+    private SpanAdvice() {
+    }
+
+    /**
+     * Proceeds with {@code joinPoint} as a span of {@code logContext}'s request; without a request the method just
+     * proceeds. {@code body} is the rest of the advice, if any, run inside the span.
+     */
+    static Object proceed(ProceedingJoinPoint joinPoint, AdvicePlan plan, LogContext logContext, long startNanos,
+                          Body body) throws Throwable {
+        long span = logContext == null
+                ? SpanTree.NO_SPAN
+                : logContext.beginSpan(plan.spanName(), SpanTree.currentSpan(), startNanos);
+        if (span == SpanTree.NO_SPAN) {
+            return body.proceed(joinPoint);
+        }
+        long previous = SpanTree.enter(span);
+        Object result;
+        try {
+            result = body.proceed(joinPoint);
+        } catch (Throwable error) {
+            logContext.endSpan(span, System.nanoTime(), true);
+            throw error;
+        } finally {
+            SpanTree.exit(previous);
+        }
+        if (plan.returnKind() == AdvicePlan.ReturnKind.MONO && result instanceof Mono<?> mono) {
+            return mono.doOnSuccess(value -> logContext.endSpan(span, System.nanoTime(), false))
+                    .doOnError(error -> logContext.endSpan(span, System.nanoTime(), true))
+                    .doOnCancel(() -> logContext.endSpan(span, System.nanoTime(), false));
+        }
+        if (plan.returnKind() == AdvicePlan.ReturnKind.FLUX && result instanceof Flux<?> flux) {
+            return flux.doOnComplete(() -> logContext.endSpan(span, System.nanoTime(), false))
+                    .doOnError(error -> logContext.endSpan(span, System.nanoTime(), true))
+                    .doOnCancel(() -> logContext.endSpan(span, System.nanoTime(), false));
+        }
+        logContext.endSpan(span, System.nanoTime(), false);
+        return result;
+    }
+
+    /**
+     * The part of an advice that runs inside the span; {@code ProceedingJoinPoint::proceed} when there is none.
+     */
+    @FunctionalInterface
+    interface Body {
+        Object proceed(ProceedingJoinPoint joinPoint) throws Throwable;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.spring_aop_logback.batch;
+
+import com.example.spring_aop_logback.context.ExternalCallAttributes;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Collects single requests for a short window, or until {@code maxBatchSize} are waiting, and hands them to
+ * {@code bulkCall}; the i-th result completes the i-th waiting {@link Mono}. Only worth it in front of a service with
+ * a bulk API that takes all of them in one request: fanning a batch out as single calls again only adds the window
+ * to each of them.
+ * <p>
+ * Callers keep their own subscription, and so their own Reactor Context and log context: each of them is still
+ * logged as its own external call by the aspect, with the size of the batch it travelled in recorded on its
+ * {@link ExternalCallAttributes}. The bulk request is one request made for all of them; it runs in the Reactor
+ * Context of the first of them, so it carries that caller's correlation ID downstream. Requests cancelled while they
+ * wait are left out. A failed bulk call fails every request in it.
+ */
+public final class MicroBatcher<T, R> {
+
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final Function<List<T>, Mono<List<R>>> bulkCall;
+    private final Scheduler scheduler = Schedulers.parallel();
+
+    private final Queue<Pending<T, R>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean windowOpen = new AtomicBoolean();
+
+    public MicroBatcher(int maxBatchSize, Duration window, Function<List<T>, Mono<List<R>>> bulkCall) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowNanos = window.toNanos();
+        this.bulkCall = bulkCall;
+    }
+
+    /**
+     * Queues {@code item} when the returned Mono is subscribed and emits its result once its batch has been sent.
+     */
+    public Mono<R> submit(T item) {
+        return Mono.deferContextual(contextView -> {
+            Pending<T, R> pending = new Pending<>(item, Sinks.one(), contextView, ExternalCallAttributes.from(contextView));
+            queue.add(pending);
+            if (queued.incrementAndGet() >= maxBatchSize) {
+                flush();
+            } else if (windowOpen.compareAndSet(false, true)) {
+                scheduler.schedule(this::closeWindow, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            return pending.result.asMono().doOnCancel(() -> pending.cancelled = true);
+        });
+    }
+
+    private void closeWindow() {
+        // Re-arm first: anything queued from now on opens a new window or is drained below.
+        windowOpen.set(false);
+        while (flush() == maxBatchSize) {
+            // Keep going while full batches are waiting.
+        }
+    }
+
+    private int flush() {
+        List<Pending<T, R>> batch = new ArrayList<>(Math.min(maxBatchSize, Math.max(1, queued.get())));
+        Pending<T, R> pending;
+        while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+            batch.add(pending);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        queued.addAndGet(-batch.size());
+        send(batch);
+        return batch.size();
+    }
+
+    private void send(List<Pending<T, R>> queued) {
+        List<Pending<T, R>> batch = new ArrayList<>(queued.size());
+        List<T> items = new ArrayList<>(queued.size());
+        for (Pending<T, R> pending : queued) {
+            if (!pending.cancelled) {
+                batch.add(pending);
+                items.add(pending.item);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Mono.defer(() -> bulkCall.apply(items))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Bulk call returned no results")))
+                .subscribe(results -> {
+                    if (results.size() != batch.size()) {
+                        fail(batch, new IllegalStateException("Bulk call returned " + results.size() + " results for " + batch.size() + " requests"));
+                        return;
+                    }
+                    for (int i = 0; i < batch.size(); i++) {
+                        Pending<T, R> waiting = batch.get(i);
+                        if (waiting.attributes != null) {
+                            waiting.attributes.recordBatchSize(batch.size());
+                        }
+                        waiting.result.tryEmitValue(results.get(i));
+                    }
+                }, error -> fail(batch, error), null,
+                        // Outcomes of the bulk call (e.g. a hedge) are not the first request's own.
+                        Context.of(batch.get(0).context).delete(ExternalCallAttributes.CONTEXT_KEY));
+    }
+
+    private static <T, R> void fail(List<Pending<T, R>> batch, Throwable error) {
+        for (Pending<T, R> pending : batch) {
+            if (pending.attributes != null) {
+                pending.attributes.recordBatchSize(batch.size());
+            }
+            pending.result.tryEmitError(error);
+        }
+    }
+
+    private static final class Pending<T, R> {
+        final T item;
+        final Sinks.One<R> result;
+        final ContextView context;
+        final ExternalCallAttributes attributes;
+        volatile boolean cancelled;
+
+        Pending(T item, Sinks.One<R> result, ContextView context, ExternalCallAttributes attributes) {
+            this.item = item;
+            this.result = result;
+            this.context = context;
+            this.attributes = attributes;
+        }
+    }
+}
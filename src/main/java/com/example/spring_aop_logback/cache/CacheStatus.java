@@ -0,0 +1,13 @@
+package com.example.spring_aop_logback.cache;
+
+/**
+ * How a {@link ReactiveCache} served one lookup; logged as the CACHE field of the external call line.
+ */
+public enum CacheStatus {
+    /** Served from a cached value; the downstream service was not called. */
+    HIT,
+    /** Not cached; this lookup called the downstream service. */
+    MISS,
+    /** Joined a lookup for the same key that was already in flight. */
+    COALESCED
+}
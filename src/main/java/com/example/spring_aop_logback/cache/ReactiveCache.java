@@ -0,0 +1,199 @@
+package com.example.spring_aop_logback.cache;
+
+import com.example.spring_aop_logback.context.ExternalCallAttributes;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A bounded, TTL-based cache for reactive lookups with single-flight de-duplication.
+ * <ul>
+ *     <li>Concurrent lookups of a key that is not cached share one in-flight {@link Mono}; only the first subscriber
+ *     calls the loader.</li>
+ *     <li>Values expire after {@code ttl}, or after {@code negativeTtl} when {@code negative} matches them.</li>
+ *     <li>Errors and empty results are not cached.</li>
+ *     <li>When more than {@code maxSize} keys are held, expired entries are swept and then arbitrary entries are
+ *     evicted until the cache is back under its bound. A {@code maxSize} of 0 disables caching.</li>
+ * </ul>
+ * Every lookup records its {@link CacheStatus} on the {@link ExternalCallAttributes} of the subscriber, so the
+ * external call line says whether the downstream service was actually called. Blocking callers use
+ * {@link #getBlocking(Object, Function)}, which shares the same entries and in-flight loads.
+ */
+public final class ReactiveCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Predicate<V> negative;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    public ReactiveCache(int maxSize, Duration ttl, Duration negativeTtl, Predicate<V> negative) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.negative = negative;
+    }
+
+    /**
+     * The cached value of {@code key}, or the result of {@code loader} shared with every concurrent lookup of it.
+     */
+    public Mono<V> get(K key, Function<K, Mono<V>> loader) {
+        if (maxSize <= 0) {
+            return loader.apply(key);
+        }
+        return Mono.deferContextual(contextView -> {
+            long now = System.nanoTime();
+            Entry<V> cached = entries.get(key);
+            if (cached != null && cached.isFresh(now)) {
+                ExternalCallAttributes.recordCacheStatus(contextView, CacheStatus.HIT);
+                return Mono.just(cached.value);
+            }
+            if (cached != null && cached.isLoading()) {
+                ExternalCallAttributes.recordCacheStatus(contextView, CacheStatus.COALESCED);
+                return cached.loading;
+            }
+
+            @SuppressWarnings("unchecked")
+            Entry<V>[] created = new Entry[1];
+            Entry<V> current = entries.compute(key, (k, existing) -> {
+                if (existing != null && (existing.isLoading() || existing.isFresh(now))) {
+                    return existing;
+                }
+                created[0] = Entry.loading(load(k, loader));
+                return created[0];
+            });
+            if (current != created[0]) {
+                // Lost the race against another lookup of the same key.
+                ExternalCallAttributes.recordCacheStatus(contextView, current.isLoading() ? CacheStatus.COALESCED : CacheStatus.HIT);
+                return current.isLoading() ? current.loading : Mono.just(current.value);
+            }
+            ExternalCallAttributes.recordCacheStatus(contextView, CacheStatus.MISS);
+            if (entries.size() > maxSize) {
+                evict(now);
+            }
+            return current.loading;
+        });
+    }
+
+    /**
+     * Blocking counterpart of {@link #get(Object, Function)}, for callers on (virtual) threads: the loader runs on the
+     * calling thread and the cache status is recorded on the blocking call current on it. A lookup that finds the key
+     * loading waits for that load, whether a blocking or a reactive lookup started it.
+     */
+    public V getBlocking(K key, Function<K, V> loader) {
+        if (maxSize <= 0) {
+            return loader.apply(key);
+        }
+        long now = System.nanoTime();
+        Entry<V> cached = entries.get(key);
+        if (cached != null && cached.isFresh(now)) {
+            ExternalCallAttributes.recordCacheStatus(CacheStatus.HIT);
+            return cached.value;
+        }
+
+        CompletableFuture<V> result = new CompletableFuture<>();
+        // Reactive lookups of the key coalesce onto the future; cancelling one of them must not cancel the load.
+        Entry<V> created = Entry.loading(Mono.fromFuture(result, true));
+        Entry<V> current = cached != null && cached.isLoading() ? cached : entries.compute(key, (k, existing) ->
+                existing != null && (existing.isLoading() || existing.isFresh(now)) ? existing : created);
+        if (current != created) {
+            ExternalCallAttributes.recordCacheStatus(current.isLoading() ? CacheStatus.COALESCED : CacheStatus.HIT);
+            return current.isLoading() ? current.loading.block() : current.value;
+        }
+        ExternalCallAttributes.recordCacheStatus(CacheStatus.MISS);
+        if (entries.size() > maxSize) {
+            evict(now);
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            entries.computeIfPresent(key, (k, entry) -> entry == created ? null : entry);
+            result.completeExceptionally(e);
+            throw e;
+        }
+        entries.computeIfPresent(key, (k, entry) -> {
+            if (entry != created) {
+                return entry;
+            }
+            if (value == null) {
+                return null;
+            }
+            long ttl = negative.test(value) ? negativeTtlNanos : ttlNanos;
+            return Entry.value(value, System.nanoTime() + ttl);
+        });
+        result.complete(value);
+        return value;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The shared in-flight lookup. When it completes, its loading entry is replaced by the value (or removed on
+     * error and empty), unless the entry has been replaced in the meantime.
+     */
+    private Mono<V> load(K key, Function<K, Mono<V>> loader) {
+        @SuppressWarnings("unchecked")
+        Mono<V>[] self = new Mono[1];
+        self[0] = Mono.defer(() -> loader.apply(key))
+                .doOnSuccess(value -> entries.computeIfPresent(key, (k, entry) -> {
+                    if (entry.loading != self[0]) {
+                        return entry;
+                    }
+                    if (value == null) {
+                        return null;
+                    }
+                    long ttl = negative.test(value) ? negativeTtlNanos : ttlNanos;
+                    return Entry.value(value, System.nanoTime() + ttl);
+                }))
+                .doOnError(error -> entries.computeIfPresent(key, (k, entry) -> entry.loading == self[0] ? null : entry))
+                .cache();
+        return self[0];
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(entry -> !entry.isLoading() && !entry.isFresh(now));
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            if (!iterator.next().isLoading()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        final Mono<V> loading;
+        final V value;
+        final long expiresAt;
+
+        private Entry(Mono<V> loading, V value, long expiresAt) {
+            this.loading = loading;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        static <V> Entry<V> loading(Mono<V> loading) {
+            return new Entry<>(loading, null, 0);
+        }
+
+        static <V> Entry<V> value(V value, long expiresAt) {
+            return new Entry<>(null, value, expiresAt);
+        }
+
+        boolean isLoading() {
+            return loading != null;
+        }
+
+        boolean isFresh(long now) {
+            return loading == null && expiresAt - now > 0;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.spring_aop_logback.capture;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns external request/response bodies into bounded, masked log values.
+ * <ul>
+ *     <li>Serialization writes into a {@link BoundedWriter} and is aborted as soon as {@code max-bytes} is reached,
+ *     so a large payload costs about {@code max-bytes} of serializer work instead of a full rendering.</li>
+ *     <li>Masked properties are replaced while serializing by a bean property filter, so the clear value is never
+ *     rendered.</li>
+ *     <li>Only a {@link CapturePolicy#sampled() sampled} fraction of calls captures bodies at all.</li>
+ * </ul>
+ * Settings are read per service from {@code <service>.body-capture.*}, falling back to {@code app.logging.body-capture.*}.
+ */
+@Component
+public class BodyCapturer implements InitializingBean {
+
+    public static final String MASK = "****";
+    static final String TRUNCATED_SUFFIX = "...[truncated]";
+    static final String SERIALIZATION_ERROR = "Error serializing body";
+
+    private static final String FILTER_ID = "bodyCapture";
+    private static final String MASKED_FIELDS_ATTRIBUTE = "bodyCapture.maskedFields";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${app.logging.body-capture.max-bytes:1024}")
+    private int defaultMaxBytes;
+
+    @Value("${app.logging.body-capture.sample-rate:1.0}")
+    private double defaultSampleRate;
+
+    @Value("${app.logging.body-capture.masked-fields:}")
+    private String defaultMaskedFields;
+
+    @Value("${app.logging.body-capture.deferred:true}")
+    private boolean deferred;
+
+    private final Map<String, CapturePolicy> policies = new ConcurrentHashMap<>();
+    private final Map<Set<String>, ObjectWriter> maskingWriters = new ConcurrentHashMap<>();
+    private ObjectWriter writer;
+
+    @Override
+    public void afterPropertiesSet() {
+        // A private copy of the application mapper: same modules and settings, plus the masking filter on every bean.
+        ObjectMapper mapper = objectMapper.copy();
+        AnnotationIntrospector introspector = mapper.getSerializationConfig().getAnnotationIntrospector();
+        mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(introspector, new MaskingFilterIntrospector()));
+        mapper.setFilterProvider(new SimpleFilterProvider().addFilter(FILTER_ID, new MaskingPropertyFilter()));
+        writer = mapper.writer();
+    }
+
+    /**
+     * The capture policy of a service, e.g. "UCE".
+     */
+    public CapturePolicy policy(String serviceName) {
+        return policies.computeIfAbsent(serviceName, this::resolvePolicy);
+    }
+
+    /**
+     * Whether log lines carrying captured bodies should be rendered by the background log writer
+     * ({@code app.logging.body-capture.deferred}).
+     */
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Wraps a body for logging; nothing is serialized until the log line is formatted.
+     */
+    public CapturedBody capture(Object body, CapturePolicy policy) {
+        return body == null ? null : new CapturedBody(this, policy, body);
+    }
+
+    String render(Object body, CapturePolicy policy) {
+        BoundedWriter out = new BoundedWriter(policy.maxBytes());
+        try {
+            ObjectWriter masking = maskingWriter(policy.maskedFields());
+            try (JsonGenerator generator = new BudgetCheckingGenerator(masking.createGenerator(out), out)) {
+                masking.writeValue(generator, body);
+            }
+            return out.toString();
+        } catch (BoundedWriter.LimitReachedException e) {
+            return out + TRUNCATED_SUFFIX;
+        } catch (Exception e) {
+            return SERIALIZATION_ERROR;
+        }
+    }
+
+    private ObjectWriter maskingWriter(Set<String> maskedFields) {
+        return maskingWriters.computeIfAbsent(maskedFields, fields -> writer.withAttribute(MASKED_FIELDS_ATTRIBUTE, fields));
+    }
+
+    private CapturePolicy resolvePolicy(String serviceName) {
+        String prefix = serviceName.toLowerCase(Locale.ROOT) + ".body-capture.";
+        int maxBytes = environment.getProperty(prefix + "max-bytes", Integer.class, defaultMaxBytes);
+        double sampleRate = environment.getProperty(prefix + "sample-rate", Double.class, defaultSampleRate);
+        String maskedFields = environment.getProperty(prefix + "masked-fields", defaultMaskedFields);
+        return new CapturePolicy(maxBytes, sampleRate, Set.copyOf(StringUtils.commaDelimitedListToSet(maskedFields.replace(" ", ""))));
+    }
+
+    /**
+     * Flushes the generator's buffer into the {@link BoundedWriter} as soon as the buffered chars could exceed the
+     * remaining budget, so the writer aborts serialization within one value of the limit. Field names and scalars
+     * are checked; structure tokens are a char or two each.
+     */
+    private static final class BudgetCheckingGenerator extends JsonGeneratorDelegate {
+
+        private final BoundedWriter out;
+
+        BudgetCheckingGenerator(JsonGenerator generator, BoundedWriter out) {
+            super(generator, false);
+            this.out = out;
+        }
+
+        private void checkBudget() throws IOException {
+            if (getOutputBuffered() >= out.remainingBytes()) {
+                flush();
+            }
+        }
+
+        @Override
+        public void writeFieldName(String name) throws IOException {
+            super.writeFieldName(name);
+            checkBudget();
+        }
+
+        @Override
+        public void writeFieldName(SerializableString name) throws IOException {
+            super.writeFieldName(name);
+            checkBudget();
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+            super.writeString(text);
+            checkBudget();
+        }
+
+        @Override
+        public void writeString(char[] text, int offset, int length) throws IOException {
+            super.writeString(text, offset, length);
+            checkBudget();
+        }
+
+        @Override
+        public void writeString(SerializableString text) throws IOException {
+            super.writeString(text);
+            checkBudget();
+        }
+
+        @Override
+        public void writeNumber(int value) throws IOException {
+            super.writeNumber(value);
+            checkBudget();
+        }
+
+        @Override
+        public void writeNumber(long value) throws IOException {
+            super.writeNumber(value);
+            checkBudget();
+        }
+
+        @Override
+        public void writeNumber(double value) throws IOException {
+            super.writeNumber(value);
+            checkBudget();
+        }
+
+        @Override
+        public void writeBoolean(boolean value) throws IOException {
+            super.writeBoolean(value);
+            checkBudget();
+        }
+    }
+
+    /**
+     * Puts every serialized bean under the masking filter without annotating the DTOs.
+     */
+    private static final class MaskingFilterIntrospector extends NopAnnotationIntrospector {
+        @Override
+        public Object findFilterId(Annotated annotated) {
+            return annotated instanceof AnnotatedClass ? FILTER_ID : null;
+        }
+    }
+
+    private static final class MaskingPropertyFilter extends SimpleBeanPropertyFilter {
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider, PropertyWriter writer) throws Exception {
+            @SuppressWarnings("unchecked")
+            Set<String> masked = (Set<String>) provider.getAttribute(MASKED_FIELDS_ATTRIBUTE);
+            if (masked != null && masked.contains(writer.getName())) {
+                generator.writeStringField(writer.getName(), MASK);
+            } else {
+                writer.serializeAsField(pojo, generator, provider);
+            }
+        }
+    }
+}
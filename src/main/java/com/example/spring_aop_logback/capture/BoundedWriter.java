@@ -0,0 +1,99 @@
+package com.example.spring_aop_logback.capture;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Collects serializer output until a UTF-8 byte budget is used up, then aborts the serializer by throwing
+ * {@link LimitReachedException}. The content written so far stays available through {@link #toString()}.
+ * <p>
+ * A serializer only writes when its own buffer is full or flushed; {@link #remainingBytes()} tells it when to flush
+ * so that the budget is checked while the value is being serialized rather than after a buffer of work.
+ */
+final class BoundedWriter extends Writer {
+
+    /**
+     * Thrown from {@link #write} once the budget is exhausted. It is an {@link IOException} so that Jackson passes it
+     * through unwrapped; it carries no stack trace because it is control flow, not an error.
+     */
+    static final class LimitReachedException extends IOException {
+        LimitReachedException() {
+            super("body capture limit reached", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final int MAX_INITIAL_CAPACITY = 256;
+
+    private final StringBuilder content;
+    private final int maxBytes;
+    private int bytes;
+    private boolean full;
+
+    BoundedWriter(int maxBytes) {
+        this.maxBytes = maxBytes;
+        this.content = new StringBuilder(maxBytes > 0 ? Math.min(maxBytes, MAX_INITIAL_CAPACITY) : MAX_INITIAL_CAPACITY);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (full) {
+            // The serializer flushes its buffer once more while it is being closed after the abort.
+            return;
+        }
+        int fitting = fitting(chars, offset, length);
+        content.append(chars, offset, fitting);
+        if (fitting < length) {
+            full = true;
+            throw new LimitReachedException();
+        }
+    }
+
+    /**
+     * UTF-8 bytes that can still be written before the limit; {@link Integer#MAX_VALUE} when unbounded.
+     */
+    int remainingBytes() {
+        return maxBytes <= 0 ? Integer.MAX_VALUE : maxBytes - bytes;
+    }
+
+    /**
+     * Counts how many of the next {@code length} chars still fit into the byte budget and charges them.
+     */
+    private int fitting(char[] chars, int offset, int length) {
+        if (maxBytes <= 0) {
+            return length;
+        }
+        for (int i = 0; i < length; i++) {
+            int size = utf8Length(chars[offset + i]);
+            if (bytes + size > maxBytes) {
+                return i;
+            }
+            bytes += size;
+        }
+        return length;
+    }
+
+    /**
+     * A surrogate pair encodes to four bytes, two per half.
+     */
+    private static int utf8Length(char c) {
+        return c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return content.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.spring_aop_logback.capture;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Body capture settings of one external service, resolved from {@code <service>.body-capture.*} with
+ * {@code app.logging.body-capture.*} as the fallback.
+ *
+ * @param maxBytes     UTF-8 bytes of a rendered body after which serialization stops; 0 or less means unbounded.
+ * @param sampleRate   fraction of calls (0.0 - 1.0) whose bodies are captured at all.
+ * @param maskedFields JSON property names whose values are replaced by {@link BodyCapturer#MASK}.
+ */
+public record CapturePolicy(int maxBytes, double sampleRate, Set<String> maskedFields) {
+
+    /**
+     * Rolls the dice for one call; the request and the response of a call share the outcome.
+     */
+    public boolean sampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
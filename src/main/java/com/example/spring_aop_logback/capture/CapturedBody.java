@@ -0,0 +1,38 @@
+package com.example.spring_aop_logback.capture;
+
+/**
+ * A request or response body that has been selected for logging but not rendered yet.
+ * {@link #toString()} serializes it (bounded and masked) on whichever thread formats the log line; with deferred
+ * rendering enabled that is the background log writer, and an event that is dropped before it is written never pays
+ * for the serialization. The result is kept: a line fanned out to several appenders (CONSOLE, FILE, SHIP, CR_INDEX)
+ * renders its bodies once.
+ * <p>
+ * The referenced object must not be mutated after capture; the request and response DTOs are immutable records.
+ */
+public final class CapturedBody {
+
+    private final BodyCapturer capturer;
+    private final CapturePolicy policy;
+    private final Object body;
+    private String rendered;
+
+    CapturedBody(BodyCapturer capturer, CapturePolicy policy, Object body) {
+        this.capturer = capturer;
+        this.policy = policy;
+        this.body = body;
+    }
+
+    /**
+     * Renders the body on the first call. Lines are formatted by one thread at a time, and a String is safe to share,
+     * so a racing second call would at worst render it again.
+     */
+    @Override
+    public String toString() {
+        String result = rendered;
+        if (result == null) {
+            result = capturer.render(body, policy);
+            rendered = result;
+        }
+        return result;
+    }
+}
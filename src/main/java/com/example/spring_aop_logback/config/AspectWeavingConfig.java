@@ -0,0 +1,76 @@
+package com.example.spring_aop_logback.config;
+
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Supports both ways the logging aspects can be applied. By default they are Spring AOP aspects and the
+ * controllers, services and util.web clients are proxied. Built with {@code mvn -Pctw}, ajc weaves the advice
+ * into those classes' bytecode instead; the aspect instances are then created by AspectJ ({@code aspectOf()})
+ * and Spring AOP ignores ajc-compiled aspects, so nothing is proxied.
+ * <p>
+ * In the woven build, the aspect bean definitions are turned into {@code aspectOf()} factory beans, so Spring
+ * configures the instances the woven code actually calls rather than creating unused copies.
+ */
+@Configuration
+public class AspectWeavingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AspectWeavingConfig.class);
+    private static final String ASPECT_OF = "aspectOf";
+
+    @Bean
+    static BeanDefinitionRegistryPostProcessor wovenAspectBeans() {
+        return new BeanDefinitionRegistryPostProcessor() {
+            @Override
+            public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+                for (String name : registry.getBeanDefinitionNames()) {
+                    BeanDefinition definition = registry.getBeanDefinition(name);
+                    Class<?> type = beanClass(definition);
+                    if (type != null && definition instanceof AbstractBeanDefinition beanDefinition
+                            && definition.getFactoryMethodName() == null
+                            && AnnotationUtils.findAnnotation(type, Aspect.class) != null && isWoven(type)) {
+                        beanDefinition.setFactoryMethodName(ASPECT_OF);
+                        log.info("{} is compile-time woven; bean '{}' is its aspectOf() instance", type.getSimpleName(), name);
+                    }
+                }
+            }
+
+            @Override
+            public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            }
+        };
+    }
+
+    /**
+     * Whether {@code aspectType} was compiled by ajc, i.e. its advice is woven into the advised classes.
+     */
+    public static boolean isWoven(Class<?> aspectType) {
+        try {
+            Method aspectOf = aspectType.getMethod(ASPECT_OF);
+            return Modifier.isStatic(aspectOf.getModifiers()) && aspectOf.getReturnType() == aspectType;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Class<?> beanClass(BeanDefinition definition) {
+        String className = definition.getBeanClassName();
+        if (className == null || !className.startsWith("com.example.spring_aop_logback.")) {
+            return null;
+        }
+        return ClassUtils.resolveClassName(className, AspectWeavingConfig.class.getClassLoader());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.spring_aop_logback.config;
+
+import org.springframework.core.env.Environment;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Transport settings of one downstream service, read from {@code <service>.client.*}.
+ *
+ * @param maxConnections          connections in the service's own pool.
+ * @param pendingAcquireMaxCount  callers allowed to wait for a pooled connection; more fail fast.
+ * @param pendingAcquireTimeout   how long a caller waits for a pooled connection.
+ * @param maxIdleTime             idle connections older than this are closed.
+ * @param maxLifeTime             connections older than this are closed once released.
+ * @param evictInBackground       interval of the background eviction of idle/expired connections; zero disables it.
+ * @param keepAlive               HTTP/1.1 persistent connections.
+ * @param protocols               HTTP11, H2 (TLS) and/or H2C (cleartext HTTP/2).
+ * @param compress                ask for compressed responses (Accept-Encoding: gzip).
+ * @param connectTimeout          TCP connect timeout.
+ * @param responseTimeout         maximum time between sending the request and receiving the response.
+ */
+public record ClientProfile(int maxConnections, int pendingAcquireMaxCount, Duration pendingAcquireTimeout,
+                            Duration maxIdleTime, Duration maxLifeTime, Duration evictInBackground,
+                            boolean keepAlive, HttpProtocol[] protocols, boolean compress,
+                            Duration connectTimeout, Duration responseTimeout) {
+
+    /**
+     * Resolves the profile of {@code service} (e.g. "uce"); every setting has a default.
+     */
+    public static ClientProfile resolve(Environment environment, String service) {
+        String prefix = service.toLowerCase(Locale.ROOT) + ".client.";
+        return new ClientProfile(
+                environment.getProperty(prefix + "max-connections", Integer.class, 50),
+                environment.getProperty(prefix + "pending-acquire-max-count", Integer.class, 100),
+                environment.getProperty(prefix + "pending-acquire-timeout", Duration.class, Duration.ofSeconds(2)),
+                environment.getProperty(prefix + "max-idle-time", Duration.class, Duration.ofSeconds(20)),
+                environment.getProperty(prefix + "max-life-time", Duration.class, Duration.ofMinutes(5)),
+                environment.getProperty(prefix + "evict-in-background", Duration.class, Duration.ofSeconds(30)),
+                environment.getProperty(prefix + "keep-alive", Boolean.class, true),
+                environment.getProperty(prefix + "protocols", HttpProtocol[].class, new HttpProtocol[]{HttpProtocol.HTTP11}),
+                environment.getProperty(prefix + "compress", Boolean.class, false),
+                environment.getProperty(prefix + "connect-timeout", Duration.class, Duration.ofSeconds(2)),
+                environment.getProperty(prefix + "response-timeout", Duration.class, Duration.ofSeconds(5)));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.spring_aop_logback.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reactive server mode ({@code spring.main.web-application-type=reactive}).
+ * Tomcat stays on the classpath for the servlet mode, and Boot would otherwise serve WebFlux through Tomcat's
+ * servlet adapter; this pins the reactive mode to Reactor Netty's event loops.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.spring_aop_logback.config;
+
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.resilience.AdaptiveConcurrencyLimiter;
+import com.example.spring_aop_logback.resilience.ConcurrencyLimiterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import reactor.netty.http.HttpProtocol;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.Arrays;
+
+/**
+ * Blocking counterparts of the WebClients in {@link WebClientConfig}, used by the blocking client variants.
+ * They share the per-service {@link ClientProfile}; the JDK HttpClient underneath honours the protocol and the
+ * connect/response timeouts but has no configurable pool limits; the service's concurrency limiter, shared with
+ * its WebClient, bounds the calls in flight instead.
+ */
+@Configuration
+public class RestClientConfig {
+    private static final String CORRELATION_ID_HEADER_NAME = "X-Correlation-ID";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
+    @Bean
+    public RestClient welcomeRestClient() {
+        return restClient("welcome");
+    }
+
+    @Bean
+    public RestClient uceRestClient() {
+        return restClient("uce");
+    }
+
+    private RestClient restClient(String service) {
+        ClientProfile profile = ClientProfile.resolve(environment, service);
+        boolean http2 = Arrays.stream(profile.protocols()).anyMatch(protocol -> protocol != HttpProtocol.HTTP11);
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(profile.connectTimeout())
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(profile.responseTimeout());
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .requestInterceptor(concurrencyLimitInterceptor(concurrencyLimiterRegistry.limiter(service)))
+                .requestInterceptor(correlationIdInterceptor())
+                .build();
+    }
+
+    private ClientHttpRequestInterceptor concurrencyLimitInterceptor(AdaptiveConcurrencyLimiter limiter) {
+        if (!limiter.isEnabled()) {
+            return (request, body, execution) -> execution.execute(request, body);
+        }
+        return (request, body, execution) -> {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            if (permit == null) {
+                throw limiter.rejection();
+            }
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                permit.answered(response.getStatusCode().value());
+                return response;
+            } catch (IOException | RuntimeException e) {
+                permit.failed();
+                throw e;
+            }
+        };
+    }
+
+    private ClientHttpRequestInterceptor correlationIdInterceptor() {
+        // Blocking calls run on the request's own thread, so its log context is simply the current one.
+        return (request, body, execution) -> {
+            LogContext logContext = LogContextHolder.current();
+            if (logContext != null) {
+                request.getHeaders().set(CORRELATION_ID_HEADER_NAME, logContext.correlationId());
+            }
+            return execution.execute(request, body);
+        };
+    }
+}
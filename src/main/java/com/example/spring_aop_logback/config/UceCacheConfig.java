@@ -0,0 +1,25 @@
+package com.example.spring_aop_logback.config;
+
+import com.example.spring_aop_logback.cache.ReactiveCache;
+import com.example.spring_aop_logback.dto.UceResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class UceCacheConfig {
+
+    /**
+     * Entitlement results by cardId. Denials ({@code isEntitled=false}) get their own, usually shorter, TTL so a
+     * card that just became entitled is not rejected for long.
+     */
+    @Bean
+    public ReactiveCache<String, UceResponse> entitlementCache(
+            @Value("${uce.cache.max-size:10000}") int maxSize,
+            @Value("${uce.cache.ttl:30s}") Duration ttl,
+            @Value("${uce.cache.negative-ttl:5s}") Duration negativeTtl) {
+        return new ReactiveCache<>(maxSize, ttl, negativeTtl, response -> !response.isEntitled());
+    }
+}
@@ -1,32 +1,137 @@
 package com.example.spring_aop_logback.config;
 
-import org.slf4j.MDC;
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.metrics.ConnectionPoolRegistry;
+import com.example.spring_aop_logback.resilience.AdaptiveConcurrencyLimiter;
+import com.example.spring_aop_logback.resilience.ConcurrencyLimiterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+/**
+ * One WebClient per downstream service, each on its own connection pool with the transport settings of its
+ * {@link ClientProfile}, so a slow service can only exhaust its own connections. In front of the pool, the
+ * service's adaptive concurrency limiter refuses calls beyond what the service currently sustains. The pools are
+ * beans of their own, so their connections are closed when the context shuts down.
+ */
 @Configuration
 public class WebClientConfig {
     private static final String CORRELATION_ID_HEADER_NAME = "X-Correlation-ID";
 
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ConnectionPoolRegistry connectionPoolRegistry;
+
+    @Autowired
+    private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
     @Bean
-    public WebClient webClient() {
+    public WebClient welcomeWebClient() {
+        return webClient("welcome", welcomeConnectionProvider());
+    }
+
+    @Bean
+    public WebClient uceWebClient() {
+        return webClient("uce", uceConnectionProvider());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider welcomeConnectionProvider() {
+        return connectionProvider("welcome");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider uceConnectionProvider() {
+        return connectionProvider("uce");
+    }
+
+    private ConnectionProvider connectionProvider(String service) {
+        ClientProfile profile = ClientProfile.resolve(environment, service);
+        ConnectionProvider.Builder pool = ConnectionProvider.builder(service)
+                .maxConnections(profile.maxConnections())
+                .pendingAcquireMaxCount(profile.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(profile.pendingAcquireTimeout())
+                .maxIdleTime(profile.maxIdleTime())
+                .maxLifeTime(profile.maxLifeTime())
+                .metrics(true, () -> connectionPoolRegistry);
+        if (!profile.evictInBackground().isZero()) {
+            pool.evictInBackground(profile.evictInBackground());
+        }
+        return pool.build();
+    }
+
+    private WebClient webClient(String service, ConnectionProvider pool) {
+        ClientProfile profile = ClientProfile.resolve(environment, service);
+        HttpClient httpClient = HttpClient.create(pool)
+                .protocol(profile.protocols())
+                .keepAlive(profile.keepAlive())
+                .compress(profile.compress())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(profile.connectTimeout().toMillis()))
+                .responseTimeout(profile.responseTimeout());
         return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(concurrencyLimitFilter(concurrencyLimiterRegistry.limiter(service)))
                 .filter(correlationIdFilter())
                 .build();
     }
 
-    private ExchangeFilterFunction correlationIdFilter() {
-        return (clientRequest, next) -> {
-            // --- CORRECTED: Use the raw string "CR_ID" ---
-            String correlationId = MDC.get("CR_ID");
+    private ExchangeFilterFunction concurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter) {
+        if (!limiter.isEnabled()) {
+            return (clientRequest, next) -> next.exchange(clientRequest);
+        }
+        // Every attempt holds a permit from subscription to response headers; a refused call fails before it
+        // reaches the pool.
+        return (clientRequest, next) -> Mono.deferContextual(contextView -> {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            if (permit == null) {
+                return Mono.error(limiter.rejection());
+            }
+            LogContext logContext = LogContextHolder.from(contextView);
+            return next.exchange(clientRequest)
+                    .doOnSuccess(response -> {
+                        if (response != null) {
+                            permit.answered(response.statusCode().value());
+                        } else {
+                            permit.abandoned();
+                        }
+                    })
+                    .doOnError(error -> permit.failed())
+                    .doOnCancel(() -> {
+                        // Cancelled by the request's deadline, the service did not answer in time, like a response
+                        // timeout; any other cancel (a hedge that lost, a caller that went away) says nothing about it.
+                        if (logContext != null && logContext.remainingNanos(System.nanoTime()) <= 0) {
+                            permit.failed();
+                        } else {
+                            permit.abandoned();
+                        }
+                    });
+        });
+    }
 
+    private ExchangeFilterFunction correlationIdFilter() {
+        // Read the CR_ID from the subscriber's Reactor Context: the exchange may run on a Netty thread
+        // whose thread-locals know nothing about the request.
+        return (clientRequest, next) -> Mono.deferContextual(contextView -> {
+            LogContext logContext = LogContextHolder.from(contextView);
+            if (logContext == null) {
+                return next.exchange(clientRequest);
+            }
             ClientRequest newRequest = ClientRequest.from(clientRequest)
-                    .header(CORRELATION_ID_HEADER_NAME, correlationId)
+                    .header(CORRELATION_ID_HEADER_NAME, logContext.correlationId())
                     .build();
             return next.exchange(newRequest);
-        };
+        });
     }
-}
\ No newline at end of file
+}
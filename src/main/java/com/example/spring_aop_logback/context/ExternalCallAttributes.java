@@ -0,0 +1,99 @@
+package com.example.spring_aop_logback.context;
+
+import com.example.spring_aop_logback.cache.CacheStatus;
+import com.example.spring_aop_logback.resilience.HedgeOutcome;
+import reactor.util.context.ContextView;
+
+/**
+ * Mutable per-call attributes that the code behind an external client reports back to ExternalServiceLoggingAspect.
+ * The aspect puts a fresh instance into the Reactor Context of every advised call; upstream operators record into
+ * it, and the aspect reads it when it logs the call. Unlike {@link LogContext} it is never shared between calls.
+ * <p>
+ * Blocking calls have no Reactor Context of their own; the aspect makes their attributes current on the calling
+ * thread instead, and {@link #from(ContextView)} falls back to them.
+ */
+public final class ExternalCallAttributes {
+
+    public static final String CONTEXT_KEY = "externalCallAttributes";
+
+    private static final ThreadLocal<ExternalCallAttributes> CURRENT = new ThreadLocal<>();
+
+    private volatile CacheStatus cacheStatus;
+    private volatile int batchSize;
+    private volatile HedgeOutcome hedgeOutcome;
+
+    public CacheStatus cacheStatus() {
+        return cacheStatus;
+    }
+
+    /**
+     * Size of the batch this call was sent in (see {@code MicroBatcher}), or 0 when it was sent on its own.
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public void recordBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Which attempt answered a hedged call, or null when no hedge was sent.
+     */
+    public HedgeOutcome hedgeOutcome() {
+        return hedgeOutcome;
+    }
+
+    /**
+     * The attributes of the call subscribed with {@code contextView}, falling back to the blocking call running on
+     * the calling thread; null outside an advised external call.
+     */
+    public static ExternalCallAttributes from(ContextView contextView) {
+        return contextView.getOrDefault(CONTEXT_KEY, CURRENT.get());
+    }
+
+    /**
+     * Makes {@code attributes} current for a blocking call until the returned scope is closed.
+     */
+    public static LogContextHolder.Scope open(ExternalCallAttributes attributes) {
+        ExternalCallAttributes previous = CURRENT.get();
+        CURRENT.set(attributes);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Records the cache outcome on the attributes of the call subscribed with {@code contextView}, if any.
+     */
+    public static void recordCacheStatus(ContextView contextView, CacheStatus cacheStatus) {
+        ExternalCallAttributes attributes = from(contextView);
+        if (attributes != null) {
+            attributes.cacheStatus = cacheStatus;
+        }
+    }
+
+    /**
+     * Records the cache outcome on the attributes of the blocking call running on the calling thread, if any.
+     */
+    public static void recordCacheStatus(CacheStatus cacheStatus) {
+        ExternalCallAttributes attributes = CURRENT.get();
+        if (attributes != null) {
+            attributes.cacheStatus = cacheStatus;
+        }
+    }
+
+    /**
+     * Records the outcome of a hedged call on the attributes of the call subscribed with {@code contextView}, if any.
+     */
+    public static void recordHedgeOutcome(ContextView contextView, HedgeOutcome hedgeOutcome) {
+        ExternalCallAttributes attributes = from(contextView);
+        if (attributes != null) {
+            attributes.hedgeOutcome = hedgeOutcome;
+        }
+    }
+}
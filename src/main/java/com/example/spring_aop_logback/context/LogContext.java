@@ -0,0 +1,178 @@
+package com.example.spring_aop_logback.context;
+
+import com.example.spring_aop_logback.enums.LoggingEnum;
+
+import java.util.Arrays;
+
+/**
+ * Immutable per-request logging context: the correlation ID plus the {@link LoggingEnum} fields of the request,
+ * stored in an array indexed by the enum ordinal.
+ * <p>
+ * It travels in the Reactor {@code Context} under {@link #CONTEXT_KEY} and is mirrored into a thread-local by
+ * {@link LogContextHolder}; nothing is copied on operator hops, a hop only moves this one reference.
+ * "Changing" a value means building a new instance through {@link #toBuilder()}.
+ * <p>
+ * It also carries the request's slot in the runtime logging policy ({@code PolicySnapshot}), so per-URI settings
+ * are found by index wherever a line of the request is logged, and the request's deadline, which every external
+ * call made on the request's behalf has to meet.
+ * <p>
+ * The request's {@link SpanTree} is the one mutable part: it is shared by every copy of the context and addressed
+ * with the generation it had when the request started, so a copy outliving the request cannot touch the next one.
+ */
+public final class LogContext {
+
+    /**
+     * Key of the log context in the Reactor {@code Context}; also the key of its context-propagation accessor.
+     */
+    public static final String CONTEXT_KEY = "logContext";
+
+    private static final int SIZE = LoggingEnum.values().length;
+
+    private final String correlationId;
+    private final String[] values;
+    private final int policySlot;
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private final SpanTree spans;
+    private final int spanGeneration;
+
+    private LogContext(String correlationId, String[] values, int policySlot, boolean hasDeadline, long deadlineNanos,
+                       SpanTree spans, int spanGeneration) {
+        this.correlationId = correlationId;
+        this.values = values;
+        this.policySlot = policySlot;
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+        this.spans = spans;
+        this.spanGeneration = spanGeneration;
+    }
+
+    public static Builder builder(String correlationId) {
+        return new Builder(correlationId, new String[SIZE], -1, false, 0, null, 0);
+    }
+
+    public String correlationId() {
+        return correlationId;
+    }
+
+    /**
+     * Slot of the request's URI in the logging policy, or -1 when the request only gets the default policy.
+     */
+    public int policySlot() {
+        return policySlot;
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * Nanoseconds left until the request's deadline at {@code nowNanos} ({@link System#nanoTime()}); negative once
+     * it has passed, {@link Long#MAX_VALUE} when the request has no deadline.
+     */
+    public long remainingNanos(long nowNanos) {
+        return hasDeadline ? deadlineNanos - nowNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Starts a span of the request (see {@link SpanTree#begin}); {@link SpanTree#NO_SPAN} when it records none.
+     */
+    public long beginSpan(String name, long parent, long startNanos) {
+        return spans == null ? SpanTree.NO_SPAN : spans.begin(spanGeneration, name, parent, startNanos);
+    }
+
+    public void endSpan(long span, long endNanos, boolean failed) {
+        if (spans != null && span != SpanTree.NO_SPAN) {
+            spans.end(span, endNanos, failed);
+        }
+    }
+
+    /**
+     * The rendered spans of the request, once: the tree goes back to the pool. Null when there are none.
+     */
+    public String finishSpans(long nowNanos) {
+        return spans == null ? null : spans.finish(spanGeneration, nowNanos);
+    }
+
+    public String get(LoggingEnum key) {
+        return values[key.ordinal()];
+    }
+
+    /**
+     * All field values, indexed by {@link LoggingEnum} ordinal. This is the context's own array, not a copy:
+     * callers must not modify it.
+     */
+    public String[] values() {
+        return values;
+    }
+
+    public Builder toBuilder() {
+        return new Builder(correlationId, values.clone(), policySlot, hasDeadline, deadlineNanos, spans, spanGeneration);
+    }
+
+    @Override
+    public String toString() {
+        return "LogContext[CR_ID=" + correlationId + ", values=" + Arrays.toString(values) + "]";
+    }
+
+    public static final class Builder {
+        private final String correlationId;
+        private final String[] values;
+        private int policySlot;
+        private boolean hasDeadline;
+        private long deadlineNanos;
+        private SpanTree spans;
+        private int spanGeneration;
+
+        private Builder(String correlationId, String[] values, int policySlot, boolean hasDeadline, long deadlineNanos,
+                        SpanTree spans, int spanGeneration) {
+            this.correlationId = correlationId;
+            this.values = values;
+            this.policySlot = policySlot;
+            this.hasDeadline = hasDeadline;
+            this.deadlineNanos = deadlineNanos;
+            this.spans = spans;
+            this.spanGeneration = spanGeneration;
+        }
+
+        public Builder policySlot(int policySlot) {
+            this.policySlot = policySlot;
+            return this;
+        }
+
+        /**
+         * Sets the deadline to {@code timeoutNanos} after {@code startNanos} ({@link System#nanoTime()}); a zero or
+         * negative timeout means no deadline.
+         */
+        public Builder deadline(long startNanos, long timeoutNanos) {
+            this.hasDeadline = timeoutNanos > 0;
+            this.deadlineNanos = startNanos + timeoutNanos;
+            return this;
+        }
+
+        /**
+         * Records the request's spans in {@code spans}, a tree just taken from the pool.
+         */
+        public Builder spans(SpanTree spans) {
+            this.spans = spans;
+            this.spanGeneration = spans.generation();
+            return this;
+        }
+
+        public Builder put(LoggingEnum key, String value) {
+            values[key.ordinal()] = value;
+            return this;
+        }
+
+        public Builder putIfAbsent(LoggingEnum key, String value) {
+            if (values[key.ordinal()] == null) {
+                values[key.ordinal()] = value;
+            }
+            return this;
+        }
+
+        public LogContext build() {
+            return new LogContext(correlationId, values, policySlot, hasDeadline, deadlineNanos, spans, spanGeneration);
+        }
+    }
+}
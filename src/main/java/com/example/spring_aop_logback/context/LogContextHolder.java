@@ -0,0 +1,61 @@
+package com.example.spring_aop_logback.context;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Thread-local view of the current {@link LogContext}.
+ * <p>
+ * On request threads the aspects open a scope explicitly. On Reactor threads the value is restored from the
+ * Reactor {@code Context} by {@link LogContextThreadLocalAccessor} through automatic context propagation
+ * ({@code spring.reactor.context-propagation=auto}), so service code never restores anything by hand.
+ * The log appenders read the correlation ID from here when an event is emitted (see LogContextMdcBridge).
+ */
+public final class LogContextHolder {
+
+    private static final ThreadLocal<LogContext> CURRENT = new ThreadLocal<>();
+
+    private LogContextHolder() {
+    }
+
+    public static LogContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes {@code logContext} current until the returned scope is closed, then restores the previous value.
+     */
+    public static Scope open(LogContext logContext) {
+        LogContext previous = CURRENT.get();
+        CURRENT.set(logContext);
+        return () -> restore(previous);
+    }
+
+    /**
+     * The log context carried by a reactive subscription, falling back to the calling thread's.
+     */
+    public static LogContext from(ContextView contextView) {
+        return contextView.getOrDefault(LogContext.CONTEXT_KEY, CURRENT.get());
+    }
+
+    public static Context write(Context context, LogContext logContext) {
+        return logContext == null ? context : context.put(LogContext.CONTEXT_KEY, logContext);
+    }
+
+    static void restore(LogContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * A scope that does not throw on close, usable in try-with-resources without a catch block.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
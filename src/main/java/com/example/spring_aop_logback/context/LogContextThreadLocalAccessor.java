@@ -0,0 +1,30 @@
+package com.example.spring_aop_logback.context;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * Lets Reactor's automatic context propagation restore {@link LogContextHolder} from the Reactor {@code Context}
+ * whenever a signal is delivered on another thread. Registered via META-INF/services.
+ */
+public class LogContextThreadLocalAccessor implements ThreadLocalAccessor<LogContext> {
+
+    @Override
+    public Object key() {
+        return LogContext.CONTEXT_KEY;
+    }
+
+    @Override
+    public LogContext getValue() {
+        return LogContextHolder.current();
+    }
+
+    @Override
+    public void setValue(LogContext value) {
+        LogContextHolder.restore(value);
+    }
+
+    @Override
+    public void setValue() {
+        LogContextHolder.restore(null);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.spring_aop_logback.context;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * The timed spans of one request: a service or client method from its call until its result (the returned
+ * {@code Mono} or {@code Flux}, or the plain value) completes, nested under the span that was running on the
+ * calling thread when it was called. Rendered into the SPANS field of the controller summary, e.g.
+ * {@code HelloService.getHelloMessage 12.3ms[WelcomeService.getWelcomeMessage 12.1ms[WELCOME.getWelcomeMessage 11.8ms]]}.
+ * A {@code !} after the duration marks a span that failed, a {@code +} one still running when the request ended.
+ * <p>
+ * Instances hold parallel arrays for at most {@link #MAX_SPANS} spans and are pooled: {@link #acquire()} at
+ * request start, {@link #finish} when the summary is logged. A span is addressed by a handle that includes the
+ * tree's generation, which {@link #finish} advances, so a late completion (a cancelled call answering after the
+ * request ended) is ignored instead of landing in the request that reuses the tree. The methods synchronize on
+ * the tree; only the few threads serving one request ever contend for it.
+ */
+public final class SpanTree {
+
+    /**
+     * The handle of no span: spans are not recorded, the tree was full or the request had already ended.
+     */
+    public static final long NO_SPAN = -1;
+
+    static final int MAX_SPANS = 16;
+    private static final int POOL_SIZE = 256;
+    private static final ArrayBlockingQueue<SpanTree> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[]{NO_SPAN});
+
+    private final String[] names = new String[MAX_SPANS];
+    private final int[] parents = new int[MAX_SPANS];
+    private final long[] starts = new long[MAX_SPANS];
+    private final long[] ends = new long[MAX_SPANS];
+    // Not ends[i] == 0: System.nanoTime() may be zero or negative.
+    private final boolean[] done = new boolean[MAX_SPANS];
+    private final boolean[] failed = new boolean[MAX_SPANS];
+    private final StringBuilder rendered = new StringBuilder(256);
+    private int size;
+    private int dropped;
+    private int generation;
+
+    private SpanTree() {
+    }
+
+    /**
+     * A cleared tree from the pool, or a new one when the pool is empty.
+     */
+    public static SpanTree acquire() {
+        SpanTree tree = POOL.poll();
+        return tree != null ? tree : new SpanTree();
+    }
+
+    /**
+     * The handle of the span running on this thread, or {@link #NO_SPAN}.
+     */
+    public static long currentSpan() {
+        return CURRENT.get()[0];
+    }
+
+    /**
+     * Makes {@code span} the parent of spans begun on this thread; returns the previous one for {@link #exit}.
+     */
+    public static long enter(long span) {
+        long[] current = CURRENT.get();
+        long previous = current[0];
+        current[0] = span;
+        return previous;
+    }
+
+    public static void exit(long previous) {
+        CURRENT.get()[0] = previous;
+    }
+
+    /**
+     * The generation this tree is in; a request keeps it to address the tree.
+     */
+    public synchronized int generation() {
+        return generation;
+    }
+
+    /**
+     * Starts a span named {@code name} at {@code startNanos} ({@link System#nanoTime()}) below {@code parent}, or at
+     * the top when the parent is {@link #NO_SPAN} or not of this request.
+     */
+    public synchronized long begin(int requestGeneration, String name, long parent, long startNanos) {
+        if (requestGeneration != generation) {
+            return NO_SPAN;
+        }
+        if (size == MAX_SPANS) {
+            dropped++;
+            return NO_SPAN;
+        }
+        int index = size++;
+        names[index] = name;
+        parents[index] = indexOf(parent);
+        starts[index] = startNanos;
+        done[index] = false;
+        failed[index] = false;
+        return ((long) generation << 32) | index;
+    }
+
+    /**
+     * Ends {@code span} at {@code endNanos}; only the first end of a span counts.
+     */
+    public synchronized void end(long span, long endNanos, boolean failure) {
+        int index = indexOf(span);
+        if (index >= 0 && !done[index]) {
+            done[index] = true;
+            ends[index] = endNanos;
+            failed[index] = failure;
+        }
+    }
+
+    /**
+     * Renders the spans of the request in {@code requestGeneration} and returns the tree to the pool. Returns null
+     * when there is nothing to render or the tree has already been finished for that request.
+     */
+    public String finish(int requestGeneration, long nowNanos) {
+        String result;
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return null;
+            }
+            result = size == 0 ? null : render(nowNanos);
+            generation++;
+            size = 0;
+            dropped = 0;
+            Arrays.fill(names, null);
+        }
+        POOL.offer(this);
+        return result;
+    }
+
+    private int indexOf(long span) {
+        if (span == NO_SPAN || (int) (span >>> 32) != generation) {
+            return -1;
+        }
+        int index = (int) span;
+        return index < size ? index : -1;
+    }
+
+    private String render(long nowNanos) {
+        rendered.setLength(0);
+        appendChildren(-1, nowNanos);
+        if (dropped > 0) {
+            rendered.append(", +").append(dropped).append(" more");
+        }
+        return rendered.toString();
+    }
+
+    private void appendChildren(int parent, long nowNanos) {
+        boolean first = true;
+        for (int i = 0; i < size; i++) {
+            if (parents[i] != parent) {
+                continue;
+            }
+            if (!first) {
+                rendered.append(", ");
+            }
+            first = false;
+            boolean running = !done[i];
+            rendered.append(names[i]).append(' ');
+            appendMillis((running ? nowNanos : ends[i]) - starts[i]);
+            if (failed[i]) {
+                rendered.append('!');
+            } else if (running) {
+                rendered.append('+');
+            }
+            int length = rendered.length();
+            rendered.append('[');
+            appendChildren(i, nowNanos);
+            if (rendered.length() == length + 1) {
+                rendered.setLength(length);
+            } else {
+                rendered.append(']');
+            }
+        }
+    }
+
+    private void appendMillis(long nanos) {
+        long tenths = Math.max(0, nanos) / 100_000;
+        rendered.append(tenths / 10).append('.').append(tenths % 10).append("ms");
+    }
+}
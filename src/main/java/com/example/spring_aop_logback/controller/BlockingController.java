@@ -0,0 +1,39 @@
+package com.example.spring_aop_logback.controller;
+
+import com.example.spring_aop_logback.dto.DelegateCreationRequest;
+import com.example.spring_aop_logback.dto.DelegateCreationResponse;
+import com.example.spring_aop_logback.service.DelegateService;
+import com.example.spring_aop_logback.service.HelloService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Blocking counterparts of the Mono endpoints, for the servlet stack on virtual threads
+ * ({@code spring.threads.virtual.enabled=true}, Java 21+). They log the same lines as the reactive endpoints.
+ * They would block Netty's event loops, so the reactive server mode does not map them.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BlockingController {
+
+    @Autowired
+    private HelloService helloService;
+
+    @Autowired
+    private DelegateService delegateService;
+
+    @GetMapping("/blocking/hello")
+    public String hello(@RequestParam(value = "name", defaultValue = "World") String name) {
+        return helloService.getHelloMessageBlocking(name);
+    }
+
+    @PostMapping("/blocking/createDelegate")
+    public DelegateCreationResponse createDelegate(@RequestBody DelegateCreationRequest request) {
+        return delegateService.createDelegateBlocking(request);
+    }
+}
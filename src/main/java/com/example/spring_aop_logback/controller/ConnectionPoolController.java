@@ -0,0 +1,39 @@
+package com.example.spring_aop_logback.controller;
+
+import com.example.spring_aop_logback.dto.ConcurrencyLimitStats;
+import com.example.spring_aop_logback.dto.ConnectionPoolStats;
+import com.example.spring_aop_logback.metrics.ConnectionPoolRegistry;
+import com.example.spring_aop_logback.resilience.ConcurrencyLimiterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+public class ConnectionPoolController {
+
+    @Autowired
+    private ConnectionPoolRegistry connectionPoolRegistry;
+
+    @Autowired
+    private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
+    /**
+     * Exposes active/idle/pending connection counts of each downstream service's pool, per remote address.
+     */
+    @GetMapping("/admin/connection-pools")
+    public Mono<List<ConnectionPoolStats>> connectionPools() {
+        return Mono.fromSupplier(connectionPoolRegistry::stats);
+    }
+
+    /**
+     * Exposes each downstream service's current concurrency limit, calls in flight and accepted/rejected/dropped
+     * counts.
+     */
+    @GetMapping("/admin/concurrency-limits")
+    public Mono<List<ConcurrencyLimitStats>> concurrencyLimits() {
+        return Mono.fromSupplier(concurrencyLimiterRegistry::stats);
+    }
+}
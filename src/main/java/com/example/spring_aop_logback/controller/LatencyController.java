@@ -0,0 +1,41 @@
+package com.example.spring_aop_logback.controller;
+
+import com.example.spring_aop_logback.aspect.AdvicePlanRegistry;
+import com.example.spring_aop_logback.dto.HedgingStats;
+import com.example.spring_aop_logback.dto.LatencyStats;
+import com.example.spring_aop_logback.metrics.LatencyRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+public class LatencyController {
+
+    @Autowired
+    private LatencyRegistry latencyRegistry;
+
+    @Autowired
+    private AdvicePlanRegistry advicePlanRegistry;
+
+    /**
+     * Exposes p50/p90/p99/p999 and counts per controller mapping and per downstream service and status.
+     * With {@code interval=true} only what was recorded since the previous interval request is reported.
+     */
+    @GetMapping("/admin/latency")
+    public Mono<List<LatencyStats>> latency(@RequestParam(value = "interval", defaultValue = "false") boolean interval) {
+        return Mono.fromSupplier(() -> latencyRegistry.stats(interval));
+    }
+
+    /**
+     * Exposes, per hedged client method, the calls, the hedges sent and won, the hedges the budget refused and
+     * the current hedge delay.
+     */
+    @GetMapping("/admin/latency/hedging")
+    public Mono<List<HedgingStats>> hedging() {
+        return Mono.fromSupplier(() -> advicePlanRegistry.hedgingStats());
+    }
+}
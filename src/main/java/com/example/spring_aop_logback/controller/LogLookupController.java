@@ -0,0 +1,38 @@
+package com.example.spring_aop_logback.controller;
+
+import com.example.spring_aop_logback.dto.LogTrace;
+import com.example.spring_aop_logback.logging.CorrelationIndexAppender;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+public class LogLookupController {
+
+    /**
+     * Returns every indexed line of one request, read from the correlation index segments instead of the log files.
+     * The segment reads are blocking, so they run on the bounded-elastic scheduler.
+     */
+    @GetMapping("/logs/{correlationId}")
+    public Mono<LogTrace> logs(@PathVariable String correlationId) {
+        return Mono.fromCallable(() -> {
+                    List<CorrelationIndexAppender> appenders = CorrelationIndexAppender.running();
+                    if (appenders.isEmpty()) {
+                        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "No correlation index appender is running");
+                    }
+                    List<String> lines = new ArrayList<>();
+                    for (CorrelationIndexAppender appender : appenders) {
+                        lines.addAll(appender.lookup(correlationId));
+                    }
+                    return new LogTrace(correlationId, lines.size(), lines);
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.spring_aop_logback.controller;
+
+import com.example.spring_aop_logback.dto.LogPipelineStats;
+import com.example.spring_aop_logback.dto.LogShippingStats;
+import com.example.spring_aop_logback.dto.RolloverStats;
+import com.example.spring_aop_logback.dto.TailSamplingStats;
+import com.example.spring_aop_logback.logging.LogShippingAppender;
+import com.example.spring_aop_logback.logging.ParallelGzipRollingPolicy;
+import com.example.spring_aop_logback.logging.RingBufferAppender;
+import com.example.spring_aop_logback.logging.TailSamplingAppender;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+public class LogPipelineController {
+
+    /**
+     * Exposes the enqueued/dropped/flushed counters of every running ring-buffer log appender.
+     */
+    @GetMapping("/admin/log-pipeline")
+    public Mono<List<LogPipelineStats>> logPipeline() {
+        return Mono.fromSupplier(() -> RingBufferAppender.running().stream()
+                .map(appender -> new LogPipelineStats(
+                        appender.getName(),
+                        appender.getOverflowPolicy().name(),
+                        appender.getCapacity(),
+                        appender.getBufferedCount(),
+                        appender.getEnqueuedCount(),
+                        appender.getDroppedCount(),
+                        appender.getFlushedCount()))
+                .toList());
+    }
+
+    /**
+     * Exposes how many request traces the tail-sampling appenders kept, sampled out or evicted on a limit.
+     */
+    @GetMapping("/admin/log-pipeline/tail-sampling")
+    public Mono<List<TailSamplingStats>> tailSampling() {
+        return Mono.fromSupplier(() -> TailSamplingAppender.running().stream()
+                .map(appender -> new TailSamplingStats(
+                        appender.getName(),
+                        appender.getOpenTraceCount(),
+                        appender.getKeptTraceCount(),
+                        appender.getSampledOutTraceCount(),
+                        appender.getEvictedTraceCount(),
+                        appender.getDiscardedEventCount()))
+                .toList());
+    }
+
+    /**
+     * Exposes rollover and background compression counters of every running parallel-gzip rolling policy;
+     * the throughput is bytes of log read per second of compression.
+     */
+    @GetMapping("/admin/log-pipeline/rollover")
+    public Mono<List<RolloverStats>> rollover() {
+        return Mono.fromSupplier(() -> ParallelGzipRollingPolicy.running().stream()
+                .map(policy -> new RolloverStats(
+                        policy.getActiveFile(),
+                        policy.getCompressionThreads(),
+                        policy.getRolloverCount(),
+                        policy.getMaxRolloverNanos() / 1000,
+                        policy.getPendingFileCount(),
+                        policy.getCompressedFileCount(),
+                        policy.getFailedFileCount(),
+                        policy.getBytesIn(),
+                        policy.getBytesOut(),
+                        policy.getBytesIn() == 0 ? 0.0 : (double) policy.getBytesOut() / policy.getBytesIn(),
+                        policy.getCompressionNanos() == 0 ? 0.0
+                                : policy.getBytesIn() / (1024.0 * 1024.0) / (policy.getCompressionNanos() / 1e9)))
+                .toList());
+    }
+
+    /**
+     * Exposes the counters of every running log shipping appender: what reached the collector, what waits in
+     * memory or in the disk spool, and what was dropped. The ratio is gzipped to raw bytes of all batches.
+     */
+    @GetMapping("/admin/log-pipeline/shipping")
+    public Mono<List<LogShippingStats>> shipping() {
+        return Mono.fromSupplier(() -> LogShippingAppender.running().stream()
+                .map(appender -> new LogShippingStats(
+                        appender.getName(),
+                        appender.getUrl(),
+                        appender.isCollectorUp(),
+                        appender.getPendingBatchCount(),
+                        appender.getSpooledBatchCount(),
+                        appender.getSpooledBytes(),
+                        appender.getShippedBatchCount(),
+                        appender.getShippedRecordCount(),
+                        appender.getFailedPostCount(),
+                        appender.getDroppedBatchCount(),
+                        appender.getDroppedRecordCount(),
+                        appender.getRawBytes() == 0 ? 0.0 : (double) appender.getCompressedBytes() / appender.getRawBytes()))
+                .toList());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.spring_aop_logback.controller;
+
+import com.example.spring_aop_logback.dto.LoggingPolicy;
+import com.example.spring_aop_logback.dto.LoggingPolicyOverride;
+import com.example.spring_aop_logback.policy.LoggingPolicyRegistry;
+import com.example.spring_aop_logback.policy.PolicyScope;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+public class LoggingPolicyController {
+
+    @Autowired
+    private LoggingPolicyRegistry loggingPolicyRegistry;
+
+    /**
+     * Lists the runtime logging policy overrides currently in effect.
+     */
+    @GetMapping("/admin/logging-policy")
+    public Mono<List<LoggingPolicyOverride>> overrides() {
+        return Mono.fromSupplier(loggingPolicyRegistry::overrides);
+    }
+
+    /**
+     * Sets the override of a DEFAULT, URI (target=/createDelegate) or SERVICE (target=UCE) scope; effective for
+     * the next line logged, no restart needed.
+     */
+    @PutMapping("/admin/logging-policy/{scope}")
+    public Mono<List<LoggingPolicyOverride>> put(@PathVariable String scope,
+                                                 @RequestParam(value = "target", required = false) String target,
+                                                 @RequestBody LoggingPolicy policy) {
+        return Mono.fromSupplier(() -> {
+            try {
+                loggingPolicyRegistry.put(scope(scope), target, policy);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+            return loggingPolicyRegistry.overrides();
+        });
+    }
+
+    @DeleteMapping("/admin/logging-policy/{scope}")
+    public Mono<List<LoggingPolicyOverride>> remove(@PathVariable String scope,
+                                                    @RequestParam(value = "target", required = false) String target) {
+        return Mono.fromSupplier(() -> {
+            loggingPolicyRegistry.remove(scope(scope), target);
+            return loggingPolicyRegistry.overrides();
+        });
+    }
+
+    private static PolicyScope scope(String scope) {
+        try {
+            return PolicyScope.valueOf(scope.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown scope: " + scope);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.spring_aop_logback.dto;
+
+public record ConcurrencyLimitStats(String service, boolean enabled, int limit, int inFlight, long accepted,
+                                    long rejected, long dropped, double lastRttMs, double noLoadRttMs) {
+}
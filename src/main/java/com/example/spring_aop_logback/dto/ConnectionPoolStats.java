@@ -0,0 +1,5 @@
+package com.example.spring_aop_logback.dto;
+
+public record ConnectionPoolStats(String pool, String remoteAddress, int active, int idle, int pending,
+                                  int allocated, int maxConnections, int maxPending) {
+}
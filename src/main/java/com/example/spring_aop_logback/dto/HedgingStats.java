@@ -0,0 +1,5 @@
+package com.example.spring_aop_logback.dto;
+
+public record HedgingStats(String service, String method, boolean enabled, long calls, long hedgesSent,
+                           long hedgeWins, long budgetDenied, double hedgeDelayMs) {
+}
@@ -0,0 +1,5 @@
+package com.example.spring_aop_logback.dto;
+
+public record LatencyStats(String kind, String name, String detail, long count,
+                           double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {
+}
@@ -0,0 +1,5 @@
+package com.example.spring_aop_logback.dto;
+
+public record LogPipelineStats(String appender, String overflowPolicy, int capacity, int buffered,
+                               long enqueued, long dropped, long flushed) {
+}
@@ -0,0 +1,6 @@
+package com.example.spring_aop_logback.dto;
+
+public record LogShippingStats(String name, String url, boolean collectorUp, int pendingBatches, int spooledBatches,
+                               long spooledBytes, long shippedBatches, long shippedRecords, long failedPosts,
+                               long droppedBatches, long droppedRecords, double compressionRatio) {
+}
@@ -0,0 +1,6 @@
+package com.example.spring_aop_logback.dto;
+
+import java.util.List;
+
+public record LogTrace(String correlationId, int count, List<String> lines) {
+}
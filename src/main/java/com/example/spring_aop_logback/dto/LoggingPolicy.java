@@ -0,0 +1,15 @@
+package com.example.spring_aop_logback.dto;
+
+/**
+ * One runtime logging policy override; a null field inherits the value of the next broader scope.
+ *
+ * @param level                  minimum level of the lines logged (OFF, ERROR, WARN, INFO, DEBUG, TRACE).
+ * @param traceSampleRate        URI/DEFAULT only: share of requests whose full trace is kept by tail sampling.
+ * @param bodyCaptureSampleRate  SERVICE/DEFAULT only: share of calls whose bodies are captured.
+ * @param bodyCapture            whether request/response bodies of external calls are captured.
+ * @param slowThresholdMillis    URI/DEFAULT: requests at least this slow keep their full trace;
+ *                               SERVICE: a call at least this slow keeps the trace of the request that made it.
+ */
+public record LoggingPolicy(String level, Double traceSampleRate, Double bodyCaptureSampleRate, Boolean bodyCapture,
+                            Long slowThresholdMillis) {
+}
@@ -0,0 +1,4 @@
+package com.example.spring_aop_logback.dto;
+
+public record LoggingPolicyOverride(String scope, String target, LoggingPolicy policy) {
+}
@@ -0,0 +1,6 @@
+package com.example.spring_aop_logback.dto;
+
+public record RolloverStats(String activeFile, int compressionThreads, long rollovers, long maxRolloverMicros,
+                            int pendingFiles, long compressedFiles, long failedFiles, long bytesIn, long bytesOut,
+                            double compressionRatio, double compressionMbPerSecond) {
+}
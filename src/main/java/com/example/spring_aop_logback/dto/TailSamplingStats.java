@@ -0,0 +1,5 @@
+package com.example.spring_aop_logback.dto;
+
+public record TailSamplingStats(String appender, int openTraces, long keptTraces, long sampledOutTraces,
+                                long evictedTraces, long discardedEvents) {
+}
@@ -8,7 +8,11 @@ public enum ExternalLoggingEnum {
     RQST_TS,        // <-- ADDED
     RESP_TS,        // <-- ADDED
     EXECUTION_TIME,
+    CACHE,
+    BATCH_SIZE,
     RQST_BODY,      // <-- ADDED
     RESP_BODY,      // <-- ADDED
-    ERROR_DESC;
+    ERROR_DESC,
+    // Which attempt of a hedged call answered (Hedger)
+    HEDGE;
 }
\ No newline at end of file
@@ -9,5 +9,7 @@ public enum LoggingEnum {
     RQST_RCVD_TS,
     RQST_RESP_TS,
     EXECUTION_TIME,
-    ERROR_DESC;
+    ERROR_DESC,
+    // Service and external call timings of the request (SpanTree), on the controller summary
+    SPANS;
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.example.spring_aop_logback.filter;
+
+import com.example.spring_aop_logback.aspect.AdvicePlan;
+import com.example.spring_aop_logback.aspect.AdvicePlanRegistry;
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.context.SpanTree;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import com.example.spring_aop_logback.util.LogValueFormatter;
+import com.example.spring_aop_logback.util.RequestSummaryLogger;
+import com.example.spring_aop_logback.util.RequestSummaryLogger.Completion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Request logging of the reactive server mode ({@code spring.main.web-application-type=reactive}, Netty):
+ * the WebFlux counterpart of the controller advice in {@code LoggingAspect}, which needs a servlet request.
+ * <p>
+ * The CR_ID and request fields are put into an immutable {@link LogContext} that is written into the Reactor
+ * Context of the whole filter chain, so the controller, the services and the external clients see it exactly
+ * as in the servlet mode. The summary line is emitted through the same {@link RequestSummaryLogger}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class LoggingWebFilter implements WebFilter {
+    private static final String CORRELATION_ID_HEADER_NAME = "X-Correlation-ID";
+
+    @Autowired
+    private AdvicePlanRegistry advicePlanRegistry;
+
+    @Autowired
+    private RequestSummaryLogger requestSummaryLogger;
+
+    /**
+     * Same request deadline as in the servlet mode, counted from the filter instead of the controller advice.
+     */
+    @Value("${request.deadline:0}")
+    private Duration requestDeadline;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+
+        // Establish the Correlation ID: either from the incoming request header or generate a new one.
+        String correlationId = request.getHeaders().getFirst(CORRELATION_ID_HEADER_NAME);
+        if (!StringUtils.hasText(correlationId)) {
+            correlationId = UUID.randomUUID().toString();
+        }
+
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        String httpMethod = request.getMethod().name();
+        String requestUri = request.getPath().value();
+        LogContext logContext = LogContext.builder(correlationId)
+                .deadline(startNanos, requestDeadline.toNanos())
+                .spans(SpanTree.acquire())
+                .put(LoggingEnum.RQST_RCVD_TS, LogValueFormatter.isoTimestamp(startTime))
+                .put(LoggingEnum.HTTP_METHOD, httpMethod)
+                .put(LoggingEnum.URI, requestUri)
+                .build();
+
+        // CRITICAL: The handler method is only known once the chain has resolved it, so the METHOD field and the
+        // plan are looked up when the exchange terminates; the rest of the context travels downstream from here.
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(logContext)) {
+            return chain.filter(exchange)
+                    .doOnSuccess(value -> logCompletion(exchange, logContext, httpMethod, requestUri, startNanos, null))
+                    .doOnError(error -> logCompletion(exchange, logContext, httpMethod, requestUri, startNanos, error))
+                    .doOnCancel(() -> logCompletion(exchange, logContext, httpMethod, requestUri, startNanos, null))
+                    .contextWrite(context -> LogContextHolder.write(context, logContext));
+        }
+    }
+
+    /**
+     * Only exchanges handled by a controller get a summary, like the pointcut of the servlet mode.
+     */
+    private void logCompletion(ServerWebExchange exchange, LogContext logContext, String httpMethod,
+                               String requestUri, long startNanos, Throwable error) {
+        Object handler = exchange.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod handlerMethod) || !advicePlanRegistry.isController(handlerMethod.getBeanType())) {
+            logContext.finishSpans(System.nanoTime());
+            return;
+        }
+        AdvicePlan plan = advicePlanRegistry.controllerPlan(handlerMethod.getMethod());
+        LogContext withMethod = logContext.toBuilder()
+                .put(LoggingEnum.METHOD, handlerMethod.getMethod().getName())
+                .policySlot(plan.policySlot())
+                .build();
+        requestSummaryLogger.logCompletion(withMethod, new Completion(plan, httpMethod, requestUri, startNanos), error);
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_NONE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_RECENT;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_STRING;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_UUID;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.RECENT_CR_IDS;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.RECORD_MESSAGE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.RECORD_STRUCTURED;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_BITS;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_LITERAL;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_LITERAL_DEFINE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_MILLIS;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_REFERENCE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_TIMESTAMP;
+
+/**
+ * A {@link PatternLayoutEncoder} that, with {@code format=BINARY}, writes the compact {@link BinaryLogFormat} instead
+ * of text: key names become bits of a mask, repeated values (sources, service names, URLs, URIs, threads,
+ * loggers) are written once per file and referenced by index afterwards, timestamps and durations are varints,
+ * UUID correlation IDs take 16 bytes and the further lines of a request one byte. Lines logged as a {@link StructuredLine} are stored field by field, under
+ * key names written once per file; every other event keeps its formatted message.
+ * <p>
+ * Each file starts with a header holding the pattern, so {@code LogDecoder} renders exactly the lines this encoder
+ * would have written as text. The dictionary restarts with every header, i.e. with every file the appender opens,
+ * so rolled and compressed files decode on their own.
+ */
+public class BinaryLogEncoder extends PatternLayoutEncoder {
+
+    public enum Format {TEXT, BINARY}
+
+    private final BinaryLogFormat.Output out = new BinaryLogFormat.Output();
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final Map<Class<?>, Integer> keyTables = new HashMap<>();
+    private final PatternLayout throwableLayout = new PatternLayout();
+    private final String[] recentCorrelationIds = new String[RECENT_CR_IDS];
+
+    private Format format = Format.TEXT;
+    private String lineLayout = "TEXT";
+    private int maxDictionarySize = 4096;
+    private int maxDictionaryValueLength = 128;
+
+    private long previousTimestamp;
+    private int correlationIdsWritten;
+
+    @Override
+    public void start() {
+        super.start();
+        throwableLayout.setContext(getContext());
+        throwableLayout.setPattern("%ex");
+        throwableLayout.start();
+    }
+
+    @Override
+    public void stop() {
+        throwableLayout.stop();
+        super.stop();
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        if (format == Format.TEXT) {
+            return super.headerBytes();
+        }
+        dictionary.clear();
+        keyTables.clear();
+        Arrays.fill(recentCorrelationIds, null);
+        correlationIdsWritten = 0;
+        previousTimestamp = 0;
+        out.reset();
+        out.writeBytes(BinaryLogFormat.MAGIC);
+        out.writeByte(BinaryLogFormat.VERSION);
+        out.writeString(ZoneId.systemDefault().getId());
+        out.writeString(getPattern());
+        out.writeString(lineLayout);
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return format == Format.TEXT ? super.footerBytes() : null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        if (format == Format.TEXT) {
+            return super.encode(event);
+        }
+        StructuredLine line = structuredLine(event);
+        out.reset();
+        out.writeByte(line != null ? RECORD_STRUCTURED : RECORD_MESSAGE);
+        long timestamp = event.getTimeStamp();
+        out.writeZigzag(timestamp - previousTimestamp);
+        previousTimestamp = timestamp;
+        out.writeByte(event.getLevel().toInt() / 5000);
+        writeValue(event.getThreadName(), timestamp);
+        writeValue(event.getLoggerName(), timestamp);
+        writeCorrelationId(event.getMDCPropertyMap().get(LogContextMdcBridge.CORRELATION_ID_KEY));
+        if (line != null) {
+            writeFields(line, timestamp);
+        } else {
+            writeValue(event.getFormattedMessage(), timestamp);
+            out.writeString(event.getThrowableProxy() == null ? "" : throwableLayout.doLayout(event));
+        }
+        return out.toByteArray();
+    }
+
+    private static StructuredLine structuredLine(ILoggingEvent event) {
+        Object[] arguments = event.getArgumentArray();
+        if (arguments != null && arguments.length == 1 && arguments[0] instanceof StructuredLine line
+                && event.getThrowableProxy() == null && "{}".equals(event.getMessage())) {
+            return line;
+        }
+        return null;
+    }
+
+    private void writeFields(StructuredLine line, long timestamp) {
+        Enum<?>[] keys = line.keys();
+        String[] values = line.values();
+        writeKeys(keys);
+        long mask = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (hasText(values[i])) {
+                mask |= 1L << i;
+            }
+        }
+        out.writeVarint(mask);
+        for (int i = 0; i < keys.length; i++) {
+            if ((mask & 1L << i) != 0) {
+                writeValue(values[i], timestamp);
+            }
+        }
+    }
+
+    /**
+     * The index of the key enum's table in this segment, preceded by its names the first time the enum is used.
+     */
+    private void writeKeys(Enum<?>[] keys) {
+        Class<?> keyEnum = keys[0].getDeclaringClass();
+        Integer table = keyTables.get(keyEnum);
+        if (table != null) {
+            out.writeVarint(table);
+            return;
+        }
+        table = keyTables.size();
+        keyTables.put(keyEnum, table);
+        out.writeVarint(table);
+        out.writeVarint(keys.length);
+        for (Enum<?> key : keys) {
+            out.writeString(key.name());
+        }
+    }
+
+    private void writeCorrelationId(String correlationId) {
+        if (correlationId == null) {
+            out.writeByte(CR_ID_NONE);
+            return;
+        }
+        for (int slot = 0; slot < RECENT_CR_IDS; slot++) {
+            if (correlationId.equals(recentCorrelationIds[slot])) {
+                out.writeByte(CR_ID_RECENT + slot);
+                return;
+            }
+        }
+        recentCorrelationIds[correlationIdsWritten++ % RECENT_CR_IDS] = correlationId;
+        byte[] uuid = BinaryLogFormat.uuidBytes(correlationId);
+        if (uuid != null) {
+            out.writeByte(CR_ID_UUID);
+            out.writeBytes(uuid);
+        } else {
+            out.writeByte(CR_ID_STRING);
+            out.writeString(correlationId);
+        }
+    }
+
+    private void writeValue(String value, long recordTimestamp) {
+        if (value == null) {
+            value = "";
+        }
+        long instant = BinaryLogFormat.parseIsoTimestamp(value);
+        if (instant >= 0) {
+            long delta = instant - recordTimestamp;
+            out.writeVarint(((delta << 1) ^ (delta >> 63)) << TAG_BITS | TAG_TIMESTAMP);
+            return;
+        }
+        long millis = BinaryLogFormat.parseMillis(value);
+        if (millis >= 0) {
+            out.writeVarint(millis << TAG_BITS | TAG_MILLIS);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            out.writeVarint((long) index << TAG_BITS | TAG_REFERENCE);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        boolean define = dictionary.size() < maxDictionarySize && utf8.length <= maxDictionaryValueLength;
+        if (define) {
+            dictionary.put(value, dictionary.size());
+        }
+        out.writeVarint((long) utf8.length << TAG_BITS | (define ? TAG_LITERAL_DEFINE : TAG_LITERAL));
+        out.writeBytes(utf8);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public String getLineLayout() {
+        return lineLayout;
+    }
+
+    /**
+     * The {@code app.logging.line.layout} the structured lines are rendered with; recorded in the header for the decoder.
+     */
+    public void setLineLayout(String lineLayout) {
+        this.lineLayout = lineLayout.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public int getMaxDictionarySize() {
+        return maxDictionarySize;
+    }
+
+    public void setMaxDictionarySize(int maxDictionarySize) {
+        this.maxDictionarySize = maxDictionarySize;
+    }
+
+    public int getMaxDictionaryValueLength() {
+        return maxDictionaryValueLength;
+    }
+
+    public void setMaxDictionaryValueLength(int maxDictionaryValueLength) {
+        this.maxDictionaryValueLength = maxDictionaryValueLength;
+    }
+}
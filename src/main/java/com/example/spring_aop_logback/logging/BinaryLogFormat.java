@@ -0,0 +1,209 @@
+package com.example.spring_aop_logback.logging;
+
+import com.example.spring_aop_logback.util.LogValueFormatter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Layout of the files written by {@link BinaryLogEncoder} and read by {@link BinaryLogReader}.
+ * <pre>
+ * segment  = header record*                    one per file; a header may also appear mid-file after a restart
+ * header   = "LOGB" version:u8 zone:str pattern:str layout:str
+ * record   = type:u8 timestampDelta:zigzag level:u8 thread:value logger:value crId body
+ * crId     = 0 | 1 uuid:16 bytes | 2 str | 3 + slot           (slot: one of the last 8 distinct IDs, see below)
+ * body     = message:value throwable:str                          (type MESSAGE)
+ *          | keys presentMask:varint value*                       (type STRUCTURED, one value per set bit)
+ * keys     = table:varint [count:varint name:str*]               (names only when table is the next unused index)
+ * value    = varint (payload &lt;&lt; 3 | tag) [utf8 bytes]
+ * </pre>
+ * Value tags: {@code LITERAL} and {@code LITERAL_DEFINE} carry {@code payload} UTF-8 bytes, the latter also
+ * appending them to the segment's dictionary; {@code REFERENCE} is a dictionary index; {@code TIMESTAMP} is an
+ * ISO-8601 instant in the {@link LogValueFormatter#isoTimestamp} form, stored as a zigzag delta in millis from
+ * the record's timestamp; {@code MILLIS} is an "123ms" duration. Timestamps are deltas from the previous record
+ * (the first of a segment from 0). Integers are unsigned LEB128 varints.
+ * <p>
+ * A structured record's fields are identified by key name, not by the ordinals of the enum that wrote them: the
+ * first record of a segment using a key enum adds the enum's constant names, in ordinal order, to the segment's key
+ * tables, later ones only give the table's index, and bit i of the mask stands for the table's i-th name. A file
+ * therefore decodes to the lines it was written as after keys are added, removed or reordered. Segments of any other
+ * version are refused.
+ * <p>
+ * A request's lines are interleaved with only a few other requests', so correlation IDs are mostly repeats of a
+ * recent one: every ID written in full also goes into slot {@code n % 8} of the segment's recent-ID ring, n being
+ * the number of IDs written in full before it, and a repeat is written as the single byte {@code 3 + slot}.
+ */
+final class BinaryLogFormat {
+
+    static final byte[] MAGIC = {'L', 'O', 'G', 'B'};
+    static final int VERSION = 2;
+
+    static final int RECORD_MESSAGE = 1;
+    static final int RECORD_STRUCTURED = 2;
+
+    static final int TAG_LITERAL = 0;
+    static final int TAG_LITERAL_DEFINE = 1;
+    static final int TAG_REFERENCE = 2;
+    static final int TAG_TIMESTAMP = 3;
+    static final int TAG_MILLIS = 4;
+    static final int TAG_BITS = 3;
+
+    static final int CR_ID_NONE = 0;
+    static final int CR_ID_UUID = 1;
+    static final int CR_ID_STRING = 2;
+    static final int CR_ID_RECENT = 3;
+    static final int RECENT_CR_IDS = 8;
+
+    private static final int ISO_TIMESTAMP_LENGTH = "2025-08-22T10:15:30.042Z".length();
+
+    private BinaryLogFormat() {
+    }
+
+    /**
+     * Epoch millis of a value produced by {@link LogValueFormatter#isoTimestamp}, or -1 when the value is anything
+     * else (including an equivalent instant written differently), so decoding always gives back the same text.
+     */
+    static long parseIsoTimestamp(String value) {
+        if (value.length() != ISO_TIMESTAMP_LENGTH || value.charAt(10) != 'T' || value.charAt(23) != 'Z') {
+            return -1;
+        }
+        try {
+            LocalDateTime time = LocalDateTime.of(
+                    digits(value, 0, 4), digits(value, 5, 7), digits(value, 8, 10),
+                    digits(value, 11, 13), digits(value, 14, 16), digits(value, 17, 19),
+                    digits(value, 20, 23) * 1_000_000);
+            long millis = time.toInstant(ZoneOffset.UTC).toEpochMilli();
+            return LogValueFormatter.isoTimestamp(millis).equals(value) ? millis : -1;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * N of an "Nms" value with no sign and no leading zero, or -1.
+     */
+    static long parseMillis(String value) {
+        int length = value.length();
+        if (length < 3 || length > 20 || !value.endsWith("ms") || (value.charAt(0) == '0' && length > 3)) {
+            return -1;
+        }
+        long millis = 0;
+        for (int i = 0; i < length - 2; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            millis = millis * 10 + (c - '0');
+        }
+        return millis;
+    }
+
+    /**
+     * The 16 bytes of a UUID in canonical lower-case form, or null for any other correlation ID.
+     */
+    static byte[] uuidBytes(String value) {
+        if (value.length() != 36 || value.charAt(8) != '-') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(value);
+            if (!uuid.toString().equals(value)) {
+                return null;
+            }
+            byte[] bytes = new byte[16];
+            long high = uuid.getMostSignificantBits();
+            long low = uuid.getLeastSignificantBits();
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (high >>> (56 - 8 * i));
+                bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+            }
+            return bytes;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static String uuidString(byte[] bytes, int offset) {
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = high << 8 | (bytes[offset + i] & 0xFF);
+            low = low << 8 | (bytes[offset + 8 + i] & 0xFF);
+        }
+        return new UUID(high, low).toString();
+    }
+
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException(value);
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * A growable byte buffer with the varint writers, reused for every record of an encoder.
+     */
+    static final class Output {
+        private byte[] bytes = new byte[512];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        int length() {
+            return length;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+
+        void writeBytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeZigzag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * A length-prefixed UTF-8 string, outside the value encoding (header fields, throwables).
+         */
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            writeBytes(utf8);
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
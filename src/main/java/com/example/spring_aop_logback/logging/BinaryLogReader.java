@@ -0,0 +1,307 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.pattern.DateConverter;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.example.spring_aop_logback.util.LogLineEncoder;
+import com.example.spring_aop_logback.util.LogValueFormatter;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_NONE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_RECENT;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_STRING;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.CR_ID_UUID;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.RECENT_CR_IDS;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.RECORD_MESSAGE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.RECORD_STRUCTURED;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_BITS;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_LITERAL;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_LITERAL_DEFINE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_MILLIS;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_REFERENCE;
+import static com.example.spring_aop_logback.logging.BinaryLogFormat.TAG_TIMESTAMP;
+
+/**
+ * Reads a file written by {@link BinaryLogEncoder} back into the text lines it stands for: each record is rebuilt
+ * as a logging event and laid out with the pattern, time zone and line layout recorded in its segment's header.
+ * Gzipped archives are recognised by their magic bytes and read as they are.
+ * <p>
+ * Not thread-safe; one reader per file.
+ */
+public class BinaryLogReader implements Closeable {
+
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final int LEVEL_SCALE = 5000;
+
+    private final DataInputStream in;
+    private final ZoneId zoneOverride;
+    private final LogLineEncoder.Layout layoutOverride;
+    private final LoggerContext context = new LoggerContext();
+    private final List<LogLineEncoder.KeyNames> keyTables = new ArrayList<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private final String[] recentCorrelationIds = new String[RECENT_CR_IDS];
+
+    private PatternLayout layout;
+    private LogLineEncoder lineEncoder;
+    private long previousTimestamp;
+    private int correlationIdsRead;
+    private boolean headerSeen;
+
+    /**
+     * @param zoneOverride   renders timestamps in this zone instead of the writer's, or null.
+     * @param layoutOverride renders structured lines with this layout instead of the writer's, or null.
+     */
+    public BinaryLogReader(InputStream in, ZoneId zoneOverride, LogLineEncoder.Layout layoutOverride) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        buffered.mark(2);
+        int magic = buffered.read() << 8 | buffered.read();
+        buffered.reset();
+        this.in = new DataInputStream(magic == GZIP_MAGIC ? new BufferedInputStream(new GZIPInputStream(buffered, 64 * 1024)) : buffered);
+        this.zoneOverride = zoneOverride;
+        this.layoutOverride = layoutOverride;
+    }
+
+    /**
+     * Whether {@code head}, the first bytes of a file (after decompression), start a binary log.
+     */
+    public static boolean isBinaryLog(byte[] head, int length) {
+        return length >= BinaryLogFormat.MAGIC.length
+                && Arrays.equals(head, 0, BinaryLogFormat.MAGIC.length, BinaryLogFormat.MAGIC, 0, BinaryLogFormat.MAGIC.length);
+    }
+
+    /**
+     * The next line, ending in a line separator and followed by the stack trace if it had one, or null at the end
+     * of the file.
+     *
+     * @throws EOFException if the file ends inside a record, e.g. one the writer had not flushed yet.
+     */
+    public String readLine() throws IOException {
+        int type = in.read();
+        while (type == BinaryLogFormat.MAGIC[0]) {
+            readHeader();
+            type = in.read();
+        }
+        if (type < 0) {
+            return null;
+        }
+        if (!headerSeen) {
+            throw new IOException("Not a binary log file: no header");
+        }
+        if (type != RECORD_MESSAGE && type != RECORD_STRUCTURED) {
+            throw new IOException("Unknown record type " + type);
+        }
+        long timestamp = previousTimestamp + readZigzag();
+        previousTimestamp = timestamp;
+        LoggingEvent event = new LoggingEvent();
+        event.setTimeStamp(timestamp);
+        event.setLevel(Level.toLevel(in.readUnsignedByte() * LEVEL_SCALE));
+        event.setThreadName(readValue(timestamp));
+        event.setLoggerName(readValue(timestamp));
+        String correlationId = readCorrelationId();
+        event.setMDCPropertyMap(correlationId == null
+                ? Map.of() : Map.of(LogContextMdcBridge.CORRELATION_ID_KEY, correlationId));
+        String throwable = "";
+        if (type == RECORD_STRUCTURED) {
+            event.setMessage(readFields(timestamp));
+        } else {
+            event.setMessage(readValue(timestamp));
+            throwable = readString();
+        }
+        return layout.doLayout(event) + throwable;
+    }
+
+    private void readHeader() throws IOException {
+        byte[] magic = new byte[BinaryLogFormat.MAGIC.length];
+        magic[0] = BinaryLogFormat.MAGIC[0];
+        in.readFully(magic, 1, magic.length - 1);
+        if (!Arrays.equals(magic, BinaryLogFormat.MAGIC)) {
+            throw new IOException("Corrupt binary log: bad segment header");
+        }
+        int version = in.readUnsignedByte();
+        if (version != BinaryLogFormat.VERSION) {
+            throw new IOException("Unsupported binary log version " + version);
+        }
+        String zone = readString();
+        String pattern = readString();
+        String lineLayout = readString();
+
+        if (layout != null) {
+            layout.stop();
+        }
+        ZoneId effectiveZone = zoneOverride != null ? zoneOverride : ZoneId.of(zone);
+        layout = new PatternLayout();
+        layout.setContext(context);
+        // The stack trace is stored already rendered and appended after the line, where the encoder put it.
+        layout.setPattern(pattern + "%nopex");
+        layout.getInstanceConverterMap().put("d", () -> new ZonedDateConverter(effectiveZone));
+        layout.getInstanceConverterMap().put("date", () -> new ZonedDateConverter(effectiveZone));
+        layout.start();
+        lineEncoder = new LogLineEncoder(layoutOverride != null ? layoutOverride : LogLineEncoder.Layout.valueOf(lineLayout));
+        dictionary.clear();
+        keyTables.clear();
+        Arrays.fill(recentCorrelationIds, null);
+        correlationIdsRead = 0;
+        previousTimestamp = 0;
+        headerSeen = true;
+    }
+
+    private String readFields(long timestamp) throws IOException {
+        LogLineEncoder.KeyNames keys = readKeys();
+        long mask = readVarint();
+        String[] values = new String[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            if ((mask & 1L << i) != 0) {
+                values[i] = readValue(timestamp);
+            }
+        }
+        return lineEncoder.encode(keys, values);
+    }
+
+    private LogLineEncoder.KeyNames readKeys() throws IOException {
+        long table = readVarint();
+        if (table < keyTables.size()) {
+            return keyTables.get((int) table);
+        }
+        if (table > keyTables.size()) {
+            throw new IOException("Key table reference " + table + " out of range");
+        }
+        long count = readVarint();
+        if (count > Long.SIZE) {
+            throw new IOException("Corrupt binary log: key table of " + count + " names");
+        }
+        String[] names = new String[(int) count];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readString();
+        }
+        LogLineEncoder.KeyNames keys = new LogLineEncoder.KeyNames(names);
+        keyTables.add(keys);
+        return keys;
+    }
+
+    private String readCorrelationId() throws IOException {
+        int kind = in.readUnsignedByte();
+        String correlationId;
+        switch (kind) {
+            case CR_ID_NONE -> {
+                return null;
+            }
+            case CR_ID_UUID -> {
+                byte[] uuid = new byte[16];
+                in.readFully(uuid);
+                correlationId = BinaryLogFormat.uuidString(uuid, 0);
+            }
+            case CR_ID_STRING -> correlationId = readString();
+            default -> {
+                int slot = kind - CR_ID_RECENT;
+                if (slot >= RECENT_CR_IDS || recentCorrelationIds[slot] == null) {
+                    throw new IOException("Unknown correlation ID kind " + kind);
+                }
+                return recentCorrelationIds[slot];
+            }
+        }
+        recentCorrelationIds[correlationIdsRead++ % RECENT_CR_IDS] = correlationId;
+        return correlationId;
+    }
+
+    private String readValue(long recordTimestamp) throws IOException {
+        long header = readVarint();
+        long payload = header >>> TAG_BITS;
+        int tag = (int) (header & ((1 << TAG_BITS) - 1));
+        switch (tag) {
+            case TAG_LITERAL, TAG_LITERAL_DEFINE -> {
+                String value = readUtf8(payload);
+                if (tag == TAG_LITERAL_DEFINE) {
+                    dictionary.add(value);
+                }
+                return value;
+            }
+            case TAG_REFERENCE -> {
+                if (payload >= dictionary.size()) {
+                    throw new IOException("Dictionary reference " + payload + " out of range");
+                }
+                return dictionary.get((int) payload);
+            }
+            case TAG_TIMESTAMP -> {
+                return LogValueFormatter.isoTimestamp(recordTimestamp + ((payload >>> 1) ^ -(payload & 1)));
+            }
+            case TAG_MILLIS -> {
+                return payload + "ms";
+            }
+            default -> throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private String readString() throws IOException {
+        return readUtf8(readVarint());
+    }
+
+    private String readUtf8(long length) throws IOException {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Corrupt binary log: string of " + length + " bytes");
+        }
+        byte[] utf8 = new byte[(int) length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private long readZigzag() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt binary log: varint longer than 10 bytes");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (layout != null) {
+            layout.stop();
+        }
+        in.close();
+    }
+
+    /**
+     * {@code %d} in the writer's time zone rather than the reader's, unless the pattern names a zone itself.
+     */
+    private static final class ZonedDateConverter extends DateConverter {
+        private final ZoneId zone;
+
+        ZonedDateConverter(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public List<String> getOptionList() {
+            List<String> options = super.getOptionList();
+            if (options != null && options.size() > 1) {
+                return options;
+            }
+            String datePattern = options == null || options.isEmpty() ? "yyyy-MM-dd HH:mm:ss,SSS" : options.get(0);
+            return List.of(datePattern, zone.getId());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the lines that carry a {@code CR_ID} in memory-mapped segment files with a CR_ID index, so the trace of one
+ * request can be read back with {@link #lookup(String)} without grepping or decompressing the daily logs.
+ * <p>
+ * Segments have a fixed size and roll when full, independently of the FILE appender's daily rollover; the oldest
+ * segments are deleted beyond {@code maxSegments}, on roll and on start. Segments of earlier runs are picked up on
+ * start and the newest one is appended to, so lookups keep working across restarts and a restart does not cost a new
+ * segment. Meant to sit behind the tail-sampling appender, next to FILE: it indexes the lines the log files get (full
+ * traces of kept requests, the summary of every other one), and sampled-out lines never pay for rendering here.
+ */
+public class CorrelationIndexAppender extends AppenderBase<ILoggingEvent> {
+
+    private static final List<CorrelationIndexAppender> RUNNING = new CopyOnWriteArrayList<>();
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Encoder<ILoggingEvent> encoder;
+    private String directory;
+    private int segmentSizeMb = 64;
+    private int maxSegments = 32;
+    private int maxLookupLines = 10_000;
+
+    private Path directoryPath;
+    private long nextSequence;
+    private LogSegment active;
+
+    /**
+     * Sealed segments, oldest first. Replaced, never modified, so lookups can iterate it without the lock.
+     */
+    private volatile List<LogSegment> sealed = List.of();
+
+    /**
+     * Snapshot of all correlation index appenders currently running in the logging system.
+     */
+    public static List<CorrelationIndexAppender> running() {
+        return List.copyOf(RUNNING);
+    }
+
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for correlation index appender [" + getName() + "]");
+            return;
+        }
+        if (directory == null) {
+            addError("No directory set for correlation index appender [" + getName() + "]");
+            return;
+        }
+        try {
+            directoryPath = Paths.get(directory);
+            Files.createDirectories(directoryPath);
+            openExistingSegments();
+        } catch (IOException e) {
+            addError("Cannot open correlation index in [" + directory + "]", e);
+            return;
+        }
+        super.start();
+        RUNNING.add(this);
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (!isStarted()) {
+                return;
+            }
+            super.stop();
+            sealActive();
+        }
+        RUNNING.remove(this);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        String correlationId = event.getMDCPropertyMap().get(LogContextMdcBridge.CORRELATION_ID_KEY);
+        if (correlationId == null) {
+            return;
+        }
+        byte[] id = correlationId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > Short.MAX_VALUE) {
+            return;
+        }
+        byte[] line = encoder.encode(event);
+        long idHash = hash(id);
+        if (active.append(idHash, id, line)) {
+            return;
+        }
+        try {
+            roll();
+        } catch (IOException e) {
+            addError("Cannot roll correlation index segment in [" + directory + "]", e);
+            return;
+        }
+        if (!active.append(idHash, id, line)) {
+            addWarn("Line of " + line.length + " bytes does not fit into a " + segmentSizeMb + "MB segment; not indexed");
+        }
+    }
+
+    /**
+     * All indexed lines of one request in the order they were written, oldest segment first.
+     */
+    public List<String> lookup(String correlationId) throws IOException {
+        byte[] id = correlationId.getBytes(StandardCharsets.UTF_8);
+        long idHash = hash(id);
+        List<LogSegment> sealedSnapshot;
+        LogSegment.ActiveView activeView;
+        synchronized (this) {
+            // Both are taken together so a roll between them cannot hide the segment being sealed.
+            sealedSnapshot = sealed;
+            activeView = isStarted() ? active.view() : null;
+        }
+        List<String> lines = new ArrayList<>();
+        for (LogSegment segment : sealedSnapshot) {
+            segment.lookupSealed(idHash, id, lines, maxLookupLines);
+        }
+        if (activeView != null) {
+            activeView.lookup(idHash, id, lines, maxLookupLines);
+        }
+        return lines;
+    }
+
+    private void roll() throws IOException {
+        sealActive();
+        active = LogSegment.create(directoryPath, nextSequence++, segmentSizeBytes());
+    }
+
+    private void sealActive() {
+        List<LogSegment> segments = new ArrayList<>(sealed);
+        try {
+            if (active.isEmpty()) {
+                active.delete();
+            } else {
+                active.seal();
+                segments.add(active);
+            }
+        } catch (IOException e) {
+            addError("Cannot write index of segment " + active.sequence() + " in [" + directory + "]", e);
+        }
+        while (segments.size() > maxSegments) {
+            LogSegment oldest = segments.remove(0);
+            try {
+                oldest.delete();
+            } catch (IOException e) {
+                addWarn("Cannot delete segment " + oldest.sequence() + " in [" + directory + "]", e);
+            }
+        }
+        sealed = List.copyOf(segments);
+    }
+
+    /**
+     * Applies retention to the segments of earlier runs, opens the rest as sealed and continues in the newest one.
+     */
+    private void openExistingSegments() throws IOException {
+        active = null;
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath, "segment-*" + LogSegment.DATA_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        // The same limit as on roll: maxSegments sealed ones plus the active one.
+        while (files.size() > maxSegments + 1) {
+            Path oldest = files.remove(0);
+            LogSegment.delete(oldest, sequenceOf(oldest));
+        }
+        List<LogSegment> segments = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long sequence = sequenceOf(file);
+            if (i == files.size() - 1) {
+                active = LogSegment.openActive(file, sequence);
+            } else {
+                segments.add(LogSegment.openSealed(file, sequence));
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        sealed = List.copyOf(segments);
+        if (active == null) {
+            active = LogSegment.create(directoryPath, nextSequence++, segmentSizeBytes());
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - LogSegment.DATA_SUFFIX.length()));
+    }
+
+    private int segmentSizeBytes() {
+        return segmentSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 CR_ID; collisions are resolved by comparing the stored CR_ID.
+     */
+    static long hash(byte[] correlationId) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : correlationId) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public Encoder<ILoggingEvent> getEncoder() {
+        return encoder;
+    }
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSizeMb() {
+        return segmentSizeMb;
+    }
+
+    public void setSegmentSizeMb(int segmentSizeMb) {
+        this.segmentSizeMb = segmentSizeMb;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    public int getMaxLookupLines() {
+        return maxLookupLines;
+    }
+
+    public void setMaxLookupLines(int maxLookupLines) {
+        this.maxLookupLines = maxLookupLines;
+    }
+}
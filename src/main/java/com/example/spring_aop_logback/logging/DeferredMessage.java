@@ -0,0 +1,11 @@
+package com.example.spring_aop_logback.logging;
+
+/**
+ * Marker for a log argument whose {@code toString()} is expensive and safe to call from another thread.
+ * {@link RingBufferAppender} does not format the message of an event carrying such an argument on the calling
+ * thread; the background writer renders it, and an event dropped on overflow is never rendered at all.
+ * <p>
+ * Implementations must only reference state that is not modified after the logging call.
+ */
+public interface DeferredMessage {
+}
@@ -0,0 +1,62 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.policy.PolicySnapshot;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Bridges the current {@link LogContext} into the MDC at the moment a log statement is emitted, so the
+ * {@code %X{CR_ID}} pattern keeps working without anybody copying MDC maps between threads.
+ * Runs on the logging thread before the event is created; disabled statements are left untouched.
+ * <p>
+ * It also applies the level of the request's URI from the runtime logging policy ({@link PolicySnapshot}): with an
+ * override in place that level replaces the logger levels for every line of the request, in both directions.
+ * Lines marked {@link TraceMarkers#TRACE_END} or {@link TraceMarkers#TRACE_KEEP} are always accepted: tail sampling
+ * needs them to close or keep the request's trace, whatever the level.
+ */
+public class LogContextMdcBridge extends TurboFilter {
+
+    static final String CORRELATION_ID_KEY = "CR_ID";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null) {
+            return FilterReply.NEUTRAL;
+        }
+        LogContext logContext = LogContextHolder.current();
+        FilterReply reply = FilterReply.NEUTRAL;
+        if (isTraceControl(marker)) {
+            reply = FilterReply.ACCEPT;
+        } else if (logContext != null) {
+            int threshold = PolicySnapshot.current().request(logContext.policySlot()).levelThreshold();
+            if (threshold != PolicySnapshot.INHERIT_LEVEL) {
+                if (level.levelInt < threshold) {
+                    return FilterReply.DENY;
+                }
+                reply = FilterReply.ACCEPT;
+            }
+        }
+        if (reply == FilterReply.NEUTRAL && !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        String bridged = MDC.get(CORRELATION_ID_KEY);
+        if (logContext == null) {
+            if (bridged != null) {
+                MDC.remove(CORRELATION_ID_KEY);
+            }
+        } else if (!logContext.correlationId().equals(bridged)) {
+            MDC.put(CORRELATION_ID_KEY, logContext.correlationId());
+        }
+        return reply;
+    }
+
+    private static boolean isTraceControl(Marker marker) {
+        return marker != null && (marker.contains(TraceMarkers.TRACE_END) || marker.contains(TraceMarkers.TRACE_KEEP));
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.spring_aop_logback.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One fixed-size, memory-mapped data file of {@link CorrelationIndexAppender} plus its CR_ID index.
+ * <p>
+ * Data records are {@code [int length][short idLength][CR_ID bytes][encoded line]}, appended back to back; a zero
+ * length, written behind every record before the record's own length, marks the end. While the segment is active its index lives on the heap. Sealing writes it next to the data
+ * file as {@code [int magic][int entries][int dataEnd]} followed by {@code [long idHash][int offset]} entries sorted
+ * by hash, so a sealed segment is searched with a binary search instead of a scan.
+ * A segment whose index is missing (the process died while it was active) is re-indexed from its records on open;
+ * the newest segment of an earlier run is reopened as the active one, so a restart does not start a new file.
+ */
+final class LogSegment {
+
+    static final String DATA_SUFFIX = ".log";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_MAGIC = 0x43524958; // "CRIX"
+    private static final int INDEX_HEADER_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final int RECORD_HEADER_BYTES = 6;
+
+    private final long sequence;
+    private final Path dataFile;
+    private final Path indexFile;
+
+    // Active state; only touched by the appending thread, or by readers holding the appender's lock.
+    private MappedByteBuffer data;
+    private int position;
+    private long[] hashes = new long[1024];
+    private int[] offsets = new int[1024];
+    private int count;
+
+    private LogSegment(long sequence, Path dataFile) {
+        this.sequence = sequence;
+        this.dataFile = dataFile;
+        String name = dataFile.getFileName().toString();
+        this.indexFile = dataFile.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    /**
+     * Creates and maps a new, empty active segment.
+     */
+    static LogSegment create(Path directory, long sequence, int sizeBytes) throws IOException {
+        LogSegment segment = new LogSegment(sequence, directory.resolve(fileName(sequence)));
+        try (FileChannel channel = FileChannel.open(segment.dataFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.data = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        }
+        return segment;
+    }
+
+    /**
+     * Opens a segment left by an earlier run as sealed, rebuilding its index if it was never written.
+     */
+    static LogSegment openSealed(Path dataFile, long sequence) throws IOException {
+        LogSegment segment = new LogSegment(sequence, dataFile);
+        if (!Files.exists(segment.indexFile)) {
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                segment.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            segment.recover();
+            segment.seal();
+        }
+        segment.data = null;
+        return segment;
+    }
+
+    /**
+     * Reopens a segment left by an earlier run as the active one: its index is rebuilt on the heap from the records
+     * and the stale index file is removed, and appends continue behind the last complete record.
+     */
+    static LogSegment openActive(Path dataFile, long sequence) throws IOException {
+        LogSegment segment = new LogSegment(sequence, dataFile);
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.data = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        segment.recover();
+        Files.deleteIfExists(segment.indexFile);
+        return segment;
+    }
+
+    /**
+     * Deletes a segment left by an earlier run without opening it.
+     */
+    static void delete(Path dataFile, long sequence) throws IOException {
+        new LogSegment(sequence, dataFile).delete();
+    }
+
+    static String fileName(long sequence) {
+        return String.format("segment-%012d%s", sequence, DATA_SUFFIX);
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Appends one record.
+     *
+     * @return false when the record does not fit into the remaining space; the caller rolls to a new segment.
+     */
+    boolean append(long idHash, byte[] correlationId, byte[] line) {
+        int length = RECORD_HEADER_BYTES + correlationId.length + line.length;
+        // Keep room for the zero length that terminates the records.
+        if (position + length + Integer.BYTES > data.capacity()) {
+            return false;
+        }
+        int offset = position;
+        data.position(offset + Integer.BYTES);
+        data.putShort((short) correlationId.length).put(correlationId).put(line);
+        // The terminator goes first, so a record torn by a crash is never followed by a stale one.
+        data.putInt(offset + length, 0);
+        data.putInt(offset, length);
+        position = offset + length;
+        addIndexEntry(idHash, offset);
+        return true;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Captures the part of the active segment written so far; the view stays valid after the segment is sealed.
+     */
+    ActiveView view() {
+        return new ActiveView(hashes, offsets, count, data.duplicate());
+    }
+
+    /**
+     * Writes the sorted index file; the segment is read-only afterwards.
+     */
+    void seal() throws IOException {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        // Stable sort: entries of one CR_ID stay in write order.
+        Arrays.sort(order, Comparator.comparingLong(i -> hashes[i]));
+        ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER_BYTES + count * INDEX_ENTRY_BYTES);
+        index.putInt(INDEX_MAGIC).putInt(count).putInt(position);
+        for (Integer i : order) {
+            index.putLong(hashes[i]).putInt(offsets[i]);
+        }
+        index.flip();
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.ATOMIC_MOVE);
+        if (!data.isReadOnly()) {
+            data.force();
+        }
+    }
+
+    /**
+     * Collects the lines of {@code correlationId} from a sealed segment, in write order.
+     */
+    void lookupSealed(long idHash, byte[] correlationId, List<String> lines, int limit) throws IOException {
+        MappedByteBuffer index;
+        MappedByteBuffer records;
+        try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ);
+             FileChannel dataChannel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            if (index.getInt(0) != INDEX_MAGIC) {
+                return;
+            }
+            records = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, index.getInt(8));
+        } catch (NoSuchFileException e) {
+            // Deleted by retention while we were looking.
+            return;
+        }
+        int entries = index.getInt(4);
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getLong(INDEX_HEADER_BYTES + mid * INDEX_ENTRY_BYTES) < idHash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < entries && lines.size() < limit; i++) {
+            int entry = INDEX_HEADER_BYTES + i * INDEX_ENTRY_BYTES;
+            if (index.getLong(entry) != idHash) {
+                break;
+            }
+            readIfMatches(records, index.getInt(entry + Long.BYTES), correlationId, lines);
+        }
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(dataFile);
+    }
+
+    private void addIndexEntry(long idHash, int offset) {
+        if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        hashes[count] = idHash;
+        offsets[count] = offset;
+        count++;
+    }
+
+    private void recover() {
+        int offset = 0;
+        while (offset + RECORD_HEADER_BYTES <= data.capacity()) {
+            int length = data.getInt(offset);
+            if (length < RECORD_HEADER_BYTES || offset + length + Integer.BYTES > data.capacity()) {
+                break;
+            }
+            byte[] correlationId = new byte[data.getShort(offset + Integer.BYTES)];
+            data.get(offset + RECORD_HEADER_BYTES, correlationId);
+            addIndexEntry(CorrelationIndexAppender.hash(correlationId), offset);
+            offset += length;
+        }
+        position = offset;
+    }
+
+    static void readIfMatches(ByteBuffer records, int offset, byte[] correlationId, List<String> lines) {
+        int length = records.getInt(offset);
+        int idLength = records.getShort(offset + Integer.BYTES);
+        if (idLength != correlationId.length) {
+            return;
+        }
+        for (int i = 0; i < idLength; i++) {
+            if (records.get(offset + RECORD_HEADER_BYTES + i) != correlationId[i]) {
+                return;
+            }
+        }
+        int lineStart = offset + RECORD_HEADER_BYTES + idLength;
+        byte[] line = new byte[length - RECORD_HEADER_BYTES - idLength];
+        records.get(lineStart, line);
+        int end = line.length;
+        while (end > 0 && (line[end - 1] == '\n' || line[end - 1] == '\r')) {
+            end--;
+        }
+        lines.add(new String(line, 0, end, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The index entries and records of the active segment up to the moment the view was taken.
+     */
+    record ActiveView(long[] hashes, int[] offsets, int count, ByteBuffer records) {
+
+        void lookup(long idHash, byte[] correlationId, List<String> lines, int limit) {
+            for (int i = 0; i < count && lines.size() < limit; i++) {
+                if (hashes[i] == idHash) {
+                    readIfMatches(records, offsets[i], correlationId, lines);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.util.FileSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ships log lines straight to a collector instead of leaving them for an agent to tail and re-parse from FILE.
+ * Every event becomes one JSON object (timestamp, level, logger, thread, CR_ID, then the {@code LoggingEnum} or
+ * {@code ExternalLoggingEnum} fields of a {@link StructuredLine}, or the message of any other line). Lines are
+ * batched until {@code maxBatchRecords}, {@code maxBatchSize} or {@code flushIntervalMillis} is reached, and each
+ * batch is gzipped and POSTed as {@code application/x-ndjson} with {@code Content-Encoding: gzip}.
+ * <p>
+ * Meant to sit behind {@link RingBufferAppender}: {@link #append} only adds the line to the open batch on the log
+ * writer thread and hands sealed batches to a bounded in-memory queue. Compression, HTTP and disk I/O happen on
+ * this appender's own shipper thread, so nothing here ever waits for the collector on a request thread or the log
+ * writer; a batch that finds the queue full is dropped and counted.
+ * <p>
+ * When a POST fails (no answer within {@code requestTimeoutMillis}, a connection error or a non-2xx status) the
+ * batch goes to a bounded {@link LogSpool} on disk and the collector is retried after an exponential backoff; while
+ * it backs off, new batches are spooled as well. Once it answers again, new batches are sent as they come, and the
+ * spool is replayed oldest first, one POST after the other, whenever no new batch is waiting: the collector's own
+ * pace is the replay rate, and live lines are not held back behind an outage's worth of old ones (collectors order
+ * by the records' timestamps). A spool left by a previous run is replayed as well.
+ * <p>
+ * On {@link #stop()} the shipper finishes the POST it is in, then sends what is still in memory if the collector is
+ * up, each POST bounded by what is left of the first half of {@code maxShutdownMillis}, and spools the rest without
+ * trying, so shutdown does not wait out request timeouts against a collector that is down.
+ * <p>
+ * Without a {@code url} the appender starts but ignores every event.
+ */
+public class LogShippingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final List<LogShippingAppender> RUNNING = new CopyOnWriteArrayList<>();
+
+    private final LongAdder shippedBatches = new LongAdder();
+    private final LongAdder shippedRecords = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder failedPosts = new LongAdder();
+    private final LongAdder droppedBatches = new LongAdder();
+    private final LongAdder droppedRecords = new LongAdder();
+
+    private String url = "";
+    private int maxBatchRecords = 1000;
+    private FileSize maxBatchSize = FileSize.valueOf("1MB");
+    private long flushIntervalMillis = 1000;
+    private int queueCapacity = 16;
+    private String spoolDirectory;
+    private FileSize maxSpoolSize = FileSize.valueOf("1GB");
+    private int compressionLevel = 6;
+    private long connectTimeoutMillis = 2000;
+    private long requestTimeoutMillis = 5000;
+    private long minBackoffMillis = 500;
+    private long maxBackoffMillis = 30_000;
+    private long maxShutdownMillis = 5000;
+
+    private final StringBuilder open = new StringBuilder(64 * 1024);
+    private int openRecords;
+    private long openSinceNanos;
+
+    private volatile boolean enabled;
+    private volatile boolean collectorUp = true;
+    private BlockingQueue<Batch> pending;
+    private LogSpool spool;
+    private HttpClient client;
+    private URI endpoint;
+    private Thread shipper;
+    private long backoffMillis;
+    private long nextAttemptNanos;
+    private volatile long shutdownDeadlineNanos;
+
+    /**
+     * Snapshot of all shipping appenders currently running in the logging system.
+     */
+    public static List<LogShippingAppender> running() {
+        return List.copyOf(RUNNING);
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (url == null || url.isBlank()) {
+            addInfo("No collector url for [" + getName() + "]; log shipping is off");
+            super.start();
+            return;
+        }
+        if (spoolDirectory == null || spoolDirectory.isBlank()) {
+            addError("No spoolDirectory for log shipping appender [" + getName() + "]");
+            return;
+        }
+        try {
+            endpoint = URI.create(url);
+            spool = new LogSpool(Path.of(spoolDirectory), maxSpoolSize.getSize());
+            spool.open();
+        } catch (IOException | IllegalArgumentException e) {
+            addError("Cannot start log shipping appender [" + getName() + "]", e);
+            return;
+        }
+        pending = new ArrayBlockingQueue<>(queueCapacity);
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        backoffMillis = minBackoffMillis;
+        nextAttemptNanos = System.nanoTime();
+        enabled = true;
+        shipper = new Thread(this::shipLoop, "log-shipper-" + getName());
+        shipper.setDaemon(true);
+        super.start();
+        shipper.start();
+        RUNNING.add(this);
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        shutdownDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxShutdownMillis / 2);
+        super.stop();
+        if (!enabled) {
+            return;
+        }
+        RUNNING.remove(this);
+        // Not interrupted: an interrupt fails the POST in progress and the spool writes after it, losing the batches.
+        // The shipper sees the appender stopped within one poll.
+        try {
+            shipper.join(maxShutdownMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (shipper.isAlive()) {
+            addWarn("Shipper of [" + getName() + "] did not finish within " + maxShutdownMillis + "ms");
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Batch sealed = null;
+        synchronized (open) {
+            if (openRecords == 0) {
+                openSinceNanos = System.nanoTime();
+            }
+            appendRecord(open, event);
+            openRecords++;
+            if (openRecords >= maxBatchRecords || open.length() >= maxBatchSize.getSize()) {
+                sealed = seal();
+            }
+        }
+        if (sealed != null) {
+            enqueue(sealed);
+        }
+    }
+
+    /**
+     * Takes the open batch; the caller holds the lock on {@code open}.
+     */
+    private Batch seal() {
+        Batch batch = new Batch(open.toString().getBytes(StandardCharsets.UTF_8), openRecords);
+        open.setLength(0);
+        openRecords = 0;
+        return batch;
+    }
+
+    private void enqueue(Batch batch) {
+        if (!pending.offer(batch)) {
+            droppedBatches.increment();
+            droppedRecords.add(batch.records());
+        }
+    }
+
+    private void shipLoop() {
+        while (isStarted()) {
+            try {
+                Batch batch = pending.poll(Math.min(flushIntervalMillis, 100), TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    ship(batch, requestTimeoutMillis);
+                } else {
+                    sealIfDue();
+                }
+                replayIfDue();
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                addError("Log shipping failed", e);
+            }
+        }
+        // Shutdown: one last attempt for what is still in memory while the collector answers and the time allows;
+        // everything else goes to the spool for the next run.
+        synchronized (open) {
+            if (openRecords > 0) {
+                enqueue(seal());
+            }
+        }
+        Batch batch;
+        while ((batch = pending.poll()) != null) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(shutdownDeadlineNanos - System.nanoTime());
+            ship(batch, collectorUp ? Math.min(requestTimeoutMillis, remainingMillis) : 0);
+        }
+    }
+
+    private void sealIfDue() {
+        Batch sealed = null;
+        synchronized (open) {
+            if (openRecords > 0 && System.nanoTime() - openSinceNanos >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis)) {
+                sealed = seal();
+            }
+        }
+        if (sealed != null) {
+            enqueue(sealed);
+        }
+    }
+
+    /**
+     * Sends a fresh batch, or spools it when the collector is backing off or does not take it within
+     * {@code timeoutMillis}; with no time at all it is spooled without trying.
+     */
+    private void ship(Batch batch, long timeoutMillis) {
+        byte[] compressed;
+        try {
+            compressed = gzip(batch.json(), compressionLevel);
+        } catch (IOException e) {
+            addError("Cannot compress a log batch", e);
+            droppedBatches.increment();
+            droppedRecords.add(batch.records());
+            return;
+        }
+        rawBytes.add(batch.json().length);
+        compressedBytes.add(compressed.length);
+        if (timeoutMillis > 0 && System.nanoTime() - nextAttemptNanos >= 0 && post(compressed, batch.records(), timeoutMillis)) {
+            return;
+        }
+        try {
+            spool.append(compressed, batch.records());
+        } catch (IOException e) {
+            addError("Cannot spool a log batch to " + spoolDirectory, e);
+            droppedBatches.increment();
+            droppedRecords.add(batch.records());
+        }
+    }
+
+    /**
+     * Replays spooled batches, oldest first, until the spool is empty, the collector fails or the in-memory queue
+     * has a batch to ship, which goes first.
+     */
+    private void replayIfDue() {
+        while (isStarted() && !spool.isEmpty() && System.nanoTime() - nextAttemptNanos >= 0) {
+            sealIfDue();
+            if (!pending.isEmpty()) {
+                return;
+            }
+            LogSpool.Entry oldest = spool.oldest();
+            try {
+                if (!post(spool.read(oldest), oldest.records(), requestTimeoutMillis)) {
+                    return;
+                }
+                spool.removeOldest();
+            } catch (IOException e) {
+                addError("Cannot replay spooled log batch " + oldest.file(), e);
+                try {
+                    spool.removeOldest();
+                } catch (IOException ignored) {
+                    // Already reported.
+                }
+            }
+        }
+    }
+
+    private boolean post(byte[] compressed, int records, long timeoutMillis) {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .header("Content-Type", "application/x-ndjson")
+                .header("Content-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(compressed))
+                .build();
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status / 100 == 2) {
+                shippedBatches.increment();
+                shippedRecords.add(records);
+                collectorUp = true;
+                backoffMillis = minBackoffMillis;
+                return true;
+            }
+        } catch (IOException e) {
+            // Counted and retried below.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failedPosts.increment();
+        collectorUp = false;
+        nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        backoffMillis = Math.min(maxBackoffMillis, backoffMillis * 2);
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json, int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 8));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 16 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * One event as a JSON object on its own line.
+     */
+    static void appendRecord(StringBuilder out, ILoggingEvent event) {
+        out.append("{\"ts\":").append(event.getTimeStamp());
+        field(out, "level", event.getLevel().toString());
+        field(out, "logger", event.getLoggerName());
+        field(out, "thread", event.getThreadName());
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null) {
+            field(out, "CR_ID", mdc.get("CR_ID"));
+        }
+        Object[] arguments = event.getArgumentArray();
+        if (arguments != null && arguments.length == 1 && arguments[0] instanceof StructuredLine line
+                && "{}".equals(event.getMessage())) {
+            Enum<?>[] keys = line.keys();
+            String[] values = line.values();
+            for (Enum<?> key : keys) {
+                String value = values[key.ordinal()];
+                if (value != null && !value.isBlank()) {
+                    field(out, key.name(), value);
+                }
+            }
+        } else {
+            field(out, "message", event.getFormattedMessage());
+        }
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            field(out, "exception", throwable.getClassName() + ": " + throwable.getMessage());
+        }
+        out.append("}\n");
+    }
+
+    private static void field(StringBuilder out, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":\"");
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether the last POST succeeded.
+     */
+    public boolean isCollectorUp() {
+        return collectorUp;
+    }
+
+    public int getPendingBatchCount() {
+        BlockingQueue<Batch> queue = pending;
+        return queue == null ? 0 : queue.size();
+    }
+
+    public int getSpooledBatchCount() {
+        LogSpool current = spool;
+        return current == null ? 0 : current.batches();
+    }
+
+    public long getSpooledBytes() {
+        LogSpool current = spool;
+        return current == null ? 0 : current.bytes();
+    }
+
+    public long getShippedBatchCount() {
+        return shippedBatches.sum();
+    }
+
+    public long getShippedRecordCount() {
+        return shippedRecords.sum();
+    }
+
+    /**
+     * Uncompressed size of the batches handled so far, shipped or spooled.
+     */
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    /**
+     * Gzipped size of the batches handled so far, shipped or spooled.
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getFailedPostCount() {
+        return failedPosts.sum();
+    }
+
+    /**
+     * Batches lost to a full in-memory queue, a full spool or an I/O error.
+     */
+    public long getDroppedBatchCount() {
+        LogSpool current = spool;
+        return droppedBatches.sum() + (current == null ? 0 : current.droppedBatches());
+    }
+
+    public long getDroppedRecordCount() {
+        LogSpool current = spool;
+        return droppedRecords.sum() + (current == null ? 0 : current.droppedRecords());
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public int getMaxBatchRecords() {
+        return maxBatchRecords;
+    }
+
+    public void setMaxBatchRecords(int maxBatchRecords) {
+        this.maxBatchRecords = maxBatchRecords;
+    }
+
+    public FileSize getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(FileSize maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public FileSize getMaxSpoolSize() {
+        return maxSpoolSize;
+    }
+
+    public void setMaxSpoolSize(FileSize maxSpoolSize) {
+        this.maxSpoolSize = maxSpoolSize;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public long getMinBackoffMillis() {
+        return minBackoffMillis;
+    }
+
+    public void setMinBackoffMillis(long minBackoffMillis) {
+        this.minBackoffMillis = minBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public long getMaxShutdownMillis() {
+        return maxShutdownMillis;
+    }
+
+    public void setMaxShutdownMillis(long maxShutdownMillis) {
+        this.maxShutdownMillis = maxShutdownMillis;
+    }
+
+    /**
+     * A sealed batch: newline-delimited JSON records, uncompressed.
+     */
+    private record Batch(byte[] json, int records) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.spring_aop_logback.logging;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bounded on-disk FIFO of compressed log batches that could not be shipped yet. Each batch is one file named
+ * {@code <sequence>-<records>.ndjson.gz}, written to a ".part" sibling and renamed once complete, so a crash never
+ * leaves half a batch to replay. Batches spooled by a previous run are picked up again on {@link #open()}, and the
+ * ".part" files it was still writing are deleted.
+ * <p>
+ * When the batches exceed {@code maxBytes}, the oldest are deleted: the newest logs are the ones still worth
+ * having once the collector is back. Only used by the shipper thread of {@link LogShippingAppender}.
+ */
+final class LogSpool {
+
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final String PART_SUFFIX = ".part";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private long bytes;
+    private long nextSequence;
+    private long droppedBatches;
+    private long droppedRecords;
+
+    LogSpool(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates the directory and queues the batches left in it, oldest first.
+     */
+    void open() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(directory, "*" + SUFFIX + PART_SUFFIX)) {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+        List<Entry> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                Entry entry = Entry.parse(file);
+                if (entry != null) {
+                    found.add(entry);
+                }
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.sequence(), b.sequence()));
+        for (Entry entry : found) {
+            entries.add(entry);
+            bytes += entry.size();
+            nextSequence = entry.sequence() + 1;
+        }
+        trim();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    int batches() {
+        return entries.size();
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    long droppedBatches() {
+        return droppedBatches;
+    }
+
+    long droppedRecords() {
+        return droppedRecords;
+    }
+
+    void append(byte[] batch, int records) throws IOException {
+        long sequence = nextSequence++;
+        Path file = directory.resolve(String.format("%020d-%d%s", sequence, records, SUFFIX));
+        Path part = file.resolveSibling(file.getFileName() + PART_SUFFIX);
+        try {
+            Files.write(part, batch);
+            ParallelGzipCompressor.move(part, file);
+        } catch (IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        entries.add(new Entry(file, sequence, records, batch.length));
+        bytes += batch.length;
+        trim();
+    }
+
+    /**
+     * The oldest batch and its record count, or null when the spool is empty.
+     */
+    Entry oldest() {
+        return entries.peekFirst();
+    }
+
+    byte[] read(Entry entry) throws IOException {
+        return Files.readAllBytes(entry.file());
+    }
+
+    void removeOldest() throws IOException {
+        Entry entry = entries.pollFirst();
+        if (entry != null) {
+            bytes -= entry.size();
+            Files.deleteIfExists(entry.file());
+        }
+    }
+
+    private void trim() throws IOException {
+        while (bytes > maxBytes && entries.size() > 1) {
+            Entry dropped = entries.peekFirst();
+            removeOldest();
+            droppedBatches++;
+            droppedRecords += dropped.records();
+        }
+    }
+
+    record Entry(Path file, long sequence, int records, long size) {
+
+        static Entry parse(Path file) throws IOException {
+            String name = file.getFileName().toString();
+            int dash = name.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                long sequence = Long.parseLong(name.substring(0, dash));
+                int records = Integer.parseInt(name.substring(dash + 1, name.length() - SUFFIX.length()));
+                return new Entry(file, sequence, records, Files.size(file));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
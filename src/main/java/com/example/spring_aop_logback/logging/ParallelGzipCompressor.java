@@ -0,0 +1,108 @@
+package com.example.spring_aop_logback.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips a file in fixed-size chunks on a pool of worker threads, like pigz.
+ * Every chunk becomes a complete gzip member and the members are written in order, which RFC 1952 allows:
+ * gunzip, zcat and {@link java.util.zip.GZIPInputStream} read the result as one stream. At most
+ * {@code maxInFlight} chunks are held in memory at a time, whatever the size of the file.
+ */
+final class ParallelGzipCompressor {
+
+    private final ExecutorService workers;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final int level;
+
+    ParallelGzipCompressor(ExecutorService workers, int threads, int chunkSize, int level) {
+        this.workers = workers;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = Math.max(2, threads * 2);
+        this.level = level;
+    }
+
+    /**
+     * Compresses {@code source} into {@code target}, which must not exist. The output is written to a ".part" sibling
+     * (replacing one an interrupted run left) and renamed once complete, so a {@code target} that exists is always a
+     * whole archive.
+     *
+     * @return the compressed size in bytes.
+     */
+    long compress(Path source, Path target) throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        long written = 0;
+        try (InputStream in = Files.newInputStream(source); OutputStream out = Files.newOutputStream(partial)) {
+            Deque<Future<byte[]>> window = new ArrayDeque<>(maxInFlight);
+            boolean first = true;
+            for (; ; ) {
+                byte[] chunk = in.readNBytes(chunkSize);
+                if (chunk.length == 0 && !first) {
+                    break;
+                }
+                // An empty source still gets one (empty) member so the archive is valid gzip.
+                window.add(workers.submit(() -> gzipMember(chunk, level)));
+                first = false;
+                if (window.size() >= maxInFlight) {
+                    written += write(out, window.poll());
+                }
+                if (chunk.length < chunkSize) {
+                    break;
+                }
+            }
+            while (!window.isEmpty()) {
+                written += write(out, window.poll());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        move(partial, target);
+        return written;
+    }
+
+    private static int write(OutputStream out, Future<byte[]> member) throws IOException {
+        try {
+            byte[] bytes = member.get();
+            out.write(bytes);
+            return bytes.length;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Compressing a chunk failed", e.getCause());
+        }
+    }
+
+    private static byte[] gzipMember(byte[] chunk, int level) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(Math.max(64, chunk.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member, 64 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(chunk);
+        }
+        return member.toByteArray();
+    }
+
+    /**
+     * Renames {@code source} to {@code target}, a plain rename within one file system. An existing {@code target} is
+     * never replaced: the move fails with {@link java.nio.file.FileAlreadyExistsException} instead.
+     */
+    static void move(Path source, Path target) throws IOException {
+        Files.move(source, target);
+    }
+}
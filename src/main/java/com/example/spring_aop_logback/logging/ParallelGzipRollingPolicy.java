@@ -0,0 +1,381 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.core.rolling.RolloverFailure;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.rolling.helper.ArchiveRemover;
+import ch.qos.logback.core.rolling.helper.CompressionMode;
+import ch.qos.logback.core.rolling.helper.DateTokenConverter;
+import ch.qos.logback.core.rolling.helper.FileNamePattern;
+import ch.qos.logback.core.rolling.helper.RollingCalendar;
+import ch.qos.logback.core.util.FileSize;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+/**
+ * Size-and-time rolling ({@code maxFileSize}, {@code maxHistory}, {@code totalSizeCap}, {@code %d} and {@code %i}
+ * in the pattern, exactly as {@link SizeAndTimeBasedRollingPolicy}) whose rollover only renames the active file.
+ * The renamed file is gzipped afterwards on a background thread, in chunks spread over {@code compressionThreads}
+ * workers by {@link ParallelGzipCompressor}, so the writer that triggered the rollover never waits for compression
+ * and a multi-gigabyte file is compressed in a fraction of the single-stream time.
+ * <p>
+ * Until it is compressed a rolled file is kept as {@code <archive>.pending}; files left pending by a shutdown are
+ * picked up again on the next start. A rollover never overwrites a file: the {@code %i} logback hands out only
+ * accounts for finished archives, so an index whose {@code .pending}, {@code .gz.part} or {@code .gz} file exists is
+ * skipped. Retention ({@code maxHistory} and the {@code totalSizeCap} disk budget) is applied after each archive
+ * is written, so the budget always sees the compressed sizes; files whose compression failed stay as
+ * {@code .pending} and count against both limits like the archives.
+ * <p>
+ * Throughput and rollover counters are kept per policy and can be read through {@link #running()}.
+ */
+public class ParallelGzipRollingPolicy<E> extends SizeAndTimeBasedRollingPolicy<E> {
+
+    static final String PENDING_SUFFIX = ".pending";
+    static final String PART_SUFFIX = ".part";
+
+    private static final List<ParallelGzipRollingPolicy<?>> RUNNING = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger pendingFiles = new AtomicInteger();
+    private final LongAdder compressedFiles = new LongAdder();
+    private final LongAdder failedFiles = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder rollovers = new LongAdder();
+    private final AtomicLong maxRolloverNanos = new AtomicLong();
+
+    private int compressionThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private FileSize chunkSize = new FileSize(4 * FileSize.MB_COEFFICIENT);
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private ExecutorService coordinator;
+    private ExecutorService workers;
+    private ParallelGzipCompressor compressor;
+    private Path archiveDirectory;
+    private String archiveStem;
+    /** Archive names without the .gz suffix, with the %i token as group 1. */
+    private Pattern archiveIndex;
+    private RollingCalendar rollingCalendar;
+    /** Pending files whose compression failed; kept until retention removes them. */
+    private final Set<Path> failed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Snapshot of all parallel-gzip rolling policies currently running in the logging system.
+     */
+    public static List<ParallelGzipRollingPolicy<?>> running() {
+        return List.copyOf(RUNNING);
+    }
+
+    @Override
+    public void start() {
+        if (getParentsRawFileProperty() == null) {
+            addError("ParallelGzipRollingPolicy needs the 'file' property of its appender to be set");
+            return;
+        }
+        super.start();
+        if (!isStarted()) {
+            return;
+        }
+        if (getCompressionMode() != CompressionMode.GZ) {
+            addError("The fileNamePattern of ParallelGzipRollingPolicy must end with .gz: " + fileNamePatternStr);
+            super.stop();
+            return;
+        }
+        parseArchivePattern();
+        coordinator = Executors.newSingleThreadExecutor(backgroundThreads("log-compress-"));
+        workers = Executors.newFixedThreadPool(compressionThreads, backgroundThreads("log-compress-worker-"));
+        compressor = new ParallelGzipCompressor(workers, compressionThreads, (int) chunkSize.getSize(), compressionLevel);
+        resumePending();
+        RUNNING.add(this);
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        RUNNING.remove(this);
+        // An archive still being compressed stays .pending and is finished by the next start.
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+        super.stop();
+    }
+
+    /**
+     * Called by the appender, under its lock, once the active file is closed: renames it and queues it.
+     */
+    @Override
+    public void rollover() throws RolloverFailure {
+        long start = System.nanoTime();
+        String archive = getTimeBasedFileNamingAndTriggeringPolicy().getElapsedPeriodsFileName();
+        while (isTaken(archive)) {
+            archive = nextIndex(archive);
+        }
+        Path pending = Path.of(archive + PENDING_SUFFIX);
+        try {
+            ParallelGzipCompressor.move(Path.of(getParentsRawFileProperty()), pending);
+        } catch (IOException e) {
+            throw new RolloverFailure("Could not rename " + getParentsRawFileProperty() + " to " + pending, e);
+        }
+        submit(pending);
+        rollovers.increment();
+        maxRolloverNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+    }
+
+    private static boolean isTaken(String archive) {
+        String compressed = archive + CompressionMode.GZ_SUFFIX;
+        return Files.exists(Path.of(archive + PENDING_SUFFIX)) || Files.exists(Path.of(compressed))
+                || Files.exists(Path.of(compressed + PART_SUFFIX));
+    }
+
+    private String nextIndex(String archive) throws RolloverFailure {
+        Matcher matcher = archiveIndex.matcher(archive);
+        if (!matcher.matches()) {
+            throw new RolloverFailure("Archive " + archive + " exists already and its name has no %i to advance");
+        }
+        long next = Long.parseLong(matcher.group(1)) + 1;
+        return archive.substring(0, matcher.start(1)) + next + archive.substring(matcher.end(1));
+    }
+
+    private void submit(Path pending) {
+        pendingFiles.incrementAndGet();
+        coordinator.execute(() -> {
+            try {
+                compress(pending);
+            } finally {
+                pendingFiles.decrementAndGet();
+            }
+        });
+    }
+
+    private void compress(Path pending) {
+        String name = pending.toString();
+        Path target = Path.of(name.substring(0, name.length() - PENDING_SUFFIX.length()) + CompressionMode.GZ_SUFFIX);
+        try {
+            if (Files.exists(target)) {
+                // Compressed and renamed before a shutdown, but not deleted yet.
+                Files.delete(pending);
+            } else {
+                long size = Files.size(pending);
+                long start = System.nanoTime();
+                long compressed = compressor.compress(pending, target);
+                compressionNanos.add(System.nanoTime() - start);
+                Files.delete(pending);
+                bytesIn.add(size);
+                bytesOut.add(compressed);
+                compressedFiles.increment();
+            }
+        } catch (InterruptedIOException e) {
+            return;
+        } catch (IOException | RuntimeException e) {
+            failedFiles.increment();
+            failed.add(pending);
+            addError("Could not compress " + pending + "; it is kept as is until retention removes it", e);
+        }
+        applyRetention();
+    }
+
+    private void applyRetention() {
+        Instant now = Instant.ofEpochMilli(getTimeBasedFileNamingAndTriggeringPolicy().getCurrentTime());
+        ArchiveRemover retention = getMaxHistory() != 0 ? getTimeBasedFileNamingAndTriggeringPolicy().getArchiveRemover() : null;
+        if (retention != null) {
+            // Only the asynchronous variant applies totalSizeCap as well as maxHistory.
+            retention.cleanAsynchronously(now);
+        }
+        if (!failed.isEmpty()) {
+            removeExpiredFailures(now);
+        }
+    }
+
+    /**
+     * Logback's retention only knows the .gz archives. A failed file goes once it is older than the periods
+     * {@code maxHistory} keeps, and the failed files and archives share {@code totalSizeCap}, oldest first.
+     */
+    private void removeExpiredFailures(Instant now) {
+        if (getMaxHistory() > 0) {
+            long cutoff = rollingCalendar.getEndOfNextNthPeriod(now, -getMaxHistory()).toEpochMilli();
+            for (Path file : failed) {
+                if (file.toFile().lastModified() < cutoff) {
+                    delete(file);
+                }
+            }
+        }
+        if (isUnboundedTotalSizeCap()) {
+            return;
+        }
+        List<Path> files = new ArrayList<>(failed);
+        try (DirectoryStream<Path> archives = Files.newDirectoryStream(archiveDirectory, archiveStem + "*" + CompressionMode.GZ_SUFFIX)) {
+            archives.forEach(files::add);
+        } catch (IOException e) {
+            addWarn("Could not list the archives in " + archiveDirectory, e);
+            return;
+        }
+        files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        long total = 0;
+        for (Path file : files) {
+            total += file.toFile().length();
+        }
+        for (int i = 0; i < files.size() && total > totalSizeCap.getSize(); i++) {
+            total -= files.get(i).toFile().length();
+            delete(files.get(i));
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            failed.remove(file);
+        } catch (IOException e) {
+            addWarn("Could not delete " + file, e);
+        }
+    }
+
+    /**
+     * The directory and file name stem of the archives, the position of {@code %i} in their names and the period
+     * of {@code %d}. Only patterns whose directory part is fixed are scanned.
+     */
+    private void parseArchivePattern() {
+        String pattern = fileNamePatternStr.replace('\\', '/');
+        int firstToken = pattern.indexOf('%');
+        int lastSlash = pattern.lastIndexOf('/', firstToken);
+        archiveDirectory = Path.of(lastSlash < 0 ? "." : pattern.substring(0, lastSlash));
+        archiveStem = pattern.substring(lastSlash + 1, firstToken < 0 ? pattern.length() : firstToken);
+
+        FileNamePattern withoutSuffix = new FileNamePattern(
+                fileNamePatternStr.substring(0, fileNamePatternStr.length() - CompressionMode.GZ_SUFFIX.length()), getContext());
+        // %i is the only token that becomes \d+; the date tokens become fixed-width digits.
+        String regex = withoutSuffix.toRegex();
+        int index = regex.lastIndexOf("\\d+");
+        archiveIndex = Pattern.compile(regex.substring(0, index) + "(\\d+)" + regex.substring(index + 3));
+        DateTokenConverter<Object> date = withoutSuffix.getPrimaryDateTokenConverter();
+        TimeZone zone = date.getZoneId() != null ? TimeZone.getTimeZone(date.getZoneId()) : TimeZone.getDefault();
+        rollingCalendar = new RollingCalendar(date.getDatePattern(), zone, Locale.getDefault());
+    }
+
+    /**
+     * Queues the {@code .pending} files a previous run did not get to, oldest first, and deletes the
+     * {@code .gz.part} files no pending file will rewrite.
+     */
+    private void resumePending() {
+        if (!Files.isDirectory(archiveDirectory)) {
+            return;
+        }
+        String partSuffix = CompressionMode.GZ_SUFFIX + PART_SUFFIX;
+        List<Path> pending = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(archiveDirectory, archiveStem + "*" + partSuffix)) {
+            for (Path part : files) {
+                String archive = part.toString().substring(0, part.toString().length() - partSuffix.length());
+                if (!Files.exists(Path.of(archive + PENDING_SUFFIX))) {
+                    Files.deleteIfExists(part);
+                }
+            }
+        } catch (IOException e) {
+            addWarn("Could not look for partial archives in " + archiveDirectory, e);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(archiveDirectory, archiveStem + "*" + PENDING_SUFFIX)) {
+            files.forEach(pending::add);
+            pending.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+            pending.forEach(this::submit);
+        } catch (IOException e) {
+            addWarn("Could not look for pending archives in " + archiveDirectory, e);
+        }
+    }
+
+    private ThreadFactory backgroundThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            // Compression is never urgent; request threads and the log writer go first.
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+    }
+
+    public String getActiveFile() {
+        return getParentsRawFileProperty();
+    }
+
+    public int getPendingFileCount() {
+        return pendingFiles.get();
+    }
+
+    public long getCompressedFileCount() {
+        return compressedFiles.sum();
+    }
+
+    public long getFailedFileCount() {
+        return failedFiles.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    public long getRolloverCount() {
+        return rollovers.sum();
+    }
+
+    /**
+     * The longest time a rollover held the appender, i.e. the rename; compression is not part of it.
+     */
+    public long getMaxRolloverNanos() {
+        return maxRolloverNanos.get();
+    }
+
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = Math.max(1, compressionThreads);
+    }
+
+    public FileSize getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(FileSize chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Deflate level 1 (fastest) to 9 (smallest); -1 for the zlib default (6).
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+}
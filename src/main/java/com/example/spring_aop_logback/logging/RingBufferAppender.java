@@ -0,0 +1,354 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import org.slf4j.Marker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Non-blocking front for the synchronous CONSOLE and FILE appenders.
+ * Request threads and Reactor Netty event-loop threads only publish the event into a pre-allocated
+ * {@link LogRingBuffer}; a single background writer drains it in batches, hands every event to the
+ * attached appenders and flushes their output streams once per batch instead of once per line. While the buffer is
+ * empty, the writer runs the {@link WriterIdleTask}s of the attached appenders every {@value #IDLE_TASK_INTERVAL_MILLIS}ms.
+ * <p>
+ * What happens when the buffer is full is decided by {@link OverflowPolicy}. WARN and ERROR events and events with a
+ * marker (the trace-control lines of {@link TailSamplingAppender}, e.g. the request summary that ends a trace) are
+ * never dropped: evicting one of them from the head of the buffer moves it to an unbounded side queue, which the
+ * writer drains before the buffer. Counters for enqueued, dropped and flushed events are kept per appender and can be
+ * read through {@link #running()}.
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    /**
+     * Behaviour of {@link #append(ILoggingEvent)} when the ring buffer has no free slot.
+     */
+    public enum OverflowPolicy {
+        /** Park the producer until the writer frees a slot. Never use this on event-loop threads. */
+        BLOCK,
+        /** Discard DEBUG/INFO events without a marker; the others evict the oldest event instead. */
+        DROP_DEBUG_INFO,
+        /** Evict the oldest buffered event to make room for the new one. */
+        DROP_OLDEST
+    }
+
+    private static final List<RingBufferAppender> RUNNING = new CopyOnWriteArrayList<>();
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long IDLE_TASK_INTERVAL_MILLIS = 100;
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final Queue<ILoggingEvent> evictedKept = new ConcurrentLinkedQueue<>();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+
+    private int capacity = 8192;
+    private int batchSize = 256;
+    private long idleWaitMillis = 1;
+    private long maxShutdownMillis = 1000;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_DEBUG_INFO;
+
+    private volatile LogRingBuffer<ILoggingEvent> buffer;
+    private Thread writer;
+
+    /**
+     * Snapshot of all ring-buffer appenders currently running in the logging system.
+     */
+    public static List<RingBufferAppender> running() {
+        return List.copyOf(RUNNING);
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to ring-buffer appender [" + getName() + "]");
+            return;
+        }
+        buffer = new LogRingBuffer<>(capacity);
+        writer = new Thread(this::drainLoop, "log-ring-writer-" + getName());
+        writer.setDaemon(true);
+        super.start();
+        writer.start();
+        RUNNING.add(this);
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        RUNNING.remove(this);
+        LockSupport.unpark(writer);
+        try {
+            writer.join(maxShutdownMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            addWarn("Writer of [" + getName() + "] did not drain within " + maxShutdownMillis + "ms; "
+                    + buffer.size() + " events discarded");
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Capture MDC, thread name and the formatted message on the caller thread; the writer sees a frozen event.
+        // Messages with a DeferredMessage argument are left for the writer to format.
+        if (hasDeferredArgument(event)) {
+            event.getThreadName();
+            event.getMDCPropertyMap();
+        } else {
+            event.prepareForDeferredProcessing();
+        }
+        LogRingBuffer<ILoggingEvent> ring = buffer;
+        if (ring.offer(event)) {
+            enqueued.increment();
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                while (!ring.offer(event)) {
+                    if (!isStarted()) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                enqueued.increment();
+            }
+            case DROP_DEBUG_INFO -> {
+                if (!isKept(event)) {
+                    dropped.increment();
+                } else {
+                    evictUntilOffered(ring, event);
+                }
+            }
+            case DROP_OLDEST -> evictUntilOffered(ring, event);
+        }
+    }
+
+    private static boolean hasDeferredArgument(ILoggingEvent event) {
+        Object[] arguments = event.getArgumentArray();
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                if (argument instanceof DeferredMessage) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * WARN and above, and the events with a marker: losing a TRACE_END would leave its trace open.
+     */
+    private static boolean isKept(ILoggingEvent event) {
+        List<Marker> markers = event.getMarkerList();
+        return event.getLevel().toInt() > Level.INFO_INT || markers != null && !markers.isEmpty();
+    }
+
+    private void evictUntilOffered(LogRingBuffer<ILoggingEvent> ring, ILoggingEvent event) {
+        do {
+            ILoggingEvent oldest = ring.poll();
+            if (oldest == null) {
+                continue;
+            }
+            if (isKept(oldest)) {
+                // Older than everything left in the buffer, so the writer takes it first.
+                evictedKept.add(oldest);
+            } else {
+                dropped.increment();
+            }
+        } while (!ring.offer(event));
+        enqueued.increment();
+    }
+
+    private void drainLoop() {
+        LogRingBuffer<ILoggingEvent> ring = buffer;
+        long lastIdleTaskMillis = System.currentTimeMillis();
+        while (isStarted()) {
+            if (drainBatch(ring) == 0) {
+                long now = System.currentTimeMillis();
+                if (now - lastIdleTaskMillis >= IDLE_TASK_INTERVAL_MILLIS) {
+                    lastIdleTaskMillis = now;
+                    if (runIdleTasks(appenders.iteratorForAppenders(), now)) {
+                        flushAll(appenders.iteratorForAppenders());
+                    }
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(idleWaitMillis));
+            }
+        }
+        while (drainBatch(ring) > 0) {
+            // Flush whatever was published before stop() was called.
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    private int drainBatch(LogRingBuffer<ILoggingEvent> ring) {
+        int drained = 0;
+        ILoggingEvent event;
+        while (drained < batchSize && ((event = evictedKept.poll()) != null || (event = ring.poll()) != null)) {
+            appenders.appendLoopOnAppenders(event);
+            drained++;
+        }
+        if (drained > 0) {
+            flushAll(appenders.iteratorForAppenders());
+            flushed.add(drained);
+        }
+        return drained;
+    }
+
+    /**
+     * Runs the idle tasks of the attached appenders, descending into nested attachables; returns whether any wrote.
+     */
+    private boolean runIdleTasks(Iterator<Appender<ILoggingEvent>> iterator, long nowMillis) {
+        boolean wrote = false;
+        while (iterator.hasNext()) {
+            Appender<ILoggingEvent> appender = iterator.next();
+            if (appender instanceof WriterIdleTask task) {
+                wrote |= task.onWriterIdle(nowMillis);
+            }
+            if (appender instanceof AppenderAttachable<?> nested) {
+                @SuppressWarnings("unchecked")
+                Iterator<Appender<ILoggingEvent>> children = ((AppenderAttachable<ILoggingEvent>) nested).iteratorForAppenders();
+                wrote |= runIdleTasks(children, nowMillis);
+            }
+        }
+        return wrote;
+    }
+
+    /**
+     * Flushes buffered output of every attached stream appender, descending into nested attachables.
+     * Attached appenders are expected to run with {@code immediateFlush=false}.
+     */
+    private void flushAll(Iterator<Appender<ILoggingEvent>> iterator) {
+        while (iterator.hasNext()) {
+            Appender<ILoggingEvent> appender = iterator.next();
+            if (appender instanceof OutputStreamAppender<ILoggingEvent> streamAppender && !streamAppender.isImmediateFlush()) {
+                OutputStream out = streamAppender.getOutputStream();
+                if (out != null) {
+                    try {
+                        out.flush();
+                    } catch (IOException e) {
+                        addError("Failed to flush appender [" + appender.getName() + "]", e);
+                    }
+                }
+            } else if (appender instanceof AppenderAttachable<?> nested) {
+                @SuppressWarnings("unchecked")
+                Iterator<Appender<ILoggingEvent>> children = ((AppenderAttachable<ILoggingEvent>) nested).iteratorForAppenders();
+                flushAll(children);
+            }
+        }
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushed.sum();
+    }
+
+    public int getBufferedCount() {
+        LogRingBuffer<ILoggingEvent> ring = buffer;
+        return ring == null ? 0 : ring.size() + evictedKept.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getIdleWaitMillis() {
+        return idleWaitMillis;
+    }
+
+    public void setIdleWaitMillis(long idleWaitMillis) {
+        this.idleWaitMillis = idleWaitMillis;
+    }
+
+    public long getMaxShutdownMillis() {
+        return maxShutdownMillis;
+    }
+
+    public void setMaxShutdownMillis(long maxShutdownMillis) {
+        this.maxShutdownMillis = maxShutdownMillis;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.spring_aop_logback.logging;
+
+/**
+ * A {@code LoggingEnum}/{@code ExternalLoggingEnum} line handed to the logger as its key/value pairs instead of as
+ * rendered text, so {@link BinaryLogEncoder} can store the fields themselves. {@code toString()} still renders
+ * the text line for every other appender.
+ */
+public interface StructuredLine extends DeferredMessage {
+
+    /**
+     * All constants of the key enum, in ordinal order.
+     */
+    Enum<?>[] keys();
+
+    /**
+     * The values indexed by key ordinal; blank entries are absent fields. Called on the log writer thread.
+     */
+    String[] values();
+}
@@ -0,0 +1,295 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the log events of each request, keyed by the {@code CR_ID} MDC value, until the controller summary line
+ * marked with {@link TraceMarkers#TRACE_END} arrives. The whole trace is then written only if one of its events is at
+ * WARN or higher (failed external calls and ERROR_DESC summaries are logged at ERROR), the summary carries
+ * {@link TraceMarkers#TRACE_END_KEEP} (slow, sampled or answered with a 5xx status) or one of its lines carries
+ * {@link TraceMarkers#TRACE_KEEP}; otherwise only the summary line is written.
+ * <p>
+ * Meant to sit behind {@link RingBufferAppender}, so buffering happens on the single writer thread. Traces are
+ * bounded in number, in events per trace and in age; a trace that hits a limit is written as it is, so an unfinished
+ * or runaway request never loses lines. Age is checked on every event and, as a {@link WriterIdleTask}, whenever the
+ * writer idles, so a trace whose summary never comes is written after {@code maxAgeMillis} on a quiet service too.
+ * Events without a CR_ID pass straight through.
+ */
+public class TailSamplingAppender extends AppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent>, WriterIdleTask {
+
+    private static final List<TailSamplingAppender> RUNNING = new CopyOnWriteArrayList<>();
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final LongAdder keptTraces = new LongAdder();
+    private final LongAdder sampledOutTraces = new LongAdder();
+    private final LongAdder evictedTraces = new LongAdder();
+    private final LongAdder discardedEvents = new LongAdder();
+
+    private int maxTraces = 10_000;
+    private int maxEventsPerTrace = 256;
+    private long maxAgeMillis = 30_000;
+
+    /**
+     * Open traces in arrival order, so the oldest one is always first.
+     */
+    private final LinkedHashMap<String, Trace> traces = new LinkedHashMap<>();
+
+    /**
+     * Verdicts of recently finished traces, for lines that are logged after the summary (e.g. on cancellation).
+     */
+    private final LinkedHashMap<String, Boolean> verdicts = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > maxTraces;
+        }
+    };
+
+    /**
+     * Snapshot of all tail-sampling appenders currently running in the logging system.
+     */
+    public static List<TailSamplingAppender> running() {
+        return List.copyOf(RUNNING);
+    }
+
+    @Override
+    public void start() {
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to tail-sampling appender [" + getName() + "]");
+            return;
+        }
+        super.start();
+        RUNNING.add(this);
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            super.stop();
+            // Whatever is still open at shutdown is written, not dropped.
+            for (Trace trace : traces.values()) {
+                writeAll(trace.events);
+            }
+            traces.clear();
+        }
+        RUNNING.remove(this);
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        expire(event.getTimeStamp());
+        String correlationId = event.getMDCPropertyMap().get(LogContextMdcBridge.CORRELATION_ID_KEY);
+        if (correlationId == null) {
+            appenders.appendLoopOnAppenders(event);
+            return;
+        }
+        if (hasMarker(event, TraceMarkers.TRACE_END)) {
+            complete(correlationId, event);
+            return;
+        }
+
+        Boolean verdict = verdicts.get(correlationId);
+        if (verdict != null) {
+            if (verdict || isWarning(event)) {
+                appenders.appendLoopOnAppenders(event);
+            } else {
+                discardedEvents.increment();
+            }
+            return;
+        }
+
+        Trace trace = traces.get(correlationId);
+        if (trace == null) {
+            if (traces.size() >= maxTraces) {
+                evictOldest();
+            }
+            trace = new Trace(event.getTimeStamp());
+            traces.put(correlationId, trace);
+        }
+        trace.events.add(event);
+        trace.warned |= isWarning(event);
+        trace.keep |= hasMarker(event, TraceMarkers.TRACE_KEEP);
+        if (trace.events.size() >= maxEventsPerTrace) {
+            // A runaway trace is written now and the rest of the request passes through.
+            traces.remove(correlationId);
+            writeAll(trace.events);
+            verdicts.put(correlationId, Boolean.TRUE);
+            evictedTraces.increment();
+        }
+    }
+
+    @Override
+    public synchronized boolean onWriterIdle(long nowMillis) {
+        return isStarted() && expire(nowMillis);
+    }
+
+    private void complete(String correlationId, ILoggingEvent summary) {
+        Trace trace = traces.remove(correlationId);
+        boolean keep = hasMarker(summary, TraceMarkers.TRACE_END_KEEP) || isWarning(summary)
+                || (trace != null && (trace.warned || trace.keep));
+        if (trace != null) {
+            if (keep) {
+                writeAll(trace.events);
+            } else {
+                discardedEvents.add(trace.events.size());
+            }
+        }
+        (keep ? keptTraces : sampledOutTraces).increment();
+        appenders.appendLoopOnAppenders(summary);
+        verdicts.put(correlationId, keep);
+    }
+
+    /**
+     * Writes the traces older than {@code maxAgeMillis} at {@code now}; returns whether there were any.
+     */
+    private boolean expire(long now) {
+        boolean expired = false;
+        Iterator<Trace> oldest = traces.values().iterator();
+        while (oldest.hasNext()) {
+            Trace trace = oldest.next();
+            if (now - trace.firstTimestamp < maxAgeMillis) {
+                break;
+            }
+            oldest.remove();
+            writeAll(trace.events);
+            evictedTraces.increment();
+            expired = true;
+        }
+        return expired;
+    }
+
+    private void evictOldest() {
+        Iterator<Trace> oldest = traces.values().iterator();
+        Trace trace = oldest.next();
+        oldest.remove();
+        writeAll(trace.events);
+        evictedTraces.increment();
+    }
+
+    private void writeAll(List<ILoggingEvent> events) {
+        for (ILoggingEvent event : events) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    private static boolean isWarning(ILoggingEvent event) {
+        return event.getLevel().isGreaterOrEqual(Level.WARN);
+    }
+
+    private static boolean hasMarker(ILoggingEvent event, Marker marker) {
+        List<Marker> markers = event.getMarkerList();
+        if (markers != null) {
+            for (Marker candidate : markers) {
+                if (candidate.contains(marker)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getOpenTraceCount() {
+        return traces.size();
+    }
+
+    public long getKeptTraceCount() {
+        return keptTraces.sum();
+    }
+
+    public long getSampledOutTraceCount() {
+        return sampledOutTraces.sum();
+    }
+
+    public long getEvictedTraceCount() {
+        return evictedTraces.sum();
+    }
+
+    public long getDiscardedEventCount() {
+        return discardedEvents.sum();
+    }
+
+    public int getMaxTraces() {
+        return maxTraces;
+    }
+
+    public void setMaxTraces(int maxTraces) {
+        this.maxTraces = maxTraces;
+    }
+
+    public int getMaxEventsPerTrace() {
+        return maxEventsPerTrace;
+    }
+
+    public void setMaxEventsPerTrace(int maxEventsPerTrace) {
+        this.maxEventsPerTrace = maxEventsPerTrace;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public void setMaxAgeMillis(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+
+    private static final class Trace {
+        final long firstTimestamp;
+        final List<ILoggingEvent> events = new ArrayList<>();
+        boolean warned;
+        boolean keep;
+
+        Trace(long firstTimestamp) {
+            this.firstTimestamp = firstTimestamp;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.spring_aop_logback.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Markers on the controller summary line that tell {@link TailSamplingAppender} a request has finished,
+ * and on any other line that asks for its request's trace to be kept.
+ */
+public final class TraceMarkers {
+
+    /**
+     * The request is complete; its buffered lines are discarded unless one of them was logged at WARN or higher.
+     */
+    public static final Marker TRACE_END = MarkerFactory.getMarker("TRACE_END");
+
+    /**
+     * The request is complete and was picked by the application (a 5xx status, slow or randomly sampled); its buffered
+     * lines are written.
+     */
+    public static final Marker TRACE_END_KEEP = MarkerFactory.getMarker("TRACE_END_KEEP");
+
+    /**
+     * The request this line belongs to must be written in full, whatever its summary says (e.g. a slow external call).
+     */
+    public static final Marker TRACE_KEEP = MarkerFactory.getMarker("TRACE_KEEP");
+
+    static {
+        TRACE_END_KEEP.add(TRACE_END);
+    }
+
+    private TraceMarkers() {
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.spring_aop_logback.logging;
+
+/**
+ * Time-based work of an appender behind {@link RingBufferAppender}, run by its writer thread whenever the buffer has
+ * run empty: it happens on a quiet service too, and never concurrently with the events the writer hands over.
+ */
+interface WriterIdleTask {
+
+    /**
+     * Does the work that is due at {@code nowMillis}; returns whether anything was written, so the writer flushes.
+     */
+    boolean onWriterIdle(long nowMillis);
+}
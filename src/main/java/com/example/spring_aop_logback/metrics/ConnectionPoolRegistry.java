@@ -0,0 +1,45 @@
+package com.example.spring_aop_logback.metrics;
+
+import com.example.spring_aop_logback.dto.ConnectionPoolStats;
+import org.springframework.stereotype.Component;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives the pools that Reactor Netty creates per remote address for every client {@link ConnectionProvider}
+ * (see WebClientConfig) and exposes their live gauges; no Micrometer registry is needed.
+ */
+@Component
+public class ConnectionPoolRegistry implements ConnectionProvider.MeterRegistrar {
+
+    private final Map<PoolKey, ConnectionPoolMetrics> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.put(new PoolKey(poolName, id, String.valueOf(remoteAddress)), metrics);
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        pools.remove(new PoolKey(poolName, id, String.valueOf(remoteAddress)));
+    }
+
+    public List<ConnectionPoolStats> stats() {
+        List<ConnectionPoolStats> stats = new ArrayList<>();
+        pools.forEach((key, metrics) -> stats.add(new ConnectionPoolStats(key.poolName(), key.remoteAddress(),
+                metrics.acquiredSize(), metrics.idleSize(), metrics.pendingAcquireSize(), metrics.allocatedSize(),
+                metrics.maxAllocatedSize(), metrics.maxPendingAcquireSize())));
+        stats.sort(Comparator.comparing(ConnectionPoolStats::pool).thenComparing(ConnectionPoolStats::remoteAddress));
+        return stats;
+    }
+
+    private record PoolKey(String poolName, String id, String remoteAddress) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.spring_aop_logback.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free latency histogram with HDR-style log-linear buckets.
+ * Values below 128ns get one bucket each; above that every power of two is split into 64 linear sub-buckets, so
+ * any recorded value is off by at most 1/64 (about 1.6%) from the value reported for its bucket. Values up to 2^40ns
+ * (about 18 minutes) are tracked; larger ones land in the last bucket. The whole histogram is 2240 counters.
+ * <p>
+ * Recording is one atomic increment. Readers take a {@link #snapshot()} or an {@link #intervalSnapshot()}, which
+ * contains only what was recorded since the previous interval snapshot.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int MAX_MAGNITUDE = 40;
+    static final int BUCKETS = SUB_BUCKETS * (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+    private long[] intervalBaseline = new long[BUCKETS];
+
+    /**
+     * Records one latency in nanoseconds; negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Adds everything in {@code snapshot}, e.g. to merge histograms recorded separately.
+     */
+    public void add(Snapshot snapshot) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = snapshot.counts[i];
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        long currentMax = max.get();
+        while (snapshot.max > currentMax && !max.compareAndSet(currentMax, snapshot.max)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Everything recorded since the histogram was created.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, max.get());
+    }
+
+    /**
+     * What was recorded since the previous interval snapshot (or since creation for the first one).
+     */
+    public synchronized Snapshot intervalSnapshot() {
+        long[] current = new long[BUCKETS];
+        long[] delta = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            current[i] = counts.get(i);
+            delta[i] = current[i] - intervalBaseline[i];
+        }
+        intervalBaseline = current;
+        // The running maximum cannot be split into intervals; report the interval's highest bucket instead.
+        long intervalHighest = 0;
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (delta[i] > 0) {
+                intervalHighest = Math.min(highestEquivalentValue(i), max.get());
+                break;
+            }
+        }
+        return new Snapshot(delta, intervalHighest);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude >= MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * shift + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of the bucket counts.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long max;
+        private final long totalCount;
+
+        private Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            this.max = max;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        public long totalCount() {
+            return totalCount;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /**
+         * The value at the given percentile (0-100], reported as the highest value of its bucket and never above
+         * the recorded maximum; 0 for an empty snapshot.
+         */
+        public long valueAtPercentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestEquivalentValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
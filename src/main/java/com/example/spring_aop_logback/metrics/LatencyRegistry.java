@@ -0,0 +1,75 @@
+package com.example.spring_aop_logback.metrics;
+
+import com.example.spring_aop_logback.cache.CacheStatus;
+import com.example.spring_aop_logback.dto.LatencyStats;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The latency histograms recorded by the logging aspects: one per controller mapping and HTTP method, and one per
+ * downstream service and HTTP status. The number of histograms is capped; further keys share an "OTHER" histogram,
+ * so memory stays fixed even if unexpected keys show up.
+ */
+@Component
+public class LatencyRegistry {
+
+    public static final String CONTROLLER = "CONTROLLER";
+    public static final String EXTERNAL = "EXTERNAL";
+
+    private static final int MAX_HISTOGRAMS = 512;
+    private static final String OTHER = "OTHER";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<LatencyKey, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Records a controller request, keyed by its mapping (e.g. "/logs/{correlationId}") and HTTP method.
+     */
+    public void recordController(String uri, String httpMethod, long nanos) {
+        histogram(new LatencyKey(CONTROLLER, uri, httpMethod)).record(nanos);
+    }
+
+    /**
+     * Records an external call, keyed by service name (e.g. "UCE") and HTTP status. Calls answered by a cache are
+     * kept apart ("200 HIT") so they do not hide the latency of the service itself.
+     */
+    public void recordExternal(String serviceName, int status, CacheStatus cacheStatus, long nanos) {
+        String detail = cacheStatus == null ? String.valueOf(status) : status + " " + cacheStatus.name();
+        histogram(new LatencyKey(EXTERNAL, serviceName, detail)).record(nanos);
+    }
+
+    /**
+     * Percentiles of every histogram, either cumulative or for the interval since the previous interval call.
+     */
+    public List<LatencyStats> stats(boolean interval) {
+        List<LatencyStats> stats = new ArrayList<>();
+        histograms.forEach((key, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = interval ? histogram.intervalSnapshot() : histogram.snapshot();
+            stats.add(new LatencyStats(key.kind(), key.name(), key.detail(), snapshot.totalCount(),
+                    snapshot.valueAtPercentile(50) / NANOS_PER_MILLI,
+                    snapshot.valueAtPercentile(90) / NANOS_PER_MILLI,
+                    snapshot.valueAtPercentile(99) / NANOS_PER_MILLI,
+                    snapshot.valueAtPercentile(99.9) / NANOS_PER_MILLI,
+                    snapshot.max() / NANOS_PER_MILLI));
+        });
+        stats.sort(Comparator.comparing(LatencyStats::kind).thenComparing(LatencyStats::name).thenComparing(LatencyStats::detail));
+        return stats;
+    }
+
+    private LatencyHistogram histogram(LatencyKey key) {
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        LatencyKey bounded = histograms.size() < MAX_HISTOGRAMS ? key : new LatencyKey(key.kind(), OTHER, OTHER);
+        return histograms.computeIfAbsent(bounded, ignored -> new LatencyHistogram());
+    }
+
+    private record LatencyKey(String kind, String name, String detail) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.spring_aop_logback.mock;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response delay of the mock external service, parsed from a {@code <kind>:<arguments>} spec:
+ * <ul>
+ *     <li>{@code fixed:20ms} — always 20ms.</li>
+ *     <li>{@code uniform:5ms..50ms} — evenly spread between the two bounds.</li>
+ *     <li>{@code exponential:20ms} — exponential with a 20ms mean (many fast answers, a long thin tail).</li>
+ *     <li>{@code lognormal:20ms,0.8} — log-normal with a 20ms median and shape (sigma) 0.8; closest to what
+ *     real services look like.</li>
+ * </ul>
+ * Every sample is capped at {@code maxNanos} so a heavy tail cannot hit the client's response timeout by accident.
+ */
+public final class LatencyDistribution {
+
+    private enum Kind {FIXED, UNIFORM, EXPONENTIAL, LOGNORMAL}
+
+    private final Kind kind;
+    private final long firstNanos;
+    private final long secondNanos;
+    private final double sigma;
+    private final long maxNanos;
+    private final String spec;
+
+    private LatencyDistribution(Kind kind, long firstNanos, long secondNanos, double sigma, long maxNanos, String spec) {
+        this.kind = kind;
+        this.firstNanos = firstNanos;
+        this.secondNanos = secondNanos;
+        this.sigma = sigma;
+        this.maxNanos = maxNanos;
+        this.spec = spec;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown kind or malformed arguments.
+     */
+    public static LatencyDistribution parse(String spec, long maxNanos) {
+        String trimmed = spec.trim();
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Latency spec must be <kind>:<arguments>: " + spec);
+        }
+        String arguments = trimmed.substring(colon + 1);
+        Kind kind;
+        try {
+            kind = Kind.valueOf(trimmed.substring(0, colon).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown latency distribution in: " + spec);
+        }
+        return switch (kind) {
+            case FIXED, EXPONENTIAL -> new LatencyDistribution(kind, nanos(arguments), 0, 0, maxNanos, trimmed);
+            case UNIFORM -> {
+                String[] bounds = arguments.split("\\.\\.", 2);
+                if (bounds.length != 2) {
+                    throw new IllegalArgumentException("Uniform latency needs <min>..<max>: " + spec);
+                }
+                long min = nanos(bounds[0]);
+                long max = nanos(bounds[1]);
+                if (max < min) {
+                    throw new IllegalArgumentException("Uniform latency bounds are reversed: " + spec);
+                }
+                yield new LatencyDistribution(kind, min, max, 0, maxNanos, trimmed);
+            }
+            case LOGNORMAL -> {
+                String[] parts = arguments.split(",", 2);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Log-normal latency needs <median>,<sigma>: " + spec);
+                }
+                yield new LatencyDistribution(kind, nanos(parts[0]), 0, Double.parseDouble(parts[1].trim()), maxNanos, trimmed);
+            }
+        };
+    }
+
+    private static long nanos(String duration) {
+        return DurationStyle.detectAndParse(duration.trim()).toNanos();
+    }
+
+    /**
+     * Draws one delay in nanoseconds.
+     */
+    public long sampleNanos() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long sample = switch (kind) {
+            case FIXED -> firstNanos;
+            case UNIFORM -> firstNanos == secondNanos ? firstNanos : random.nextLong(firstNanos, secondNanos + 1);
+            case EXPONENTIAL -> (long) (-Math.log(1.0 - random.nextDouble()) * firstNanos);
+            case LOGNORMAL -> (long) (firstNanos * Math.exp(sigma * random.nextGaussian()));
+        };
+        return Math.min(Math.max(0, sample), maxNanos);
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.spring_aop_logback.mock;
+
+import com.example.spring_aop_logback.dto.UceRequest;
+import com.example.spring_aop_logback.dto.UceResponse;
+import com.example.spring_aop_logback.dto.WelcomeRequest;
+import com.example.spring_aop_logback.dto.WelcomeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the external service of {@code api-specs.txt} (WELCOME and UCE on port 8082), for local
+ * runs and load tests without the real dependency. Enabled with {@code mock.external.enabled=true}.
+ * <p>
+ * Latency, error rate and payload size are configured per service through {@link MockServiceProfile}. The delay is
+ * not slept on a request thread: the answer is computed right away and written by a scheduler once the sampled
+ * latency has elapsed, so a few threads serve any number of concurrent slow calls and the mock itself does not
+ * become the bottleneck being measured. A service with a {@code capacity} serves only that many requests at a time
+ * and queues the rest, whether or not their callers are still waiting, as an overloaded server does.
+ */
+@Component
+@ConditionalOnProperty(name = "mock.external.enabled", havingValue = "true")
+public class MockExternalService implements InitializingBean, DisposableBean {
+
+    private static final String BASE_PATH = "/api/external";
+    private static final String WELCOME_PATH = BASE_PATH + "/welcome";
+    private static final String ENTITLEMENT_CHECK_PATH = BASE_PATH + "/entitlementCheck";
+    private static final String JSON = "application/json";
+    private static final String TEXT = "text/plain;charset=UTF-8";
+    private static final byte[] INJECTED_FAILURE = "{\"error\":\"Injected failure\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mock.external.port:8082}")
+    private int port;
+
+    @Value("${mock.external.threads:4}")
+    private int threads;
+
+    @Value("${mock.external.entitled-cards:C-12345}")
+    private Set<String> entitledCards;
+
+    private MockServiceProfile welcomeProfile;
+    private MockServiceProfile uceProfile;
+    private Station welcomeStation;
+    private Station uceStation;
+    private String welcomePadding;
+    private String ucePadding;
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ScheduledExecutorService responders;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        welcomeProfile = MockServiceProfile.resolve(environment, "welcome");
+        uceProfile = MockServiceProfile.resolve(environment, "uce");
+        welcomePadding = padding(welcomeProfile.payloadBytes());
+        ucePadding = padding(uceProfile.payloadBytes());
+        welcomeStation = new Station(welcomeProfile.capacity());
+        uceStation = new Station(uceProfile.capacity());
+
+        handlers = Executors.newFixedThreadPool(threads, daemonThreads("mock-external-handler-"));
+        responders = Executors.newScheduledThreadPool(threads, daemonThreads("mock-external-responder-"));
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(handlers);
+        server.createContext(WELCOME_PATH, exchange -> handle(exchange, welcomeProfile, welcomeStation));
+        server.createContext(ENTITLEMENT_CHECK_PATH, exchange -> handle(exchange, uceProfile, uceStation));
+        server.start();
+        log.info("Mock external service listening on port {}: welcome {}, uce {}",
+                server.getAddress().getPort(), welcomeProfile, uceProfile);
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (responders != null) {
+            responders.shutdownNow();
+        }
+        if (handlers != null) {
+            handlers.shutdownNow();
+        }
+    }
+
+    /**
+     * The port actually bound; differs from {@code mock.external.port} only when that is 0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrors.sum();
+    }
+
+    private void handle(HttpExchange exchange, MockServiceProfile profile, Station station) {
+        requests.increment();
+        int status;
+        String contentType;
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] requestBody = in.readAllBytes();
+            if (ThreadLocalRandom.current().nextDouble() < profile.errorRate()) {
+                injectedErrors.increment();
+                status = 500;
+                contentType = JSON;
+                body = INJECTED_FAILURE;
+            } else {
+                status = 200;
+                contentType = WELCOME_PATH.equals(exchange.getRequestURI().getPath())
+                        && "GET".equals(exchange.getRequestMethod()) ? TEXT : JSON;
+                body = answer(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), requestBody);
+                if (body == null) {
+                    status = 404;
+                    body = new byte[0];
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            status = 400;
+            contentType = TEXT;
+            body = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+        }
+        int finalStatus = status;
+        String finalContentType = contentType;
+        byte[] finalBody = body;
+        station.enter(() -> responders.schedule(() -> {
+            respond(exchange, finalStatus, finalContentType, finalBody);
+            station.leave();
+        }, profile.latency().sampleNanos(), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * The body of a successful answer, or null for an unknown path.
+     */
+    private byte[] answer(String method, String path, byte[] requestBody) throws IOException {
+        if (WELCOME_PATH.equals(path)) {
+            if ("GET".equals(method)) {
+                return ("Welcome from the external service!" + welcomePadding).getBytes(StandardCharsets.UTF_8);
+            }
+            WelcomeRequest request = objectMapper.readValue(requestBody, WelcomeRequest.class);
+            return objectMapper.writeValueAsBytes(new WelcomeResponse(UUID.randomUUID().toString(),
+                    "Processed message from " + request.userName() + ": " + request.message() + welcomePadding));
+        }
+        if (ENTITLEMENT_CHECK_PATH.equals(path)) {
+            return objectMapper.writeValueAsBytes(entitlement(objectMapper.readValue(requestBody, UceRequest.class)));
+        }
+        return null;
+    }
+
+    private UceResponse entitlement(UceRequest request) {
+        boolean entitled = entitledCards.contains(request.cardId());
+        return new UceResponse(entitled,
+                "Card ID " + request.cardId() + (entitled ? " is entitled." : " is not entitled.") + ucePadding);
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, byte[] body) {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                exchange.getResponseBody().write(body);
+            }
+        } catch (IOException e) {
+            log.debug("Mock external service could not answer {}", exchange.getRequestURI(), e);
+        }
+    }
+
+    /**
+     * Filler of {@code payloadBytes} characters appended to the text field of every answer; built once.
+     */
+    private static String padding(int payloadBytes) {
+        if (payloadBytes <= 0) {
+            return "";
+        }
+        StringBuilder padding = new StringBuilder(payloadBytes).append(' ');
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (padding.length() < payloadBytes) {
+            padding.append((char) ('a' + random.nextInt(26)));
+        }
+        return padding.toString();
+    }
+
+    /**
+     * Admits at most {@code capacity} requests into service and queues the others in arrival order.
+     */
+    private static final class Station {
+        private final int capacity;
+        private final Deque<Runnable> waiting = new ArrayDeque<>();
+        private int busy;
+
+        Station(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void enter(Runnable service) {
+            synchronized (this) {
+                if (capacity > 0 && busy >= capacity) {
+                    waiting.add(service);
+                    return;
+                }
+                busy++;
+            }
+            service.run();
+        }
+
+        void leave() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    busy--;
+                    return;
+                }
+            }
+            next.run();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
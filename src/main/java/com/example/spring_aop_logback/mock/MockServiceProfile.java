@@ -0,0 +1,40 @@
+package com.example.spring_aop_logback.mock;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Behaviour of one mocked downstream service, read from {@code mock.external.<service>.*} with
+ * {@code mock.external.*} as the fallback for every setting.
+ *
+ * @param latency      delay before the answer is sent.
+ * @param errorRate    share of requests (0..1) answered with HTTP 500 instead.
+ * @param payloadBytes filler characters appended to the text field of every answer, to model large payloads.
+ * @param capacity     requests in service at once; further requests wait in a queue, so latency grows with load
+ *                     like on a saturated server. 0 serves every request at once.
+ */
+public record MockServiceProfile(LatencyDistribution latency, double errorRate, int payloadBytes, int capacity) {
+
+    private static final String PREFIX = "mock.external.";
+
+    public static MockServiceProfile resolve(Environment environment, String service) {
+        String prefix = PREFIX + service.toLowerCase(Locale.ROOT) + ".";
+        long maxNanos = property(environment, prefix, "max-latency", Duration.class, Duration.ofSeconds(2)).toNanos();
+        double errorRate = property(environment, prefix, "error-rate", Double.class, 0.0);
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("mock.external error-rate of " + service + " must be within [0, 1]");
+        }
+        return new MockServiceProfile(
+                LatencyDistribution.parse(property(environment, prefix, "latency", String.class, "fixed:0ms"), maxNanos),
+                errorRate,
+                property(environment, prefix, "payload-bytes", Integer.class, 0),
+                property(environment, prefix, "capacity", Integer.class, 0));
+    }
+
+    private static <T> T property(Environment environment, String prefix, String key, Class<T> type, T defaultValue) {
+        T value = environment.getProperty(prefix + key, type);
+        return value != null ? value : environment.getProperty(PREFIX + key, type, defaultValue);
+    }
+}
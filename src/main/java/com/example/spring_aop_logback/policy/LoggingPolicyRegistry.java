@@ -0,0 +1,158 @@
+package com.example.spring_aop_logback.policy;
+
+import ch.qos.logback.classic.Level;
+import com.example.spring_aop_logback.aspect.AdvicePlanRegistry;
+import com.example.spring_aop_logback.dto.LoggingPolicy;
+import com.example.spring_aop_logback.dto.LoggingPolicyOverride;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds the runtime logging policy overrides set through {@code /admin/logging-policy} and publishes them as a
+ * new {@link PolicySnapshot} on every change. Writes are rare and synchronized; reads never touch this class.
+ * <p>
+ * A URI override beats a SERVICE override, which beats the DEFAULT override, which beats the configuration
+ * ({@code app.logging.tail-sampling.*}, {@code <service>.body-capture.*} and the logger levels).
+ */
+@Component
+public class LoggingPolicyRegistry implements InitializingBean {
+
+    private static final String DEFAULT_TARGET = "*";
+    private static final LoggingPolicy EMPTY = new LoggingPolicy(null, null, null, null, null);
+
+    @Autowired
+    private AdvicePlanRegistry advicePlanRegistry;
+
+    @Value("${app.logging.tail-sampling.slow-threshold-ms:1000}")
+    private long slowThresholdMillis;
+
+    @Value("${app.logging.tail-sampling.sample-rate:0.05}")
+    private double sampleRate;
+
+    private final Map<String, LoggingPolicy> uriOverrides = new LinkedHashMap<>();
+    private final Map<String, LoggingPolicy> serviceOverrides = new LinkedHashMap<>();
+    private LoggingPolicy defaultOverride;
+
+    @Override
+    public void afterPropertiesSet() {
+        publish();
+    }
+
+    /**
+     * Sets (replaces) the override of one target; DEFAULT ignores the target.
+     *
+     * @throws IllegalArgumentException for an unknown target, an invalid value or a setting the scope does not have.
+     */
+    public synchronized void put(PolicyScope scope, String target, LoggingPolicy policy) {
+        validate(scope, policy);
+        switch (scope) {
+            case DEFAULT -> defaultOverride = policy;
+            case URI -> uriOverrides.put(knownTarget(advicePlanRegistry.uris(), target), policy);
+            case SERVICE -> serviceOverrides.put(knownTarget(advicePlanRegistry.services(), normalizeService(target)), policy);
+        }
+        publish();
+    }
+
+    public synchronized void remove(PolicyScope scope, String target) {
+        switch (scope) {
+            case DEFAULT -> defaultOverride = null;
+            case URI -> uriOverrides.remove(target);
+            case SERVICE -> serviceOverrides.remove(normalizeService(target));
+        }
+        publish();
+    }
+
+    public synchronized List<LoggingPolicyOverride> overrides() {
+        List<LoggingPolicyOverride> overrides = new ArrayList<>();
+        if (defaultOverride != null) {
+            overrides.add(new LoggingPolicyOverride(PolicyScope.DEFAULT.name(), DEFAULT_TARGET, defaultOverride));
+        }
+        uriOverrides.forEach((uri, policy) -> overrides.add(new LoggingPolicyOverride(PolicyScope.URI.name(), uri, policy)));
+        serviceOverrides.forEach((service, policy) -> overrides.add(new LoggingPolicyOverride(PolicyScope.SERVICE.name(), service, policy)));
+        return overrides;
+    }
+
+    private void publish() {
+        LoggingPolicy fallback = defaultOverride != null ? defaultOverride : EMPTY;
+        List<String> uris = advicePlanRegistry.uris();
+        PolicySnapshot.RequestPolicy[] requests = new PolicySnapshot.RequestPolicy[uris.size() + 1];
+        requests[0] = requestPolicy(null, fallback);
+        for (int slot = 0; slot < uris.size(); slot++) {
+            requests[slot + 1] = requestPolicy(uriOverrides.get(uris.get(slot)), fallback);
+        }
+        List<String> services = advicePlanRegistry.services();
+        PolicySnapshot.ServicePolicy[] servicePolicies = new PolicySnapshot.ServicePolicy[services.size()];
+        for (int slot = 0; slot < services.size(); slot++) {
+            servicePolicies[slot] = servicePolicy(serviceOverrides.get(services.get(slot)), fallback);
+        }
+        PolicySnapshot.publish(new PolicySnapshot(requests, servicePolicy(null, fallback), servicePolicies));
+    }
+
+    private PolicySnapshot.RequestPolicy requestPolicy(LoggingPolicy uri, LoggingPolicy fallback) {
+        LoggingPolicy own = uri != null ? uri : EMPTY;
+        return new PolicySnapshot.RequestPolicy(
+                levelThreshold(own.level() != null ? own.level() : fallback.level()),
+                first(own.traceSampleRate(), fallback.traceSampleRate(), sampleRate),
+                first(own.slowThresholdMillis(), fallback.slowThresholdMillis(), slowThresholdMillis),
+                own.bodyCapture());
+    }
+
+    private static PolicySnapshot.ServicePolicy servicePolicy(LoggingPolicy service, LoggingPolicy fallback) {
+        LoggingPolicy own = service != null ? service : EMPTY;
+        return new PolicySnapshot.ServicePolicy(
+                levelThreshold(own.level() != null ? own.level() : fallback.level()),
+                first(own.bodyCaptureSampleRate(), fallback.bodyCaptureSampleRate(), Double.NaN),
+                first(own.bodyCapture(), fallback.bodyCapture(), true),
+                own.slowThresholdMillis() != null ? own.slowThresholdMillis() : 0);
+    }
+
+    private static <T> T first(T own, T inherited, T configured) {
+        return own != null ? own : inherited != null ? inherited : configured;
+    }
+
+    private static int levelThreshold(String level) {
+        return level == null ? PolicySnapshot.INHERIT_LEVEL : Level.toLevel(level).levelInt;
+    }
+
+    private static void validate(PolicyScope scope, LoggingPolicy policy) {
+        if (policy.level() != null && Level.toLevel(policy.level(), null) == null) {
+            throw new IllegalArgumentException("Unknown level: " + policy.level());
+        }
+        validateRate("traceSampleRate", policy.traceSampleRate(), scope != PolicyScope.SERVICE);
+        validateRate("bodyCaptureSampleRate", policy.bodyCaptureSampleRate(), scope != PolicyScope.URI);
+        if (policy.slowThresholdMillis() != null && policy.slowThresholdMillis() < 0) {
+            throw new IllegalArgumentException("slowThresholdMillis must not be negative");
+        }
+    }
+
+    private static void validateRate(String name, Double rate, boolean applies) {
+        if (rate == null) {
+            return;
+        }
+        if (!applies) {
+            throw new IllegalArgumentException(name + " does not apply to this scope");
+        }
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1");
+        }
+    }
+
+    private static String knownTarget(List<String> targets, String target) {
+        if (target == null || !targets.contains(target)) {
+            throw new IllegalArgumentException("Unknown target '" + target + "', expected one of " + targets);
+        }
+        return target;
+    }
+
+    private static String normalizeService(String target) {
+        return target == null ? null : target.toUpperCase(Locale.ROOT);
+    }
+}
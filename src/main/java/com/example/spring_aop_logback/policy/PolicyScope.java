@@ -0,0 +1,13 @@
+package com.example.spring_aop_logback.policy;
+
+/**
+ * What a runtime logging policy override applies to.
+ */
+public enum PolicyScope {
+    /** Every request and every external call, unless a URI or SERVICE override says otherwise. */
+    DEFAULT,
+    /** Requests to one controller mapping, e.g. {@code /createDelegate}, and every line they log. */
+    URI,
+    /** External calls to one downstream service, e.g. {@code UCE}. */
+    SERVICE
+}
@@ -0,0 +1,93 @@
+package com.example.spring_aop_logback.policy;
+
+import ch.qos.logback.classic.Level;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The runtime logging policy, fully resolved for every URI and service, published through a single volatile
+ * reference. Readers on the hot path (the aspects, LogUtil and the MDC bridge turbo filter) take
+ * {@link #current()} once and index into plain arrays by the policy slot of their {@code AdvicePlan} or
+ * {@code LogContext}: no map lookups, no locking. {@link LoggingPolicyRegistry} builds a new snapshot on every
+ * change and swaps it in.
+ */
+public final class PolicySnapshot {
+
+    /**
+     * Level threshold meaning "no override": the logger configuration decides.
+     */
+    public static final int INHERIT_LEVEL = Integer.MIN_VALUE;
+
+    private static volatile PolicySnapshot current = new PolicySnapshot(
+            new RequestPolicy[]{new RequestPolicy(INHERIT_LEVEL, 0.05, 1000, null)},
+            new ServicePolicy(INHERIT_LEVEL, Double.NaN, true, 0),
+            new ServicePolicy[0]);
+
+    /** [0] is the policy of requests without a URI slot, [slot + 1] the one of each URI. */
+    private final RequestPolicy[] requests;
+    private final ServicePolicy defaultService;
+    private final ServicePolicy[] services;
+
+    PolicySnapshot(RequestPolicy[] requests, ServicePolicy defaultService, ServicePolicy[] services) {
+        this.requests = requests;
+        this.defaultService = defaultService;
+        this.services = services;
+    }
+
+    public static PolicySnapshot current() {
+        return current;
+    }
+
+    static void publish(PolicySnapshot snapshot) {
+        current = snapshot;
+    }
+
+    /**
+     * The policy of the request with the given URI slot; -1 (or a slot unknown to this snapshot) gives the default.
+     */
+    public RequestPolicy request(int slot) {
+        int index = slot + 1;
+        return index > 0 && index < requests.length ? requests[index] : requests[0];
+    }
+
+    /**
+     * The policy of the calls to the service with the given slot; -1 gives the default.
+     */
+    public ServicePolicy service(int slot) {
+        return slot >= 0 && slot < services.length ? services[slot] : defaultService;
+    }
+
+    /**
+     * Resolved policy of one URI.
+     *
+     * @param levelThreshold      logback level int below which the request's lines are dropped, or {@link #INHERIT_LEVEL}.
+     * @param traceSampleRate     tail-sampling keep ratio.
+     * @param slowThresholdMillis requests at least this slow are kept.
+     * @param bodyCapture         body capture forced on/off for the request's external calls, or null.
+     */
+    public record RequestPolicy(int levelThreshold, double traceSampleRate, long slowThresholdMillis, Boolean bodyCapture) {
+
+        public boolean keep(long executionMillis) {
+            return executionMillis >= slowThresholdMillis || ThreadLocalRandom.current().nextDouble() < traceSampleRate;
+        }
+    }
+
+    /**
+     * Resolved policy of one downstream service.
+     *
+     * @param levelThreshold      logback level int below which the call lines are dropped, or {@link #INHERIT_LEVEL}.
+     * @param captureSampleRate   share of calls whose bodies are captured, or NaN for the service's capture policy.
+     * @param bodyCapture         whether bodies are captured at all.
+     * @param slowThresholdMillis calls at least this slow keep the caller's trace; 0 disables it.
+     */
+    public record ServicePolicy(int levelThreshold, double captureSampleRate, boolean bodyCapture, long slowThresholdMillis) {
+
+        public boolean logs(Level level) {
+            return levelThreshold == INHERIT_LEVEL || level.levelInt >= levelThreshold;
+        }
+
+        public boolean isSlow(long executionMillis) {
+            return slowThresholdMillis > 0 && executionMillis >= slowThresholdMillis;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.spring_aop_logback.resilience;
+
+import com.example.spring_aop_logback.dto.ConcurrencyLimitStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the calls in flight to one downstream service to a limit learned from their latency, in the manner of
+ * the Vegas and gradient algorithms: every answered call compares its round-trip time with the service's no-load
+ * latency, the shortest one seen. While calls are no slower than {@code tolerance} times that, the limit grows by
+ * about its square root (room for a small queue); once they are, it shrinks in proportion, down to half per step.
+ * Timeouts, connection failures and 429/503 answers cut it by {@code backoffRatio}. Calls beyond the limit are
+ * refused at once with 503 instead of waiting for a pool slot, so a degraded service costs fast failures rather
+ * than a pile-up of waiting requests.
+ * <p>
+ * The no-load latency is not an average of recent calls: under overload every call is slow and such an average
+ * would follow the queue up. It is only re-learned when, over {@code window} calls, the limit fell to its minimum
+ * and still no call was within tolerance: then the service itself got slower. The limit starts at the policy's
+ * initial limit, by default the service's connection pool size, and moves from there as calls are observed.
+ * Calls sampled while fewer than half of the allowed calls were in flight leave the limit alone: the service
+ * was not the bottleneck then, so they say nothing about the right limit.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final String serviceName;
+    private final LimiterPolicy policy;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile double limit;
+    private volatile long lastRttNanos;
+    private long noLoadRttNanos = Long.MAX_VALUE;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private boolean windowHitMinLimit;
+
+    public AdaptiveConcurrencyLimiter(String serviceName, LimiterPolicy policy) {
+        this.serviceName = serviceName;
+        this.policy = policy;
+        this.limit = Math.max(policy.minLimit(), Math.min(policy.maxLimit(), policy.initialLimit()));
+    }
+
+    public boolean isEnabled() {
+        return policy.enabled();
+    }
+
+    /**
+     * A permit for one call, or null when the limit is reached; the permit must be completed exactly once.
+     */
+    public Permit tryAcquire() {
+        for (; ; ) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return new Permit(System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * The error a refused call fails with.
+     */
+    public ResponseStatusException rejection() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Concurrency limit of " + (int) limit + " reached for " + serviceName);
+    }
+
+    public ConcurrencyLimitStats stats() {
+        long noLoadRtt;
+        synchronized (this) {
+            noLoadRtt = noLoadRttNanos == Long.MAX_VALUE ? 0 : noLoadRttNanos;
+        }
+        return new ConcurrencyLimitStats(serviceName, policy.enabled(), (int) limit, inFlight.get(), accepted.sum(),
+                rejected.sum(), dropped.sum(), lastRttNanos / 1_000_000.0, noLoadRtt / 1_000_000.0);
+    }
+
+    private synchronized void sample(long rttNanos, int inFlightAtSample) {
+        lastRttNanos = rttNanos;
+        noLoadRttNanos = Math.min(noLoadRttNanos, rttNanos);
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        if (++windowSamples == policy.window()) {
+            if (windowHitMinLimit && windowMinRttNanos > policy.tolerance() * noLoadRttNanos) {
+                noLoadRttNanos = windowMinRttNanos;
+            }
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+            windowHitMinLimit = false;
+        }
+        double current = limit;
+        if (inFlightAtSample < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, policy.tolerance() * noLoadRttNanos / Math.max(1, rttNanos)));
+        double estimate = current * gradient + Math.sqrt(current);
+        limit = clamp(current * (1 - policy.smoothing()) + estimate * policy.smoothing());
+    }
+
+    private synchronized void backOff() {
+        limit = clamp(limit * policy.backoffRatio());
+    }
+
+    private double clamp(double value) {
+        if (value <= policy.minLimit()) {
+            windowHitMinLimit = true;
+            return policy.minLimit();
+        }
+        return Math.min(policy.maxLimit(), value);
+    }
+
+    /**
+     * One admitted call. Completing it more than once has no effect, so it can be completed from racing signals.
+     */
+    public final class Permit {
+        private final long startNanos;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * The service answered with {@code statusCode}: 429 and 503 count as overload, anything else is a sample.
+         */
+        public void answered(int statusCode) {
+            if (statusCode == HttpStatus.TOO_MANY_REQUESTS.value() || statusCode == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                failed();
+                return;
+            }
+            if (completed.compareAndSet(false, true)) {
+                int inFlightAtSample = inFlight.getAndDecrement();
+                sample(System.nanoTime() - startNanos, inFlightAtSample);
+            }
+        }
+
+        /**
+         * The call got no answer: a timeout, a connection failure or an exhausted connection pool.
+         */
+        public void failed() {
+            if (completed.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                dropped.increment();
+                backOff();
+            }
+        }
+
+        /**
+         * The caller gave up (cancelled) before its deadline; says nothing about the service.
+         */
+        public void abandoned() {
+            if (completed.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
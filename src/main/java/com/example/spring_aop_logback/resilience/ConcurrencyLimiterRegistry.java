@@ -0,0 +1,42 @@
+package com.example.spring_aop_logback.resilience;
+
+import com.example.spring_aop_logback.dto.ConcurrencyLimitStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link AdaptiveConcurrencyLimiter} per downstream service, shared by the service's WebClient and RestClient
+ * (see WebClientConfig and RestClientConfig), so reactive and blocking calls count against the same limit.
+ */
+@Component
+public class ConcurrencyLimiterRegistry {
+
+    @Autowired
+    private Environment environment;
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * The limiter of {@code service} (e.g. "uce"), created with its {@link LimiterPolicy} on first use.
+     */
+    public AdaptiveConcurrencyLimiter limiter(String service) {
+        String serviceName = service.toUpperCase(Locale.ROOT);
+        return limiters.computeIfAbsent(serviceName,
+                name -> new AdaptiveConcurrencyLimiter(name, LimiterPolicy.resolve(environment, service)));
+    }
+
+    public List<ConcurrencyLimitStats> stats() {
+        List<ConcurrencyLimitStats> stats = new ArrayList<>();
+        limiters.values().forEach(limiter -> stats.add(limiter.stats()));
+        stats.sort(Comparator.comparing(ConcurrencyLimitStats::service));
+        return stats;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.spring_aop_logback.resilience;
+
+/**
+ * Which attempt of a hedged call answered, once a second attempt was sent; logged as the HEDGE field of the
+ * external call line. Calls answered before the hedge delay have no outcome.
+ */
+public enum HedgeOutcome {
+    /** The first request answered first; the hedge was cancelled. */
+    PRIMARY_WON,
+    /** The second request answered first; the first was cancelled. */
+    HEDGE_WON,
+    /** Neither request succeeded. */
+    BOTH_FAILED
+}
@@ -0,0 +1,37 @@
+package com.example.spring_aop_logback.resilience;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Hedging settings of one downstream service, read from {@code <service>.hedging.*}; they apply to the client
+ * methods annotated with {@code @Hedged}.
+ *
+ * @param enabled    hedge at all; false sends every call once.
+ * @param percentile the hedge is sent once a call has been running longer than this percentile of the method's
+ *                   recent latencies.
+ * @param minDelay   lower bound of the hedge delay, so a fast, steady service is not called twice on a hiccup.
+ * @param maxDelay   upper bound of the hedge delay; also the delay until {@code window} calls have been seen.
+ * @param window     number of calls the percentile is computed over; it is recomputed after each window.
+ * @param maxRatio   hedges allowed per call, as a budget: each call earns {@code maxRatio} of a hedge, so the extra
+ *                   load stays below this fraction even when the whole service slows down.
+ */
+public record HedgePolicy(boolean enabled, double percentile, Duration minDelay, Duration maxDelay, int window,
+                          double maxRatio) {
+
+    /**
+     * Resolves the policy of {@code service} (e.g. "welcome"); every setting has a default.
+     */
+    public static HedgePolicy resolve(Environment environment, String service) {
+        String prefix = service.toLowerCase(Locale.ROOT) + ".hedging.";
+        return new HedgePolicy(
+                environment.getProperty(prefix + "enabled", Boolean.class, true),
+                environment.getProperty(prefix + "percentile", Double.class, 95.0),
+                environment.getProperty(prefix + "min-delay", Duration.class, Duration.ofMillis(5)),
+                environment.getProperty(prefix + "max-delay", Duration.class, Duration.ofSeconds(1)),
+                environment.getProperty(prefix + "window", Integer.class, 200),
+                environment.getProperty(prefix + "max-ratio", Double.class, 0.1));
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.spring_aop_logback.resilience;
+
+import com.example.spring_aop_logback.context.ExternalCallAttributes;
+import com.example.spring_aop_logback.dto.HedgingStats;
+import com.example.spring_aop_logback.metrics.LatencyHistogram;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedges the calls of one {@code @Hedged} client method: a call that has not answered within the hedge delay is
+ * subscribed a second time, i.e. the request is sent again, the first answer wins and the other attempt is
+ * cancelled. A failure of the first attempt before the hedge is sent is passed on as is; once both are running
+ * the call only fails if both do.
+ * <p>
+ * The delay is the configured percentile of the method's own latencies over the last {@code window} calls, so it
+ * follows the service; attempts cancelled as losers are counted with the time they had run, which keeps a slow
+ * spell from hiding behind the hedges. Hedges are paid from a budget that every call adds {@code maxRatio} to.
+ */
+public final class Hedger {
+
+    private static final long HEDGE_COST = 1_000_000;
+    private static final long MAX_BUDGET = 10 * HEDGE_COST;
+
+    private final String serviceName;
+    private final String methodName;
+    private final HedgePolicy policy;
+    private final long earnedPerCall;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong recordedSinceRefresh = new AtomicLong();
+    private final AtomicLong budget = new AtomicLong(MAX_BUDGET);
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetDenied = new LongAdder();
+    private volatile long delayNanos;
+
+    public Hedger(String serviceName, String methodName, HedgePolicy policy) {
+        this.serviceName = serviceName;
+        this.methodName = methodName;
+        this.policy = policy;
+        this.earnedPerCall = (long) (policy.maxRatio() * HEDGE_COST);
+        this.minDelayNanos = policy.minDelay().toNanos();
+        this.maxDelayNanos = Math.max(minDelayNanos, policy.maxDelay().toNanos());
+        this.delayNanos = maxDelayNanos;
+    }
+
+    /**
+     * {@code call} hedged; {@code call} must be cold (every subscription sends the request) and idempotent.
+     * The outcome is recorded on the call's {@link ExternalCallAttributes} when a hedge was sent.
+     */
+    public <T> Mono<T> hedge(Mono<T> call) {
+        if (!policy.enabled()) {
+            return call;
+        }
+        return Mono.create(sink -> {
+            calls.increment();
+            budget.accumulateAndGet(earnedPerCall, (current, earned) -> Math.min(MAX_BUDGET, current + earned));
+            new Race<>(sink, call).start();
+        });
+    }
+
+    public HedgingStats stats() {
+        return new HedgingStats(serviceName, methodName, policy.enabled(), calls.sum(), hedges.sum(),
+                hedgeWins.sum(), budgetDenied.sum(), delayNanos / 1_000_000.0);
+    }
+
+    private boolean spendBudget() {
+        long current = budget.get();
+        while (current >= HEDGE_COST) {
+            if (budget.compareAndSet(current, current - HEDGE_COST)) {
+                return true;
+            }
+            current = budget.get();
+        }
+        return false;
+    }
+
+    private void record(long nanos) {
+        latencies.record(nanos);
+        long recorded = recordedSinceRefresh.incrementAndGet();
+        if (recorded == policy.window()) {
+            long percentile = latencies.intervalSnapshot().valueAtPercentile(policy.percentile());
+            delayNanos = Math.min(maxDelayNanos, Math.max(minDelayNanos, percentile));
+            recordedSinceRefresh.addAndGet(-recorded);
+        }
+    }
+
+    /**
+     * The state of one hedged call. Attempt 0 is the original request, attempt 1 the hedge.
+     */
+    private final class Race<T> {
+        private final MonoSink<T> sink;
+        private final Mono<T> call;
+        private final Disposable.Composite subscriptions = Disposables.composite();
+        private final long[] startNanos = new long[2];
+        private final boolean[] failed = new boolean[2];
+        private int running;
+        private boolean hedgeSent;
+        private boolean done;
+
+        private Race(MonoSink<T> sink, Mono<T> call) {
+            this.sink = sink;
+            this.call = call;
+        }
+
+        void start() {
+            // Disposed when the call completes, fails or is cancelled: cancels the pending timer and the loser.
+            sink.onDispose(subscriptions);
+            synchronized (this) {
+                running = 1;
+                startNanos[0] = System.nanoTime();
+            }
+            send(0);
+            subscriptions.add(Mono.delay(Duration.ofNanos(delayNanos)).subscribe(ignored -> sendHedge()));
+        }
+
+        /**
+         * Subscribes an attempt already counted in {@code running}.
+         */
+        private void send(int attempt) {
+            subscriptions.add(call.contextWrite(sink.contextView()).subscribe(
+                    value -> answered(attempt, value),
+                    error -> failed(attempt, error),
+                    () -> answered(attempt, null)));
+        }
+
+        private void sendHedge() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (!spendBudget()) {
+                    budgetDenied.increment();
+                    return;
+                }
+                // Counted before the lock is released: a failure of attempt 0 in between must wait for the hedge.
+                hedgeSent = true;
+                running++;
+                startNanos[1] = System.nanoTime();
+            }
+            hedges.increment();
+            send(1);
+        }
+
+        private void answered(int attempt, T value) {
+            long now = System.nanoTime();
+            boolean hedged;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                hedged = hedgeSent;
+                record(now - startNanos[attempt]);
+                if (hedged && !failed[1 - attempt]) {
+                    record(now - startNanos[1 - attempt]);
+                }
+            }
+            if (hedged) {
+                if (attempt == 1) {
+                    hedgeWins.increment();
+                }
+                ExternalCallAttributes.recordHedgeOutcome(sink.contextView(),
+                        attempt == 0 ? HedgeOutcome.PRIMARY_WON : HedgeOutcome.HEDGE_WON);
+            }
+            if (value == null) {
+                sink.success();
+            } else {
+                sink.success(value);
+            }
+        }
+
+        private void failed(int attempt, Throwable error) {
+            boolean hedged;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                failed[attempt] = true;
+                running--;
+                if (hedgeSent && running > 0) {
+                    // The other attempt may still answer.
+                    return;
+                }
+                done = true;
+                hedged = hedgeSent;
+            }
+            if (hedged) {
+                ExternalCallAttributes.recordHedgeOutcome(sink.contextView(), HedgeOutcome.BOTH_FAILED);
+            }
+            sink.error(error);
+        }
+    }
+}
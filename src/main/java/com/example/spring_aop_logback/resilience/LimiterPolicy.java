@@ -0,0 +1,42 @@
+package com.example.spring_aop_logback.resilience;
+
+import com.example.spring_aop_logback.config.ClientProfile;
+import org.springframework.core.env.Environment;
+
+import java.util.Locale;
+
+/**
+ * Concurrency limiter settings of one downstream service, read from {@code <service>.limiter.*}.
+ *
+ * @param enabled      limit the service's in-flight calls at all; off unless configured.
+ * @param initialLimit in-flight calls allowed before any latency has been observed; defaults to the size of the
+ *                     service's connection pool, the concurrency it was given before the limiter.
+ * @param minLimit     the limit never drops below this, so a struggling service still gets probed.
+ * @param maxLimit     the limit never grows beyond this.
+ * @param tolerance    how much slower than the service's no-load latency a call may be before the limit is
+ *                     lowered; 2.0 tolerates latency doubling.
+ * @param smoothing    share (0..1] of each new estimate that goes into the limit; lower reacts more slowly.
+ * @param window       calls after which the no-load latency is re-learned if none of them came near it even
+ *                     with the limit at its minimum.
+ * @param backoffRatio the limit is multiplied by this when a call times out, cannot connect or is answered 429/503.
+ */
+public record LimiterPolicy(boolean enabled, int initialLimit, int minLimit, int maxLimit, double tolerance,
+                            double smoothing, int window, double backoffRatio) {
+
+    /**
+     * Resolves the policy of {@code service} (e.g. "uce"); every setting has a default.
+     */
+    public static LimiterPolicy resolve(Environment environment, String service) {
+        String prefix = service.toLowerCase(Locale.ROOT) + ".limiter.";
+        return new LimiterPolicy(
+                environment.getProperty(prefix + "enabled", Boolean.class, false),
+                environment.getProperty(prefix + "initial-limit", Integer.class,
+                        ClientProfile.resolve(environment, service).maxConnections()),
+                environment.getProperty(prefix + "min-limit", Integer.class, 2),
+                environment.getProperty(prefix + "max-limit", Integer.class, 200),
+                environment.getProperty(prefix + "tolerance", Double.class, 2.0),
+                environment.getProperty(prefix + "smoothing", Double.class, 0.2),
+                environment.getProperty(prefix + "window", Integer.class, 500),
+                environment.getProperty(prefix + "backoff-ratio", Double.class, 0.9));
+    }
+}
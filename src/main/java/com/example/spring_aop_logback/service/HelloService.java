@@ -1,7 +1,5 @@
 package com.example.spring_aop_logback.service;
 
-import com.example.spring_aop_logback.enums.LoggingEnum;
-import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -14,9 +12,19 @@ public class HelloService {
 
     public Mono<String> getHelloMessage(String name) {
         if (name.equalsIgnoreCase("error")) {
-            MDC.put(LoggingEnum.ERROR_DESC.name(), "Invalid name provided: " + name);
-            return Mono.error(new IllegalArgumentException("Invalid name provided"));
+            // The controller advice records the error message as ERROR_DESC of the request.
+            return Mono.error(new IllegalArgumentException("Invalid name provided: " + name));
         }
         return welcomeService.getWelcomeMessage().map(welcomeMsg -> "Hello, " + name + "! " + welcomeMsg);
     }
-}
\ No newline at end of file
+
+    /**
+     * Imperative variant of {@link #getHelloMessage(String)} for the blocking mode.
+     */
+    public String getHelloMessageBlocking(String name) {
+        if (name.equalsIgnoreCase("error")) {
+            throw new IllegalArgumentException("Invalid name provided: " + name);
+        }
+        return "Hello, " + name + "! " + welcomeService.getWelcomeMessageBlocking();
+    }
+}
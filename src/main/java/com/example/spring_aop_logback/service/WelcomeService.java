@@ -19,6 +19,10 @@ public class WelcomeService {
         return welcomeServiceClient.getWelcomeMessage();
     }
 
+    public String getWelcomeMessageBlocking() {
+        return welcomeServiceClient.getWelcomeMessageBlocking();
+    }
+
     /**
      * NEW: Add a method to handle the business logic for the POST call.
      * This method will now be intercepted by your LoggingAspect.
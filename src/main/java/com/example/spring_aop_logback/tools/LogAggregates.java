@@ -0,0 +1,403 @@
+package com.example.spring_aop_logback.tools;
+
+import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import com.example.spring_aop_logback.metrics.LatencyHistogram;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link LogAnalytics} counts over a part of the input: request summaries by URI, external calls by
+ * SERVICE_NAME and by HTTP_STATUS, each with count, errors and a latency histogram, and the slowest requests by
+ * correlation ID. Each fork/join task fills its own instance; {@link #merge} combines them.
+ * <p>
+ * Tail sampling writes the external call lines of only some requests, while every request has its summary. The
+ * calls by SERVICE_NAME are therefore taken from the summaries' SPANS, where a call is a span named
+ * {@code SERVICE.method} (a failed one, {@code !}, is an error); only HTTP_STATUS comes from the external call lines
+ * (SOURCE=EXTERNAL, errors have an ERROR_DESC), and {@link #calls()} against {@link #loggedCalls()} tells how much of
+ * the traffic those are.
+ * <p>
+ * Group values are looked up by their bytes, so a line only allocates when it brings a value the task has not
+ * seen yet or a request slow enough for the slowest list. Past {@code maxGroups} values per table, further values
+ * are counted under {@link #OTHER}, which keeps raw URIs with path variables from exhausting memory.
+ */
+final class LogAggregates {
+
+    static final String OTHER = "(other)";
+    static final String NONE = "(none)";
+
+    private final int maxGroups;
+    private final int maxSlowest;
+    private final GroupTable byUri;
+    private final GroupTable byService;
+    private final GroupTable byStatus;
+    private final PriorityQueue<SlowRequest> slowest = new PriorityQueue<>(Comparator.comparingLong(SlowRequest::millis));
+    private long lines;
+    private long bytes;
+    private long truncatedLines;
+    private long calls;
+    private long loggedCalls;
+
+    LogAggregates(int maxGroups, int maxSlowest) {
+        this.maxGroups = maxGroups;
+        this.maxSlowest = maxSlowest;
+        this.byUri = new GroupTable(maxGroups);
+        this.byService = new GroupTable(maxGroups);
+        this.byStatus = new GroupTable(maxGroups);
+    }
+
+    /**
+     * Counts one line of {@code length} bytes; {@code parser} holds its fields when {@code structured}.
+     */
+    void add(LogLineParser parser, boolean structured, int length) {
+        lines++;
+        bytes += length;
+        if (!structured) {
+            return;
+        }
+        if (parser.isExternal()) {
+            loggedCalls++;
+            byStatus.group(parser, ExternalLoggingEnum.HTTP_STATUS)
+                    .record(parser.has(ExternalLoggingEnum.ERROR_DESC), nanos(parser.number(ExternalLoggingEnum.EXECUTION_TIME)));
+            return;
+        }
+        long millis = parser.number(LoggingEnum.EXECUTION_TIME);
+        byUri.group(parser, LoggingEnum.URI).record(parser.has(LoggingEnum.ERROR_DESC), nanos(millis));
+        if (parser.has(LoggingEnum.SPANS)) {
+            addCalls(parser);
+        }
+        if (maxSlowest > 0 && millis >= 0 && (slowest.size() < maxSlowest || millis > slowest.peek().millis())) {
+            ByteBuffer buffer = parser.buffer();
+            int timestampEnd = LogLineParser.indexOf(buffer, (byte) '[', parser.lineStart(), parser.correlationIdStart());
+            offer(new SlowRequest(millis,
+                    parser.string(parser.correlationIdStart(), parser.correlationIdEnd()),
+                    parser.string(parser.start(LoggingEnum.URI), parser.end(LoggingEnum.URI)),
+                    parser.has(LoggingEnum.ERROR_DESC),
+                    parser.string(parser.lineStart(), Math.max(parser.lineStart(), timestampEnd - 1))));
+        }
+    }
+
+    /**
+     * Counts the external calls among the SPANS of a summary, e.g.
+     * {@code HelloService.getHelloMessage 12.3ms[WELCOME.getWelcomeMessage 11.8ms!], UCE.checkEntitlement 3.0ms}:
+     * the spans whose name before the dot has no lower case letter, unlike the class names of service spans.
+     */
+    private void addCalls(LogLineParser parser) {
+        ByteBuffer buffer = parser.buffer();
+        int end = parser.end(LoggingEnum.SPANS);
+        int name = parser.start(LoggingEnum.SPANS);
+        // The spans past the capacity of the tree are only counted, as ", +2 more".
+        while (name < end && buffer.get(name) != '+') {
+            int space = LogLineParser.indexOf(buffer, (byte) ' ', name, end);
+            if (space < 0) {
+                return;
+            }
+            long tenths = 0;
+            int i = space + 1;
+            for (; i < end && (buffer.get(i) == '.' || buffer.get(i) >= '0' && buffer.get(i) <= '9'); i++) {
+                if (buffer.get(i) != '.') {
+                    tenths = tenths * 10 + buffer.get(i) - '0';
+                }
+            }
+            i += 2;
+            boolean failed = i < end && buffer.get(i) == '!';
+            int dot = LogLineParser.indexOf(buffer, (byte) '.', name, space);
+            if (dot > name && isServiceName(buffer, name, dot)) {
+                calls++;
+                byService.group(parser, name, dot).record(failed, tenths * 100_000);
+            }
+            while (i < end && (buffer.get(i) == '!' || buffer.get(i) == '+' || buffer.get(i) == ']')) {
+                i++;
+            }
+            // Into the children, or on to the next sibling after ", ".
+            name = i < end && buffer.get(i) == '[' ? i + 1 : i + 2;
+        }
+    }
+
+    private static boolean isServiceName(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= 'a' && b <= 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long nanos(long millis) {
+        return millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Counts a line that was longer than the reader could hold and therefore not parsed.
+     */
+    void addTruncated(int length) {
+        lines++;
+        truncatedLines++;
+        bytes += length;
+    }
+
+    LogAggregates merge(LogAggregates other) {
+        lines += other.lines;
+        bytes += other.bytes;
+        truncatedLines += other.truncatedLines;
+        calls += other.calls;
+        loggedCalls += other.loggedCalls;
+        byUri.merge(other.byUri);
+        byService.merge(other.byService);
+        byStatus.merge(other.byStatus);
+        other.slowest.forEach(this::offer);
+        return this;
+    }
+
+    private void offer(SlowRequest request) {
+        slowest.add(request);
+        if (slowest.size() > maxSlowest) {
+            slowest.poll();
+        }
+    }
+
+    long lines() {
+        return lines;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    long truncatedLines() {
+        return truncatedLines;
+    }
+
+    /**
+     * External calls in the summaries' SPANS: all of them, as far as the span trees had room.
+     */
+    long calls() {
+        return calls;
+    }
+
+    /**
+     * External call lines, which tail sampling wrote for some of the requests only.
+     */
+    long loggedCalls() {
+        return loggedCalls;
+    }
+
+    int maxGroups() {
+        return maxGroups;
+    }
+
+    List<Group> byUri() {
+        return byUri.sorted();
+    }
+
+    List<Group> byService() {
+        return byService.sorted();
+    }
+
+    List<Group> byStatus() {
+        return byStatus.sorted();
+    }
+
+    /**
+     * The slowest request summaries, slowest first.
+     */
+    List<SlowRequest> slowest() {
+        List<SlowRequest> sorted = new ArrayList<>(slowest);
+        sorted.sort(Comparator.comparingLong(SlowRequest::millis).reversed());
+        return sorted;
+    }
+
+    record SlowRequest(long millis, String correlationId, String uri, boolean error, String timestamp) {
+    }
+
+    /**
+     * The lines of one value of a table.
+     */
+    static final class Group {
+
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long count;
+        private long errors;
+
+        Group(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Counts one line or call; a negative {@code nanos} is not timed.
+         */
+        void record(boolean error, long nanos) {
+            count++;
+            if (error) {
+                errors++;
+            }
+            if (nanos >= 0) {
+                latency.record(nanos);
+            }
+        }
+
+        void merge(Group other) {
+            count += other.count;
+            errors += other.errors;
+            latency.add(other.latency.snapshot());
+        }
+
+        String name() {
+            return name;
+        }
+
+        long count() {
+            return count;
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        LatencyHistogram.Snapshot latency() {
+            return latency.snapshot();
+        }
+    }
+
+    /**
+     * Groups by value: an open-addressing table over the value bytes for the lines of one task, and the same
+     * groups by name for merging.
+     */
+    private static final class GroupTable {
+
+        private final int maxGroups;
+        private final Map<String, Group> byName = new LinkedHashMap<>();
+        private byte[][] keys = new byte[64][];
+        private Group[] groups = new Group[64];
+        private int size;
+        private Group none;
+        private Group other;
+
+        GroupTable(int maxGroups) {
+            this.maxGroups = maxGroups;
+        }
+
+        Group group(LogLineParser parser, Enum<?> key) {
+            int start = parser.start(key);
+            if (start == LogLineParser.ABSENT || !parser.has(key)) {
+                if (none == null) {
+                    none = named(NONE);
+                }
+                return none;
+            }
+            return group(parser, start, parser.end(key));
+        }
+
+        /**
+         * The group of the value in {@code [start, end)} of the parser's buffer.
+         */
+        Group group(LogLineParser parser, int start, int end) {
+            ByteBuffer buffer = parser.buffer();
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            int mask = keys.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                byte[] candidate = keys[slot];
+                if (candidate == null) {
+                    break;
+                }
+                if (equals(candidate, buffer, start, end)) {
+                    return groups[slot];
+                }
+            }
+            if (byName.size() >= maxGroups) {
+                if (other == null) {
+                    other = named(OTHER);
+                }
+                return other;
+            }
+            Group group = named(parser.string(start, end));
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            put(bytes, hash, group);
+            return group;
+        }
+
+        private Group named(String name) {
+            return byName.computeIfAbsent(name, Group::new);
+        }
+
+        private void put(byte[] key, int hash, Group group) {
+            if (++size * 2 > keys.length) {
+                byte[][] oldKeys = keys;
+                Group[] oldGroups = groups;
+                keys = new byte[oldKeys.length * 2][];
+                groups = new Group[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        insert(oldKeys[i], hash(oldKeys[i]), oldGroups[i]);
+                    }
+                }
+            }
+            insert(key, hash, group);
+        }
+
+        private void insert(byte[] key, int hash, Group group) {
+            int mask = keys.length - 1;
+            int slot = mix(hash) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            groups[slot] = group;
+        }
+
+        void merge(GroupTable other) {
+            for (Group group : other.byName.values()) {
+                Group target = byName.get(group.name());
+                if (target == null) {
+                    target = byName.size() < maxGroups || group.name().equals(NONE)
+                            ? named(group.name())
+                            : named(OTHER);
+                }
+                target.merge(group);
+            }
+        }
+
+        List<Group> sorted() {
+            List<Group> sorted = new ArrayList<>(byName.values());
+            sorted.sort(Comparator.comparingLong(Group::count).reversed().thenComparing(Group::name));
+            return sorted;
+        }
+
+        private static int hash(byte[] key) {
+            int hash = 1;
+            for (byte b : key) {
+                hash = 31 * hash + b;
+            }
+            return hash;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean equals(byte[] key, ByteBuffer buffer, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.spring_aop_logback.tools;
+
+import ch.qos.logback.core.util.FileSize;
+import com.example.spring_aop_logback.logging.BinaryLogReader;
+import com.example.spring_aop_logback.metrics.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Aggregates FILE logs offline: request summaries (SOURCE=CONTROLLER) by URI, external calls by SERVICE_NAME (from
+ * the summaries' SPANS) and by HTTP_STATUS (from the SOURCE=EXTERNAL lines, which tail sampling keeps for errored,
+ * slow and randomly sampled requests only; the report says what share of the calls that is), each with count, error
+ * rate and latency percentiles, and the slowest requests with their correlation IDs, for looking them up in the same
+ * files or via {@code GET /logs/{id}}.
+ * <pre>
+ * java -cp target/spring-aop-logback-0.0.1-SNAPSHOT.jar \
+ *     -Dloader.main=com.example.spring_aop_logback.tools.LogAnalytics \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     [--threads=N] [--slowest=20] [--rows=50] [--max-groups=1000] [--chunk-size=64MB] \
+ *     /tmp/spring.log.2025-08-*.gz /tmp/spring.log
+ * </pre>
+ * The work runs on a fork/join pool of {@code --threads} (default: all processors):
+ * <ul>
+ *     <li>Each gzipped archive is one task that decompresses it as a stream, in blocks, and parses the lines of
+ *     each block in place; a week of daily archives keeps every core busy.</li>
+ *     <li>An uncompressed file, typically the live one, is memory-mapped and split into {@code --chunk-size} ranges
+ *     that are parsed in parallel. A line belongs to the range it starts in; a last line the writer has not
+ *     finished yet is skipped.</li>
+ *     <li>Binary files ({@code app.logging.file.format=BINARY}), gzipped or not, are decoded with
+ *     {@link BinaryLogReader} into text lines first: one task per file, and slower than the text path.</li>
+ * </ul>
+ * Lines are parsed by {@link LogLineParser} without creating strings for their fields; every task aggregates on
+ * its own and the results are merged. Both line layouts are understood.
+ */
+public final class LogAnalytics {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int MAX_LINE = 1024 * 1024;
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private LogAnalytics() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int slowest = 20;
+        int rows = 50;
+        int maxGroups = 1000;
+        long chunkSize = FileSize.valueOf("64MB").getSize();
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--slowest=")) {
+                slowest = Integer.parseInt(arg.substring("--slowest=".length()));
+            } else if (arg.startsWith("--rows=")) {
+                rows = Integer.parseInt(arg.substring("--rows=".length()));
+            } else if (arg.startsWith("--max-groups=")) {
+                maxGroups = Integer.parseInt(arg.substring("--max-groups=".length()));
+            } else if (arg.startsWith("--chunk-size=")) {
+                chunkSize = FileSize.valueOf(arg.substring("--chunk-size=".length())).getSize();
+            } else {
+                files.add(Path.of(arg));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: LogAnalytics [--threads=N] [--slowest=N] [--rows=N] [--max-groups=N]"
+                    + " [--chunk-size=64MB] <file>...");
+            System.exit(2);
+        }
+
+        Settings settings = new Settings(maxGroups, slowest, chunkSize, new AtomicInteger());
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        LogAggregates total;
+        try {
+            total = pool.invoke(new FilesTask(files, settings));
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("=== %,d lines, %,.1f MB in %d files, %.1f s (%,.0f MB/s), %d threads ===%n", total.lines(),
+                total.bytes() / 1e6, files.size(), seconds, total.bytes() / 1e6 / seconds, threads);
+        if (total.truncatedLines() > 0) {
+            System.out.printf("%,d lines longer than %d bytes were not parsed%n", total.truncatedLines(), MAX_LINE);
+        }
+        printGroups("Requests by URI", total.byUri(), rows);
+        printGroups("External calls by SERVICE_NAME (from the requests' SPANS)", total.byService(), rows);
+        printGroups("External calls by HTTP_STATUS (from the EXTERNAL lines)", total.byStatus(), rows);
+        if (total.calls() > 0) {
+            System.out.printf("Tail-sampled: %,d of the %,d calls (%.2f%%) were logged, those of errored, slow and"
+                            + " randomly sampled requests%n", total.loggedCalls(), total.calls(),
+                    100.0 * total.loggedCalls() / total.calls());
+        } else if (total.loggedCalls() > 0) {
+            System.out.printf("Tail-sampled: only the calls of errored, slow and randomly sampled requests are logged%n");
+        }
+        printSlowest(total.slowest());
+        if (settings.failures().get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void printGroups(String title, List<LogAggregates.Group> groups, int rows) {
+        System.out.printf("%n%s%n", title);
+        int width = 8;
+        for (int i = 0; i < Math.min(rows, groups.size()); i++) {
+            width = Math.max(width, Math.min(60, groups.get(i).name().length()));
+        }
+        String format = "%-" + width + "s %12s %10s %7s %9s %9s %9s %9s %9s%n";
+        System.out.printf(format, "", "count", "errors", "error%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (int i = 0; i < Math.min(rows, groups.size()); i++) {
+            LogAggregates.Group group = groups.get(i);
+            LatencyHistogram.Snapshot latency = group.latency();
+            Object[] columns = new Object[9];
+            String name = group.name();
+            columns[0] = name.length() > width ? name.substring(0, width - 3) + "..." : name;
+            columns[1] = String.format("%,d", group.count());
+            columns[2] = String.format("%,d", group.errors());
+            columns[3] = String.format("%.2f", 100.0 * group.errors() / group.count());
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                columns[4 + p] = millis(latency, latency.valueAtPercentile(PERCENTILES[p]));
+            }
+            columns[8] = millis(latency, latency.max());
+            System.out.printf(format, columns);
+        }
+        if (groups.size() > rows) {
+            System.out.printf("... %d more%n", groups.size() - rows);
+        }
+    }
+
+    private static String millis(LatencyHistogram.Snapshot latency, long nanos) {
+        return latency.totalCount() == 0 ? "-" : String.format("%,d", Math.round(nanos / 1e6));
+    }
+
+    private static void printSlowest(List<LogAggregates.SlowRequest> slowest) {
+        if (slowest.isEmpty()) {
+            return;
+        }
+        System.out.printf("%nSlowest requests%n");
+        for (LogAggregates.SlowRequest request : slowest) {
+            System.out.printf("%,9d ms  %s  %-36s %s%s%n", request.millis(), request.timestamp(),
+                    request.correlationId(), request.uri(), request.error() ? "  (error)" : "");
+        }
+    }
+
+    /**
+     * Parses the complete lines in {@code [from, to)} and returns the offset after the last one.
+     */
+    private static int parseLines(ByteBuffer buffer, int from, int to, LogLineParser parser, LogAggregates aggregates) {
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                parseLine(buffer, lineStart, i, parser, aggregates);
+                lineStart = i + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    private static void parseLine(ByteBuffer buffer, int start, int newline, LogLineParser parser,
+                                  LogAggregates aggregates) {
+        int end = newline > start && buffer.get(newline - 1) == '\r' ? newline - 1 : newline;
+        aggregates.add(parser, parser.parse(buffer, start, end), newline + 1 - start);
+    }
+
+    private static void failed(Path file, Settings settings, IOException e) {
+        System.err.println(file + ": " + e.getMessage());
+        settings.failures().incrementAndGet();
+    }
+
+    private record Settings(int maxGroups, int slowest, long chunkSize, AtomicInteger failures) {
+
+        LogAggregates newAggregates() {
+            return new LogAggregates(maxGroups, slowest);
+        }
+    }
+
+    /**
+     * One task per input file, by kind; merges what they found.
+     */
+    private static final class FilesTask extends RecursiveTask<LogAggregates> {
+
+        private final List<Path> files;
+        private final Settings settings;
+
+        FilesTask(List<Path> files, Settings settings) {
+            this.files = files;
+            this.settings = settings;
+        }
+
+        @Override
+        protected LogAggregates compute() {
+            List<RecursiveTask<LogAggregates>> tasks = new ArrayList<>();
+            for (Path file : files) {
+                try {
+                    byte[] head = new byte[4];
+                    boolean gzip;
+                    int length;
+                    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                        in.mark(2);
+                        gzip = (in.read() << 8 | in.read()) == GZIP_MAGIC;
+                        in.reset();
+                        length = (gzip ? new GZIPInputStream(in) : in).readNBytes(head, 0, head.length);
+                    }
+                    if (BinaryLogReader.isBinaryLog(head, length)) {
+                        tasks.add(new BinaryFileTask(file, settings));
+                    } else if (gzip) {
+                        tasks.add(new ArchiveTask(file, settings));
+                    } else {
+                        tasks.add(new MappedFileTask(file, settings));
+                    }
+                } catch (IOException e) {
+                    failed(file, settings, e);
+                }
+            }
+            LogAggregates total = settings.newAggregates();
+            for (RecursiveTask<LogAggregates> task : ForkJoinTask.invokeAll(tasks)) {
+                total.merge(task.join());
+            }
+            return total;
+        }
+    }
+
+    /**
+     * A gzipped text file, decompressed as a stream in blocks of {@link #BLOCK_SIZE}.
+     */
+    private static final class ArchiveTask extends RecursiveTask<LogAggregates> {
+
+        private final Path file;
+        private final Settings settings;
+
+        ArchiveTask(Path file, Settings settings) {
+            this.file = file;
+            this.settings = settings;
+        }
+
+        @Override
+        protected LogAggregates compute() {
+            LogAggregates aggregates = settings.newAggregates();
+            LogLineParser parser = new LogLineParser();
+            byte[] block = new byte[BLOCK_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file), 64 * 1024)) {
+                int filled = 0;
+                int skipped = -1;
+                for (int read; (read = in.read(block, filled, block.length - filled)) >= 0; ) {
+                    int from = filled;
+                    filled += read;
+                    int consumed = 0;
+                    if (skipped >= 0) {
+                        // The rest of a line longer than the block.
+                        int newline = LogLineParser.indexOf(buffer, (byte) '\n', from, filled);
+                        skipped += (newline < 0 ? filled : newline + 1);
+                        if (newline < 0) {
+                            filled = 0;
+                            continue;
+                        }
+                        aggregates.addTruncated(skipped);
+                        skipped = -1;
+                        consumed = newline + 1;
+                    }
+                    consumed = parseLines(buffer, consumed, filled, parser, aggregates);
+                    if (consumed == 0 && filled == block.length) {
+                        skipped = filled;
+                        filled = 0;
+                        continue;
+                    }
+                    System.arraycopy(block, consumed, block, 0, filled - consumed);
+                    filled -= consumed;
+                }
+                if (skipped >= 0) {
+                    aggregates.addTruncated(skipped + filled);
+                } else if (filled > 0) {
+                    // An archive is complete; its last line only lacks the separator.
+                    parseLine(buffer, 0, filled, parser, aggregates);
+                }
+            } catch (IOException e) {
+                failed(file, settings, e);
+            }
+            return aggregates;
+        }
+    }
+
+    /**
+     * An uncompressed text file: maps it and parses its ranges in parallel.
+     */
+    private static final class MappedFileTask extends RecursiveTask<LogAggregates> {
+
+        private final Path file;
+        private final Settings settings;
+
+        MappedFileTask(Path file, Settings settings) {
+            this.file = file;
+            this.settings = settings;
+        }
+
+        @Override
+        protected LogAggregates compute() {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // The size at this moment; a live file keeps growing, and what comes later is not read.
+                long size = channel.size();
+                return new RangeTask(file, channel, size, 0, size, settings).invoke();
+            } catch (IOException e) {
+                failed(file, settings, e);
+                return settings.newAggregates();
+            }
+        }
+    }
+
+    /**
+     * The lines starting in {@code [from, to)} of a mapped file, split in halves down to the chunk size.
+     */
+    private static final class RangeTask extends RecursiveTask<LogAggregates> {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final long size;
+        private final long from;
+        private final long to;
+        private final Settings settings;
+
+        RangeTask(Path file, FileChannel channel, long size, long from, long to, Settings settings) {
+            this.file = file;
+            this.channel = channel;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+            this.settings = settings;
+        }
+
+        @Override
+        protected LogAggregates compute() {
+            if (to - from > settings.chunkSize()) {
+                long middle = from + (to - from) / 2;
+                RangeTask left = new RangeTask(file, channel, size, from, middle, settings);
+                RangeTask right = new RangeTask(file, channel, size, middle, to, settings);
+                invokeAll(left, right);
+                return left.join().merge(right.join());
+            }
+            LogAggregates aggregates = settings.newAggregates();
+            if (from >= to) {
+                return aggregates;
+            }
+            try {
+                // From the byte before the range, to tell whether a line starts at from, to one line past its end.
+                long mapFrom = from == 0 ? 0 : from - 1;
+                long mapTo = Math.min(size, to + MAX_LINE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapFrom, mapTo - mapFrom);
+                int limit = (int) (to - mapFrom);
+                int end = buffer.limit();
+                int position = 0;
+                if (from > 0) {
+                    int newline = LogLineParser.indexOf(buffer, (byte) '\n', 0, end);
+                    if (newline < 0) {
+                        return aggregates;
+                    }
+                    position = newline + 1;
+                }
+                LogLineParser parser = new LogLineParser();
+                while (position < limit) {
+                    int newline = LogLineParser.indexOf(buffer, (byte) '\n', position, end);
+                    if (newline < 0) {
+                        if (mapTo < size) {
+                            aggregates.addTruncated(end - position);
+                        }
+                        // Otherwise the last line of a live file, not completely written yet.
+                        break;
+                    }
+                    parseLine(buffer, position, newline, parser, aggregates);
+                    position = newline + 1;
+                }
+            } catch (IOException e) {
+                failed(file, settings, e);
+            }
+            return aggregates;
+        }
+    }
+
+    /**
+     * A binary file, gzipped or not, decoded into text lines.
+     */
+    private static final class BinaryFileTask extends RecursiveTask<LogAggregates> {
+
+        private final Path file;
+        private final Settings settings;
+
+        BinaryFileTask(Path file, Settings settings) {
+            this.file = file;
+            this.settings = settings;
+        }
+
+        @Override
+        protected LogAggregates compute() {
+            LogAggregates aggregates = settings.newAggregates();
+            LogLineParser parser = new LogLineParser();
+            try (BinaryLogReader reader = new BinaryLogReader(Files.newInputStream(file), null, null)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    int consumed = parseLines(buffer, 0, bytes.length, parser, aggregates);
+                    if (consumed < bytes.length) {
+                        parseLine(buffer, consumed, bytes.length, parser, aggregates);
+                    }
+                }
+            } catch (EOFException e) {
+                // Ends inside a record the writer had not flushed yet; everything before it was read.
+            } catch (IOException e) {
+                failed(file, settings, e);
+            }
+            return aggregates;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.spring_aop_logback.tools;
+
+import com.example.spring_aop_logback.logging.BinaryLogReader;
+import com.example.spring_aop_logback.util.LogLineEncoder;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prints binary log files ({@code app.logging.file.format=BINARY}), live or rolled and gzipped, as the text lines the
+ * FILE appender would have written, in the order given.
+ * <pre>
+ * java -cp target/spring-aop-logback-0.0.1-SNAPSHOT.jar \
+ *     -Dloader.main=com.example.spring_aop_logback.tools.LogDecoder \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     [--zone=UTC] [--layout=JSON] /tmp/spring.log.2025-08-22.0.gz /tmp/spring.log
+ * </pre>
+ * {@code --zone} renders timestamps in another time zone than the writer's; {@code --layout} renders the
+ * key/value lines as {@code TEXT} or {@code JSON} whatever {@code app.logging.line.layout} they were written with.
+ * A file that ends inside a record (the writer had not flushed it yet) is decoded up to that record.
+ */
+public final class LogDecoder {
+
+    private LogDecoder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        ZoneId zone = null;
+        LogLineEncoder.Layout layout = null;
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--zone=")) {
+                zone = ZoneId.of(arg.substring("--zone=".length()));
+            } else if (arg.startsWith("--layout=")) {
+                layout = LogLineEncoder.Layout.valueOf(arg.substring("--layout=".length()).toUpperCase(Locale.ROOT));
+            } else {
+                files.add(Path.of(arg));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: LogDecoder [--zone=<zone id>] [--layout=TEXT|JSON] <file>...");
+            System.exit(2);
+        }
+
+        int failures = 0;
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file);
+                 BinaryLogReader reader = new BinaryLogReader(in, zone, layout)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    out.write(line);
+                }
+            } catch (EOFException e) {
+                System.err.println(file + ": ends inside a record, the rest was not decoded");
+            } catch (IOException e) {
+                System.err.println(file + ": " + e.getMessage());
+                failures++;
+            }
+        }
+        out.flush();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
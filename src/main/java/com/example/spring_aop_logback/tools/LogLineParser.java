@@ -0,0 +1,280 @@
+package com.example.spring_aop_logback.tools;
+
+import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds the fields of one FILE line in place: the correlation ID, and the {@code LoggingEnum} (SOURCE=CONTROLLER)
+ * or {@code ExternalLoggingEnum} (SOURCE=EXTERNAL) values of a key/value message in either line layout. Fields are
+ * recorded as start/end offsets into the buffer; nothing is decoded or copied unless a caller asks for it.
+ * <p>
+ * The encoder writes keys in ordinal order, so in the TEXT layout a value ends at the first {@code "; "} followed
+ * by a later key and {@code '='}; a body or error message containing {@code "; "} is read whole. JSON values are
+ * returned still escaped. One parser per thread.
+ */
+final class LogLineParser {
+
+    /**
+     * Offset of an absent field.
+     */
+    static final int ABSENT = -1;
+
+    private static final byte[] CORRELATION_ID_START = " - [".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_SOURCE = "SOURCE=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_SOURCE = "{\"SOURCE\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTROLLER = "CONTROLLER".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXTERNAL = "EXTERNAL".getBytes(StandardCharsets.US_ASCII);
+    private static final Keys CONTROLLER_KEYS = new Keys(LoggingEnum.values());
+    private static final Keys EXTERNAL_KEYS = new Keys(ExternalLoggingEnum.values());
+    private static final int MAX_FIELDS = Math.max(LoggingEnum.values().length, ExternalLoggingEnum.values().length);
+
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int correlationIdStart;
+    private int correlationIdEnd;
+    private boolean external;
+
+    /**
+     * Parses the line in {@code [start, end)} of {@code buffer} (absolute offsets, no line terminator). Returns false
+     * for anything but a controller summary or external call line.
+     */
+    boolean parse(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.lineStart = start;
+        int marker = indexOf(buffer, CORRELATION_ID_START, start, end);
+        if (marker < 0) {
+            return false;
+        }
+        correlationIdStart = marker + CORRELATION_ID_START.length;
+        correlationIdEnd = indexOf(buffer, (byte) ']', correlationIdStart, end);
+        if (correlationIdEnd < 0 || correlationIdEnd + 2 > end) {
+            return false;
+        }
+        int message = correlationIdEnd + 2;
+        Arrays.fill(starts, ABSENT);
+        Arrays.fill(ends, ABSENT);
+        if (startsWith(buffer, TEXT_SOURCE, message, end)) {
+            return parseText(message + TEXT_SOURCE.length, end);
+        }
+        if (startsWith(buffer, JSON_SOURCE, message, end)) {
+            return parseJson(message + JSON_SOURCE.length, end);
+        }
+        return false;
+    }
+
+    private boolean parseText(int position, int end) {
+        // SOURCE comes first and never contains "; ", so the schema is known before any other key is looked for.
+        int separator = indexOf(buffer, (byte) ';', position, end);
+        int sourceEnd = separator < 0 ? end : separator;
+        Keys keys = schema(position, sourceEnd);
+        if (keys == null) {
+            return false;
+        }
+        int ordinal = 0;
+        int valueStart = position;
+        int i = sourceEnd;
+        while (true) {
+            int next = ABSENT;
+            for (; i + 1 < end; i++) {
+                if (buffer.get(i) == ';' && buffer.get(i + 1) == ' ') {
+                    next = keys.textKeyAt(buffer, i + 2, end, ordinal + 1);
+                    if (next != ABSENT) {
+                        break;
+                    }
+                }
+            }
+            starts[ordinal] = valueStart;
+            if (next == ABSENT) {
+                ends[ordinal] = end;
+                return true;
+            }
+            ends[ordinal] = i;
+            valueStart = i + 2 + keys.text[next].length;
+            ordinal = next;
+            i = valueStart;
+        }
+    }
+
+    private boolean parseJson(int position, int end) {
+        Keys keys = null;
+        int ordinal = 0;
+        int i = position;
+        while (true) {
+            int valueStart = i;
+            while (i < end && buffer.get(i) != '"') {
+                i += buffer.get(i) == '\\' ? 2 : 1;
+            }
+            if (i >= end) {
+                return keys != null;
+            }
+            starts[ordinal] = valueStart;
+            ends[ordinal] = i;
+            if (keys == null && (keys = schema(valueStart, i)) == null) {
+                return false;
+            }
+            i++;
+            if (i >= end || buffer.get(i) != ',') {
+                return true;
+            }
+            int next = keys.jsonKeyAt(buffer, i + 1, end, ordinal + 1);
+            if (next == ABSENT) {
+                return true;
+            }
+            ordinal = next;
+            i += 1 + keys.json[next].length;
+        }
+    }
+
+    private Keys schema(int start, int end) {
+        if (regionEquals(buffer, start, end, CONTROLLER)) {
+            external = false;
+            return CONTROLLER_KEYS;
+        }
+        if (regionEquals(buffer, start, end, EXTERNAL)) {
+            external = true;
+            return EXTERNAL_KEYS;
+        }
+        return null;
+    }
+
+    boolean isExternal() {
+        return external;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    int lineStart() {
+        return lineStart;
+    }
+
+    int correlationIdStart() {
+        return correlationIdStart;
+    }
+
+    int correlationIdEnd() {
+        return correlationIdEnd;
+    }
+
+    int start(Enum<?> key) {
+        return starts[key.ordinal()];
+    }
+
+    int end(Enum<?> key) {
+        return ends[key.ordinal()];
+    }
+
+    boolean has(Enum<?> key) {
+        int start = starts[key.ordinal()];
+        int end = ends[key.ordinal()];
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The leading digits of a field as a number, e.g. 1181 for EXECUTION_TIME=1181ms; -1 without digits.
+     */
+    long number(Enum<?> key) {
+        int start = starts[key.ordinal()];
+        int end = ends[key.ordinal()];
+        long value = -1;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = (value < 0 ? 0 : value * 10) + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes {@code [start, end)}; only for the few values that end up in a report.
+     */
+    String string(int start, int end) {
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int indexOf(ByteBuffer buffer, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        for (int i = from, last = to - pattern.length; i <= last; i++) {
+            if (buffer.get(i) == first && startsWith(buffer, pattern, i, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, byte[] prefix, int from, int to) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(from + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(ByteBuffer buffer, int start, int end, byte[] value) {
+        return end - start == value.length && startsWith(buffer, value, start, end);
+    }
+
+    /**
+     * The key prefixes of one enum in both layouts, as {@code LogLineEncoder} writes them.
+     */
+    private static final class Keys {
+
+        private final byte[][] text;
+        private final byte[][] json;
+
+        Keys(Enum<?>[] constants) {
+            text = new byte[constants.length][];
+            json = new byte[constants.length][];
+            for (Enum<?> constant : constants) {
+                text[constant.ordinal()] = (constant.name() + "=").getBytes(StandardCharsets.US_ASCII);
+                json[constant.ordinal()] = ("\"" + constant.name() + "\":\"").getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+
+        int textKeyAt(ByteBuffer buffer, int position, int end, int fromOrdinal) {
+            return keyAt(text, buffer, position, end, fromOrdinal);
+        }
+
+        int jsonKeyAt(ByteBuffer buffer, int position, int end, int fromOrdinal) {
+            return keyAt(json, buffer, position, end, fromOrdinal);
+        }
+
+        private static int keyAt(byte[][] keys, ByteBuffer buffer, int position, int end, int fromOrdinal) {
+            for (int ordinal = fromOrdinal; ordinal < keys.length; ordinal++) {
+                if (startsWith(buffer, keys[ordinal], position, end)) {
+                    return ordinal;
+                }
+            }
+            return ABSENT;
+        }
+    }
+}
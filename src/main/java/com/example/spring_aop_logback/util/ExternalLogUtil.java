@@ -1,35 +1,102 @@
 package com.example.spring_aop_logback.util;
 
+import com.example.spring_aop_logback.capture.BodyCapturer;
+import com.example.spring_aop_logback.capture.CapturedBody;
 import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.logging.BinaryLogEncoder;
+import com.example.spring_aop_logback.logging.StructuredLine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
-
 @Component
 public class ExternalLogUtil {
 
+    private static final ExternalLoggingEnum[] KEYS = ExternalLoggingEnum.values();
+
     private final Logger log = LoggerFactory.getLogger("external-log"); // Use a dedicated logger category
 
+    @Autowired
+    private LogLineEncoder logLineEncoder;
+
+    @Autowired
+    private BodyCapturer bodyCapturer;
+
+    @Value("${app.logging.file.format:TEXT}")
+    private BinaryLogEncoder.Format fileFormat;
+
+    @Value("${app.logging.shipping.url:}")
+    private String shippingUrl;
+
     /**
-     * Processes and formats log entries from MDC for external calls.
+     * Processes and formats log entries for external calls.
+     *
+     * @param values the ExternalLoggingEnum values of one call, indexed by ordinal.
      */
-    public void processLogs() {
-        String logs = Arrays.stream(ExternalLoggingEnum.values())
-                .filter(e -> StringUtils.hasText(MDC.get(e.name())))
-                .map(e -> e.name() + "=" + MDC.get(e.name()))
-                .collect(Collectors.joining("; "));
+    public void processLogs(String[] values) {
+        processLogs(values, null, null);
+    }
 
-        boolean hasError = StringUtils.hasText(MDC.get(ExternalLoggingEnum.ERROR_DESC.name()));
+    /**
+     * Processes an external call whose bodies were captured but not rendered yet. With deferred rendering the
+     * line is handed to the logger unformatted and the bodies are serialized by the background log writer.
+     *
+     * @param values       the ExternalLoggingEnum values of one call, indexed by ordinal; owned by the line from now on.
+     * @param requestBody  the RQST_BODY value, or null.
+     * @param responseBody the RESP_BODY value, or null.
+     */
+    public void processLogs(String[] values, CapturedBody requestBody, CapturedBody responseBody) {
+        processLogs(values, requestBody, responseBody, null);
+    }
 
+    /**
+     * Same as {@link #processLogs(String[], CapturedBody, CapturedBody)}, with a marker on the line
+     * (e.g. {@code TraceMarkers.TRACE_KEEP}).
+     */
+    public void processLogs(String[] values, CapturedBody requestBody, CapturedBody responseBody, Marker marker) {
+        boolean hasError = StringUtils.hasText(values[ExternalLoggingEnum.ERROR_DESC.ordinal()]);
+        if (hasError ? !log.isErrorEnabled() : !log.isInfoEnabled()) {
+            return;
+        }
+
+        ExternalLine line = new ExternalLine(logLineEncoder, values, requestBody, responseBody);
+        Object message = bodyCapturer.isDeferred() || fileFormat == BinaryLogEncoder.Format.BINARY || !shippingUrl.isBlank()
+                ? line : line.toString();
         if (hasError) {
-            log.error(logs);
+            log.error(marker, "{}", message);
         } else {
-            log.info(logs);
+            log.info(marker, "{}", message);
+        }
+    }
+
+    /**
+     * One external call line; the captured bodies are rendered when the line is.
+     */
+    private record ExternalLine(LogLineEncoder encoder, String[] values,
+                                CapturedBody requestBody, CapturedBody responseBody) implements StructuredLine {
+        @Override
+        public Enum<?>[] keys() {
+            return KEYS;
+        }
+
+        @Override
+        public String[] values() {
+            if (requestBody != null) {
+                values[ExternalLoggingEnum.RQST_BODY.ordinal()] = requestBody.toString();
+            }
+            if (responseBody != null) {
+                values[ExternalLoggingEnum.RESP_BODY.ordinal()] = responseBody.toString();
+            }
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return encoder.encode(KEYS, values());
         }
     }
-}
\ No newline at end of file
+}
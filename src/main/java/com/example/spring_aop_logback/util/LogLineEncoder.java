@@ -0,0 +1,180 @@
+package com.example.spring_aop_logback.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders the {@code LoggingEnum}/{@code ExternalLoggingEnum} key/value pairs of one log line.
+ * Replaces the stream/filter/joining pipeline: key prefixes are pre-built once per enum type and the line is
+ * assembled in a per-thread {@link StringBuilder} that is reused across calls, so the only allocation per line
+ * is the final message String handed to the logger.
+ * <p>
+ * Values are passed as an array indexed by the enum ordinal; blank entries are skipped, exactly like before.
+ */
+@Component
+public class LogLineEncoder {
+
+    public enum Layout {
+        /** {@code KEY=value; KEY=value} — the historical layout. */
+        TEXT,
+        /** {@code {"KEY":"value","KEY":"value"}} */
+        JSON
+    }
+
+    private static final int INITIAL_CAPACITY = 512;
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+    private static final ClassValue<KeyPrefixes> PREFIXES = new ClassValue<>() {
+        @Override
+        protected KeyPrefixes computeValue(Class<?> type) {
+            Enum<?>[] constants = (Enum<?>[]) type.getEnumConstants();
+            String[] names = new String[constants.length];
+            for (Enum<?> constant : constants) {
+                names[constant.ordinal()] = constant.name();
+            }
+            return KeyPrefixes.of(names);
+        }
+    };
+
+    private final Layout layout;
+
+    public LogLineEncoder(@Value("${app.logging.line.layout:TEXT}") Layout layout) {
+        this.layout = layout;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Encodes every non-blank value in {@code values} (indexed by {@code keys[i].ordinal()}) using the configured layout.
+     * {@code keys} are all constants of the key enum, in ordinal order.
+     */
+    public <E extends Enum<E>> String encode(E[] keys, String[] values) {
+        return encode(keys.length == 0 ? null : PREFIXES.get(keys[0].getDeclaringClass()), values);
+    }
+
+    /**
+     * Encodes every non-blank value in {@code values} (indexed by position in {@code keys}) using the configured layout.
+     */
+    public String encode(KeyNames keys, String[] values) {
+        return encode(keys.prefixes, values);
+    }
+
+    private String encode(KeyPrefixes prefixes, String[] values) {
+        StringBuilder line = BUFFER.get();
+        line.setLength(0);
+        try {
+            if (layout == Layout.JSON) {
+                appendJson(line, prefixes, values);
+            } else {
+                appendText(line, prefixes, values);
+            }
+            return line.toString();
+        } finally {
+            if (line.capacity() > MAX_RETAINED_CAPACITY) {
+                BUFFER.set(new StringBuilder(INITIAL_CAPACITY));
+            }
+        }
+    }
+
+    private static void appendText(StringBuilder line, KeyPrefixes prefixes, String[] values) {
+        if (prefixes == null) {
+            return;
+        }
+        char[][] text = prefixes.text();
+        boolean first = true;
+        for (int i = 0; i < text.length; i++) {
+            String value = values[i];
+            if (!hasText(value)) {
+                continue;
+            }
+            if (!first) {
+                line.append("; ");
+            }
+            line.append(text[i]).append(value);
+            first = false;
+        }
+    }
+
+    private static void appendJson(StringBuilder line, KeyPrefixes prefixes, String[] values) {
+        line.append('{');
+        if (prefixes != null) {
+            char[][] json = prefixes.json();
+            boolean first = true;
+            for (int i = 0; i < json.length; i++) {
+                String value = values[i];
+                if (!hasText(value)) {
+                    continue;
+                }
+                if (!first) {
+                    line.append(',');
+                }
+                line.append(json[i]);
+                appendJsonEscaped(line, value);
+                line.append('"');
+                first = false;
+            }
+        }
+        line.append('}');
+    }
+
+    private static void appendJsonEscaped(StringBuilder line, String value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append("\\u00");
+                        line.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same semantics as {@code StringUtils.hasText}, which the previous formatter used as its filter.
+     */
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * Key names that are only known at run time, such as the ones a binary log segment records. Build once per set
+     * of keys: the prefixes are pre-built like the enums'.
+     */
+    public static final class KeyNames {
+        private final KeyPrefixes prefixes;
+
+        public KeyNames(String[] names) {
+            this.prefixes = KeyPrefixes.of(names);
+        }
+
+        public int size() {
+            return prefixes.text().length;
+        }
+    }
+
+    private record KeyPrefixes(char[][] text, char[][] json) {
+
+        static KeyPrefixes of(String[] names) {
+            char[][] text = new char[names.length][];
+            char[][] json = new char[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                text[i] = (names[i] + "=").toCharArray();
+                json[i] = ("\"" + names[i] + "\":\"").toCharArray();
+            }
+            return new KeyPrefixes(text, json);
+        }
+    }
+}
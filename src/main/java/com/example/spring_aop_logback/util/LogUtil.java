@@ -1,39 +1,88 @@
 package com.example.spring_aop_logback.util;
 
+import com.example.spring_aop_logback.context.LogContext;
 import com.example.spring_aop_logback.enums.LoggingEnum;
+import com.example.spring_aop_logback.logging.BinaryLogEncoder;
+import com.example.spring_aop_logback.logging.StructuredLine;
+import com.example.spring_aop_logback.logging.TraceMarkers;
+import com.example.spring_aop_logback.policy.PolicySnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
-
 @Component
 public class LogUtil {
 
+    private static final LoggingEnum[] KEYS = LoggingEnum.values();
+
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+    @Autowired
+    private LogLineEncoder logLineEncoder;
+
+    @Value("${app.logging.file.format:TEXT}")
+    private BinaryLogEncoder.Format fileFormat;
+
+    @Value("${app.logging.shipping.url:}")
+    private String shippingUrl;
+
     /**
-     * Processes and formats log entries from MDC.
+     * Processes and formats the log entries of a request's log context.
+     * The context is immutable, so its values are encoded (or handed to the logger) without a copy.
      */
-    public void processLogs() {
-        String logs = Arrays.stream(LoggingEnum.values())
-                // -- NEW: Only include keys that have a value in the MDC --
-                .filter(e -> StringUtils.hasText(MDC.get(e.name())))
-                .map(e -> e.name() + "=" + MDC.get(e.name()))
-                .collect(Collectors.joining("; "));
-
-        boolean hasError = StringUtils.hasText(MDC.get(LoggingEnum.ERROR_DESC.name()));
-//        System.out.println("IF Block Below - starts");
+    public void processLogs(LogContext logContext) {
+        processLogs(logContext, null);
+    }
+
+    /**
+     * Logs the controller summary that closes a request's trace. Server errors, slow requests and a random sample
+     * are marked to be kept in full by the tail-sampling appender; traces with an ERROR_DESC or a WARN line are kept
+     * by the appender itself. Threshold and sample rate are those of the request's URI in the runtime logging policy.
+     */
+    public void processSummary(LogContext summary, long executionMillis, boolean serverError) {
+        boolean keep = serverError || PolicySnapshot.current().request(summary.policySlot()).keep(executionMillis);
+        processLogs(summary, keep ? TraceMarkers.TRACE_END_KEEP : TraceMarkers.TRACE_END);
+    }
+
+    private void processLogs(LogContext logContext, Marker marker) {
+        String[] values = logContext.values();
+        boolean hasError = StringUtils.hasText(values[LoggingEnum.ERROR_DESC.ordinal()]);
+        if (fileFormat == BinaryLogEncoder.Format.BINARY || !shippingUrl.isBlank()) {
+            // The binary file format and the log shipper store the fields themselves, so they go to the logger
+            // unrendered.
+            Line line = new Line(logLineEncoder, values);
+            if (hasError) {
+                log.error(marker, "{}", line);
+            } else {
+                log.info(marker, "{}", line);
+            }
+            return;
+        }
+        String logs = logLineEncoder.encode(KEYS, values);
+
         if (hasError) {
-//            System.out.println("YES ERROR");
-            log.error(logs);
+            log.error(marker, logs);
         } else {
-//            System.out.println("NO ERROR");
-            log.info(logs);
+            log.info(marker, logs);
+        }
+    }
+
+    /**
+     * One request line as its key/value pairs; rendered as text by the appenders that need text.
+     */
+    private record Line(LogLineEncoder encoder, String[] values) implements StructuredLine {
+        @Override
+        public Enum<?>[] keys() {
+            return KEYS;
+        }
+
+        @Override
+        public String toString() {
+            return encoder.encode(KEYS, values);
         }
-//        System.out.println("IF Block ENDS....");
     }
-}
\ No newline at end of file
+}
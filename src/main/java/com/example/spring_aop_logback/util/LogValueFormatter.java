@@ -0,0 +1,71 @@
+package com.example.spring_aop_logback.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Cheap formatting for the timestamp and duration values the aspects put into every log line.
+ * Replaces {@code Instant.now().toString()} and {@code timeTaken + "ms"} on the request path.
+ */
+public final class LogValueFormatter {
+
+    private static final DateTimeFormatter SECOND_PREFIX = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.");
+    private static final int CACHED_MILLIS = 1024;
+    private static final String[] MILLIS = new String[CACHED_MILLIS];
+
+    static {
+        for (int i = 0; i < CACHED_MILLIS; i++) {
+            MILLIS[i] = i + "ms";
+        }
+    }
+
+    /**
+     * The ISO prefix ("2025-08-22T10:15:30.") of the most recently formatted second.
+     * Every line logged within the same second reuses it; only the millisecond digits are appended.
+     */
+    private static volatile CachedSecond cachedSecond = new CachedSecond(Long.MIN_VALUE, "");
+
+    private LogValueFormatter() {
+    }
+
+    /**
+     * Formats epoch millis as an ISO-8601 UTC instant with fixed millisecond precision,
+     * e.g. {@code 2025-08-22T10:15:30.042Z}.
+     */
+    public static String isoTimestamp(long epochMillis) {
+        String prefix = secondPrefix(Math.floorDiv(epochMillis, 1000L));
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        int length = prefix.length();
+        char[] chars = new char[length + 4];
+        prefix.getChars(0, length, chars, 0);
+        chars[length] = (char) ('0' + millis / 100);
+        chars[length + 1] = (char) ('0' + millis / 10 % 10);
+        chars[length + 2] = (char) ('0' + millis % 10);
+        chars[length + 3] = 'Z';
+        return new String(chars);
+    }
+
+    /**
+     * Renders a duration in the "123ms" form used by EXECUTION_TIME; durations below one second are
+     * served from a pre-built table.
+     */
+    public static String millis(long millis) {
+        if (millis >= 0 && millis < CACHED_MILLIS) {
+            return MILLIS[(int) millis];
+        }
+        return millis + "ms";
+    }
+
+    private static String secondPrefix(long epochSecond) {
+        CachedSecond cached = cachedSecond;
+        if (cached.epochSecond != epochSecond) {
+            cached = new CachedSecond(epochSecond, SECOND_PREFIX.format(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC)));
+            cachedSecond = cached;
+        }
+        return cached.prefix;
+    }
+
+    private record CachedSecond(long epochSecond, String prefix) {
+    }
+}
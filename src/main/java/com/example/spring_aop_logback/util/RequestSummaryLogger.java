@@ -0,0 +1,70 @@
+package com.example.spring_aop_logback.util;
+
+import com.example.spring_aop_logback.aspect.AdvicePlan;
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import com.example.spring_aop_logback.metrics.LatencyRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emits the controller summary line of a request, shared by the servlet ({@code LoggingAspect}) and the reactive
+ * ({@code LoggingWebFilter}) server modes so both produce the same fields.
+ */
+@Component
+public class RequestSummaryLogger {
+
+    @Autowired
+    private LogUtil logUtil;
+
+    @Autowired
+    private LatencyRegistry latencyRegistry;
+
+    /**
+     * Completes the request's log context with the response fields and emits the controller summary line,
+     * which also closes the request's trace for tail sampling. The latency is recorded into the histogram of the
+     * request's mapping as well. The request's spans are rendered into SPANS and their tree goes back to the pool.
+     * A failure that answers with a 5xx status keeps the request's trace even when it left no ERROR_DESC.
+     */
+    public void logCompletion(LogContext logContext, Completion completion, Throwable error) {
+        long endTime = System.currentTimeMillis();
+        long elapsedNanos = System.nanoTime() - completion.startNanos();
+        long executionMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        latencyRegistry.recordController(completion.mapping(), completion.httpMethod(), elapsedNanos);
+
+        LogContext.Builder completed = logContext.toBuilder()
+                .put(LoggingEnum.RQST_RESP_TS, LogValueFormatter.isoTimestamp(endTime))
+                .put(LoggingEnum.EXECUTION_TIME, LogValueFormatter.millis(executionMillis))
+                .put(LoggingEnum.SOURCE, "CONTROLLER");
+        if (error != null) {
+            completed.putIfAbsent(LoggingEnum.ERROR_DESC, error.getMessage());
+        }
+        String spans = logContext.finishSpans(System.nanoTime());
+        if (spans != null) {
+            completed.put(LoggingEnum.SPANS, spans);
+        }
+        LogContext summary = completed.build();
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(summary)) {
+            logUtil.processSummary(summary, executionMillis, error != null && statusOf(error) >= 500);
+        }
+    }
+
+    private static int statusOf(Throwable error) {
+        return error instanceof ResponseStatusException statusException ? statusException.getStatusCode().value() : 500;
+    }
+
+    /**
+     * What the completion callbacks need to know about the request besides its log context.
+     * Latencies are keyed by the mapping template, not the raw URI, so path variables do not create new histograms.
+     */
+    public record Completion(String mapping, String httpMethod, long startNanos) {
+
+        public Completion(AdvicePlan plan, String httpMethod, String requestUri, long startNanos) {
+            this(plan.urlTemplate() != null ? plan.urlTemplate() : requestUri, httpMethod, startNanos);
+        }
+    }
+}
@@ -1,25 +1,63 @@
 package com.example.spring_aop_logback.util.web;
 
+import com.example.spring_aop_logback.annotation.ExternalEndpoint;
+import com.example.spring_aop_logback.cache.ReactiveCache;
 import com.example.spring_aop_logback.dto.UceRequest;
 import com.example.spring_aop_logback.dto.UceResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 @Component
 public class UceServiceClient {
 
+    private static final String ENTITLEMENT_CHECK_PATH = "/entitlementCheck";
+
     @Autowired
+    @Qualifier("uceWebClient")
     private WebClient webClient;
 
+    @Autowired
+    @Qualifier("uceRestClient")
+    private RestClient restClient;
+
+    @Autowired
+    private ReactiveCache<String, UceResponse> entitlementCache;
+
     @Value("${uce.service.url}")
     private String uceServiceBaseUrl;
 
+    /**
+     * Checks the entitlement of a card. Results are cached per cardId and concurrent checks of the same card share
+     * one call to UCE; the external call line is still logged for every check, with CACHE=HIT/MISS/COALESCED.
+     * Checks are never batched: UCE has no bulk API, so a batch would only delay per-card calls.
+     */
+    @ExternalEndpoint(path = ENTITLEMENT_CHECK_PATH)
     public Mono<UceResponse> checkEntitlement(UceRequest request) {
+        return entitlementCache.get(request.cardId(), cardId -> postEntitlementCheck(request));
+    }
+
+    /**
+     * Blocking variant of {@link #checkEntitlement(UceRequest)}, for request handling on (virtual) threads.
+     * It goes through the same entitlement cache with a plain blocking lookup; the RestClient call runs on the
+     * calling thread.
+     */
+    @ExternalEndpoint(path = ENTITLEMENT_CHECK_PATH)
+    public UceResponse checkEntitlementBlocking(UceRequest request) {
+        return entitlementCache.getBlocking(request.cardId(), cardId -> this.restClient.post()
+                .uri(uceServiceBaseUrl + ENTITLEMENT_CHECK_PATH)
+                .body(request)
+                .retrieve()
+                .body(UceResponse.class));
+    }
+
+    private Mono<UceResponse> postEntitlementCheck(UceRequest request) {
         return this.webClient.post()
-                .uri(uceServiceBaseUrl + "/entitlementCheck")
+                .uri(uceServiceBaseUrl + ENTITLEMENT_CHECK_PATH)
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(UceResponse.class);
@@ -1,34 +1,62 @@
 package com.example.spring_aop_logback.util.web;
 
+import com.example.spring_aop_logback.annotation.ExternalEndpoint;
+import com.example.spring_aop_logback.annotation.Hedged;
 import com.example.spring_aop_logback.dto.WelcomeRequest;
 import com.example.spring_aop_logback.dto.WelcomeResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 @Component
 public class WelcomeServiceClient {
 
+    private static final String WELCOME_PATH = "/welcome";
+
     @Autowired
+    @Qualifier("welcomeWebClient")
     private WebClient webClient;
 
+    @Autowired
+    @Qualifier("welcomeRestClient")
+    private RestClient restClient;
+
     @Value("${welcome.service.url}")
     private String welcomeServiceBaseUrl;
 
+    /**
+     * An idempotent GET, hedged so that one slow instance behind the service does not set the /hello tail latency.
+     */
+    @Hedged
+    @ExternalEndpoint(path = WELCOME_PATH)
     public Mono<String> getWelcomeMessage() {
         return this.webClient.get()
-                .uri(welcomeServiceBaseUrl + "/welcome")
+                .uri(welcomeServiceBaseUrl + WELCOME_PATH)
                 .retrieve()
                 .bodyToMono(String.class);
     }
 
+    @ExternalEndpoint(path = WELCOME_PATH)
     public Mono<WelcomeResponse> postWelcomeMessage(WelcomeRequest request) {
         return this.webClient.post()
-                .uri(welcomeServiceBaseUrl + "/welcome")
+                .uri(welcomeServiceBaseUrl + WELCOME_PATH)
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(WelcomeResponse.class);
     }
-}
\ No newline at end of file
+
+    /**
+     * Blocking variant of {@link #getWelcomeMessage()}, for request handling on (virtual) threads.
+     */
+    @ExternalEndpoint(path = WELCOME_PATH)
+    public String getWelcomeMessageBlocking() {
+        return this.restClient.get()
+                .uri(welcomeServiceBaseUrl + WELCOME_PATH)
+                .retrieve()
+                .body(String.class);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.spring_aop_logback.aspect;
+
+import com.example.spring_aop_logback.controller.HelloController;
+import com.example.spring_aop_logback.dto.HedgingStats;
+import com.example.spring_aop_logback.dto.UceRequest;
+import com.example.spring_aop_logback.dto.WelcomeRequest;
+import com.example.spring_aop_logback.policy.LoggingPolicyRegistry;
+import com.example.spring_aop_logback.service.HelloService;
+import com.example.spring_aop_logback.util.web.UceServiceClient;
+import com.example.spring_aop_logback.util.web.WelcomeServiceClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+/**
+ * The plans are computed once per method of the advised beans, so the advice only looks them up: URL template, body
+ * capture, return kind, policy slot, span name and hedger. They are built from the bean definitions of the
+ * application context: only registered, concrete beans of the advised packages are planned and numbered, without
+ * scanning the classpath.
+ */
+class AdvicePlanRegistryTests {
+
+    private final AdvicePlanRegistry registry = new AdvicePlanRegistry();
+
+    @BeforeEach
+    void createRegistry() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("helloController", new RootBeanDefinition(HelloController.class));
+        beanFactory.registerBeanDefinition("helloService", new RootBeanDefinition(HelloService.class));
+        beanFactory.registerBeanDefinition("welcomeServiceClient", new RootBeanDefinition(WelcomeServiceClient.class));
+        // Neither an abstract definition nor a bean outside the advised packages is planned.
+        GenericBeanDefinition abstractClient = new GenericBeanDefinition();
+        abstractClient.setBeanClass(UceServiceClient.class);
+        abstractClient.setAbstract(true);
+        beanFactory.registerBeanDefinition("uceServiceClient", abstractClient);
+        beanFactory.registerBeanDefinition("loggingPolicyRegistry", new RootBeanDefinition(LoggingPolicyRegistry.class));
+
+        ReflectionTestUtils.setField(registry, "environment",
+                new MockEnvironment().withProperty("welcome.service.url", "http://localhost:8081/api/external"));
+        ReflectionTestUtils.setField(registry, "beanFactory", beanFactory);
+        registry.afterPropertiesSet();
+    }
+
+    @Test
+    void numbersTheMappingsAndServicesOfTheRegisteredBeans() {
+        assertThat(registry.uris()).containsExactly("/hello", "/welcome");
+        assertThat(registry.services()).containsExactly("WELCOME");
+    }
+
+    @Test
+    void plansEveryPublicMethodOfTheAdvisedBeans() throws NoSuchMethodException {
+        AdvicePlan postWelcome = registry.controllerPlan(HelloController.class.getMethod("postWelcome", WelcomeRequest.class));
+        assertThat(postWelcome.urlTemplate()).isEqualTo("/welcome");
+        assertThat(postWelcome.policySlot()).isEqualTo(1);
+        assertThat(postWelcome.bodyCapture()).isEqualTo(AdvicePlan.BodyCapture.FIRST_ARGUMENT);
+        assertThat(postWelcome.spanName()).isEqualTo("HelloController.postWelcome");
+
+        AdvicePlan hedged = registry.clientPlan(WelcomeServiceClient.class.getMethod("getWelcomeMessage"));
+        assertThat(hedged.serviceName()).isEqualTo("WELCOME");
+        assertThat(hedged.urlTemplate()).isEqualTo("http://localhost:8081/api/external/welcome");
+        assertThat(hedged.returnKind()).isEqualTo(AdvicePlan.ReturnKind.MONO);
+        assertThat(hedged.policySlot()).isZero();
+        assertThat(hedged.hedger()).isNotNull();
+        assertThat(registry.clientPlan(WelcomeServiceClient.class.getMethod("getWelcomeMessageBlocking")).hedger()).isNull();
+        assertThat(registry.hedgingStats()).extracting(HedgingStats::service, HedgingStats::method)
+                .containsExactly(tuple("WELCOME", "getWelcomeMessage"));
+
+        AdvicePlan service = registry.servicePlan(HelloService.class.getMethod("getHelloMessage", String.class));
+        assertThat(service.spanName()).isEqualTo("HelloService.getHelloMessage");
+        assertThat(service.policySlot()).isEqualTo(-1);
+    }
+
+    @Test
+    void aMethodOfAnUnregisteredBeanGetsAPlanOnTheSpot() throws NoSuchMethodException {
+        AdvicePlan plan = registry.clientPlan(UceServiceClient.class.getMethod("checkEntitlement", UceRequest.class));
+
+        assertThat(plan.serviceName()).isEqualTo("UCE");
+        assertThat(plan.urlTemplate()).isEqualTo(AdvicePlanRegistry.UNKNOWN_URL);
+        // Not numbered: no runtime logging policy applies to it.
+        assertThat(plan.policySlot()).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.spring_aop_logback.aspect;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.spring_aop_logback.config.AspectWeavingConfig;
+import com.example.spring_aop_logback.service.HelloService;
+import com.example.spring_aop_logback.util.web.UceServiceClient;
+import org.aspectj.lang.Aspects;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The logging aspects must behave the same whether they run as Spring AOP proxies ({@code mvn test}) or are
+ * compile-time woven ({@code mvn clean test -Pctw}). Both builds run this suite: it checks that the aspects are
+ * applied the way the build says, and replays a fixed set of requests against the mock external service, comparing
+ * responses and log lines (timestamps, durations, ports and generated IDs masked) with one recorded transcript.
+ * The transcript of the last run is written to {@code target/aspect-weaving-transcript.txt}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "mock.external.enabled=true",
+        "welcome.hedging.enabled=false"
+})
+class AspectWeavingEquivalenceTests {
+
+    private static final String TRANSCRIPT = "aspect-weaving/transcript.txt";
+    private static final String CORRELATION_ID_HEADER = "X-Correlation-ID";
+    private static final String CORRELATION_ID_KEY = "CR_ID";
+    /** The external call lines go to their own, non-additive logger. */
+    private static final String EXTERNAL_LOGGER = "external-log";
+
+    private static final Pattern TIMESTAMP = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.\\d+)?Z");
+    private static final Pattern DURATION = Pattern.compile("\\b\\d+(\\.\\d+)?ms\\b");
+    private static final Pattern PORT = Pattern.compile("localhost:\\d+");
+    private static final Pattern UUID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    @DynamicPropertySource
+    static void mockExternalService(DynamicPropertyRegistry registry) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String baseUrl = "http://localhost:" + port + "/api/external";
+        registry.add("mock.external.port", () -> port);
+        registry.add("welcome.service.url", () -> baseUrl);
+        registry.add("uce.service.url", () -> baseUrl);
+    }
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private HelloService helloService;
+
+    @Autowired
+    private UceServiceClient uceServiceClient;
+
+    @Autowired
+    private LoggingAspect loggingAspect;
+
+    @Autowired
+    private ExternalServiceLoggingAspect externalServiceLoggingAspect;
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void captureLogs() {
+        appender.start();
+        logger(org.slf4j.Logger.ROOT_LOGGER_NAME).addAppender(appender);
+        logger(EXTERNAL_LOGGER).addAppender(appender);
+    }
+
+    @AfterEach
+    void releaseLogs() {
+        logger(org.slf4j.Logger.ROOT_LOGGER_NAME).detachAppender(appender);
+        logger(EXTERNAL_LOGGER).detachAppender(appender);
+        appender.stop();
+    }
+
+    @Test
+    void aspectsAreAppliedAsTheBuildSays() {
+        boolean woven = "ctw".equals(System.getProperty("aspects.weaving", "proxy"));
+
+        assertThat(AspectWeavingConfig.isWoven(LoggingAspect.class)).isEqualTo(woven);
+        assertThat(AspectWeavingConfig.isWoven(ExternalServiceLoggingAspect.class)).isEqualTo(woven);
+        assertThat(AopUtils.isAopProxy(helloService)).isEqualTo(!woven);
+        assertThat(AopUtils.isAopProxy(uceServiceClient)).isEqualTo(!woven);
+        if (woven) {
+            // The woven code calls the aspectOf() instances; they must be the ones Spring configured.
+            assertThat(loggingAspect).isSameAs(Aspects.aspectOf(LoggingAspect.class));
+            assertThat(externalServiceLoggingAspect).isSameAs(Aspects.aspectOf(ExternalServiceLoggingAspect.class));
+        }
+    }
+
+    @Test
+    void requestsProduceTheRecordedLogLines() throws IOException, InterruptedException {
+        List<String> transcript = new ArrayList<>();
+        exchange(transcript, "hello-1", HttpMethod.GET, "/hello?name=Ada", null);
+        exchange(transcript, "hello-2", HttpMethod.GET, "/hello?name=error", null);
+        exchange(transcript, "welcome-1", HttpMethod.POST, "/welcome", "{\"userName\":\"Ada\",\"message\":\"hi\"}");
+        exchange(transcript, "delegate-1", HttpMethod.POST, "/createDelegate", "{\"cardId\":\"C-12345\"}");
+        exchange(transcript, "delegate-2", HttpMethod.POST, "/createDelegate", "{\"cardId\":\"C-12345\"}");
+        exchange(transcript, "blocking-hello-1", HttpMethod.GET, "/blocking/hello?name=Ada", null);
+        exchange(transcript, "blocking-delegate-1", HttpMethod.POST, "/blocking/createDelegate", "{\"cardId\":\"C-99999\"}");
+
+        Path actual = Path.of("target", "aspect-weaving-transcript.txt");
+        Files.write(actual, transcript, StandardCharsets.UTF_8);
+        List<String> expected = new ClassPathResource(TRANSCRIPT).getContentAsString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(transcript).as("log transcript (see %s)", actual.toAbsolutePath()).containsExactlyElementsOf(expected);
+    }
+
+    /**
+     * Sends one request with a fixed correlation ID and appends its status, body and log lines to the transcript.
+     */
+    private void exchange(List<String> transcript, String correlationId, HttpMethod method, String uri, String body)
+            throws InterruptedException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(CORRELATION_ID_HEADER, correlationId);
+        if (body != null) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        ResponseEntity<String> response = restTemplate.exchange(uri, method, new HttpEntity<>(body, headers), String.class);
+        boolean success = response.getStatusCode().is2xxSuccessful();
+        transcript.add("### " + method + " " + uri + " -> " + response.getStatusCode().value()
+                + (success ? " " + mask(response.getBody()) : ""));
+        transcript.addAll(linesOf(correlationId));
+    }
+
+    /**
+     * The lines logged for a request, once its controller summary line has been logged.
+     */
+    private List<String> linesOf(String correlationId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            List<String> lines = new ArrayList<>();
+            boolean complete = false;
+            List<ILoggingEvent> events;
+            synchronized (appender) {
+                // AppenderBase appends under the appender's lock, from whichever thread logged.
+                events = List.copyOf(appender.list);
+            }
+            for (ILoggingEvent event : events) {
+                if (correlationId.equals(event.getMDCPropertyMap().get(CORRELATION_ID_KEY))) {
+                    String message = event.getFormattedMessage();
+                    lines.add(event.getLevel() + " " + event.getLoggerName() + " " + mask(message));
+                    complete |= message.contains("SOURCE=CONTROLLER");
+                }
+            }
+            if (complete || System.currentTimeMillis() > deadline) {
+                return lines;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static String mask(String text) {
+        if (text == null) {
+            return "";
+        }
+        text = TIMESTAMP.matcher(text).replaceAll("<ts>");
+        text = DURATION.matcher(text).replaceAll("<n>ms");
+        text = PORT.matcher(text).replaceAll("localhost:<port>");
+        return UUID.matcher(text).replaceAll("<uuid>");
+    }
+
+    private static Logger logger(String name) {
+        return (Logger) LoggerFactory.getLogger(name);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.spring_aop_logback.aspect;
+
+import com.example.spring_aop_logback.context.LogContext;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * How a failed call is logged, and how the calling request's deadline bounds a call: a reactive call fails with 504
+ * when the deadline passes, and no call is started once it has passed.
+ */
+class ExternalServiceLoggingAspectTests {
+
+    private static final AdvicePlan PLAN = new AdvicePlan("UCE", "http://localhost/api/external/entitlementCheck",
+            AdvicePlan.ReturnKind.MONO, AdvicePlan.BodyCapture.NONE, -1, null, "UCE.checkEntitlement");
+
+    @Test
+    void logsTheUpstreamStatusAndTimeoutsAsGatewayTimeouts() {
+        assertThat(ExternalServiceLoggingAspect.statusOf(
+                WebClientResponseException.create(503, "Service Unavailable", HttpHeaders.EMPTY, new byte[0], null)))
+                .isEqualTo(503);
+        assertThat(ExternalServiceLoggingAspect.statusOf(
+                HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", HttpHeaders.EMPTY, new byte[0], null)))
+                .isEqualTo(502);
+        assertThat(ExternalServiceLoggingAspect.statusOf(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS)))
+                .isEqualTo(429);
+
+        // Reactor's timeout, a client read timeout and a blocking socket timeout, however wrapped.
+        assertThat(ExternalServiceLoggingAspect.statusOf(new TimeoutException("Did not observe any item"))).isEqualTo(504);
+        assertThat(ExternalServiceLoggingAspect.statusOf(new WebClientRequestException(ReadTimeoutException.INSTANCE,
+                HttpMethod.GET, URI.create("http://localhost/api"), HttpHeaders.EMPTY)))
+                .isEqualTo(504);
+        assertThat(ExternalServiceLoggingAspect.statusOf(
+                new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out"))))
+                .isEqualTo(504);
+
+        assertThat(ExternalServiceLoggingAspect.statusOf(new IllegalStateException("boom"))).isEqualTo(500);
+        assertThat(ExternalServiceLoggingAspect.statusOf(new ResourceAccessException("Connection refused"))).isEqualTo(500);
+    }
+
+    @Test
+    void failsAMonoThatOutlivesTheDeadlineWithGatewayTimeout() {
+        LogContext logContext = deadline("deadline-1", Duration.ofSeconds(1));
+
+        assertThat(ExternalServiceLoggingAspect.withDeadline(Mono.just("ok"), PLAN, logContext).block()).isEqualTo("ok");
+        assertThatThrownBy(() -> ExternalServiceLoggingAspect.withDeadline(Mono.never(), PLAN, logContext).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class, error -> {
+                    assertThat(ExternalServiceLoggingAspect.statusOf(error)).isEqualTo(504);
+                    assertThat(error.getReason()).isEqualTo("Request deadline exceeded calling UCE");
+                });
+    }
+
+    @Test
+    void boundsTheWholeFluxNotTheGapsBetweenElements() {
+        LogContext logContext = deadline("deadline-2", Duration.ofSeconds(1));
+        List<Long> received = new CopyOnWriteArrayList<>();
+
+        assertThat(ExternalServiceLoggingAspect.withDeadline(Flux.just(1L, 2L, 3L), PLAN, logContext).collectList().block())
+                .containsExactly(1L, 2L, 3L);
+
+        // Every gap is well within the deadline; the stream as a whole is not.
+        assertThatThrownBy(() -> ExternalServiceLoggingAspect.withDeadline(Flux.interval(Duration.ofMillis(20)), PLAN, logContext)
+                .doOnNext(received::add)
+                .blockLast())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        error -> assertThat(error.getStatusCode().value()).isEqualTo(504));
+        assertThat(received).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void startsNoCallOnceTheDeadlineHasPassed() {
+        LogContext spent = deadline("deadline-3", Duration.ofNanos(1));
+        AtomicInteger subscribed = new AtomicInteger();
+        Mono<String> mono = Mono.fromCallable(() -> "sent").doOnSubscribe(subscription -> subscribed.incrementAndGet());
+        Flux<String> flux = Flux.just("sent").doOnSubscribe(subscription -> subscribed.incrementAndGet());
+
+        assertThatThrownBy(() -> ExternalServiceLoggingAspect.withDeadline(mono, PLAN, spent).block())
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> ExternalServiceLoggingAspect.withDeadline(flux, PLAN, spent).blockLast())
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(subscribed).hasValue(0);
+
+        // A blocking call is refused before it is made.
+        assertThatThrownBy(() -> ExternalServiceLoggingAspect.refuseAfterDeadline(PLAN, spent))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        error -> assertThat(error.getStatusCode().value()).isEqualTo(504));
+        ExternalServiceLoggingAspect.refuseAfterDeadline(PLAN, deadline("deadline-4", Duration.ofSeconds(10)));
+        ExternalServiceLoggingAspect.refuseAfterDeadline(PLAN, LogContext.builder("no-deadline").build());
+        ExternalServiceLoggingAspect.refuseAfterDeadline(PLAN, null);
+    }
+
+    private static LogContext deadline(String correlationId, Duration timeout) {
+        return LogContext.builder(correlationId).deadline(System.nanoTime(), timeout.toNanos()).build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.spring_aop_logback.batch;
+
+import com.example.spring_aop_logback.context.ExternalCallAttributes;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatcherTests {
+
+    private final List<List<Integer>> bulkCalls = new CopyOnWriteArrayList<>();
+    private final List<String> bulkCorrelationIds = new CopyOnWriteArrayList<>();
+
+    @Test
+    void sendsAFullBatchAtOnceAndMapsResultsInOrder() {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(3, Duration.ofMinutes(1), this::echo);
+
+        List<CompletableFuture<String>> results = List.of(
+                batcher.submit(1).toFuture(), batcher.submit(2).toFuture(), batcher.submit(3).toFuture());
+
+        assertThat(results).extracting(CompletableFuture::join).containsExactly("r1", "r2", "r3");
+        assertThat(bulkCalls).containsExactly(List.of(1, 2, 3));
+    }
+
+    @Test
+    void sendsWhatIsWaitingWhenTheWindowCloses() {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(50, Duration.ofMillis(20), this::echo);
+
+        ExternalCallAttributes attributes = new ExternalCallAttributes();
+        CompletableFuture<String> first = batcher.submit(1)
+                .contextWrite(context -> context.put("cr", "CR-1").put(ExternalCallAttributes.CONTEXT_KEY, attributes))
+                .toFuture();
+        CompletableFuture<String> second = batcher.submit(2).contextWrite(context -> context.put("cr", "CR-2")).toFuture();
+
+        assertThat(first.orTimeout(10, TimeUnit.SECONDS).join()).isEqualTo("r1");
+        assertThat(second.join()).isEqualTo("r2");
+        assertThat(bulkCalls).containsExactly(List.of(1, 2));
+        // The bulk call runs in the first request's context, without its per-call attributes.
+        assertThat(bulkCorrelationIds).containsExactly("CR-1 attributes=false");
+        assertThat(attributes.batchSize()).isEqualTo(2);
+    }
+
+    @Test
+    void leavesCancelledRequestsOut() {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(50, Duration.ofMillis(50), this::echo);
+
+        Disposable cancelled = batcher.submit(1).subscribe();
+        CompletableFuture<String> waiting = batcher.submit(2).toFuture();
+        cancelled.dispose();
+
+        assertThat(waiting.orTimeout(10, TimeUnit.SECONDS).join()).isEqualTo("r2");
+        assertThat(bulkCalls).containsExactly(List.of(2));
+    }
+
+    @Test
+    void failsEveryRequestOfAFailedBulkCall() {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(2, Duration.ofMinutes(1),
+                items -> Mono.error(new IllegalStateException("downstream failed")));
+
+        CompletableFuture<String> first = batcher.submit(1).toFuture();
+        CompletableFuture<String> second = batcher.submit(2).toFuture();
+
+        assertThatThrownBy(first::join).hasRootCauseMessage("downstream failed");
+        assertThatThrownBy(second::join).hasRootCauseMessage("downstream failed");
+
+        MicroBatcher<Integer, String> mismatched = new MicroBatcher<>(2, Duration.ofMinutes(1), items -> Mono.just(List.of("only one")));
+        CompletableFuture<String> third = mismatched.submit(1).toFuture();
+        mismatched.submit(2).subscribe(value -> { }, error -> { });
+        assertThatThrownBy(third::join).hasRootCauseMessage("Bulk call returned 1 results for 2 requests");
+    }
+
+    private Mono<List<String>> echo(List<Integer> items) {
+        return Mono.deferContextual(context -> {
+            bulkCalls.add(List.copyOf(items));
+            bulkCorrelationIds.add(context.getOrDefault("cr", "none")
+                    + " attributes=" + context.hasKey(ExternalCallAttributes.CONTEXT_KEY));
+            return Mono.just(items.stream().map(item -> "r" + item).toList());
+        });
+    }
+}
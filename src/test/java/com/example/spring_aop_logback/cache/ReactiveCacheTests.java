@@ -0,0 +1,171 @@
+package com.example.spring_aop_logback.cache;
+
+import com.example.spring_aop_logback.context.ExternalCallAttributes;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactiveCacheTests {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesHitsAndRecordsHowEachLookupWasServed() {
+        ReactiveCache<String, String> cache = new ReactiveCache<>(10, Duration.ofMinutes(1), Duration.ofMinutes(1), value -> false);
+        Function<String, Mono<String>> loader = key -> Mono.fromSupplier(() -> key + "-" + loads.incrementAndGet());
+
+        assertThat(lookup(cache, "a", loader, CacheStatus.MISS)).isEqualTo("a-1");
+        assertThat(lookup(cache, "a", loader, CacheStatus.HIT)).isEqualTo("a-1");
+        assertThat(lookup(cache, "b", loader, CacheStatus.MISS)).isEqualTo("b-2");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void concurrentLookupsShareOneLoad() {
+        ReactiveCache<String, String> cache = new ReactiveCache<>(10, Duration.ofMinutes(1), Duration.ofMinutes(1), value -> false);
+        Sinks.One<String> downstream = Sinks.one();
+        Function<String, Mono<String>> loader = key -> {
+            loads.incrementAndGet();
+            return downstream.asMono();
+        };
+        ExternalCallAttributes first = new ExternalCallAttributes();
+        ExternalCallAttributes second = new ExternalCallAttributes();
+        Mono<String> firstLookup = cache.get("a", loader).contextWrite(context -> context.put(ExternalCallAttributes.CONTEXT_KEY, first));
+        Mono<String> secondLookup = cache.get("a", loader).contextWrite(context -> context.put(ExternalCallAttributes.CONTEXT_KEY, second));
+        CompletableFuture<String> firstResult = firstLookup.toFuture();
+        CompletableFuture<String> secondResult = secondLookup.toFuture();
+
+        downstream.tryEmitValue("value");
+        assertThat(firstResult).isCompletedWithValue("value");
+        assertThat(secondResult).isCompletedWithValue("value");
+        assertThat(loads).hasValue(1);
+        assertThat(first.cacheStatus()).isEqualTo(CacheStatus.MISS);
+        assertThat(second.cacheStatus()).isEqualTo(CacheStatus.COALESCED);
+    }
+
+    @Test
+    void doesNotCacheErrorsOrEmptyResults() {
+        ReactiveCache<String, String> cache = new ReactiveCache<>(10, Duration.ofMinutes(1), Duration.ofMinutes(1), value -> false);
+        Function<String, Mono<String>> failing = key -> {
+            loads.incrementAndGet();
+            return Mono.error(new IllegalStateException("down"));
+        };
+        assertThatThrownBy(() -> cache.get("a", failing).block()).hasMessage("down");
+        assertThat(cache.get("b", key -> Mono.empty()).block()).isNull();
+        assertThat(cache.size()).isZero();
+
+        assertThat(cache.get("a", key -> Mono.just("up")).block()).isEqualTo("up");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void expiresNegativeValuesEarlierAndStaysBounded() throws InterruptedException {
+        ReactiveCache<String, String> cache = new ReactiveCache<>(2, Duration.ofMinutes(1), Duration.ofMillis(1), "denied"::equals);
+        Function<String, Mono<String>> loader = key -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return key.startsWith("x") ? "denied" : "granted";
+        });
+        cache.get("x", loader).block();
+        Thread.sleep(5);
+        cache.get("x", loader).block();
+        assertThat(loads).hasValue(2);
+
+        cache.get("a", loader).block();
+        cache.get("b", loader).block();
+        cache.get("c", loader).block();
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+
+        ReactiveCache<String, String> disabled = new ReactiveCache<>(0, Duration.ofMinutes(1), Duration.ofMinutes(1), value -> false);
+        disabled.get("a", loader).block();
+        disabled.get("a", loader).block();
+        assertThat(disabled.size()).isZero();
+        assertThat(loads).hasValue(7);
+    }
+
+    @Test
+    void blockingLookupsShareEntriesAndLoadsWithReactiveOnes() throws InterruptedException {
+        ReactiveCache<String, String> cache = new ReactiveCache<>(10, Duration.ofMinutes(1), Duration.ofMinutes(1), value -> false);
+        Function<String, String> loader = key -> key + "-" + loads.incrementAndGet();
+
+        assertThat(blockingLookup(cache, "a", loader, CacheStatus.MISS)).isEqualTo("a-1");
+        assertThat(blockingLookup(cache, "a", loader, CacheStatus.HIT)).isEqualTo("a-1");
+        assertThat(lookup(cache, "a", key -> Mono.just("reloaded"), CacheStatus.HIT)).isEqualTo("a-1");
+
+        // A reactive lookup waits for the load a blocking lookup started, and vice versa.
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> blocking = CompletableFuture.supplyAsync(() -> cache.getBlocking("b", key -> {
+            loading.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "b-" + loads.incrementAndGet();
+        }));
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+        ExternalCallAttributes coalesced = new ExternalCallAttributes();
+        CompletableFuture<String> reactive = cache.get("b", key -> Mono.just("never loaded"))
+                .contextWrite(context -> context.put(ExternalCallAttributes.CONTEXT_KEY, coalesced))
+                .toFuture();
+        release.countDown();
+        assertThat(blocking.join()).isEqualTo("b-2");
+        assertThat(reactive.orTimeout(10, TimeUnit.SECONDS).join()).isEqualTo("b-2");
+        assertThat(coalesced.cacheStatus()).isEqualTo(CacheStatus.COALESCED);
+
+        Sinks.One<String> downstream = Sinks.one();
+        CompletableFuture<String> reactiveLoad = cache.get("c", key -> downstream.asMono()).toFuture();
+        CompletableFuture<String> waiting = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> waiting.complete(blockingLookup(cache, "c", key -> "never loaded", CacheStatus.COALESCED)));
+        waiter.start();
+        while (waiter.isAlive() && waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        downstream.tryEmitValue("c-reactive");
+        assertThat(reactiveLoad.join()).isEqualTo("c-reactive");
+        waiter.join(10_000);
+        assertThat(waiting).isCompletedWithValue("c-reactive");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void blockingLookupsDoNotCacheFailures() {
+        ReactiveCache<String, String> cache = new ReactiveCache<>(10, Duration.ofMinutes(1), Duration.ofMinutes(1), value -> false);
+        assertThatThrownBy(() -> cache.getBlocking("a", key -> {
+            throw new IllegalStateException("down");
+        })).hasMessage("down");
+        assertThat(cache.getBlocking("b", key -> null)).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getBlocking("a", key -> "up")).isEqualTo("up");
+    }
+
+    private static String blockingLookup(ReactiveCache<String, String> cache, String key, Function<String, String> loader,
+                                         CacheStatus expected) {
+        ExternalCallAttributes attributes = new ExternalCallAttributes();
+        String value;
+        try (LogContextHolder.Scope ignored = ExternalCallAttributes.open(attributes)) {
+            value = cache.getBlocking(key, loader);
+        }
+        assertThat(attributes.cacheStatus()).isEqualTo(expected);
+        return value;
+    }
+
+    private static String lookup(ReactiveCache<String, String> cache, String key, Function<String, Mono<String>> loader,
+                                 CacheStatus expected) {
+        ExternalCallAttributes attributes = new ExternalCallAttributes();
+        String value = cache.get(key, loader).contextWrite(context -> context.put(ExternalCallAttributes.CONTEXT_KEY, attributes)).block();
+        assertThat(attributes.cacheStatus()).isEqualTo(expected);
+        return value;
+    }
+}
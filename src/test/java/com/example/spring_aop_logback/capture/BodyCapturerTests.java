@@ -0,0 +1,94 @@
+package com.example.spring_aop_logback.capture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BodyCapturerTests {
+
+    private final BodyCapturer capturer = new BodyCapturer();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(capturer, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(capturer, "environment", new MockEnvironment());
+        capturer.afterPropertiesSet();
+    }
+
+    @Test
+    void stopsSerializingOnceTheByteBudgetIsUsedUp() {
+        AtomicInteger serialized = new AtomicInteger();
+        List<String> items = new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                serialized.incrementAndGet();
+                return "item-" + index;
+            }
+
+            @Override
+            public int size() {
+                return 100_000;
+            }
+        };
+
+        String rendered = capturer.render(new Body("card-1", items), new CapturePolicy(64, 1.0, Set.of()));
+
+        assertThat(rendered).startsWith("{\"cardId\":\"card-1\",\"items\":[\"item-0\"").endsWith(BodyCapturer.TRUNCATED_SUFFIX);
+        String content = rendered.substring(0, rendered.length() - BodyCapturer.TRUNCATED_SUFFIX.length());
+        assertThat(content.getBytes(StandardCharsets.UTF_8)).hasSize(64);
+        // Checked per value, not only when the serializer's few-KB buffer fills.
+        assertThat(serialized.get()).isLessThan(10);
+    }
+
+    @Test
+    void masksFieldsAndCountsUtf8Bytes() {
+        CapturePolicy policy = new CapturePolicy(0, 1.0, Set.of("cardId"));
+        assertThat(capturer.render(new Body("card-1", List.of("a")), policy))
+                .isEqualTo("{\"cardId\":\"" + BodyCapturer.MASK + "\",\"items\":[\"a\"]}");
+
+        String rendered = capturer.render(new Body("ü".repeat(20), List.of()), new CapturePolicy(20, 1.0, Set.of()));
+        String content = rendered.substring(0, rendered.length() - BodyCapturer.TRUNCATED_SUFFIX.length());
+        assertThat(content).isEqualTo("{\"cardId\":\"üüüü");
+        assertThat(content.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(20);
+    }
+
+    @Test
+    void rendersACapturedBodyOnceHoweverOftenTheLineIsFormatted() {
+        AtomicInteger serialized = new AtomicInteger();
+        List<String> items = new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                serialized.incrementAndGet();
+                return "item-" + index;
+            }
+
+            @Override
+            public int size() {
+                return 2;
+            }
+        };
+        CapturedBody captured = capturer.capture(new Body("card-1", items), new CapturePolicy(0, 1.0, Set.of()));
+        assertThat(serialized.get()).isZero();
+
+        String first = captured.toString();
+        // E.g. once more for each appender the line fans out to.
+        assertThat(captured.toString()).isSameAs(first);
+        assertThat(captured.toString()).isSameAs(first);
+
+        assertThat(first).isEqualTo("{\"cardId\":\"card-1\",\"items\":[\"item-0\",\"item-1\"]}");
+        assertThat(serialized.get()).isEqualTo(2);
+    }
+
+    record Body(String cardId, List<String> items) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.spring_aop_logback.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientProfileTests {
+
+    @Test
+    void readsTheSettingsOfOneServiceOnly() {
+        MockEnvironment environment = environment()
+                .withProperty("uce.client.max-connections", "8")
+                .withProperty("uce.client.pending-acquire-timeout", "250ms")
+                .withProperty("uce.client.evict-in-background", "0s")
+                .withProperty("uce.client.protocols", "H2C,HTTP11")
+                .withProperty("uce.client.compress", "true")
+                .withProperty("uce.client.response-timeout", "1s")
+                .withProperty("welcome.client.max-connections", "99");
+
+        ClientProfile uce = ClientProfile.resolve(environment, "UCE");
+
+        assertThat(uce.maxConnections()).isEqualTo(8);
+        assertThat(uce.pendingAcquireTimeout()).isEqualTo(Duration.ofMillis(250));
+        assertThat(uce.evictInBackground()).isZero();
+        assertThat(uce.protocols()).containsExactly(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        assertThat(uce.compress()).isTrue();
+        assertThat(uce.responseTimeout()).isEqualTo(Duration.ofSeconds(1));
+        // Not set for UCE: the defaults, not the other service's values.
+        assertThat(uce.pendingAcquireMaxCount()).isEqualTo(100);
+        assertThat(uce.keepAlive()).isTrue();
+        assertThat(uce.connectTimeout()).isEqualTo(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void defaultsEverySetting() {
+        ClientProfile profile = ClientProfile.resolve(environment(), "welcome");
+
+        assertThat(profile.maxConnections()).isEqualTo(50);
+        assertThat(profile.maxIdleTime()).isEqualTo(Duration.ofSeconds(20));
+        assertThat(profile.maxLifeTime()).isEqualTo(Duration.ofMinutes(5));
+        assertThat(profile.evictInBackground()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(profile.protocols()).containsExactly(HttpProtocol.HTTP11);
+        assertThat(profile.compress()).isFalse();
+        assertThat(profile.responseTimeout()).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Converts durations such as "250ms" the way the application's environment does.
+     */
+    private static MockEnvironment environment() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setConversionService(new ApplicationConversionService());
+        return environment;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.spring_aop_logback.config;
+
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import com.example.spring_aop_logback.dto.ConcurrencyLimitStats;
+import com.example.spring_aop_logback.dto.ConnectionPoolStats;
+import com.example.spring_aop_logback.metrics.ConnectionPoolRegistry;
+import com.example.spring_aop_logback.resilience.ConcurrencyLimiterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The concurrency limit filter of the WebClients against a server that accepts connections and never answers:
+ * a call cancelled by the request's deadline counts against the service, any other cancel does not. The clients'
+ * connection pools are closed with the application context.
+ */
+class WebClientConfigTests {
+
+    private final ConcurrencyLimiterRegistry limiters = new ConcurrencyLimiterRegistry();
+    private ServerSocket silentServer;
+    private WebClient uce;
+
+    @BeforeEach
+    void createClient() throws IOException {
+        silentServer = new ServerSocket(0);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("uce.limiter.enabled", "true")
+                .withProperty("uce.limiter.initial-limit", "10");
+        environment.setConversionService(new ApplicationConversionService());
+        ReflectionTestUtils.setField(limiters, "environment", environment);
+        WebClientConfig config = new WebClientConfig();
+        ReflectionTestUtils.setField(config, "environment", environment);
+        ReflectionTestUtils.setField(config, "connectionPoolRegistry", new ConnectionPoolRegistry());
+        ReflectionTestUtils.setField(config, "concurrencyLimiterRegistry", limiters);
+        uce = config.uceWebClient();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        silentServer.close();
+    }
+
+    @Test
+    void aCallCancelledByTheDeadlineCountsAsUnanswered() {
+        // The aspect bounds a call with a timeout at the request's deadline, which cancels the exchange.
+        LogContext logContext = LogContext.builder("limiter-1").deadline(System.nanoTime(), Duration.ofMillis(200).toNanos()).build();
+
+        assertThatThrownBy(() -> call(logContext, Duration.ofMillis(200))).hasCauseInstanceOf(TimeoutException.class);
+
+        ConcurrencyLimitStats stats = limiters.limiter("uce").stats();
+        assertThat(stats.inFlight()).isZero();
+        assertThat(stats.dropped()).isEqualTo(1);
+        assertThat(stats.limit()).isEqualTo(9);
+    }
+
+    @Test
+    void anyOtherCancelOnlyReleasesThePermit() {
+        // E.g. the losing attempt of a hedged call, well within the deadline.
+        LogContext logContext = LogContext.builder("limiter-2").deadline(System.nanoTime(), Duration.ofSeconds(10).toNanos()).build();
+
+        assertThatThrownBy(() -> call(logContext, Duration.ofMillis(200))).hasCauseInstanceOf(TimeoutException.class);
+
+        ConcurrencyLimitStats stats = limiters.limiter("uce").stats();
+        assertThat(stats.inFlight()).isZero();
+        assertThat(stats.dropped()).isZero();
+        assertThat(stats.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void closesTheConnectionPoolsWithTheContext() throws InterruptedException {
+        ConnectionPoolRegistry pools;
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                WebClientConfig.class, ConnectionPoolRegistry.class, ConcurrencyLimiterRegistry.class)) {
+            pools = context.getBean(ConnectionPoolRegistry.class);
+            uce = context.getBean("uceWebClient", WebClient.class);
+            assertThatThrownBy(() -> call(null, Duration.ofMillis(200))).hasCauseInstanceOf(TimeoutException.class);
+            assertThat(pools.stats()).extracting(ConnectionPoolStats::pool).containsExactly("uce");
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!pools.stats().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pools.stats()).isEmpty();
+    }
+
+    private void call(LogContext logContext, Duration timeout) {
+        uce.get().uri("http://localhost:" + silentServer.getLocalPort() + "/api/external/entitlementCheck")
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .contextWrite(context -> LogContextHolder.write(context, logContext))
+                .block();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.spring_aop_logback.context;
+
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import io.micrometer.context.ContextRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The log context travels in the Reactor {@code Context} and is restored into {@link LogContextHolder} on whatever
+ * thread a signal is delivered, as {@code spring.reactor.context-propagation=auto} does in the application.
+ */
+class LogContextHolderTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final Scheduler hop = Schedulers.newSingle("hop");
+
+    @BeforeEach
+    void enablePropagation() {
+        // What the application turns on at startup; left on, as cached application contexts of other tests rely on it.
+        Hooks.enableAutomaticContextPropagation();
+    }
+
+    @AfterEach
+    void stopScheduler() {
+        hop.dispose();
+    }
+
+    @Test
+    void theAccessorIsRegistered() {
+        assertThat(ContextRegistry.getInstance().getThreadLocalAccessors())
+                .anySatisfy(accessor -> assertThat(accessor).isInstanceOf(LogContextThreadLocalAccessor.class));
+    }
+
+    @Test
+    void theCorrelationIdFollowsTheSubscriptionAcrossThreads() {
+        LogContext logContext = LogContext.builder("CR-1").build();
+
+        String seen = Mono.just("x")
+                .publishOn(hop)
+                .map(x -> Thread.currentThread().getName() + " " + LogContextHolder.current().correlationId())
+                .flatMap(x -> Mono.delay(Duration.ofMillis(1)).map(tick -> x + " " + LogContextHolder.current().correlationId()))
+                .contextWrite(context -> LogContextHolder.write(context, logContext))
+                .block(TIMEOUT);
+
+        assertThat(seen).startsWith("hop").endsWith(" CR-1 CR-1");
+        // Restored for the signal only: the next subscription on that thread has no log context.
+        assertThat(Mono.just("y").publishOn(hop).map(y -> LogContextHolder.current() == null).block(TIMEOUT)).isTrue();
+    }
+
+    @Test
+    void concurrentRequestsKeepTheirOwnCorrelationIds() {
+        Mono<String> first = Mono.delay(Duration.ofMillis(20)).map(tick -> LogContextHolder.current().correlationId())
+                .contextWrite(context -> LogContextHolder.write(context, LogContext.builder("CR-1").build()));
+        Mono<String> second = Mono.delay(Duration.ofMillis(10)).map(tick -> LogContextHolder.current().correlationId())
+                .contextWrite(context -> LogContextHolder.write(context, LogContext.builder("CR-2").build()));
+
+        assertThat(Mono.zip(first, second, (a, b) -> a + "," + b).block(TIMEOUT)).isEqualTo("CR-1,CR-2");
+    }
+
+    @Test
+    void aScopeRestoresThePreviousContext() {
+        LogContext outer = LogContext.builder("CR-1").build();
+        LogContext inner = LogContext.builder("CR-2").build();
+
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(outer)) {
+            try (LogContextHolder.Scope nested = LogContextHolder.open(inner)) {
+                assertThat(LogContextHolder.current()).isSameAs(inner);
+            }
+            assertThat(LogContextHolder.current()).isSameAs(outer);
+            // A subscription without a log context of its own falls back to the thread's.
+            assertThat(LogContextHolder.from(Context.empty())).isSameAs(outer);
+            assertThat(LogContextHolder.from(LogContextHolder.write(Context.empty(), inner))).isSameAs(inner);
+        }
+        assertThat(LogContextHolder.current()).isNull();
+    }
+
+    @Test
+    void aChangedCopyLeavesTheOriginalAlone() {
+        LogContext original = LogContext.builder("CR-1").put(LoggingEnum.URI, "/hello").build();
+
+        LogContext changed = original.toBuilder().put(LoggingEnum.URI, "/welcome").putIfAbsent(LoggingEnum.METHOD, "welcome").build();
+
+        assertThat(original.get(LoggingEnum.URI)).isEqualTo("/hello");
+        assertThat(original.get(LoggingEnum.METHOD)).isNull();
+        assertThat(changed.get(LoggingEnum.URI)).isEqualTo("/welcome");
+        assertThat(changed.correlationId()).isEqualTo("CR-1");
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.spring_aop_logback.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpanTreeTests {
+
+    @Test
+    void rendersNestedSpansWithTheirOutcome() {
+        SpanTree tree = SpanTree.acquire();
+        int generation = tree.generation();
+
+        long service = tree.begin(generation, "HelloService.getHelloMessage", SpanTree.NO_SPAN, millis(0));
+        long client = tree.begin(generation, "WELCOME.getWelcomeMessage", service, millis(1));
+        long other = tree.begin(generation, "UCE.checkEntitlement", SpanTree.NO_SPAN, millis(2));
+        tree.end(client, millis(3), true);
+        tree.end(service, millis(5), false);
+        // Only the first end counts.
+        tree.end(service, millis(9), true);
+
+        assertThat(other).isNotEqualTo(SpanTree.NO_SPAN);
+        assertThat(tree.finish(generation, millis(10)))
+                .isEqualTo("HelloService.getHelloMessage 5.0ms[WELCOME.getWelcomeMessage 2.0ms!], UCE.checkEntitlement 8.0ms+");
+        assertThat(tree.finish(generation, millis(10))).isNull();
+    }
+
+    @Test
+    void aSpanEndingAtNanoTimeZeroIsNotRunning() {
+        // System.nanoTime() has an arbitrary origin: zero and negative values are valid times.
+        SpanTree tree = SpanTree.acquire();
+        int generation = tree.generation();
+
+        long span = tree.begin(generation, "HelloService.getHelloMessage", SpanTree.NO_SPAN, millis(-5));
+        tree.end(span, 0, false);
+
+        assertThat(tree.finish(generation, millis(10))).isEqualTo("HelloService.getHelloMessage 5.0ms");
+    }
+
+    @Test
+    void aLateCompletionIsDroppedInsteadOfLandingInTheNextRequest() {
+        SpanTree tree = SpanTree.acquire();
+        int first = tree.generation();
+        long late = tree.begin(first, "WELCOME.getWelcomeMessage", SpanTree.NO_SPAN, millis(0));
+        assertThat(tree.finish(first, millis(1))).isEqualTo("WELCOME.getWelcomeMessage 1.0ms+");
+
+        // The next request gets the same slot; the first request's handle must not reach it.
+        int second = tree.generation();
+        assertThat(second).isNotEqualTo(first);
+        long span = tree.begin(second, "UCE.checkEntitlement", SpanTree.NO_SPAN, millis(10));
+        tree.end(late, millis(11), true);
+        assertThat(tree.begin(first, "WELCOME.getWelcomeMessage", late, millis(11))).isEqualTo(SpanTree.NO_SPAN);
+        tree.end(span, millis(14), false);
+
+        assertThat(tree.finish(second, millis(20))).isEqualTo("UCE.checkEntitlement 4.0ms");
+    }
+
+    @Test
+    void spansBeyondTheCapacityAreCounted() {
+        SpanTree tree = SpanTree.acquire();
+        int generation = tree.generation();
+
+        for (int i = 0; i < SpanTree.MAX_SPANS; i++) {
+            long span = tree.begin(generation, "S" + i, SpanTree.NO_SPAN, millis(0));
+            tree.end(span, millis(1), false);
+        }
+        assertThat(tree.begin(generation, "late", SpanTree.NO_SPAN, millis(1))).isEqualTo(SpanTree.NO_SPAN);
+        assertThat(tree.begin(generation, "later", SpanTree.NO_SPAN, millis(1))).isEqualTo(SpanTree.NO_SPAN);
+
+        assertThat(tree.finish(generation, millis(2)))
+                .startsWith("S0 1.0ms, S1 1.0ms")
+                .contains("S15 1.0ms")
+                .endsWith(", +2 more");
+    }
+
+    @Test
+    void finishedTreesAreReusedCleared() {
+        SpanTree tree = SpanTree.acquire();
+        int generation = tree.generation();
+        tree.begin(generation, "HelloService.getHelloMessage", SpanTree.NO_SPAN, millis(0));
+        tree.finish(generation, millis(1));
+
+        // Other tests may have left trees in the pool before this one.
+        SpanTree reused = null;
+        for (int i = 0; i <= 256 && reused != tree; i++) {
+            reused = SpanTree.acquire();
+        }
+        assertThat(reused).isSameAs(tree);
+        int next = reused.generation();
+        assertThat(reused.finish(next, millis(2))).isNull();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
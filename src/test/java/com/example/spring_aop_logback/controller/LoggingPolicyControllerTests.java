@@ -0,0 +1,155 @@
+package com.example.spring_aop_logback.controller;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code /admin/logging-policy} end to end: an override changes the lines of the next request without a restart,
+ * and the controller summary that closes the request's trace is logged whatever the URI's level.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "mock.external.enabled=true",
+        "welcome.hedging.enabled=false"
+})
+class LoggingPolicyControllerTests {
+
+    private static final String POLICY = "/admin/logging-policy";
+    private static final String CORRELATION_ID_HEADER = "X-Correlation-ID";
+    private static final String CORRELATION_ID_KEY = "CR_ID";
+    private static final String EXTERNAL_LOGGER = "external-log";
+
+    @DynamicPropertySource
+    static void mockExternalService(DynamicPropertyRegistry registry) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String baseUrl = "http://localhost:" + port + "/api/external";
+        registry.add("mock.external.port", () -> port);
+        registry.add("welcome.service.url", () -> baseUrl);
+        registry.add("uce.service.url", () -> baseUrl);
+    }
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void captureLogs() {
+        appender.start();
+        logger(org.slf4j.Logger.ROOT_LOGGER_NAME).addAppender(appender);
+        logger(EXTERNAL_LOGGER).addAppender(appender);
+    }
+
+    @AfterEach
+    void removeOverridesAndReleaseLogs() {
+        restTemplate.delete(POLICY + "/default");
+        restTemplate.delete(POLICY + "/uri?target=/hello");
+        restTemplate.delete(POLICY + "/service?target=WELCOME");
+        logger(org.slf4j.Logger.ROOT_LOGGER_NAME).detachAppender(appender);
+        logger(EXTERNAL_LOGGER).detachAppender(appender);
+        appender.stop();
+    }
+
+    @Test
+    void aUriLevelAppliesToTheNextRequestButNeverHidesItsSummary() throws InterruptedException {
+        ResponseEntity<String> put = put("/uri?target=/hello", "{\"level\":\"WARN\"}");
+        assertThat(put.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(put.getBody()).contains("\"scope\":\"URI\"", "\"target\":\"/hello\"", "\"level\":\"WARN\"");
+
+        hello("policy-1");
+        List<String> quiet = linesOf("policy-1");
+        // The INFO call line is denied; the INFO summary is not, tail sampling needs it to close the trace.
+        assertThat(quiet).hasSize(1);
+        assertThat(quiet.get(0)).startsWith("INFO SOURCE=CONTROLLER; HTTP_METHOD=GET; METHOD=hello; URI=/hello;");
+
+        restTemplate.delete(POLICY + "/uri?target=/hello");
+        assertThat(restTemplate.getForObject(POLICY, String.class)).isEqualTo("[]");
+        hello("policy-2");
+        assertThat(linesOf("policy-2")).hasSize(2).first().asString().startsWith("INFO SOURCE=EXTERNAL; SERVICE_NAME=WELCOME;");
+    }
+
+    @Test
+    void aServiceLevelOnlyGatesThatServicesCallLines() throws InterruptedException {
+        assertThat(put("/service?target=welcome", "{\"level\":\"ERROR\"}").getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        hello("policy-3");
+        assertThat(linesOf("policy-3")).singleElement().asString().startsWith("INFO SOURCE=CONTROLLER;");
+    }
+
+    @Test
+    void rejectsInvalidOverrides() {
+        assertThat(put("/everything", "{\"level\":\"INFO\"}").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(put("/uri?target=/nope", "{\"level\":\"INFO\"}").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(put("/service?target=UCE", "{\"traceSampleRate\":0.5}").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(put("/uri?target=/hello", "{\"bodyCaptureSampleRate\":0.5}").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForObject(POLICY, String.class)).isEqualTo("[]");
+    }
+
+    private ResponseEntity<String> put(String path, String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return restTemplate.exchange(POLICY + path, HttpMethod.PUT, new HttpEntity<>(body, headers), String.class);
+    }
+
+    private void hello(String correlationId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(CORRELATION_ID_HEADER, correlationId);
+        ResponseEntity<String> response = restTemplate.exchange("/hello?name=Ada", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    /**
+     * The lines logged for a request, once its controller summary line has been logged or after a few seconds.
+     */
+    private List<String> linesOf(String correlationId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            List<String> lines = new ArrayList<>();
+            boolean complete = false;
+            List<ILoggingEvent> events;
+            synchronized (appender) {
+                events = List.copyOf(appender.list);
+            }
+            for (ILoggingEvent event : events) {
+                if (correlationId.equals(event.getMDCPropertyMap().get(CORRELATION_ID_KEY))) {
+                    String message = event.getFormattedMessage();
+                    lines.add(event.getLevel() + " " + message);
+                    complete |= message.contains("SOURCE=CONTROLLER");
+                }
+            }
+            if (complete || System.currentTimeMillis() > deadline) {
+                return lines;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static Logger logger(String name) {
+        return (Logger) LoggerFactory.getLogger(name);
+    }
+}
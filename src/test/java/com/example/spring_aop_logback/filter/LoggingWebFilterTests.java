@@ -0,0 +1,147 @@
+package com.example.spring_aop_logback.filter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The reactive server mode on Netty: {@link LoggingWebFilter} must log the same controller summary as the servlet
+ * mode and carry the request's CR_ID through the Reactor Context down to the external calls.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.main.web-application-type=reactive",
+        "mock.external.enabled=true",
+        "welcome.hedging.enabled=false"
+})
+class LoggingWebFilterTests {
+
+    private static final String CORRELATION_ID_HEADER = "X-Correlation-ID";
+    private static final String CORRELATION_ID_KEY = "CR_ID";
+    private static final String EXTERNAL_LOGGER = "external-log";
+
+    @DynamicPropertySource
+    static void mockExternalService(DynamicPropertyRegistry registry) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String baseUrl = "http://localhost:" + port + "/api/external";
+        registry.add("mock.external.port", () -> port);
+        registry.add("welcome.service.url", () -> baseUrl);
+        registry.add("uce.service.url", () -> baseUrl);
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveWebServerApplicationContext applicationContext;
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void captureLogs() {
+        appender.start();
+        logger(org.slf4j.Logger.ROOT_LOGGER_NAME).addAppender(appender);
+        logger(EXTERNAL_LOGGER).addAppender(appender);
+    }
+
+    @AfterEach
+    void releaseLogs() {
+        logger(org.slf4j.Logger.ROOT_LOGGER_NAME).detachAppender(appender);
+        logger(EXTERNAL_LOGGER).detachAppender(appender);
+        appender.stop();
+    }
+
+    @Test
+    void servesOnNettyWithoutTheBlockingEndpoints() {
+        assertThat(applicationContext.getWebServer()).isInstanceOf(NettyWebServer.class);
+        // They would block the event loop.
+        webTestClient.get().uri("/blocking/hello?name=Ada").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void logsTheSummaryAndPropagatesTheCorrelationId() throws InterruptedException {
+        webTestClient.post().uri("/welcome")
+                .header(CORRELATION_ID_HEADER, "reactive-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userName\":\"Ada\",\"message\":\"hi\"}")
+                .exchange()
+                .expectStatus().isOk();
+
+        List<String> lines = linesOf("reactive-1");
+        assertThat(lines).anySatisfy(line -> assertThat(line)
+                .startsWith("INFO external-log SOURCE=EXTERNAL; SERVICE_NAME=WELCOME;")
+                .contains("HTTP_STATUS=200"));
+        assertThat(lines).last().asString()
+                .startsWith("INFO com.example.spring_aop_logback.util.LogUtil SOURCE=CONTROLLER; HTTP_METHOD=POST; METHOD=postWelcome; URI=/welcome;")
+                .contains("SPANS=WelcomeService.processWelcomeMessage ");
+    }
+
+    @Test
+    void logsFailuresAndSkipsRequestsWithoutAController() throws InterruptedException {
+        webTestClient.get().uri("/hello?name=error")
+                .header(CORRELATION_ID_HEADER, "reactive-2")
+                .exchange()
+                .expectStatus().is5xxServerError();
+        assertThat(linesOf("reactive-2")).last().asString()
+                .startsWith("ERROR com.example.spring_aop_logback.util.LogUtil SOURCE=CONTROLLER; HTTP_METHOD=GET; METHOD=hello; URI=/hello;")
+                .contains("ERROR_DESC=Invalid name provided");
+
+        webTestClient.get().uri("/no-such-endpoint")
+                .header(CORRELATION_ID_HEADER, "reactive-3")
+                .exchange()
+                .expectStatus().isNotFound();
+        // The 404 is answered by WebFlux itself: no controller, so no summary line.
+        assertThat(linesOf("reactive-3")).noneMatch(line -> line.contains("SOURCE=CONTROLLER"));
+    }
+
+    /**
+     * The lines logged for a request, once its controller summary line has been logged or after a few seconds.
+     */
+    private List<String> linesOf(String correlationId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            List<String> lines = new ArrayList<>();
+            boolean complete = false;
+            List<ILoggingEvent> events;
+            synchronized (appender) {
+                events = List.copyOf(appender.list);
+            }
+            for (ILoggingEvent event : events) {
+                if (correlationId.equals(event.getMDCPropertyMap().get(CORRELATION_ID_KEY))) {
+                    String message = event.getFormattedMessage();
+                    lines.add(event.getLevel() + " " + event.getLoggerName() + " " + message);
+                    complete |= message.contains("SOURCE=CONTROLLER");
+                }
+            }
+            if (complete || System.currentTimeMillis() > deadline) {
+                return lines;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static Logger logger(String name) {
+        return (Logger) LoggerFactory.getLogger(name);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.example.spring_aop_logback.util.LogLineEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Writes events with {@link BinaryLogEncoder} and reads them back with {@link BinaryLogReader}: the decoded lines
+ * must be the ones the text encoder writes, including for files written before a key enum changed.
+ */
+class BinaryLogEncoderTests {
+
+    private static final String PATTERN = "%d{HH:mm:ss.SSS} %level %logger [%X{CR_ID}] %msg%n";
+    private static final LogLineEncoder TEXT = new LogLineEncoder(LogLineEncoder.Layout.TEXT);
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+
+    enum Keys {SOURCE, URI, EXECUTION_TIME, TIMESTAMP}
+
+    enum OtherKeys {SERVICE_NAME, HTTP_STATUS}
+
+    @Test
+    void decodesEverySegmentToTheTextLines() throws IOException {
+        BinaryLogEncoder text = encoder("TEXT");
+        BinaryLogEncoder binary = encoder("BINARY");
+        List<LoggingEvent> events = List.of(
+                structured("CR-1", Keys.class, "CONTROLLER", "/hello", "12ms", "2025-08-22T10:15:30.042Z"),
+                structured("CR-1", OtherKeys.class, "UCE", "200"),
+                structured("CR-2", Keys.class, "CONTROLLER", null, "3ms", "not a timestamp"),
+                plain(null, "started"),
+                structured("CR-1", OtherKeys.class, "WELCOME", " "));
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        List<String> expected = new ArrayList<>();
+        // Two segments, as after a restart: the second must not rely on the first's key tables or dictionary.
+        for (int segment = 0; segment < 2; segment++) {
+            file.writeBytes(binary.headerBytes());
+            for (LoggingEvent event : events) {
+                file.writeBytes(binary.encode(event));
+                expected.add(new String(text.encode(event), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertThat(readAll(file.toByteArray())).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void decodesKeysByTheNamesTheSegmentRecorded() throws IOException {
+        // Written by an older build whose enum had a key since removed, and URI before SOURCE; no such enum exists here.
+        BinaryLogFormat.Output out = header(BinaryLogFormat.VERSION);
+        record(out);
+        out.writeVarint(0);
+        out.writeVarint(3);
+        out.writeString("URI");
+        out.writeString("RETIRED");
+        out.writeString("SOURCE");
+        out.writeVarint(0b111);
+        literal(out, "/hello");
+        literal(out, "gone");
+        literal(out, "CONTROLLER");
+        record(out);
+        out.writeVarint(0);
+        out.writeVarint(0b101);
+        literal(out, "/welcome");
+        literal(out, "CONTROLLER");
+
+        assertThat(readAll(out.toByteArray())).containsExactly(
+                "URI=/hello; RETIRED=gone; SOURCE=CONTROLLER\n",
+                "URI=/welcome; SOURCE=CONTROLLER\n");
+    }
+
+    @Test
+    void refusesSegmentsOfAnyOtherVersion() {
+        // Version 1 stored the key enum's class name and its ordinals.
+        BinaryLogFormat.Output out = header(1);
+        record(out);
+
+        assertThatThrownBy(() -> readAll(out.toByteArray()))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Unsupported binary log version 1");
+    }
+
+    private BinaryLogEncoder encoder(String format) {
+        BinaryLogEncoder encoder = new BinaryLogEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern(PATTERN);
+        encoder.setFormat(format);
+        encoder.start();
+        return encoder;
+    }
+
+    private static BinaryLogFormat.Output header(int version) {
+        BinaryLogFormat.Output out = new BinaryLogFormat.Output();
+        out.writeBytes(BinaryLogFormat.MAGIC);
+        out.writeByte(version);
+        out.writeString("UTC");
+        out.writeString("%msg%n");
+        out.writeString("TEXT");
+        return out;
+    }
+
+    /**
+     * A structured record up to its fields: timestamp 0, INFO, empty thread and logger, no CR_ID.
+     */
+    private static void record(BinaryLogFormat.Output out) {
+        out.writeByte(BinaryLogFormat.RECORD_STRUCTURED);
+        out.writeZigzag(0);
+        out.writeByte(Level.INFO.toInt() / 5000);
+        literal(out, "");
+        literal(out, "");
+        out.writeByte(BinaryLogFormat.CR_ID_NONE);
+    }
+
+    private static void literal(BinaryLogFormat.Output out, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeVarint((long) utf8.length << BinaryLogFormat.TAG_BITS | BinaryLogFormat.TAG_LITERAL);
+        out.writeBytes(utf8);
+    }
+
+    private static List<String> readAll(byte[] file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(file), ZoneId.systemDefault(), null)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private <E extends Enum<E>> LoggingEvent structured(String correlationId, Class<E> keys, String... values) {
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.INFO, "{}", null,
+                new Object[]{new Line(keys.getEnumConstants(), values)});
+        event.setMDCPropertyMap(Map.of("CR_ID", correlationId));
+        return event;
+    }
+
+    private LoggingEvent plain(String correlationId, String message) {
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.WARN, message, null, null);
+        event.setMDCPropertyMap(correlationId == null ? Map.of() : Map.of("CR_ID", correlationId));
+        return event;
+    }
+
+    private record Line(Enum<?>[] keys, String[] values) implements StructuredLine {
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public String toString() {
+            return TEXT.encode((Enum[]) keys, values);
+        }
+    }
+}
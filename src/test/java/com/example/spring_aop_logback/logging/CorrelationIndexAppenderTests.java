@@ -0,0 +1,135 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes request lines through {@link CorrelationIndexAppender} into 1MB segments and reads them back by CR_ID,
+ * across rolls and restarts.
+ */
+class CorrelationIndexAppenderTests {
+
+    @TempDir
+    Path directory;
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+    private CorrelationIndexAppender appender;
+
+    @AfterEach
+    void stop() {
+        if (appender != null) {
+            appender.stop();
+        }
+    }
+
+    @Test
+    void looksUpTheLinesOfOneRequestAcrossSegmentsAndRestarts() throws IOException {
+        appender = start(8);
+        append("CR-1", "first");
+        append(null, "no request");
+        append("CR-2", "other");
+        // Fill more than one segment so CR-1 has lines in a sealed and in the active segment.
+        String filler = "x".repeat(1000);
+        for (int i = 0; i < 1500; i++) {
+            append("CR-FILL-" + i, filler);
+        }
+        append("CR-1", "second");
+
+        assertThat(appender.lookup("CR-1")).hasSize(2)
+                .satisfies(lines -> assertThat(lines.get(0)).endsWith("[CR-1] first"))
+                .satisfies(lines -> assertThat(lines.get(1)).endsWith("[CR-1] second"));
+        assertThat(appender.lookup("CR-3")).isEmpty();
+        assertThat(segments()).hasSize(2);
+
+        appender.stop();
+        appender = start(8);
+        // The newest segment is continued, not replaced by a new one.
+        append("CR-1", "after restart");
+        assertThat(segments()).hasSize(2);
+        assertThat(appender.lookup("CR-1")).hasSize(3)
+                .last().asString().endsWith("[CR-1] after restart");
+        assertThat(appender.lookup("CR-2")).singleElement().asString().endsWith("[CR-2] other");
+    }
+
+    @Test
+    void appliesRetentionOnStart() throws IOException {
+        appender = start(8);
+        String filler = "x".repeat(1000);
+        for (int i = 0; i < 4000; i++) {
+            append("CR-" + i, filler);
+        }
+        appender.stop();
+        assertThat(segments()).hasSize(4);
+
+        appender = start(1);
+        assertThat(segments()).hasSize(2);
+        assertThat(appender.lookup("CR-0")).isEmpty();
+        assertThat(appender.lookup("CR-3999")).hasSize(1);
+    }
+
+    @Test
+    void reindexesASegmentWhoseIndexWasNeverWritten() throws IOException {
+        appender = start(8);
+        append("CR-1", "before crash");
+        String filler = "x".repeat(1000);
+        for (int i = 0; i < 1500; i++) {
+            append("CR-FILL-" + i, filler);
+        }
+        appender.stop();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path index : files.filter(file -> file.toString().endsWith(LogSegment.INDEX_SUFFIX)).toList()) {
+                Files.delete(index);
+            }
+        }
+
+        appender = start(8);
+        assertThat(appender.lookup("CR-1")).singleElement().asString().endsWith("[CR-1] before crash");
+        assertThat(appender.lookup("CR-FILL-1499")).hasSize(1);
+    }
+
+    private CorrelationIndexAppender start(int maxSegments) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%level [%X{CR_ID}] %msg%n");
+        encoder.start();
+        CorrelationIndexAppender index = new CorrelationIndexAppender();
+        index.setContext(loggerContext);
+        index.setName("CR_INDEX");
+        index.setEncoder(encoder);
+        index.setDirectory(directory.toString());
+        index.setSegmentSizeMb(1);
+        index.setMaxSegments(maxSegments);
+        index.start();
+        assertThat(index.isStarted()).isTrue();
+        return index;
+    }
+
+    private void append(String correlationId, String message) {
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.INFO, message, null, null);
+        event.setMDCPropertyMap(correlationId == null
+                ? Map.of() : Map.of(LogContextMdcBridge.CORRELATION_ID_KEY, correlationId));
+        appender.doAppend(event);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(LogSegment.DATA_SUFFIX)).toList();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import com.example.spring_aop_logback.context.LogContext;
+import com.example.spring_aop_logback.context.LogContextHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CR_ID is taken from the current log context for each statement that is logged, never left over from an earlier
+ * one on the same thread.
+ */
+class LogContextMdcBridgeTests {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+    private final List<String> correlationIds = new ArrayList<>();
+
+    @BeforeEach
+    void startLogging() {
+        loggerContext.setMDCAdapter(MDC.getMDCAdapter());
+        loggerContext.addTurboFilter(new LogContextMdcBridge());
+        AppenderBase<ILoggingEvent> appender = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                correlationIds.add(event.getMDCPropertyMap().get(LogContextMdcBridge.CORRELATION_ID_KEY));
+            }
+        };
+        appender.setContext(loggerContext);
+        appender.start();
+        logger.addAppender(appender);
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void clearMdc() {
+        MDC.clear();
+    }
+
+    @Test
+    void setsAndClearsTheCorrelationIdPerStatement() {
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(LogContext.builder("CR-1").build())) {
+            logger.info("first");
+        }
+        logger.info("outside any request");
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(LogContext.builder("CR-2").build())) {
+            logger.warn("second");
+        }
+
+        assertThat(correlationIds).containsExactly("CR-1", null, "CR-2");
+    }
+
+    @Test
+    void followsTheContextOfEachStatementOnOneThread() {
+        LogContext first = LogContext.builder("CR-1").build();
+        LogContext second = LogContext.builder("CR-2").build();
+
+        // Two requests interleaved on one event-loop thread.
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(first)) {
+            logger.info("first");
+            try (LogContextHolder.Scope nested = LogContextHolder.open(second)) {
+                logger.info("second");
+            }
+            logger.info("first again");
+        }
+
+        assertThat(correlationIds).containsExactly("CR-1", "CR-2", "CR-1");
+    }
+
+    @Test
+    void leavesDisabledStatementsAlone() {
+        MDC.put(LogContextMdcBridge.CORRELATION_ID_KEY, "CR-0");
+        try (LogContextHolder.Scope ignored = LogContextHolder.open(LogContext.builder("CR-1").build())) {
+            logger.debug("disabled");
+        }
+
+        assertThat(correlationIds).isEmpty();
+        assertThat(MDC.get(LogContextMdcBridge.CORRELATION_ID_KEY)).isEqualTo("CR-0");
+    }
+}
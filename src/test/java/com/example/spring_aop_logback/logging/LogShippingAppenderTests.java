@@ -0,0 +1,305 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.util.FileSize;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link LogShippingAppender} against a local HTTP stand-in for the collector, which records the gzipped
+ * batches it accepts and can be switched to answer 503 or not to answer at all.
+ */
+class LogShippingAppenderTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path spool;
+
+    private final List<Batch> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final CountDownLatch hanging = new CountDownLatch(1);
+    private final AtomicInteger unanswered = new AtomicInteger();
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+    private HttpServer collector;
+    private LogShippingAppender appender;
+
+    @BeforeEach
+    void startCollector() throws IOException {
+        collector = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        collector.createContext("/logs", exchange -> {
+            int answer = status.get();
+            if (answer == 0) {
+                unanswered.incrementAndGet();
+                try {
+                    hanging.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.close();
+                return;
+            }
+            if (answer == 200) {
+                try (InputStream body = new GZIPInputStream(exchange.getRequestBody())) {
+                    received.add(new Batch(exchange.getRequestHeaders().getFirst("Content-Type"),
+                            exchange.getRequestHeaders().getFirst("Content-Encoding"),
+                            new String(body.readAllBytes(), StandardCharsets.UTF_8).lines().toList()));
+                }
+            } else {
+                exchange.getRequestBody().readAllBytes();
+            }
+            exchange.sendResponseHeaders(answer, -1);
+            exchange.close();
+        });
+        collector.setExecutor(handlers);
+        collector.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (appender != null) {
+            appender.stop();
+        }
+        hanging.countDown();
+        collector.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void shipsStructuredLinesInGzippedBatchesBySizeAndTime() throws InterruptedException {
+        appender = start(3, 60_000);
+
+        for (int i = 0; i < 7; i++) {
+            appender.doAppend(summary("CR-" + i, "/hello", i));
+        }
+        await(() -> received.size() == 2);
+        assertThat(received).allSatisfy(batch -> {
+            assertThat(batch.contentType()).isEqualTo("application/x-ndjson");
+            assertThat(batch.contentEncoding()).isEqualTo("gzip");
+            assertThat(batch.lines()).hasSize(3);
+        });
+        assertThat(received.get(0).lines().get(0))
+                .contains("\"level\":\"INFO\"", "\"logger\":\"test\"", "\"CR_ID\":\"CR-0\"",
+                        "\"URI\":\"/hello\"", "\"EXECUTION_TIME\":\"0\"")
+                .doesNotContain("ERROR_DESC");
+
+        appender.doAppend(plain("with \"quotes\"\nand a newline"));
+        appender.setFlushIntervalMillis(50);
+        await(() -> received.size() == 3);
+        assertThat(received.get(2).lines()).hasSize(2);
+        assertThat(received.get(2).lines().get(1)).contains("\"message\":\"with \\\"quotes\\\"\\nand a newline\"");
+        // The stand-in records a batch before it answers; the appender counts it once the answer is in.
+        await(() -> appender.getShippedRecordCount() == 8);
+        assertThat(appender.getSpooledBatchCount()).isZero();
+    }
+
+    @Test
+    void spoolsWhileTheCollectorIsDownAndReplaysInOrder() throws InterruptedException {
+        status.set(503);
+        appender = start(2, 60_000);
+
+        for (int i = 0; i < 8; i++) {
+            appender.doAppend(summary("CR-" + i, "/hello", i));
+        }
+        await(() -> appender.getSpooledBatchCount() == 4);
+        assertThat(received).isEmpty();
+        assertThat(appender.isCollectorUp()).isFalse();
+        assertThat(appender.getFailedPostCount()).isPositive();
+
+        status.set(200);
+        await(() -> appender.getSpooledBatchCount() == 0);
+        assertThat(received).hasSize(4);
+        assertThat(crIds(received)).containsExactlyElementsOf(crIds(0, 8));
+        assertThat(appender.isCollectorUp()).isTrue();
+        assertThat(appender.getDroppedBatchCount()).isZero();
+    }
+
+    @Test
+    void replaysTheSpoolOfAPreviousRunInOneGo() throws IOException, InterruptedException {
+        spoolBatchesOfAPreviousRun(30);
+        // A batch the previous run was still writing when it stopped.
+        Path leftover = Files.write(spool.resolve("00000000000000000030-1.ndjson.gz.part"), new byte[]{31});
+
+        status.set(200);
+        long started = System.nanoTime();
+        appender = start(1, 60_000);
+        await(() -> received.size() == 30);
+
+        // Not one batch per flush interval poll (100ms): the spool is replayed back to back.
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(1500));
+        assertThat(crIds(received)).containsExactlyElementsOf(crIds(0, 30));
+        assertThat(leftover).doesNotExist();
+        assertThat(appender.getDroppedBatchCount()).isZero();
+    }
+
+    @Test
+    void newLinesAreShippedAheadOfTheSpoolReplay() throws InterruptedException {
+        spoolBatchesOfAPreviousRun(30);
+
+        status.set(200);
+        appender = start(1, 60_000);
+        appender.doAppend(summary("CR-fresh", "/hello", 0));
+        await(() -> received.size() == 31);
+
+        List<String> order = crIds(received);
+        assertThat(order.indexOf("CR-fresh")).isLessThan(30);
+        order.remove("CR-fresh");
+        assertThat(order).containsExactlyElementsOf(crIds(0, 30));
+    }
+
+    @Test
+    void spoolsWhatIsStillInMemoryWhenStoppedWhileTheCollectorIsDown() throws InterruptedException {
+        status.set(0);
+        appender = configure(1, 60_000);
+        appender.setRequestTimeoutMillis(300);
+        appender.setMaxShutdownMillis(2000);
+        // Retried as soon as possible: only shutdown itself keeps the batches from being posted.
+        appender.setMinBackoffMillis(1);
+        appender.setMaxBackoffMillis(1);
+        appender.start();
+        appender.doAppend(summary("CR-0", "/hello", 0));
+        await(() -> appender.getSpooledBatchCount() == 1);
+        assertThat(appender.isCollectorUp()).isFalse();
+
+        // Queued while the shipper waits on a replay POST, and stopped before it is answered.
+        int posted = unanswered.get();
+        await(() -> unanswered.get() > posted);
+        for (int i = 1; i < 6; i++) {
+            appender.doAppend(summary("CR-" + i, "/hello", i));
+        }
+        assertThat(appender.getPendingBatchCount()).isEqualTo(5);
+        int postedBeforeStop = unanswered.get();
+        long stopping = System.nanoTime();
+        appender.stop();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - stopping)).isLessThan(Duration.ofMillis(2000));
+        assertThat(unanswered).hasValue(postedBeforeStop);
+        assertThat(appender.getSpooledBatchCount()).isEqualTo(6);
+        assertThat(appender.getPendingBatchCount()).isZero();
+        assertThat(appender.getDroppedBatchCount()).isZero();
+
+        // The next run sends them all.
+        status.set(200);
+        hanging.countDown();
+        appender = start(1, 60_000);
+        await(() -> received.size() == 6);
+        assertThat(crIds(received)).containsExactlyElementsOf(crIds(0, 6));
+    }
+
+    private void spoolBatchesOfAPreviousRun(int batches) throws InterruptedException {
+        status.set(503);
+        appender = start(1, 60_000);
+        for (int i = 0; i < batches; i++) {
+            // One at a time: a burst would overflow the in-memory queue.
+            int spooled = i + 1;
+            appender.doAppend(summary("CR-" + i, "/hello", i));
+            await(() -> appender.getSpooledBatchCount() == spooled);
+        }
+        appender.stop();
+    }
+
+    private static List<String> crIds(List<Batch> batches) {
+        List<String> crIds = new ArrayList<>();
+        batches.forEach(batch -> batch.lines().forEach(line -> crIds.add(line.replaceAll(".*\"CR_ID\":\"([^\"]+)\".*", "$1"))));
+        return crIds;
+    }
+
+    private static List<String> crIds(int from, int to) {
+        List<String> crIds = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            crIds.add("CR-" + i);
+        }
+        return crIds;
+    }
+
+    private LogShippingAppender start(int maxBatchRecords, long flushIntervalMillis) {
+        LogShippingAppender shipping = configure(maxBatchRecords, flushIntervalMillis);
+        shipping.start();
+        assertThat(shipping.isEnabled()).isTrue();
+        return shipping;
+    }
+
+    private LogShippingAppender configure(int maxBatchRecords, long flushIntervalMillis) {
+        LogShippingAppender shipping = new LogShippingAppender();
+        shipping.setContext(loggerContext);
+        shipping.setName("SHIP");
+        shipping.setUrl("http://localhost:" + collector.getAddress().getPort() + "/logs");
+        shipping.setMaxBatchRecords(maxBatchRecords);
+        shipping.setMaxBatchSize(FileSize.valueOf("1MB"));
+        shipping.setFlushIntervalMillis(flushIntervalMillis);
+        shipping.setSpoolDirectory(spool.toString());
+        shipping.setMinBackoffMillis(20);
+        shipping.setMaxBackoffMillis(100);
+        return shipping;
+    }
+
+    private LoggingEvent summary(String correlationId, String uri, long execMillis) {
+        String[] values = new String[LoggingEnum.values().length];
+        values[LoggingEnum.URI.ordinal()] = uri;
+        values[LoggingEnum.EXECUTION_TIME.ordinal()] = String.valueOf(execMillis);
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.INFO, "{}", null,
+                new Object[]{new Line(values)});
+        event.setMDCPropertyMap(Map.of("CR_ID", correlationId));
+        return event;
+    }
+
+    private LoggingEvent plain(String message) {
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.WARN, message, null, null);
+        event.setMDCPropertyMap(Map.of());
+        return event;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within %s", TIMEOUT).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private record Batch(String contentType, String contentEncoding, List<String> lines) {
+    }
+
+    private record Line(String[] values) implements StructuredLine {
+
+        @Override
+        public Enum<?>[] keys() {
+            return LoggingEnum.values();
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+}
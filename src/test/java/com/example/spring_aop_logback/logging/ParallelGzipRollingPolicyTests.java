@@ -0,0 +1,229 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.util.FileSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rolls a small file through {@link ParallelGzipRollingPolicy} and reads the archives back, including after a
+ * restart that finds pending, partial and failed files of an earlier run.
+ */
+class ParallelGzipRollingPolicyTests {
+
+    @TempDir
+    Path directory;
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+    private final String today = LocalDate.now().toString();
+    private RollingFileAppender<ILoggingEvent> appender;
+    private ParallelGzipRollingPolicy<ILoggingEvent> policy;
+
+    @AfterEach
+    void stop() {
+        if (appender != null) {
+            appender.stop();
+        }
+    }
+
+    @Test
+    void rollsAndCompressesEveryLineInOrder() throws Exception {
+        start(null);
+        List<String> written = write("line", 300);
+        awaitCompressed();
+
+        assertThat(policy.getRolloverCount()).isGreaterThanOrEqualTo(3);
+        assertThat(policy.getCompressedFileCount()).isEqualTo(policy.getRolloverCount());
+        assertThat(policy.getFailedFileCount()).isZero();
+        assertThat(leftovers()).isEmpty();
+        assertThat(readAll()).containsExactlyElementsOf(written);
+    }
+
+    @Test
+    void restartNeverReusesTheIndexOfAnUnfinishedArchive() throws Exception {
+        // Left by a run that stopped mid-compression: logback only counts the .gz archives, so it would hand out
+        // index 0 and 1 again.
+        Files.writeString(archive(0, ".pending"), "old-0\n");
+        Files.writeString(archive(1, ".pending"), "old-1\n");
+        Files.writeString(archive(1, ".gz.part"), "half an archive");
+        Files.writeString(archive(2, ".gz.part"), "orphan");
+
+        start(null);
+        List<String> written = write("new", 300);
+        awaitCompressed();
+
+        assertThat(gunzip(archive(0, ".gz"))).isEqualTo("old-0\n");
+        assertThat(gunzip(archive(1, ".gz"))).isEqualTo("old-1\n");
+        assertThat(leftovers()).isEmpty();
+        List<String> expected = new ArrayList<>(List.of("old-0", "old-1"));
+        expected.addAll(written);
+        assertThat(readAll()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void resumesAnArchiveThatWasRenamedButNotCleanedUp() throws Exception {
+        gzip(archive(0, ".gz"), "complete\n");
+        Files.writeString(archive(0, ".pending"), "complete\n");
+
+        start(null);
+        awaitCompressed();
+
+        assertThat(archive(0, ".pending")).doesNotExist();
+        assertThat(gunzip(archive(0, ".gz"))).isEqualTo("complete\n");
+        assertThat(policy.getFailedFileCount()).isZero();
+    }
+
+    @Test
+    void failedArchivesFallUnderMaxHistory() throws Exception {
+        Path failed = Files.createDirectory(archive(0, ".pending"));
+        Files.setLastModifiedTime(failed, FileTime.from(Instant.now().minus(30, ChronoUnit.DAYS)));
+
+        start(null);
+        awaitCompressed();
+
+        assertThat(policy.getFailedFileCount()).isEqualTo(1);
+        assertThat(failed).doesNotExist();
+    }
+
+    @Test
+    void failedArchivesCountAgainstTheTotalSizeCap() throws Exception {
+        Path failed = Files.createDirectory(archive(0, ".pending"));
+        Files.setLastModifiedTime(failed, FileTime.from(Instant.now().minus(1, ChronoUnit.MINUTES)));
+
+        start(new FileSize(Files.size(failed) / 2));
+        awaitCompressed();
+
+        assertThat(policy.getFailedFileCount()).isEqualTo(1);
+        assertThat(failed).doesNotExist();
+    }
+
+    private void start(FileSize totalSizeCap) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+        appender = new RollingFileAppender<>();
+        appender.setContext(loggerContext);
+        appender.setName("FILE");
+        appender.setFile(directory.resolve("app.log").toString());
+        appender.setEncoder(encoder);
+        policy = new ParallelGzipRollingPolicy<>();
+        policy.setContext(loggerContext);
+        policy.setParent(appender);
+        policy.setFileNamePattern(directory.resolve("app.log.%d{yyyy-MM-dd}.%i.gz").toString());
+        policy.setMaxFileSize(new FileSize(2048));
+        policy.setMaxHistory(7);
+        if (totalSizeCap != null) {
+            policy.setTotalSizeCap(totalSizeCap);
+        }
+        policy.setCompressionThreads(2);
+        policy.setChunkSize(new FileSize(512));
+        policy.start();
+        appender.setRollingPolicy(policy);
+        appender.start();
+        assertThat(policy.isStarted()).isTrue();
+    }
+
+    /**
+     * Writes {@code count} lines, pausing now and then: the size trigger only checks the file periodically.
+     */
+    private List<String> write(String prefix, int count) throws InterruptedException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String line = prefix + "-" + i + " " + "x".repeat(40);
+            LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.INFO, line, null, null);
+            event.setMDCPropertyMap(Map.of());
+            appender.doAppend(event);
+            lines.add(line);
+            if (i % 20 == 19) {
+                Thread.sleep(100);
+            }
+        }
+        return lines;
+    }
+
+    private void awaitCompressed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        do {
+            Thread.sleep(20);
+        } while (policy.getPendingFileCount() > 0 && System.currentTimeMillis() < deadline);
+        assertThat(policy.getPendingFileCount()).isZero();
+    }
+
+    private Path archive(int index, String suffix) {
+        return directory.resolve("app.log." + today + "." + index + suffix);
+    }
+
+    private List<Path> leftovers() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".pending") || file.toString().endsWith(".part")).toList();
+        }
+    }
+
+    /**
+     * The archives in index order followed by the active file, as lines.
+     */
+    private List<String> readAll() throws IOException {
+        List<Path> archives;
+        try (Stream<Path> files = Files.list(directory)) {
+            archives = files.filter(file -> file.toString().endsWith(".gz"))
+                    .sorted(Comparator.comparingInt(ParallelGzipRollingPolicyTests::indexOf))
+                    .toList();
+        }
+        List<String> lines = new ArrayList<>();
+        for (Path archive : archives) {
+            lines.addAll(gunzip(archive).lines().toList());
+        }
+        lines.addAll(Files.readAllLines(directory.resolve("app.log")));
+        return lines;
+    }
+
+    private static int indexOf(Path archive) {
+        String name = archive.getFileName().toString();
+        String withoutSuffix = name.substring(0, name.length() - ".gz".length());
+        return Integer.parseInt(withoutSuffix.substring(withoutSuffix.lastIndexOf('.') + 1));
+    }
+
+    private static String gunzip(Path archive) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void gzip(Path archive, String content) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link LogRingBuffer} on its own and behind {@link RingBufferAppender}, whose writer thread is held up by a gated
+ * appender to make the buffer overflow on purpose.
+ */
+class RingBufferAppenderTests {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+
+    @Test
+    void ringBufferIsFifoAndBounded() {
+        LogRingBuffer<Integer> ring = new LogRingBuffer<>(3);
+        assertThat(ring.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+        assertThat(ring.poll()).isZero();
+        assertThat(ring.offer(4)).isTrue();
+        List<Integer> drained = new ArrayList<>();
+        for (Integer element; (element = ring.poll()) != null; ) {
+            drained.add(element);
+        }
+        assertThat(drained).containsExactly(1, 2, 3, 4);
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    void ringBufferHandsEveryElementToExactlyOneConsumer() throws InterruptedException {
+        LogRingBuffer<Integer> ring = new LogRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        Set<Integer> consumed = new HashSet<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!ring.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        List<List<Integer>> perConsumer = List.of(new ArrayList<>(), new ArrayList<>());
+        for (List<Integer> sink : perConsumer) {
+            threads.add(new Thread(() -> {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+                while (System.nanoTime() < deadline && consumedCount(perConsumer) < producers * perProducer) {
+                    Integer element = ring.poll();
+                    if (element == null) {
+                        Thread.yield();
+                    } else {
+                        synchronized (sink) {
+                            sink.add(element);
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        perConsumer.forEach(consumed::addAll);
+        assertThat(consumedCount(perConsumer)).isEqualTo(producers * perProducer);
+        assertThat(consumed).hasSize(producers * perProducer);
+    }
+
+    @Test
+    void dropsInfoButMakesRoomForWarningsWhenFull() throws InterruptedException {
+        GatedAppender gated = new GatedAppender();
+        gated.setContext(loggerContext);
+        gated.start();
+        RingBufferAppender ring = new RingBufferAppender();
+        ring.setContext(loggerContext);
+        ring.setName("ASYNC");
+        ring.setCapacity(2);
+        ring.setOverflowPolicy(RingBufferAppender.OverflowPolicy.DROP_DEBUG_INFO);
+        ring.addAppender(gated);
+        ring.start();
+        try {
+            ring.doAppend(event(Level.INFO, "taken by the writer"));
+            assertThat(gated.entered.await(10, TimeUnit.SECONDS)).isTrue();
+            ring.doAppend(event(Level.INFO, "oldest"));
+            ring.doAppend(event(Level.INFO, "buffered"));
+            ring.doAppend(event(Level.INFO, "dropped"));
+            ring.doAppend(event(Level.WARN, "evicts the oldest"));
+            assertThat(ring.getDroppedCount()).isEqualTo(2);
+            gated.gate.countDown();
+        } finally {
+            ring.stop();
+        }
+        assertThat(gated.messages).containsExactly("taken by the writer", "buffered", "evicts the oldest");
+        assertThat(ring.getEnqueuedCount()).isEqualTo(4);
+        assertThat(ring.getFlushedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void neverDropsTraceControlLinesOrWarnings() throws InterruptedException {
+        GatedAppender gated = new GatedAppender();
+        gated.setContext(loggerContext);
+        gated.start();
+        RingBufferAppender ring = new RingBufferAppender();
+        ring.setContext(loggerContext);
+        ring.setName("ASYNC");
+        ring.setCapacity(2);
+        ring.setOverflowPolicy(RingBufferAppender.OverflowPolicy.DROP_DEBUG_INFO);
+        ring.addAppender(gated);
+        ring.start();
+        try {
+            ring.doAppend(event(Level.INFO, "taken by the writer"));
+            assertThat(gated.entered.await(10, TimeUnit.SECONDS)).isTrue();
+            LoggingEvent summary = event(Level.INFO, "summary");
+            summary.addMarker(TraceMarkers.TRACE_END);
+            ring.doAppend(summary);
+            ring.doAppend(event(Level.INFO, "evicted"));
+            // Evicts the summary from the buffer, which is kept aside instead of dropped.
+            ring.doAppend(event(Level.WARN, "warning"));
+            LoggingEvent keep = event(Level.INFO, "kept summary");
+            keep.addMarker(TraceMarkers.TRACE_END_KEEP);
+            ring.doAppend(keep);
+            ring.doAppend(event(Level.INFO, "dropped"));
+            assertThat(ring.getDroppedCount()).isEqualTo(2);
+            assertThat(ring.getBufferedCount()).isEqualTo(3);
+            gated.gate.countDown();
+        } finally {
+            ring.stop();
+        }
+        assertThat(gated.messages).containsExactly("taken by the writer", "summary", "warning", "kept summary");
+        assertThat(ring.getFlushedCount()).isEqualTo(4);
+    }
+
+    private LoggingEvent event(Level level, String message) {
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, level, message, null, null);
+        event.setMDCPropertyMap(Map.of());
+        return event;
+    }
+
+    private static int consumedCount(List<List<Integer>> perConsumer) {
+        int count = 0;
+        for (List<Integer> sink : perConsumer) {
+            synchronized (sink) {
+                count += sink.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Holds the writer thread on the first event until the gate opens.
+     */
+    private static final class GatedAppender extends AppenderBase<ILoggingEvent> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            entered.countDown();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(event.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.spring_aop_logback.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Feeds {@link TailSamplingAppender} request traces directly, as the ring buffer's writer thread would, and checks
+ * what reaches the attached appender.
+ */
+class TailSamplingAppenderTests {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger logger = loggerContext.getLogger("test");
+    private final ListAppender<ILoggingEvent> written = new ListAppender<>();
+    private final TailSamplingAppender appender = new TailSamplingAppender();
+
+    @BeforeEach
+    void start() {
+        written.setContext(loggerContext);
+        written.start();
+        appender.setContext(loggerContext);
+        appender.addAppender(written);
+        appender.setMaxTraces(2);
+        appender.setMaxEventsPerTrace(4);
+        appender.start();
+    }
+
+    @AfterEach
+    void stop() {
+        appender.stop();
+    }
+
+    @Test
+    void healthyTraceLeavesOnlyItsSummary() {
+        append("CR-1", Level.INFO, "external call", null);
+        append("CR-1", Level.DEBUG, "detail", null);
+        append("CR-1", Level.INFO, "summary", TraceMarkers.TRACE_END);
+
+        assertThat(messages()).containsExactly("summary");
+        assertThat(appender.getSampledOutTraceCount()).isEqualTo(1);
+        assertThat(appender.getDiscardedEventCount()).isEqualTo(2);
+
+        // A late line of a sampled-out request is dropped too, unless it is a warning.
+        append("CR-1", Level.INFO, "late", null);
+        append("CR-1", Level.WARN, "late warning", null);
+        assertThat(messages()).containsExactly("summary", "late warning");
+    }
+
+    @Test
+    void keepsTracesWithAWarningAnErrorOrAKeepMarker() {
+        append("CR-1", Level.WARN, "retrying", null);
+        append("CR-1", Level.INFO, "summary 1", TraceMarkers.TRACE_END);
+        append("CR-2", Level.INFO, "call 2", null);
+        append("CR-2", Level.ERROR, "summary 2", TraceMarkers.TRACE_END);
+        append("CR-3", Level.INFO, "call 3", null);
+        append("CR-3", Level.INFO, "summary 3", TraceMarkers.TRACE_END_KEEP);
+        append("CR-4", Level.INFO, "call 4", TraceMarkers.TRACE_KEEP);
+        append("CR-4", Level.INFO, "summary 4", TraceMarkers.TRACE_END);
+
+        assertThat(messages()).containsExactly("retrying", "summary 1", "call 2", "summary 2",
+                "call 3", "summary 3", "call 4", "summary 4");
+        assertThat(appender.getKeptTraceCount()).isEqualTo(4);
+        assertThat(appender.getOpenTraceCount()).isZero();
+    }
+
+    @Test
+    void writesTracesThatHitALimitAsTheyAre() {
+        append("CR-1", Level.INFO, "a1", null);
+        append("CR-2", Level.INFO, "b1", null);
+        append("CR-3", Level.INFO, "c1", null);
+        assertThat(messages()).containsExactly("a1");
+
+        for (int i = 2; i <= 5; i++) {
+            append("CR-3", Level.INFO, "c" + i, null);
+        }
+        assertThat(messages()).containsExactly("a1", "c1", "c2", "c3", "c4", "c5");
+        assertThat(appender.getEvictedTraceCount()).isEqualTo(2);
+
+        append("CR-2", Level.INFO, "summary", TraceMarkers.TRACE_END);
+        append(null, Level.INFO, "no request", null);
+        assertThat(messages()).containsExactly("a1", "c1", "c2", "c3", "c4", "c5", "summary", "no request");
+    }
+
+    @Test
+    void writesATraceWithoutSummaryOnceItIsTooOldEvenIfNothingElseIsLogged() throws InterruptedException {
+        appender.setMaxAgeMillis(50);
+        long start = System.currentTimeMillis();
+        append("CR-1", Level.INFO, "summary lost", null);
+
+        assertThat(appender.onWriterIdle(start)).isFalse();
+        assertThat(messages()).isEmpty();
+        assertThat(appender.onWriterIdle(start + 1000)).isTrue();
+        assertThat(messages()).containsExactly("summary lost");
+        assertThat(appender.getEvictedTraceCount()).isEqualTo(1);
+
+        // Behind the ring buffer, its idle writer does it.
+        RingBufferAppender ring = new RingBufferAppender();
+        ring.setContext(loggerContext);
+        ring.setName("ASYNC");
+        ring.addAppender(appender);
+        ring.start();
+        try {
+            LoggingEvent event = event("CR-2", Level.INFO, "no summary either", null);
+            ring.doAppend(event);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (messages().size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(messages()).containsExactly("summary lost", "no summary either");
+            assertThat(System.currentTimeMillis() - event.getTimeStamp()).isGreaterThanOrEqualTo(50);
+        } finally {
+            ring.stop();
+        }
+    }
+
+    private void append(String correlationId, Level level, String message, Marker marker) {
+        appender.doAppend(event(correlationId, level, message, marker));
+    }
+
+    private LoggingEvent event(String correlationId, Level level, String message, Marker marker) {
+        LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, level, message, null, null);
+        event.setMDCPropertyMap(correlationId == null
+                ? Map.of() : Map.of(LogContextMdcBridge.CORRELATION_ID_KEY, correlationId));
+        if (marker != null) {
+            event.addMarker(marker);
+        }
+        return event;
+    }
+
+    private List<String> messages() {
+        return written.list.stream().map(ILoggingEvent::getMessage).toList();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.spring_aop_logback.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTests {
+
+    @Test
+    void reportsPercentilesWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.totalCount()).isEqualTo(1000);
+        assertThat(snapshot.max()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1000));
+        // Buckets are at most 1/64 wide, and a percentile reports the top of its bucket.
+        assertThat(snapshot.valueAtPercentile(50)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(500), within(TimeUnit.MILLISECONDS.toNanos(500) / 64));
+        assertThat(snapshot.valueAtPercentile(99)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(990), within(TimeUnit.MILLISECONDS.toNanos(990) / 64));
+        assertThat(snapshot.valueAtPercentile(50)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(snapshot.valueAtPercentile(100)).isEqualTo(snapshot.max());
+        assertThat(new LatencyHistogram().snapshot().valueAtPercentile(99)).isZero();
+    }
+
+    @Test
+    void bucketsCoverEveryValueWithBoundedError() {
+        for (long value = 0; value < 1L << 41; value = value < 1000 ? value + 1 : value + value / 7) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertThat(index).isBetween(0, LatencyHistogram.BUCKETS - 1);
+            if (value < 1L << 40) {
+                long top = LatencyHistogram.highestEquivalentValue(index);
+                assertThat(top).isGreaterThanOrEqualTo(value);
+                assertThat(top - value).isLessThanOrEqualTo(Math.max(0, value / 64));
+            }
+        }
+        assertThat(LatencyHistogram.bucketIndex(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKETS - 1);
+    }
+
+    @Test
+    void intervalSnapshotsOnlyContainWhatIsNew() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        histogram.record(2_000_000);
+        assertThat(histogram.intervalSnapshot().totalCount()).isEqualTo(2);
+
+        histogram.record(500);
+        LatencyHistogram.Snapshot interval = histogram.intervalSnapshot();
+        assertThat(interval.totalCount()).isEqualTo(1);
+        // The interval maximum is the top of its highest bucket, not the exact value.
+        assertThat(interval.max()).isBetween(500L, 500L + 500 / 64);
+        assertThat(histogram.intervalSnapshot().totalCount()).isZero();
+        assertThat(histogram.snapshot().totalCount()).isEqualTo(3);
+        assertThat(histogram.snapshot().max()).isEqualTo(2_000_000);
+    }
+
+    @Test
+    void mergesSnapshots() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(100);
+        second.record(10_000);
+        second.record(10_000);
+
+        first.add(second.snapshot());
+        LatencyHistogram.Snapshot merged = first.snapshot();
+        assertThat(merged.totalCount()).isEqualTo(3);
+        assertThat(merged.max()).isEqualTo(10_000);
+        assertThat(merged.valueAtPercentile(30)).isEqualTo(100);
+    }
+}
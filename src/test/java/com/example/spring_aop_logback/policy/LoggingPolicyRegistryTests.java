@@ -0,0 +1,138 @@
+package com.example.spring_aop_logback.policy;
+
+import ch.qos.logback.classic.Level;
+import com.example.spring_aop_logback.aspect.AdvicePlanRegistry;
+import com.example.spring_aop_logback.dto.LoggingPolicy;
+import com.example.spring_aop_logback.dto.LoggingPolicyOverride;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+/**
+ * Resolution of the overrides into the published {@link PolicySnapshot}: URI beats SERVICE beats DEFAULT beats
+ * the configuration, and readers index the snapshot by policy slot.
+ */
+class LoggingPolicyRegistryTests {
+
+    private static final int HELLO = 0;
+    private static final int WELCOME = 1;
+    private static final int UCE = 0;
+    private static final int WELCOME_SERVICE = 1;
+
+    private final LoggingPolicyRegistry registry = new LoggingPolicyRegistry();
+    private PolicySnapshot published;
+
+    @BeforeEach
+    void createRegistry() {
+        published = PolicySnapshot.current();
+        AdvicePlanRegistry advicePlanRegistry = new AdvicePlanRegistry();
+        ReflectionTestUtils.setField(advicePlanRegistry, "uris", List.of("/hello", "/welcome"));
+        ReflectionTestUtils.setField(advicePlanRegistry, "services", List.of("UCE", "WELCOME"));
+        ReflectionTestUtils.setField(registry, "advicePlanRegistry", advicePlanRegistry);
+        ReflectionTestUtils.setField(registry, "slowThresholdMillis", 1000L);
+        ReflectionTestUtils.setField(registry, "sampleRate", 0.05);
+        registry.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void restoreSnapshot() {
+        PolicySnapshot.publish(published);
+    }
+
+    @Test
+    void publishesTheConfigurationWithoutOverrides() {
+        PolicySnapshot snapshot = PolicySnapshot.current();
+
+        for (int slot = -1; slot <= WELCOME; slot++) {
+            PolicySnapshot.RequestPolicy request = snapshot.request(slot);
+            assertThat(request.levelThreshold()).isEqualTo(PolicySnapshot.INHERIT_LEVEL);
+            assertThat(request.traceSampleRate()).isEqualTo(0.05);
+            assertThat(request.slowThresholdMillis()).isEqualTo(1000);
+            assertThat(request.bodyCapture()).isNull();
+        }
+        PolicySnapshot.ServicePolicy service = snapshot.service(UCE);
+        assertThat(service.logs(Level.DEBUG)).isTrue();
+        assertThat(service.captureSampleRate()).isNaN();
+        assertThat(service.bodyCapture()).isTrue();
+        assertThat(service.isSlow(Long.MAX_VALUE)).isFalse();
+        assertThat(registry.overrides()).isEmpty();
+    }
+
+    @Test
+    void narrowerScopesWin() {
+        registry.put(PolicyScope.DEFAULT, null, new LoggingPolicy("WARN", 0.5, 0.25, null, 200L));
+        registry.put(PolicyScope.URI, "/welcome", new LoggingPolicy("DEBUG", 1.0, null, false, null));
+        registry.put(PolicyScope.SERVICE, "uce", new LoggingPolicy("ERROR", null, 0.75, null, 50L));
+        PolicySnapshot snapshot = PolicySnapshot.current();
+
+        PolicySnapshot.RequestPolicy hello = snapshot.request(HELLO);
+        assertThat(hello.levelThreshold()).isEqualTo(Level.WARN.levelInt);
+        assertThat(hello.traceSampleRate()).isEqualTo(0.5);
+        assertThat(hello.slowThresholdMillis()).isEqualTo(200);
+        assertThat(hello.keep(200)).isTrue();
+
+        PolicySnapshot.RequestPolicy welcome = snapshot.request(WELCOME);
+        assertThat(welcome.levelThreshold()).isEqualTo(Level.DEBUG.levelInt);
+        assertThat(welcome.traceSampleRate()).isEqualTo(1.0);
+        assertThat(welcome.slowThresholdMillis()).isEqualTo(200);
+        assertThat(welcome.bodyCapture()).isFalse();
+        assertThat(welcome.keep(0)).isTrue();
+
+        PolicySnapshot.ServicePolicy uce = snapshot.service(UCE);
+        assertThat(uce.logs(Level.WARN)).isFalse();
+        assertThat(uce.logs(Level.ERROR)).isTrue();
+        assertThat(uce.captureSampleRate()).isEqualTo(0.75);
+        assertThat(uce.isSlow(50)).isTrue();
+
+        PolicySnapshot.ServicePolicy welcomeService = snapshot.service(WELCOME_SERVICE);
+        assertThat(welcomeService.logs(Level.INFO)).isFalse();
+        assertThat(welcomeService.captureSampleRate()).isEqualTo(0.25);
+        // A DEFAULT slow threshold is about requests, not calls.
+        assertThat(welcomeService.isSlow(Long.MAX_VALUE)).isFalse();
+
+        assertThat(registry.overrides()).extracting(LoggingPolicyOverride::scope, LoggingPolicyOverride::target)
+                .containsExactly(tuple("DEFAULT", "*"),
+                        tuple("URI", "/welcome"),
+                        tuple("SERVICE", "UCE"));
+    }
+
+    @Test
+    void removingAnOverrideRepublishesTheSnapshot() {
+        registry.put(PolicyScope.URI, "/hello", new LoggingPolicy("OFF", null, null, null, null));
+        PolicySnapshot before = PolicySnapshot.current();
+        assertThat(before.request(HELLO).levelThreshold()).isEqualTo(Level.OFF.levelInt);
+
+        registry.remove(PolicyScope.URI, "/hello");
+        assertThat(PolicySnapshot.current()).isNotSameAs(before);
+        assertThat(PolicySnapshot.current().request(HELLO).levelThreshold()).isEqualTo(PolicySnapshot.INHERIT_LEVEL);
+        // Readers holding the old snapshot keep a consistent view.
+        assertThat(before.request(HELLO).levelThreshold()).isEqualTo(Level.OFF.levelInt);
+        assertThat(registry.overrides()).isEmpty();
+    }
+
+    @Test
+    void rejectsUnknownTargetsInvalidValuesAndSettingsOfAnotherScope() {
+        assertThatThrownBy(() -> registry.put(PolicyScope.URI, "/nope", new LoggingPolicy("INFO", null, null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Unknown target");
+        assertThatThrownBy(() -> registry.put(PolicyScope.SERVICE, "BILLING", new LoggingPolicy("INFO", null, null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Unknown target");
+        assertThatThrownBy(() -> registry.put(PolicyScope.DEFAULT, null, new LoggingPolicy("LOUD", null, null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Unknown level: LOUD");
+        assertThatThrownBy(() -> registry.put(PolicyScope.DEFAULT, null, new LoggingPolicy(null, 1.5, null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("traceSampleRate must be between 0 and 1");
+        assertThatThrownBy(() -> registry.put(PolicyScope.DEFAULT, null, new LoggingPolicy(null, null, null, null, -1L)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("slowThresholdMillis must not be negative");
+        assertThatThrownBy(() -> registry.put(PolicyScope.SERVICE, "UCE", new LoggingPolicy(null, 0.5, null, null, null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("traceSampleRate does not apply to this scope");
+        assertThatThrownBy(() -> registry.put(PolicyScope.URI, "/hello", new LoggingPolicy(null, null, 0.5, null, null)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("bodyCaptureSampleRate does not apply to this scope");
+        assertThat(registry.overrides()).isEmpty();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.spring_aop_logback.resilience;
+
+import com.example.spring_aop_logback.dto.ConcurrencyLimitStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    @Test
+    void isOffUnlessEnabledAndStartsAtTheConnectionPoolSize() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("uce.client.max-connections", "20")
+                .withProperty("welcome.limiter.enabled", "true")
+                .withProperty("welcome.limiter.initial-limit", "8");
+
+        LimiterPolicy uce = LimiterPolicy.resolve(environment, "UCE");
+        assertThat(uce.enabled()).isFalse();
+        assertThat(uce.initialLimit()).isEqualTo(20);
+
+        LimiterPolicy welcome = LimiterPolicy.resolve(environment, "welcome");
+        assertThat(welcome.enabled()).isTrue();
+        assertThat(welcome.initialLimit()).isEqualTo(8);
+        assertThat(LimiterPolicy.resolve(new MockEnvironment(), "uce").initialLimit()).isEqualTo(50);
+    }
+
+    @Test
+    void refusesCallsBeyondTheLimitUntilOneCompletes() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("UCE", policy(2, 100.0));
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        assertThat(limiter.tryAcquire()).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+        assertThat(limiter.rejection()).hasMessageContaining("Concurrency limit of 2 reached for UCE");
+
+        first.abandoned();
+        first.abandoned();
+        assertThat(limiter.tryAcquire()).isNotNull();
+        ConcurrencyLimitStats stats = limiter.stats();
+        assertThat(stats.inFlight()).isEqualTo(2);
+        assertThat(stats.accepted()).isEqualTo(3);
+        assertThat(stats.rejected()).isEqualTo(1);
+        // Giving up says nothing about the service.
+        assertThat(stats.dropped()).isZero();
+        assertThat(stats.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void growsWhileTheServiceKeepsUpWithTheLoad() {
+        // A tolerance this wide makes every answer "within tolerance" whatever the scheduling jitter.
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("UCE", policy(4, 1_000_000.0));
+
+        for (int round = 0; round < 10; round++) {
+            for (AdaptiveConcurrencyLimiter.Permit permit : acquireAll(limiter)) {
+                permit.answered(200);
+            }
+        }
+
+        assertThat(limiter.stats().limit()).isGreaterThan(10);
+    }
+
+    @Test
+    void callsTheServiceLeftUnansweredShrinkTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("UCE", policy(20, 100.0));
+
+        limiter.tryAcquire().failed();
+        assertThat(limiter.stats().limit()).isEqualTo(18);
+        limiter.tryAcquire().answered(503);
+        limiter.tryAcquire().answered(429);
+        assertThat(limiter.stats().limit()).isEqualTo(14);
+        assertThat(limiter.stats().dropped()).isEqualTo(3);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire().failed();
+        }
+        assertThat(limiter.stats().limit()).isEqualTo(2);
+        assertThat(limiter.stats().inFlight()).isZero();
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquireAll(AdaptiveConcurrencyLimiter limiter) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire(); permit != null; permit = limiter.tryAcquire()) {
+            permits.add(permit);
+        }
+        return permits;
+    }
+
+    private static LimiterPolicy policy(int initialLimit, double tolerance) {
+        return new LimiterPolicy(true, initialLimit, 2, 200, tolerance, 1.0, 500, 0.9);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.spring_aop_logback.resilience;
+
+import com.example.spring_aop_logback.context.ExternalCallAttributes;
+import com.example.spring_aop_logback.dto.HedgingStats;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Races of {@link Hedger} with a fixed hedge delay: attempt 0 is the first subscription of the call, attempt 1 the
+ * hedge.
+ */
+class HedgerTests {
+
+    private static final Duration DELAY = Duration.ofMillis(20);
+
+    private final Hedger hedger = new Hedger("WELCOME", "processWelcomeMessage", policy(DELAY, 1.0));
+    private final ExternalCallAttributes attributes = new ExternalCallAttributes();
+
+    @Test
+    void aCallAnsweringWithinTheDelayIsSentOnce() {
+        assertThat(call(hedger, Mono.just("primary"))).isEqualTo("primary");
+
+        assertThat(attributes.hedgeOutcome()).isNull();
+        HedgingStats stats = hedger.stats();
+        assertThat(stats.calls()).isEqualTo(1);
+        assertThat(stats.hedgesSent()).isZero();
+    }
+
+    @Test
+    void aSlowCallIsHedgedAndTheLoserCancelled() throws InterruptedException {
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+        String result = call(hedger, Mono.<String>never().doOnCancel(() -> primaryCancelled.set(true)), Mono.just("hedge"));
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(attributes.hedgeOutcome()).isEqualTo(HedgeOutcome.HEDGE_WON);
+        // Cancelled once the answer has been passed on.
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!primaryCancelled.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(primaryCancelled).isTrue();
+        assertThat(hedger.stats().hedgesSent()).isEqualTo(1);
+        assertThat(hedger.stats().hedgeWins()).isEqualTo(1);
+    }
+
+    @Test
+    void onceHedgedACallOnlyFailsIfBothAttemptsDo() {
+        String result = call(hedger,
+                Mono.delay(Duration.ofMillis(40)).then(Mono.error(new IllegalStateException("primary"))),
+                Mono.delay(Duration.ofMillis(80)).thenReturn("hedge"));
+        assertThat(result).isEqualTo("hedge");
+        assertThat(attributes.hedgeOutcome()).isEqualTo(HedgeOutcome.HEDGE_WON);
+
+        assertThatThrownBy(() -> call(hedger,
+                Mono.delay(Duration.ofMillis(40)).then(Mono.error(new IllegalStateException("primary"))),
+                Mono.error(new IllegalStateException("hedge"))))
+                .hasMessage("primary");
+        assertThat(attributes.hedgeOutcome()).isEqualTo(HedgeOutcome.BOTH_FAILED);
+    }
+
+    @Test
+    void aFailureBeforeTheHedgeIsPassedOn() {
+        assertThatThrownBy(() -> call(hedger, Mono.error(new IllegalStateException("primary"))))
+                .hasMessage("primary");
+
+        assertThat(attributes.hedgeOutcome()).isNull();
+        assertThat(hedger.stats().hedgesSent()).isZero();
+    }
+
+    @Test
+    void aFailureWhileTheHedgeIsBeingSentWaitsForIt() {
+        // The first attempt fails at the moment the hedge timer fires: either it failed first and no hedge is sent,
+        // or the hedge counts as running and answers. It must never end as BOTH_FAILED.
+        Hedger immediate = new Hedger("WELCOME", "processWelcomeMessage", policy(Duration.ZERO, 1.0));
+        for (int i = 0; i < 200; i++) {
+            ExternalCallAttributes race = new ExternalCallAttributes();
+            Mono<String> primary = Mono.delay(Duration.ZERO).then(Mono.error(new IllegalStateException("primary")));
+            try {
+                assertThat(call(immediate, race, primary, Mono.just("hedge"))).isEqualTo("hedge");
+                assertThat(race.hedgeOutcome()).isEqualTo(HedgeOutcome.HEDGE_WON);
+            } catch (IllegalStateException e) {
+                assertThat(e).hasMessage("primary");
+                assertThat(race.hedgeOutcome()).isNull();
+            }
+        }
+    }
+
+    @Test
+    void hedgesArePaidFromTheBudget() {
+        Hedger unfunded = new Hedger("WELCOME", "processWelcomeMessage", policy(DELAY, 0.0));
+        // The budget starts with ten hedges and a ratio of 0 earns no more.
+        for (int i = 0; i < 10; i++) {
+            assertThat(call(unfunded, Mono.delay(Duration.ofMillis(60)).thenReturn("primary"), Mono.just("hedge")))
+                    .isEqualTo("hedge");
+        }
+        assertThat(call(unfunded, Mono.delay(Duration.ofMillis(60)).thenReturn("primary"), Mono.just("hedge")))
+                .isEqualTo("primary");
+
+        HedgingStats stats = unfunded.stats();
+        assertThat(stats.hedgesSent()).isEqualTo(10);
+        assertThat(stats.budgetDenied()).isEqualTo(1);
+    }
+
+    @SafeVarargs
+    private <T> T call(Hedger hedger, Mono<T>... attempts) {
+        return call(hedger, attributes, attempts);
+    }
+
+    /**
+     * Hedges a call whose n-th subscription is {@code attempts[n]}, with {@code attributes} in its context.
+     */
+    @SafeVarargs
+    private static <T> T call(Hedger hedger, ExternalCallAttributes attributes, Mono<T>... attempts) {
+        List<Mono<T>> sequence = List.of(attempts);
+        AtomicInteger subscriptions = new AtomicInteger();
+        Mono<T> call = Mono.defer(() -> sequence.get(subscriptions.getAndIncrement()));
+        return hedger.hedge(call)
+                .contextWrite(Context.of(ExternalCallAttributes.CONTEXT_KEY, attributes))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private static HedgePolicy policy(Duration delay, double maxRatio) {
+        return new HedgePolicy(true, 95.0, delay, delay, 200, maxRatio);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.spring_aop_logback.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+/**
+ * Tail sampling keeps the external call lines of some requests only: the calls by service are counted from every
+ * summary's SPANS, the calls by status from the external call lines that were written.
+ */
+class LogAggregatesTests {
+
+    private static final String PREFIX = "2025-08-01 10:00:00.000 [http-nio-8080-exec-1] INFO  c.e.s.util.LogUtil - ";
+
+    private final LogLineParser parser = new LogLineParser();
+    private final LogAggregates aggregates = new LogAggregates(100, 2);
+
+    @Test
+    void countsTheCallsOfEveryRequestByServiceAndTheLoggedOnesByStatus() {
+        add("[CR-1] SOURCE=CONTROLLER; URI=/hello; EXECUTION_TIME=5ms; "
+                + "SPANS=HelloService.getHelloMessage 5.0ms[WELCOME.getWelcomeMessage 2.5ms]");
+        add("[CR-2] SOURCE=CONTROLLER; URI=/hello; EXECUTION_TIME=6ms; "
+                + "SPANS=HelloService.getHelloMessage 6.0ms[WELCOME.getWelcomeMessage 4.0ms], UCE.checkEntitlement 1.0ms+");
+        add("[CR-3] SOURCE=CONTROLLER; URI=/welcome; EXECUTION_TIME=12ms; ERROR_DESC=upstream failed; "
+                + "SPANS=HelloService.getHelloMessage 12.0ms![WELCOME.getWelcomeMessage 11.8ms!], S3 0.1ms, +2 more");
+        // Only the errored request's call was written.
+        add("[CR-3] SOURCE=EXTERNAL; SERVICE_NAME=WELCOME; HTTP_STATUS=503; EXECUTION_TIME=11ms; ERROR_DESC=upstream failed");
+        add("[] Started application in 2.1 seconds");
+
+        assertThat(aggregates.byService())
+                .extracting(LogAggregates.Group::name, LogAggregates.Group::count, LogAggregates.Group::errors)
+                .containsExactly(tuple("WELCOME", 3L, 1L), tuple("UCE", 1L, 0L));
+        assertThat(aggregates.byService().get(0).latency().max()).isGreaterThanOrEqualTo(millis(11.8));
+        assertThat(aggregates.byStatus())
+                .extracting(LogAggregates.Group::name, LogAggregates.Group::count, LogAggregates.Group::errors)
+                .containsExactly(tuple("503", 1L, 1L));
+        assertThat(aggregates.calls()).isEqualTo(4);
+        assertThat(aggregates.loggedCalls()).isEqualTo(1);
+
+        assertThat(aggregates.byUri())
+                .extracting(LogAggregates.Group::name, LogAggregates.Group::count, LogAggregates.Group::errors)
+                .containsExactly(tuple("/hello", 2L, 0L), tuple("/welcome", 1L, 1L));
+        assertThat(aggregates.slowest())
+                .extracting(LogAggregates.SlowRequest::correlationId, LogAggregates.SlowRequest::millis)
+                .containsExactly(tuple("CR-3", 12L), tuple("CR-2", 6L));
+        assertThat(aggregates.lines()).isEqualTo(5);
+    }
+
+    @Test
+    void mergesTheCallCounts() {
+        add("[CR-1] SOURCE=CONTROLLER; URI=/hello; EXECUTION_TIME=5ms; SPANS=UCE.checkEntitlement 2.0ms");
+        LogAggregates other = new LogAggregates(100, 2);
+        ByteBuffer buffer = line("[CR-2] SOURCE=EXTERNAL; SERVICE_NAME=UCE; HTTP_STATUS=200; EXECUTION_TIME=2ms");
+        other.add(parser, parser.parse(buffer, 0, buffer.limit()), buffer.limit() + 1);
+
+        aggregates.merge(other);
+
+        assertThat(aggregates.calls()).isEqualTo(1);
+        assertThat(aggregates.loggedCalls()).isEqualTo(1);
+        assertThat(aggregates.byStatus()).extracting(LogAggregates.Group::name).containsExactly("200");
+    }
+
+    private void add(String message) {
+        ByteBuffer buffer = line(message);
+        aggregates.add(parser, parser.parse(buffer, 0, buffer.limit()), buffer.limit() + 1);
+    }
+
+    private static ByteBuffer line(String message) {
+        return ByteBuffer.wrap((PREFIX + message).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long millis(double millis) {
+        return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
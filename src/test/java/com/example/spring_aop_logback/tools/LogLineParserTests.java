@@ -0,0 +1,103 @@
+package com.example.spring_aop_logback.tools;
+
+import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import com.example.spring_aop_logback.util.LogLineEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parses lines written by {@link LogLineEncoder} itself, so a change to the order or the names of the keys that the
+ * parser's offsets depend on shows up here.
+ */
+class LogLineParserTests {
+
+    private static final String PREFIX = "2025-08-01 10:00:00.000 [http-nio-8080-exec-1] INFO  c.e.s.util.LogUtil - [CR-1] ";
+
+    private final LogLineParser parser = new LogLineParser();
+
+    @Test
+    void findsEveryKeyOfAnExternalCallLine() {
+        String[] values = new String[ExternalLoggingEnum.values().length];
+        for (ExternalLoggingEnum key : ExternalLoggingEnum.values()) {
+            values[key.ordinal()] = key.name().toLowerCase(Locale.ROOT) + "-value";
+        }
+        values[ExternalLoggingEnum.SOURCE.ordinal()] = "EXTERNAL";
+        values[ExternalLoggingEnum.EXECUTION_TIME.ordinal()] = "1181ms";
+
+        for (LogLineEncoder.Layout layout : LogLineEncoder.Layout.values()) {
+            ByteBuffer buffer = line(layout, ExternalLoggingEnum.values(), values);
+
+            assertThat(parser.parse(buffer, 0, buffer.limit())).as(layout.name()).isTrue();
+            assertThat(parser.isExternal()).isTrue();
+            assertThat(parser.string(parser.correlationIdStart(), parser.correlationIdEnd())).isEqualTo("CR-1");
+            for (ExternalLoggingEnum key : ExternalLoggingEnum.values()) {
+                assertThat(value(key)).as(layout + " " + key).isEqualTo(values[key.ordinal()]);
+            }
+            assertThat(parser.number(ExternalLoggingEnum.EXECUTION_TIME)).isEqualTo(1181);
+        }
+    }
+
+    @Test
+    void aTextValueEndsOnlyAtALaterKey() {
+        String[] values = new String[ExternalLoggingEnum.values().length];
+        values[ExternalLoggingEnum.SOURCE.ordinal()] = "EXTERNAL";
+        values[ExternalLoggingEnum.SERVICE_NAME.ordinal()] = "UCE";
+        // An earlier key inside a later value is part of the value.
+        values[ExternalLoggingEnum.ERROR_DESC.ordinal()] = "503 from upstream; HTTP_STATUS=503; retry later";
+        values[ExternalLoggingEnum.HEDGE.ordinal()] = "HEDGE_WON";
+
+        ByteBuffer buffer = line(LogLineEncoder.Layout.TEXT, ExternalLoggingEnum.values(), values);
+
+        assertThat(parser.parse(buffer, 0, buffer.limit())).isTrue();
+        assertThat(value(ExternalLoggingEnum.ERROR_DESC)).isEqualTo("503 from upstream; HTTP_STATUS=503; retry later");
+        assertThat(value(ExternalLoggingEnum.HEDGE)).isEqualTo("HEDGE_WON");
+        assertThat(parser.start(ExternalLoggingEnum.HTTP_STATUS)).isEqualTo(LogLineParser.ABSENT);
+        assertThat(parser.has(ExternalLoggingEnum.HTTP_STATUS)).isFalse();
+        assertThat(parser.number(ExternalLoggingEnum.EXECUTION_TIME)).isEqualTo(-1);
+    }
+
+    @Test
+    void findsEveryKeyOfARequestSummary() {
+        String[] values = new String[LoggingEnum.values().length];
+        for (LoggingEnum key : LoggingEnum.values()) {
+            values[key.ordinal()] = key.name().toLowerCase(Locale.ROOT) + "-value";
+        }
+        values[LoggingEnum.SOURCE.ordinal()] = "CONTROLLER";
+        values[LoggingEnum.SPANS.ordinal()] = "HelloService.getHelloMessage 5.0ms[WELCOME.getWelcomeMessage 2.0ms!], UCE.checkEntitlement 8.0ms+";
+
+        for (LogLineEncoder.Layout layout : LogLineEncoder.Layout.values()) {
+            ByteBuffer buffer = line(layout, LoggingEnum.values(), values);
+
+            assertThat(parser.parse(buffer, 0, buffer.limit())).as(layout.name()).isTrue();
+            assertThat(parser.isExternal()).isFalse();
+            for (LoggingEnum key : LoggingEnum.values()) {
+                assertThat(value(key)).as(layout + " " + key).isEqualTo(values[key.ordinal()]);
+            }
+        }
+    }
+
+    @Test
+    void skipsLinesThatAreNeitherSummariesNorExternalCalls() {
+        ByteBuffer plain = ByteBuffer.wrap((PREFIX + "Started application in 2.1 seconds").getBytes(StandardCharsets.UTF_8));
+        ByteBuffer service = ByteBuffer.wrap((PREFIX + "SOURCE=SERVICE; METHOD=getHelloMessage").getBytes(StandardCharsets.UTF_8));
+        ByteBuffer noCorrelationId = ByteBuffer.wrap("SOURCE=CONTROLLER; URI=/hello".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(parser.parse(plain, 0, plain.limit())).isFalse();
+        assertThat(parser.parse(service, 0, service.limit())).isFalse();
+        assertThat(parser.parse(noCorrelationId, 0, noCorrelationId.limit())).isFalse();
+    }
+
+    private String value(Enum<?> key) {
+        return parser.start(key) == LogLineParser.ABSENT ? null : parser.string(parser.start(key), parser.end(key));
+    }
+
+    private static <E extends Enum<E>> ByteBuffer line(LogLineEncoder.Layout layout, E[] keys, String[] values) {
+        return ByteBuffer.wrap((PREFIX + new LogLineEncoder(layout).encode(keys, values)).getBytes(StandardCharsets.UTF_8));
+    }
+}
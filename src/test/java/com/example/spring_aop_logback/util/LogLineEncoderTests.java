@@ -0,0 +1,74 @@
+package com.example.spring_aop_logback.util;
+
+import com.example.spring_aop_logback.enums.ExternalLoggingEnum;
+import com.example.spring_aop_logback.enums.LoggingEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogLineEncoderTests {
+
+    private final LogLineEncoder text = new LogLineEncoder(LogLineEncoder.Layout.TEXT);
+    private final LogLineEncoder json = new LogLineEncoder(LogLineEncoder.Layout.JSON);
+
+    @Test
+    void writesTheNonBlankValuesInKeyOrder() {
+        String[] values = new String[LoggingEnum.values().length];
+        values[LoggingEnum.URI.ordinal()] = "/hello";
+        values[LoggingEnum.SOURCE.ordinal()] = "CONTROLLER";
+        values[LoggingEnum.HTTP_METHOD.ordinal()] = "";
+        values[LoggingEnum.METHOD.ordinal()] = "  ";
+        values[LoggingEnum.EXECUTION_TIME.ordinal()] = "12ms";
+
+        assertThat(text.encode(LoggingEnum.values(), values)).isEqualTo("SOURCE=CONTROLLER; URI=/hello; EXECUTION_TIME=12ms");
+        assertThat(json.encode(LoggingEnum.values(), values))
+                .isEqualTo("{\"SOURCE\":\"CONTROLLER\",\"URI\":\"/hello\",\"EXECUTION_TIME\":\"12ms\"}");
+    }
+
+    @Test
+    void writesNothingWithoutValues() {
+        String[] values = new String[ExternalLoggingEnum.values().length];
+
+        assertThat(text.encode(ExternalLoggingEnum.values(), values)).isEmpty();
+        assertThat(json.encode(ExternalLoggingEnum.values(), values)).isEqualTo("{}");
+    }
+
+    @Test
+    void escapesJsonButLeavesTextAsIs() {
+        String[] values = new String[ExternalLoggingEnum.values().length];
+        values[ExternalLoggingEnum.RESP_BODY.ordinal()] = "{\"a\":\"b\\c\"}\n\r\t\u0001";
+
+        assertThat(json.encode(ExternalLoggingEnum.values(), values))
+                .isEqualTo("{\"RESP_BODY\":\"{\\\"a\\\":\\\"b\\\\c\\\"}\\n\\r\\t\\u0001\"}");
+        assertThat(text.encode(ExternalLoggingEnum.values(), values)).isEqualTo("RESP_BODY={\"a\":\"b\\c\"}\n\r\t\u0001");
+    }
+
+    @Test
+    void encodesRunTimeKeyNamesLikeEnumKeys() {
+        LogLineEncoder.KeyNames keys = new LogLineEncoder.KeyNames(new String[]{"SOURCE", "RETIRED", "URI"});
+
+        assertThat(keys.size()).isEqualTo(3);
+        assertThat(text.encode(keys, new String[]{"CONTROLLER", null, "/hello"})).isEqualTo("SOURCE=CONTROLLER; URI=/hello");
+        assertThat(json.encode(keys, new String[]{null, "gone", null})).isEqualTo("{\"RETIRED\":\"gone\"}");
+    }
+
+    @Test
+    void reusesTheThreadsBufferAcrossLinesOfAnyLength() {
+        String[] values = new String[LoggingEnum.values().length];
+        values[LoggingEnum.SOURCE.ordinal()] = "CONTROLLER";
+        String first = text.encode(LoggingEnum.values(), values);
+
+        // Longer than the buffer is kept at, then short again: no leftovers from the previous line.
+        values[LoggingEnum.ERROR_DESC.ordinal()] = "x".repeat(40_000);
+        String huge = text.encode(LoggingEnum.values(), values);
+        values[LoggingEnum.ERROR_DESC.ordinal()] = null;
+        values[LoggingEnum.URI.ordinal()] = "/a";
+        String shorter = text.encode(LoggingEnum.values(), values);
+        String shorterJson = json.encode(LoggingEnum.values(), values);
+
+        assertThat(first).isEqualTo("SOURCE=CONTROLLER");
+        assertThat(huge).hasSize("SOURCE=CONTROLLER; ERROR_DESC=".length() + 40_000).endsWith("xxx");
+        assertThat(shorter).isEqualTo("SOURCE=CONTROLLER; URI=/a");
+        assertThat(shorterJson).isEqualTo("{\"SOURCE\":\"CONTROLLER\",\"URI\":\"/a\"}");
+    }
+}